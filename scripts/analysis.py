@@ -14,7 +14,7 @@ MINIMUM_SPREAD = -1  # `spread` means number of files which have common content
 TOTAL_DUP_LINES_FILTER = 50  # total number of lines which have to be duplicate in the entire project
 
 NUM_DUPLICATED_LINES_URL = 'http://localhost:9000/api/measures/component?component={project}&metricKeys=duplicated_lines'
-COMPONENTS_URL = 'http://localhost:9000/api/components/tree?component={project}&ps=500&qualifiers=FIL'
+COMPONENTS_URL = 'http://localhost:9000/api/components/tree?component={project}&ps=500&qualifiers=FIL&cursor={cursor}'
 DUPLICATIONS_URL = 'http://localhost:9000/api/duplications/show?key={component}'
 session = requests.session()
 session.auth = ("admin", "admin")
@@ -35,8 +35,13 @@ projects = [project for project in projects if get_num_duplicated_lines(project)
 
 def get_components(project):
     """you can say that in sonarqube, components are files of the project"""
-    r = session.get(COMPONENTS_URL.format(project=project)).json()
-    return [component['key'] for component in r['components']]
+    keys = []
+    cursor = '*'
+    while cursor:
+        r = session.get(COMPONENTS_URL.format(project=project, cursor=requests.utils.quote(cursor, safe=''))).json()
+        keys.extend(component['key'] for component in r['components'])
+        cursor = r.get('nextCursor')
+    return keys
 
 
 components = {project: get_components(project) for project in projects}
@@ -20,6 +20,7 @@
 package org.sonar.ce.task.projectanalysis.batch;
 
 import java.io.File;
+import java.util.Optional;
 import org.sonar.ce.task.CeTask;
 
 public interface BatchReportDirectoryHolder {
@@ -30,4 +31,10 @@ public interface BatchReportDirectoryHolder {
    */
   File getDirectory();
 
+  /**
+   * The zip File of the Batch report for the current {@link CeTask}, when the report is read directly from its
+   * compressed form instead of being extracted to a directory.
+   */
+  Optional<File> getZipFile();
+
 }
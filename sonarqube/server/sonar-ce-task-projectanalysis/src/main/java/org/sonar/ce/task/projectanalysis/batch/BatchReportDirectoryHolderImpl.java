@@ -21,14 +21,23 @@ package org.sonar.ce.task.projectanalysis.batch;
 
 import java.io.File;
 import java.util.Objects;
+import java.util.Optional;
 
 public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirectoryHolder {
 
   private File directory = null;
+  private File zipFile = null;
 
   @Override
   public void setDirectory(File newDirectory) {
     this.directory = Objects.requireNonNull(newDirectory);
+    this.zipFile = null;
+  }
+
+  @Override
+  public void setZipFile(File newZipFile) {
+    this.zipFile = Objects.requireNonNull(newZipFile);
+    this.directory = null;
   }
 
   @Override
@@ -38,4 +47,9 @@ public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirecto
     }
     return this.directory;
   }
+
+  @Override
+  public Optional<File> getZipFile() {
+    return Optional.ofNullable(this.zipFile);
+  }
 }
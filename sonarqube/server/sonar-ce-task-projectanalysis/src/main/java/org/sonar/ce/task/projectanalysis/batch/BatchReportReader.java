@@ -29,6 +29,12 @@ public interface BatchReportReader {
 
   CloseableIterator<String> readScannerLogs();
 
+  /**
+   * Metrics of the phases of the analysis measured by the scanner, as JSON. Returns an absent optional if the report
+   * does not contain them
+   */
+  Optional<String> readTelemetry();
+
   CloseableIterator<ScannerReport.ActiveRule> readActiveRules();
 
   CloseableIterator<ScannerReport.AdHocRule> readAdHocRules();
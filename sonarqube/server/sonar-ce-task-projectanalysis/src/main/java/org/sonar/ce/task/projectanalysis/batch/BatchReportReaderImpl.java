@@ -21,24 +21,27 @@ package org.sonar.ce.task.projectanalysis.batch;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.LineSgnificantCode;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ZipScannerReportReader;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
-  private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
+  private ScannerReportReader delegate;
   // caching of metadata which are read often
   private ScannerReport.Metadata metadata;
 
@@ -48,7 +51,24 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   private void ensureInitialized() {
     if (this.delegate == null) {
-      this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+      Optional<File> zipFile = batchReportDirectoryHolder.getZipFile();
+      if (zipFile.isPresent()) {
+        this.delegate = new ZipScannerReportReader(zipFile.get());
+      } else {
+        this.delegate = new ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+      }
+    }
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, report is read lazily
+  }
+
+  @Override
+  public void stop() {
+    if (delegate instanceof ZipScannerReportReader) {
+      IOUtils.closeQuietly((ZipScannerReportReader) delegate);
     }
   }
 
@@ -64,15 +84,25 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<String> readScannerLogs() {
     ensureInitialized();
-    File file = delegate.getFileStructure().analysisLog();
-    if (!file.exists()) {
+    InputStream input = delegate.openAnalysisLog();
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
-    try {
-      InputStreamReader reader = new InputStreamReader(FileUtils.openInputStream(file), UTF_8);
-      return new LineReaderIterator(reader);
+    InputStreamReader reader = new InputStreamReader(input, UTF_8);
+    return new LineReaderIterator(reader);
+  }
+
+  @Override
+  public Optional<String> readTelemetry() {
+    ensureInitialized();
+    InputStream input = delegate.openTelemetry();
+    if (input == null) {
+      return Optional.empty();
+    }
+    try (InputStream in = input) {
+      return Optional.of(IOUtils.toString(in, UTF_8));
     } catch (IOException e) {
-      throw new IllegalStateException("Fail to open file " + file, e);
+      throw new IllegalStateException("Fail to read scanner telemetry", e);
     }
   }
 
@@ -152,16 +182,12 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream input = delegate.openFileSource(fileRef);
+    if (input == null) {
       return Optional.empty();
     }
 
-    try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), UTF_8)));
-    } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
-    }
+    return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(input, UTF_8)));
   }
 
   private static class CloseableLineIterator extends CloseableIterator<String> {
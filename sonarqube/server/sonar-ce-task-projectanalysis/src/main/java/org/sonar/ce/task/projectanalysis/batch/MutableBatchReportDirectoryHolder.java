@@ -31,4 +31,14 @@ public interface MutableBatchReportDirectoryHolder extends BatchReportDirectoryH
    * @throws NullPointerException if {@code newDirectory} is {@code null}
    */
   void setDirectory(File newDirectory);
+
+  /**
+   * Sets the zip File of the Batch report, which is then read without being extracted. Any directory previously set
+   * is forgotten, and conversely.
+   *
+   * @param newZipFile a {@link File}, can not be {@code null}
+   *
+   * @throws NullPointerException if {@code newZipFile} is {@code null}
+   */
+  void setZipFile(File newZipFile);
 }
@@ -19,22 +19,44 @@
  */
 package org.sonar.ce.task.projectanalysis.component;
 
+import javax.annotation.Nullable;
+
 import static java.util.Objects.requireNonNull;
 
 /**
  * Implementation of {@link ComponentCrawler} that implements a depth traversal of a {@link Component} tree.
  * <p>It supports visiting traversal in either pre-order or post-order</p>
  * It supports a max depth for crawling (component strictly deeper than the specified type will be ignored).
+ * <p>If the visitor is a {@link FileLocalVisitor}, files can be visited concurrently before the rest of the tree.</p>
  */
 public final class DepthTraversalTypeAwareCrawler implements ComponentCrawler {
   private final TypeAwareVisitor visitor;
+  @Nullable
+  private final ParallelFileVisits parallelFileVisits;
 
   public DepthTraversalTypeAwareCrawler(TypeAwareVisitor visitor) {
+    this(visitor, 1);
+  }
+
+  /**
+   * @param fileVisitThreads number of threads used to visit files when {@code visitor} is a {@link FileLocalVisitor},
+   *                         files are visited sequentially if less than 2
+   */
+  public DepthTraversalTypeAwareCrawler(TypeAwareVisitor visitor, int fileVisitThreads) {
     this.visitor = requireNonNull(visitor);
+    boolean parallel = fileVisitThreads > 1 && visitor instanceof FileLocalVisitor && verifyDepth(Component.Type.FILE);
+    this.parallelFileVisits = parallel ? new ParallelFileVisits(fileVisitThreads) : null;
   }
 
   @Override
   public void visit(Component component) {
+    if (parallelFileVisits != null) {
+      parallelFileVisits.visit(component, this::visitNode);
+    }
+    visitTree(component);
+  }
+
+  private void visitTree(Component component) {
     try {
       visitImpl(component);
     } catch (RuntimeException e) {
@@ -46,6 +68,10 @@ public final class DepthTraversalTypeAwareCrawler implements ComponentCrawler {
     if (!verifyDepth(component)) {
       return;
     }
+    if (parallelFileVisits != null && component.getType() == Component.Type.FILE) {
+      // already visited
+      return;
+    }
 
     if (this.visitor.getOrder() == ComponentVisitor.Order.PRE_ORDER) {
       visitNode(component);
@@ -59,8 +85,12 @@ public final class DepthTraversalTypeAwareCrawler implements ComponentCrawler {
   }
 
   private boolean verifyDepth(Component component) {
+    return verifyDepth(component.getType());
+  }
+
+  private boolean verifyDepth(Component.Type type) {
     CrawlerDepthLimit maxDepth = this.visitor.getMaxDepth();
-    return maxDepth.isSameAs(component.getType()) || maxDepth.isDeeperThan(component.getType());
+    return maxDepth.isSameAs(type) || maxDepth.isDeeperThan(type);
   }
 
   private void visitNode(Component component) {
@@ -92,7 +122,7 @@ public final class DepthTraversalTypeAwareCrawler implements ComponentCrawler {
   private void visitChildren(Component component) {
     for (Component child : component.getChildren()) {
       if (verifyDepth(child)) {
-        visit(child);
+        visitTree(child);
       }
     }
   }
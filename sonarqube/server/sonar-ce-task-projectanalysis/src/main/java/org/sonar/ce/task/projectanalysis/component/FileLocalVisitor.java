@@ -0,0 +1,37 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.component;
+
+/**
+ * Marker interface of the {@link TypeAwareVisitor} which can visit {@link Component.Type#FILE files} concurrently.
+ * <p>
+ * A file-local visitor guarantees that:
+ * <ul>
+ *   <li>{@link #visitFile(Component)} and {@link #visitAny(Component)} of a file only read and write data of this file,</li>
+ *   <li>they do not depend on the visit of any other component (including the ancestors of the file),</li>
+ *   <li>they can be called concurrently from several threads, for different files,</li>
+ *   <li>they do not use holders of the component being crawled, such as
+ *   {@link org.sonar.ce.task.projectanalysis.issue.ComponentIssuesRepository}.</li>
+ * </ul>
+ * Visits of the other components (directories, project, ...) are always done sequentially, after all files have been
+ * visited, so that they can aggregate the data computed on files.
+ */
+public interface FileLocalVisitor extends TypeAwareVisitor {
+}
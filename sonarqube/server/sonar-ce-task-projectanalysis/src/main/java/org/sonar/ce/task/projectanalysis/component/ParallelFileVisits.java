@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Visits the {@link Component.Type#FILE files} of a component tree with a pool of threads.
+ */
+final class ParallelFileVisits {
+  private final int threads;
+
+  ParallelFileVisits(int threads) {
+    checkArgument(threads > 1, "Parallel visit of files requires at least 2 threads");
+    this.threads = threads;
+  }
+
+  /**
+   * Calls {@code fileVisit} for each file of the tree of {@code root} and waits for all calls to complete.
+   * If any call fails, the pending ones are cancelled and the failure is rethrown as a {@link VisitException}.
+   */
+  void visit(Component root, Consumer<Component> fileVisit) {
+    List<Component> files = new ArrayList<>();
+    collectFiles(root, files);
+    if (files.isEmpty()) {
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()),
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("CE_file_visitor-%d")
+        .build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(files.size());
+      for (Component file : files) {
+        futures.add(executor.submit(() -> visitFile(file, fileVisit)));
+      }
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void visitFile(Component file, Consumer<Component> fileVisit) {
+    try {
+      fileVisit.accept(file);
+    } catch (RuntimeException e) {
+      VisitException.rethrowOrWrap(e, "Visit of Component {key=%s,type=%s} failed", file.getDbKey(), file.getType());
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while visiting files", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Visit of files failed", cause);
+    }
+  }
+
+  private static void collectFiles(Component component, List<Component> files) {
+    if (component.getType() == Component.Type.FILE) {
+      files.add(component);
+      return;
+    }
+    for (Component child : component.getChildren()) {
+      collectFiles(child, files);
+    }
+  }
+}
@@ -23,9 +23,11 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Loggers;
@@ -37,6 +39,11 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * This crawler make any number of {@link TypeAwareVisitor} or {@link PathAwareVisitor} defined in a list visit a component tree, component per component, in the order of the list
+ * <p>
+ * When more than one thread is allowed to visit files, the {@link FileLocalVisitor} at the beginning of the list visit
+ * all the files of the tree concurrently, each file being visited by these visitors in the order of the list. The tree
+ * is then crawled as usual, except that these visitors do not visit files again.
+ * </p>
  */
 public class VisitorsCrawler implements ComponentCrawler {
 
@@ -44,19 +51,49 @@ public class VisitorsCrawler implements ComponentCrawler {
   private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
   private final List<VisitorWrapper> preOrderVisitorWrappers;
   private final List<VisitorWrapper> postOrderVisitorWrappers;
+  private final List<VisitorWrapper> fileLocalVisitorWrappers;
+  @Nullable
+  private final ParallelFileVisits parallelFileVisits;
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
     this(visitors, false);
   }
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration) {
+    this(visitors, computeDuration, 1);
+  }
+
+  /**
+   * @param fileVisitThreads number of threads used to visit files with {@link FileLocalVisitor}, files are visited
+   *                         sequentially if less than 2
+   */
+  public VisitorsCrawler(Iterable<ComponentVisitor> visitors, boolean computeDuration, int fileVisitThreads) {
     List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
     this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
     this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
+    this.fileLocalVisitorWrappers = fileVisitThreads > 1 ? leadingFileLocalVisitors(visitorWrappers) : Collections.emptyList();
+    this.parallelFileVisits = fileLocalVisitorWrappers.isEmpty() ? null : new ParallelFileVisits(fileVisitThreads);
     this.computeDuration = computeDuration;
     this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
   }
 
+  /**
+   * Only the {@link FileLocalVisitor} which are not preceded by any other visitor of files can visit files before the
+   * tree is crawled, otherwise the order of the visitors would not be honored.
+   */
+  private static List<VisitorWrapper> leadingFileLocalVisitors(List<VisitorWrapper> visitorWrappers) {
+    List<VisitorWrapper> res = new ArrayList<>();
+    for (VisitorWrapper visitorWrapper : visitorWrappers) {
+      if (!(visitorWrapper.getWrappedVisitor() instanceof FileLocalVisitor)) {
+        break;
+      }
+      if (visitorWrapper.getMaxDepth().isDeeperThan(Component.Type.FILE) || visitorWrapper.getMaxDepth().isSameAs(Component.Type.FILE)) {
+        res.add(visitorWrapper);
+      }
+    }
+    return res;
+  }
+
   public Map<ComponentVisitor, Long> getCumulativeDurations() {
     if (computeDuration) {
       return ImmutableMap.copyOf(
@@ -68,6 +105,19 @@ public class VisitorsCrawler implements ComponentCrawler {
 
   @Override
   public void visit(final Component component) {
+    if (parallelFileVisits != null) {
+      parallelFileVisits.visit(component, this::visitFileWithFileLocalVisitors);
+    }
+    visitTree(component);
+  }
+
+  private void visitFileWithFileLocalVisitors(Component file) {
+    for (VisitorWrapper visitorWrapper : fileLocalVisitorWrappers) {
+      visitNode(file, visitorWrapper);
+    }
+  }
+
+  private void visitTree(Component component) {
     try {
       visitImpl(component);
     } catch (RuntimeException e) {
@@ -80,8 +130,11 @@ public class VisitorsCrawler implements ComponentCrawler {
 
   private void visitImpl(Component component) {
     MatchVisitorMaxDepth visitorMaxDepth = MatchVisitorMaxDepth.forComponent(component);
-    List<VisitorWrapper> preOrderVisitorWrappersToExecute = from(preOrderVisitorWrappers).filter(visitorMaxDepth).toList();
-    List<VisitorWrapper> postOrderVisitorWrappersToExecute = from(postOrderVisitorWrappers).filter(visitorMaxDepth).toList();
+    Predicate<VisitorWrapper> notAlreadyVisited = component.getType() == Component.Type.FILE && !fileLocalVisitorWrappers.isEmpty()
+      ? visitorWrapper -> !fileLocalVisitorWrappers.contains(visitorWrapper)
+      : visitorWrapper -> true;
+    List<VisitorWrapper> preOrderVisitorWrappersToExecute = from(preOrderVisitorWrappers).filter(visitorMaxDepth).filter(notAlreadyVisited).toList();
+    List<VisitorWrapper> postOrderVisitorWrappersToExecute = from(postOrderVisitorWrappers).filter(visitorMaxDepth).filter(notAlreadyVisited).toList();
     if (preOrderVisitorWrappersToExecute.isEmpty() && postOrderVisitorWrappersToExecute.isEmpty()) {
       return;
     }
@@ -107,7 +160,7 @@ public class VisitorsCrawler implements ComponentCrawler {
 
   private void visitChildren(Component component) {
     for (Component child : component.getChildren()) {
-      visit(child);
+      visitTree(child);
     }
   }
 
@@ -208,14 +261,14 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private static final class VisitorDuration {
-    private long duration = 0;
+    private final AtomicLong duration = new AtomicLong(0);
 
     public void increment(long duration) {
-      this.duration += duration;
+      this.duration.addAndGet(duration);
     }
 
     public long getDuration() {
-      return duration;
+      return duration.get();
     }
   }
 
@@ -39,6 +39,7 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
@@ -63,6 +64,13 @@ import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order
 
 public class FileMoveDetectionStep implements ComputationStep {
   static final int MIN_REQUIRED_SCORE = 85;
+  /**
+   * When enabled, pairs of files which can not reach {@link #MIN_REQUIRED_SCORE} are discarded by comparing their sorted
+   * line hashes before any Levenshtein distance is computed, and the distance of the remaining pairs is computed only
+   * up to the value which gives {@link #MIN_REQUIRED_SCORE}. Scores below {@link #MIN_REQUIRED_SCORE} are then not
+   * stored in the score matrix, but the elected matches are the same.
+   */
+  static final String PRUNE_CANDIDATES_PROPERTY = "sonar.filemove.pruneCandidates";
   private static final Logger LOG = Loggers.get(FileMoveDetectionStep.class);
   private static final Comparator<ScoreMatrix.ScoreFile> SCORE_FILE_COMPARATOR = (o1, o2) -> -1 * Integer.compare(o1.getLineCount(), o2.getLineCount());
   private static final double LOWER_BOUND_RATIO = 0.84;
@@ -72,22 +80,26 @@ public class FileMoveDetectionStep implements ComputationStep {
   private final TreeRootHolder rootHolder;
   private final DbClient dbClient;
   private final FileSimilarity fileSimilarity;
+  private final SourceSimilarity sourceSimilarity;
   private final MutableMovedFilesRepository movedFilesRepository;
   private final SourceLinesHashRepository sourceLinesHash;
   private final ScoreMatrixDumper scoreMatrixDumper;
   private final MutableAddedFileRepository addedFileRepository;
+  private final Configuration configuration;
 
   public FileMoveDetectionStep(AnalysisMetadataHolder analysisMetadataHolder, TreeRootHolder rootHolder, DbClient dbClient,
-    FileSimilarity fileSimilarity, MutableMovedFilesRepository movedFilesRepository, SourceLinesHashRepository sourceLinesHash,
-    ScoreMatrixDumper scoreMatrixDumper, MutableAddedFileRepository addedFileRepository) {
+    FileSimilarity fileSimilarity, SourceSimilarity sourceSimilarity, MutableMovedFilesRepository movedFilesRepository, SourceLinesHashRepository sourceLinesHash,
+    ScoreMatrixDumper scoreMatrixDumper, MutableAddedFileRepository addedFileRepository, Configuration configuration) {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.rootHolder = rootHolder;
     this.dbClient = dbClient;
     this.fileSimilarity = fileSimilarity;
+    this.sourceSimilarity = sourceSimilarity;
     this.movedFilesRepository = movedFilesRepository;
     this.sourceLinesHash = sourceLinesHash;
     this.scoreMatrixDumper = scoreMatrixDumper;
     this.addedFileRepository = addedFileRepository;
+    this.configuration = configuration;
   }
 
   @Override
@@ -139,7 +151,7 @@ public class FileMoveDetectionStep implements ComputationStep {
 
     // compute score matrix
     p.start();
-    ScoreMatrix scoreMatrix = computeScoreMatrix(dbFilesByUuid, removedFileUuids, addedFileHashesByUuid);
+    ScoreMatrix scoreMatrix = computeScoreMatrix(context, dbFilesByUuid, removedFileUuids, addedFileHashesByUuid);
     p.stopTrace("Score matrix computed");
     scoreMatrixDumper.dumpAsCsv(scoreMatrix);
 
@@ -233,7 +245,8 @@ public class FileMoveDetectionStep implements ComputationStep {
     return sourceLinesHash.getLineHashesMatchingDBVersion(component);
   }
 
-  private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByUuid, Set<String> removedFileUuids, Map<String, File> addedFileHashesByUuid) {
+  private ScoreMatrix computeScoreMatrix(ComputationStep.Context context, Map<String, DbComponent> dtosByUuid, Set<String> removedFileUuids,
+    Map<String, File> addedFileHashesByUuid) {
     ScoreMatrix.ScoreFile[] addedFiles = addedFileHashesByUuid.entrySet().stream()
       .map(e -> new ScoreMatrix.ScoreFile(e.getKey(), e.getValue().getLineCount()))
       .toArray(ScoreMatrix.ScoreFile[]::new);
@@ -247,7 +260,7 @@ public class FileMoveDetectionStep implements ComputationStep {
     // sort by highest line count first
     Arrays.sort(addedFiles, SCORE_FILE_COMPARATOR);
     Arrays.sort(removedFiles, SCORE_FILE_COMPARATOR);
-    int[][] scoreMatrix = new int[removedFiles.length][addedFiles.length];
+    ScoreMatrix.Builder scoreMatrix = new ScoreMatrix.Builder(removedFiles, addedFiles);
     int smallestAddedFileSize = addedFiles[0].getLineCount();
     int largestAddedFileSize = addedFiles[addedFiles.length - 1].getLineCount();
 
@@ -263,13 +276,18 @@ public class FileMoveDetectionStep implements ComputationStep {
       removedFilesIndexesByUuid.put(removedFile.getFileUuid(), removeFileIndex);
     }
 
+    boolean pruneCandidates = configuration.getBoolean(PRUNE_CANDIDATES_PROPERTY).orElse(false);
     LineHashesWithKeyDtoResultHandler rowHandler = new LineHashesWithKeyDtoResultHandler(removedFilesIndexesByUuid, removedFiles,
-      addedFiles, addedFileHashesByUuid, scoreMatrix);
+      addedFiles, addedFileHashesByUuid, scoreMatrix, pruneCandidates);
     try (DbSession dbSession = dbClient.openSession(false)) {
       dbClient.fileSourceDao().scrollLineHashes(dbSession, removedFilesIndexesByUuid.keySet(), rowHandler);
     }
+    if (pruneCandidates) {
+      context.getStatistics().add("prunedPairs", rowHandler.prunedPairs);
+      context.getStatistics().add("comparedPairs", rowHandler.comparedPairs);
+    }
 
-    return new ScoreMatrix(removedFiles, addedFiles, scoreMatrix, rowHandler.getMaxScore());
+    return scoreMatrix.build();
   }
 
   private final class LineHashesWithKeyDtoResultHandler implements ResultHandler<LineHashesWithUuidDto> {
@@ -277,17 +295,21 @@ public class FileMoveDetectionStep implements ComputationStep {
     private final ScoreMatrix.ScoreFile[] removedFiles;
     private final ScoreMatrix.ScoreFile[] newFiles;
     private final Map<String, File> newFilesByUuid;
-    private final int[][] scoreMatrix;
-    private int maxScore;
+    private final ScoreMatrix.Builder scoreMatrix;
+    private final boolean pruneCandidates;
+    private LineHashesIndex lineHashesIndex;
+    private int prunedPairs = 0;
+    private int comparedPairs = 0;
 
     private LineHashesWithKeyDtoResultHandler(Map<String, Integer> removedFileIndexesByUuid, ScoreMatrix.ScoreFile[] removedFiles,
       ScoreMatrix.ScoreFile[] newFiles, Map<String, File> newFilesByUuid,
-      int[][] scoreMatrix) {
+      ScoreMatrix.Builder scoreMatrix, boolean pruneCandidates) {
       this.removedFileIndexesByUuid = removedFileIndexesByUuid;
       this.removedFiles = removedFiles;
       this.newFiles = newFiles;
       this.newFilesByUuid = newFilesByUuid;
       this.scoreMatrix = scoreMatrix;
+      this.pruneCandidates = pruneCandidates;
     }
 
     @Override
@@ -301,6 +323,32 @@ public class FileMoveDetectionStep implements ComputationStep {
       int lowerBound = (int) Math.floor(removedFile.getLineCount() * LOWER_BOUND_RATIO);
       int upperBound = (int) Math.ceil(removedFile.getLineCount() * UPPER_BOUND_RATIO);
 
+      File fileHashesInDb = new FileImpl(lineHashesDto.getLineHashes());
+      if (pruneCandidates) {
+        scorePrunedCandidates(fileHashesInDb, lowerBound, upperBound);
+      } else {
+        for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
+          ScoreMatrix.ScoreFile newFile = newFiles[newFileIndex];
+          if (newFile.getLineCount() >= upperBound) {
+            continue;
+          }
+          if (newFile.getLineCount() <= lowerBound) {
+            break;
+          }
+
+          File unmatchedFile = newFilesByUuid.get(newFile.getFileUuid());
+          scoreMatrix.add(newFileIndex, fileSimilarity.score(fileHashesInDb, unmatchedFile));
+        }
+      }
+      scoreMatrix.endRow(removedFileIndex);
+    }
+
+    private void scorePrunedCandidates(File fileHashesInDb, int lowerBound, int upperBound) {
+      if (lineHashesIndex == null) {
+        lineHashesIndex = new LineHashesIndex(newFiles, newFilesByUuid);
+      }
+      int[] removedHashIds = lineHashesIndex.toHashIds(fileHashesInDb.getLineHashes());
+      int[] sortedRemovedHashIds = sortedCopy(removedHashIds);
       for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
         ScoreMatrix.ScoreFile newFile = newFiles[newFileIndex];
         if (newFile.getLineCount() >= upperBound) {
@@ -310,19 +358,95 @@ public class FileMoveDetectionStep implements ComputationStep {
           break;
         }
 
-        File fileHashesInDb = new FileImpl(lineHashesDto.getLineHashes());
-        File unmatchedFile = newFilesByUuid.get(newFile.getFileUuid());
-        int score = fileSimilarity.score(fileHashesInDb, unmatchedFile);
-        scoreMatrix[removedFileIndex][newFileIndex] = score;
-        if (score > maxScore) {
-          maxScore = score;
+        int[] newHashIds = lineHashesIndex.getHashIds(newFileIndex);
+        int maxLength = Math.max(removedHashIds.length, newHashIds.length);
+        int maxDistance = sourceSimilarity.maxDistanceForScore(maxLength, MIN_REQUIRED_SCORE);
+        // Levenshtein distance can not be less than maxLength minus the number of lines the two files have in common
+        if (maxDistance < 0 || countCommonLines(sortedRemovedHashIds, lineHashesIndex.getSortedHashIds(newFileIndex)) < maxLength - maxDistance) {
+          prunedPairs++;
+          continue;
+        }
+        comparedPairs++;
+        int score = sourceSimilarity.score(removedHashIds, newHashIds, MIN_REQUIRED_SCORE);
+        if (score >= 0) {
+          scoreMatrix.add(newFileIndex, score);
+        }
+      }
+    }
+  }
+
+  /**
+   * Line hashes of the added files, each distinct hash being replaced by an int so that files can be compared
+   * without any String comparison.
+   */
+  private static final class LineHashesIndex {
+    private static final int UNKNOWN_HASH_ID = -1;
+
+    private final Map<String, Integer> idsByHash = new HashMap<>();
+    private final int[][] hashIds;
+    private final int[][] sortedHashIds;
+
+    private LineHashesIndex(ScoreMatrix.ScoreFile[] newFiles, Map<String, File> newFilesByUuid) {
+      this.hashIds = new int[newFiles.length][];
+      this.sortedHashIds = new int[newFiles.length][];
+      for (int i = 0; i < newFiles.length; i++) {
+        List<String> lineHashes = newFilesByUuid.get(newFiles[i].getFileUuid()).getLineHashes();
+        int[] ids = new int[lineHashes.size()];
+        for (int line = 0; line < ids.length; line++) {
+          ids[line] = idsByHash.computeIfAbsent(lineHashes.get(line), k -> idsByHash.size());
         }
+        hashIds[i] = ids;
+        sortedHashIds[i] = sortedCopy(ids);
+      }
+    }
+
+    /**
+     * Hashes which do not exist in any added file can't match any line and are all given the same id.
+     */
+    private int[] toHashIds(List<String> lineHashes) {
+      int[] ids = new int[lineHashes.size()];
+      for (int line = 0; line < ids.length; line++) {
+        ids[line] = idsByHash.getOrDefault(lineHashes.get(line), UNKNOWN_HASH_ID);
       }
+      return ids;
+    }
+
+    private int[] getHashIds(int newFileIndex) {
+      return hashIds[newFileIndex];
     }
 
-    int getMaxScore() {
-      return maxScore;
+    private int[] getSortedHashIds(int newFileIndex) {
+      return sortedHashIds[newFileIndex];
+    }
+  }
+
+  private static int[] sortedCopy(int[] ids) {
+    int[] res = Arrays.copyOf(ids, ids.length);
+    Arrays.sort(res);
+    return res;
+  }
+
+  /**
+   * Size of the multiset intersection of two sorted arrays of line hash ids. Unknown hashes never match.
+   */
+  private static int countCommonLines(int[] sortedRemovedHashIds, int[] sortedNewHashIds) {
+    int common = 0;
+    int i = 0;
+    int j = 0;
+    while (i < sortedRemovedHashIds.length && j < sortedNewHashIds.length) {
+      int removed = sortedRemovedHashIds[i];
+      int added = sortedNewHashIds[j];
+      if (removed == added) {
+        common++;
+        i++;
+        j++;
+      } else if (removed < added) {
+        i++;
+      } else {
+        j++;
+      }
     }
+    return common;
   }
 
   private static ElectedMatches electMatches(Set<String> dbFileUuids, Map<String, File> reportFileSourcesByUuid, MatchesByScore matchesByScore) {
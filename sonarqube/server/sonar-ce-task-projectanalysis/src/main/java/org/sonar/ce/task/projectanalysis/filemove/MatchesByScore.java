@@ -51,7 +51,7 @@ abstract class MatchesByScore implements Iterable<List<Match>> {
     }
 
     private void populate() {
-      scoreMatrix.accept(this);
+      scoreMatrix.acceptNonZero(this);
     }
 
     @Override
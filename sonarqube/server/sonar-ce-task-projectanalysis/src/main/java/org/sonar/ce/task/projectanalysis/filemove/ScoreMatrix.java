@@ -22,27 +22,92 @@ package org.sonar.ce.task.projectanalysis.filemove;
 import java.util.Arrays;
 
 final class ScoreMatrix {
+  private static final int[] NO_SCORE = new int[0];
+
   private final ScoreFile[] removedFiles;
   private final ScoreFile[] newFiles;
+  /**
+   * For each removed file, the indexes (in ascending order) of the new files with a non zero score.
+   */
+  private final int[][] newFileIndexes;
+  /**
+   * For each removed file, the non zero scores, aligned with {@link #newFileIndexes}.
+   */
   private final int[][] scores;
   private final int maxScore;
 
   public ScoreMatrix(ScoreFile[] removedFiles, ScoreFile[] newFiles, int[][] scores, int maxScore) {
     this.removedFiles = removedFiles;
     this.newFiles = newFiles;
+    this.newFileIndexes = new int[scores.length][];
+    this.scores = new int[scores.length][];
+    for (int removedFileIndex = 0; removedFileIndex < scores.length; removedFileIndex++) {
+      int[] row = scores[removedFileIndex];
+      int nonZero = (int) Arrays.stream(row).filter(score -> score != 0).count();
+      int[] rowIndexes = new int[nonZero];
+      int[] rowScores = new int[nonZero];
+      int i = 0;
+      for (int newFileIndex = 0; newFileIndex < row.length; newFileIndex++) {
+        if (row[newFileIndex] != 0) {
+          rowIndexes[i] = newFileIndex;
+          rowScores[i] = row[newFileIndex];
+          i++;
+        }
+      }
+      this.newFileIndexes[removedFileIndex] = rowIndexes;
+      this.scores[removedFileIndex] = rowScores;
+    }
+    this.maxScore = maxScore;
+  }
+
+  private ScoreMatrix(ScoreFile[] removedFiles, ScoreFile[] newFiles, int[][] newFileIndexes, int[][] scores, int maxScore) {
+    this.removedFiles = removedFiles;
+    this.newFiles = newFiles;
+    this.newFileIndexes = newFileIndexes;
     this.scores = scores;
     this.maxScore = maxScore;
   }
 
+  /**
+   * Visits every cell of the matrix, including the ones with a zero score.
+   */
   public void accept(ScoreMatrixVisitor visitor) {
     for (int removedFileIndex = 0; removedFileIndex < removedFiles.length; removedFileIndex++) {
+      int[] rowIndexes = rowIndexes(removedFileIndex);
+      int[] rowScores = rowScores(removedFileIndex);
+      int i = 0;
       for (int newFileIndex = 0; newFileIndex < newFiles.length; newFileIndex++) {
-        int score = scores[removedFileIndex][newFileIndex];
+        int score = 0;
+        if (i < rowIndexes.length && rowIndexes[i] == newFileIndex) {
+          score = rowScores[i];
+          i++;
+        }
         visitor.visit(removedFiles[removedFileIndex], newFiles[newFileIndex], score);
       }
     }
   }
 
+  /**
+   * Visits only the cells of the matrix with a non zero score.
+   */
+  public void acceptNonZero(ScoreMatrixVisitor visitor) {
+    for (int removedFileIndex = 0; removedFileIndex < removedFiles.length; removedFileIndex++) {
+      int[] rowIndexes = rowIndexes(removedFileIndex);
+      int[] rowScores = rowScores(removedFileIndex);
+      for (int i = 0; i < rowIndexes.length; i++) {
+        visitor.visit(removedFiles[removedFileIndex], newFiles[rowIndexes[i]], rowScores[i]);
+      }
+    }
+  }
+
+  private int[] rowIndexes(int removedFileIndex) {
+    return removedFileIndex < newFileIndexes.length && newFileIndexes[removedFileIndex] != null ? newFileIndexes[removedFileIndex] : NO_SCORE;
+  }
+
+  private int[] rowScores(int removedFileIndex) {
+    return removedFileIndex < scores.length && scores[removedFileIndex] != null ? scores[removedFileIndex] : NO_SCORE;
+  }
+
   public String toCsv(char separator) {
     StringBuilder res = new StringBuilder();
     // first row: empty column, then one column for each report file (its uuid)
@@ -73,6 +138,60 @@ final class ScoreMatrix {
     return maxScore;
   }
 
+  /**
+   * Builds a {@link ScoreMatrix} row by row, storing only the non zero scores.
+   */
+  static final class Builder {
+    private final ScoreFile[] removedFiles;
+    private final ScoreFile[] newFiles;
+    private final int[][] newFileIndexes;
+    private final int[][] scores;
+    private final int[] rowIndexesBuffer;
+    private final int[] rowScoresBuffer;
+    private int rowSize = 0;
+    private int maxScore = 0;
+
+    Builder(ScoreFile[] removedFiles, ScoreFile[] newFiles) {
+      this.removedFiles = removedFiles;
+      this.newFiles = newFiles;
+      this.newFileIndexes = new int[removedFiles.length][];
+      this.scores = new int[removedFiles.length][];
+      this.rowIndexesBuffer = new int[newFiles.length];
+      this.rowScoresBuffer = new int[newFiles.length];
+    }
+
+    /**
+     * Adds a score to the current row. New file indexes must be added in ascending order.
+     */
+    Builder add(int newFileIndex, int score) {
+      if (score != 0) {
+        rowIndexesBuffer[rowSize] = newFileIndex;
+        rowScoresBuffer[rowSize] = score;
+        rowSize++;
+        maxScore = Math.max(maxScore, score);
+      }
+      return this;
+    }
+
+    /**
+     * Stores the scores added since the last call as the row of the specified removed file.
+     */
+    Builder endRow(int removedFileIndex) {
+      newFileIndexes[removedFileIndex] = Arrays.copyOf(rowIndexesBuffer, rowSize);
+      scores[removedFileIndex] = Arrays.copyOf(rowScoresBuffer, rowSize);
+      rowSize = 0;
+      return this;
+    }
+
+    int getMaxScore() {
+      return maxScore;
+    }
+
+    ScoreMatrix build() {
+      return new ScoreMatrix(removedFiles, newFiles, newFileIndexes, scores, maxScore);
+    }
+  }
+
   static class ScoreFile {
     private final String fileUuid;
     private final int lineCount;
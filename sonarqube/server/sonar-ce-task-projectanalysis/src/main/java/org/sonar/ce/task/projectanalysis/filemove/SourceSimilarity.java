@@ -28,4 +28,16 @@ public interface SourceSimilarity {
    * Range: between 0 and 100
    */
   <T extends Object> int score(List<T> left, List<T> right);
+
+  /**
+   * Largest number of differences between two sources, the longest having {@code maxLength} elements, which still gives
+   * a score greater than or equal to {@code minScore}. Returns -1 if no source of this length can reach {@code minScore}.
+   */
+  int maxDistanceForScore(int maxLength, int minScore);
+
+  /**
+   * Same as {@link #score(List, List)} on sources whose elements are identified by ints, but returns -1 as soon as the
+   * score is known to be less than {@code minScore}.
+   */
+  int score(int[] left, int[] right, int minScore);
 }
@@ -19,6 +19,7 @@
  */
 package org.sonar.ce.task.projectanalysis.filemove;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static java.lang.Math.max;
@@ -32,7 +33,105 @@ public class SourceSimilarityImpl implements SourceSimilarity {
       return 0;
     }
     int distance = levenshteinDistance(left, right);
-    return (int) (100 * (1.0 - ((double) distance) / (max(left.size(), right.size()))));
+    return score(distance, max(left.size(), right.size()));
+  }
+
+  static int score(int distance, int maxLength) {
+    return (int) (100 * (1.0 - ((double) distance) / maxLength));
+  }
+
+  @Override
+  public int maxDistanceForScore(int maxLength, int minScore) {
+    if (maxLength <= 0 || minScore > 100) {
+      return -1;
+    }
+    // score(d) >= minScore <=> d <= maxLength * (100 - minScore) / 100, corrected by one when the floating-point
+    // computation of the score rounds below the exact value
+    int distance = Math.min(maxLength, (int) ((long) maxLength * (100 - Math.max(0, minScore)) / 100));
+    if (score(distance, maxLength) < minScore) {
+      distance--;
+    }
+    return distance;
+  }
+
+  @Override
+  public int score(int[] left, int[] right, int minScore) {
+    int maxLength = max(left.length, right.length);
+    int maxDistance = maxDistanceForScore(maxLength, minScore);
+    if (maxDistance < 0) {
+      return -1;
+    }
+    int distance = boundedLevenshteinDistance(left, right, maxDistance);
+    return distance < 0 ? -1 : score(distance, maxLength);
+  }
+
+  /**
+   * Levenshtein distance between {@code left} and {@code right} if it is less than or equal to {@code threshold}, otherwise -1.
+   * <p>
+   * Only the diagonal stripe of width {@code 2 * threshold + 1} of the cost matrix is computed, which makes the
+   * computation O(threshold * min(n, m)) instead of O(n * m).
+   */
+  static int boundedLevenshteinDistance(int[] left, int[] right, int threshold) {
+    int[] s = left;
+    int[] t = right;
+    int n = s.length;
+    int m = t.length;
+    if (n > m) {
+      // make sure s is the shortest
+      int[] tmp = s;
+      s = t;
+      t = tmp;
+      n = m;
+      m = t.length;
+    }
+    if (m - n > threshold) {
+      return -1;
+    }
+    if (n == 0) {
+      return m;
+    }
+
+    int[] cost = new int[n + 1];
+    int[] newcost = new int[n + 1];
+    // cells outside the stripe are never reachable within the threshold
+    int boundary = Math.min(n, threshold) + 1;
+    for (int i = 0; i < boundary; i++) {
+      cost[i] = i;
+    }
+    Arrays.fill(cost, boundary, cost.length, Integer.MAX_VALUE);
+    Arrays.fill(newcost, Integer.MAX_VALUE);
+
+    for (int j = 1; j <= m; j++) {
+      int tj = t[j - 1];
+      newcost[0] = j;
+
+      // compute only the stripe [j - threshold, j + threshold]
+      int min = Math.max(1, j - threshold);
+      int maxI = j > Integer.MAX_VALUE - threshold ? n : Math.min(n, j + threshold);
+      if (min > maxI) {
+        return -1;
+      }
+      if (min > 1) {
+        newcost[min - 1] = Integer.MAX_VALUE;
+      }
+
+      for (int i = min; i <= maxI; i++) {
+        if (s[i - 1] == tj) {
+          newcost[i] = cost[i - 1];
+        } else {
+          newcost[i] = 1 + Math.min(Math.min(newcost[i - 1], cost[i]), cost[i - 1]);
+        }
+      }
+
+      int[] swap = cost;
+      cost = newcost;
+      newcost = swap;
+    }
+
+    if (cost[n] <= threshold) {
+      return cost[n];
+    }
+    return -1;
   }
 
   private static <T> int levenshteinDistance(List<T> left, List<T> right) {
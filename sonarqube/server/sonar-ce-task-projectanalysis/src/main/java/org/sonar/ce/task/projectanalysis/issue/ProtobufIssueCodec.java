@@ -0,0 +1,329 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.SerializationUtils;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.ce.task.projectanalysis.util.cache.ProtobufLz4Codec;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+
+/**
+ * Binary format of {@link IssueCache}. Issues are converted to the protobuf messages defined
+ * in ce-issue-cache.proto, which are much faster to write and read than Java serialization of {@link DefaultIssue}.
+ */
+public class ProtobufIssueCodec extends ProtobufLz4Codec<DefaultIssue, CeIssueCache.Issue> {
+
+  public ProtobufIssueCodec() {
+    super(CeIssueCache.Issue.parser());
+  }
+
+  @Override
+  protected CeIssueCache.Issue toMessage(DefaultIssue issue) {
+    CeIssueCache.Issue.Builder builder = CeIssueCache.Issue.newBuilder();
+    setIfNotNull(issue.key(), builder::setKey);
+    if (issue.type() != null) {
+      builder.setRuleType(issue.type().getDbConstant());
+    }
+    setIfNotNull(issue.componentUuid(), builder::setComponentUuid);
+    setIfNotNull(issue.componentKey(), builder::setComponentKey);
+    setIfNotNull(issue.moduleUuid(), builder::setModuleUuid);
+    setIfNotNull(issue.moduleUuidPath(), builder::setModuleUuidPath);
+    setIfNotNull(issue.projectUuid(), builder::setProjectUuid);
+    setIfNotNull(issue.projectKey(), builder::setProjectKey);
+    RuleKey ruleKey = issue.ruleKey();
+    if (ruleKey != null) {
+      builder.setRuleRepository(ruleKey.repository());
+      builder.setRuleKey(ruleKey.rule());
+    }
+    setIfNotNull(issue.language(), builder::setLanguage);
+    setIfNotNull(issue.severity(), builder::setSeverity);
+    builder.setManualSeverity(issue.manualSeverity());
+    setIfNotNull(issue.message(), builder::setMessage);
+    setIfNotNull(issue.line(), builder::setLine);
+    setIfNotNull(issue.gap(), builder::setGap);
+    setIfNotNull(issue.effortInMinutes(), builder::setEffort);
+    setIfNotNull(issue.status(), builder::setStatus);
+    setIfNotNull(issue.resolution(), builder::setResolution);
+    setIfNotNull(issue.assignee(), builder::setAssigneeUuid);
+    setIfNotNull(issue.checksum(), builder::setChecksum);
+    builder.putAllAttributes(issue.attributes());
+    setIfNotNull(issue.authorLogin(), builder::setAuthorLogin);
+    issue.defaultIssueComments().forEach(comment -> builder.addComments(toComment(comment)));
+    builder.addAllTags(issue.tags());
+    Object locations = issue.getLocations();
+    if (locations != null) {
+      if (!(locations instanceof DbIssues.Locations)) {
+        throw new IllegalStateException("Unsupported type of locations: " + locations.getClass());
+      }
+      builder.setLocations(((DbIssues.Locations) locations).toByteString());
+    }
+    builder.setIsFromExternalRuleEngine(issue.isFromExternalRuleEngine());
+    setIfNotNull(toTime(issue.creationDate()), builder::setCreationDate);
+    setIfNotNull(toTime(issue.updateDate()), builder::setUpdateDate);
+    setIfNotNull(toTime(issue.closeDate()), builder::setCloseDate);
+    writeChanges(issue, builder);
+    builder.setIsNew(issue.isNew());
+    builder.setIsCopied(issue.isCopied());
+    builder.setBeingClosed(issue.isBeingClosed());
+    builder.setOnDisabledRule(issue.isOnDisabledRule());
+    builder.setIsChanged(issue.isChanged());
+    builder.setSendNotifications(issue.mustSendNotifications());
+    setIfNotNull(issue.selectedAt(), builder::setSelectedAt);
+    return builder.build();
+  }
+
+  /**
+   * The current change of an issue is also part of its list of changes, possibly several times. Instances
+   * are written once and referenced by index, so that identity is preserved when reading them back.
+   */
+  private static void writeChanges(DefaultIssue issue, CeIssueCache.Issue.Builder builder) {
+    Map<FieldDiffs, Integer> indexes = new IdentityHashMap<>();
+    for (FieldDiffs change : issue.changes()) {
+      builder.addChanges(indexOf(change, indexes, builder));
+    }
+    FieldDiffs currentChange = issue.currentChange();
+    if (currentChange != null) {
+      builder.setCurrentChange(indexOf(currentChange, indexes, builder));
+    }
+  }
+
+  private static int indexOf(FieldDiffs fieldDiffs, Map<FieldDiffs, Integer> indexes, CeIssueCache.Issue.Builder builder) {
+    return indexes.computeIfAbsent(fieldDiffs, f -> {
+      builder.addFieldDiffs(toFieldDiffs(f));
+      return builder.getFieldDiffsCount() - 1;
+    });
+  }
+
+  private static CeIssueCache.Comment toComment(DefaultIssueComment comment) {
+    CeIssueCache.Comment.Builder builder = CeIssueCache.Comment.newBuilder();
+    setIfNotNull(comment.issueKey(), builder::setIssueKey);
+    setIfNotNull(comment.userUuid(), builder::setUserUuid);
+    setIfNotNull(toTime(comment.createdAt()), builder::setCreatedAt);
+    setIfNotNull(toTime(comment.updatedAt()), builder::setUpdatedAt);
+    setIfNotNull(comment.key(), builder::setKey);
+    setIfNotNull(comment.markdownText(), builder::setMarkdownText);
+    builder.setIsNew(comment.isNew());
+    return builder.build();
+  }
+
+  private static CeIssueCache.FieldDiffs toFieldDiffs(FieldDiffs fieldDiffs) {
+    CeIssueCache.FieldDiffs.Builder builder = CeIssueCache.FieldDiffs.newBuilder();
+    setIfNotNull(fieldDiffs.issueKey(), builder::setIssueKey);
+    setIfNotNull(fieldDiffs.userUuid(), builder::setUserUuid);
+    setIfNotNull(toTime(fieldDiffs.creationDate()), builder::setCreationDate);
+    for (Map.Entry<String, FieldDiffs.Diff> entry : fieldDiffs.diffs().entrySet()) {
+      CeIssueCache.Diff.Builder diff = CeIssueCache.Diff.newBuilder().setField(entry.getKey());
+      Serializable oldValue = entry.getValue().oldValue();
+      if (oldValue != null) {
+        diff.setOldValue(toValue(oldValue));
+      }
+      Serializable newValue = entry.getValue().newValue();
+      if (newValue != null) {
+        diff.setNewValue(toValue(newValue));
+      }
+      builder.addDiffs(diff);
+    }
+    return builder.build();
+  }
+
+  private static CeIssueCache.Value toValue(Serializable value) {
+    CeIssueCache.Value.Builder builder = CeIssueCache.Value.newBuilder();
+    if (value instanceof String) {
+      builder.setStringValue((String) value);
+    } else if (value instanceof Long) {
+      builder.setLongValue((Long) value);
+    } else if (value instanceof Integer) {
+      builder.setIntValue((Integer) value);
+    } else {
+      builder.setSerializedValue(ByteString.copyFrom(SerializationUtils.serialize(value)));
+    }
+    return builder.build();
+  }
+
+  @Override
+  protected DefaultIssue fromMessage(CeIssueCache.Issue message) {
+    DefaultIssue issue = new DefaultIssue();
+    if (message.hasKey()) {
+      issue.setKey(message.getKey());
+    }
+    if (message.hasRuleType()) {
+      issue.setType(RuleType.valueOf(message.getRuleType()));
+    }
+    issue.setComponentUuid(message.hasComponentUuid() ? message.getComponentUuid() : null);
+    if (message.hasComponentKey()) {
+      issue.setComponentKey(message.getComponentKey());
+    }
+    issue.setModuleUuid(message.hasModuleUuid() ? message.getModuleUuid() : null);
+    issue.setModuleUuidPath(message.hasModuleUuidPath() ? message.getModuleUuidPath() : null);
+    if (message.hasProjectUuid()) {
+      issue.setProjectUuid(message.getProjectUuid());
+    }
+    if (message.hasProjectKey()) {
+      issue.setProjectKey(message.getProjectKey());
+    }
+    if (message.hasRuleRepository()) {
+      issue.setRuleKey(RuleKey.of(message.getRuleRepository(), message.getRuleKey()));
+    }
+    if (message.hasLanguage()) {
+      issue.setLanguage(message.getLanguage());
+    }
+    issue.setSeverity(message.hasSeverity() ? message.getSeverity() : null);
+    issue.setManualSeverity(message.getManualSeverity());
+    issue.setMessage(message.hasMessage() ? message.getMessage() : null);
+    issue.setLine(message.hasLine() ? message.getLine() : null);
+    issue.setGap(message.hasGap() ? message.getGap() : null);
+    issue.setEffort(message.hasEffort() ? Duration.create(message.getEffort()) : null);
+    if (message.hasStatus()) {
+      issue.setStatus(message.getStatus());
+    }
+    issue.setResolution(message.hasResolution() ? message.getResolution() : null);
+    issue.setAssigneeUuid(message.hasAssigneeUuid() ? message.getAssigneeUuid() : null);
+    issue.setChecksum(message.hasChecksum() ? message.getChecksum() : null);
+    if (message.getAttributesCount() > 0) {
+      issue.setAttributes(message.getAttributesMap());
+    }
+    issue.setAuthorLogin(message.hasAuthorLogin() ? message.getAuthorLogin() : null);
+    message.getCommentsList().forEach(comment -> issue.addComment(fromComment(comment)));
+    if (message.getTagsCount() > 0) {
+      issue.setTags(message.getTagsList());
+    }
+    if (message.hasLocations()) {
+      issue.setLocations(parseLocations(message.getLocations()));
+    }
+    issue.setIsFromExternalRuleEngine(message.getIsFromExternalRuleEngine());
+    if (message.hasCreationDate()) {
+      issue.setCreationDate(new Date(message.getCreationDate()));
+    }
+    issue.setUpdateDate(message.hasUpdateDate() ? new Date(message.getUpdateDate()) : null);
+    issue.setCloseDate(message.hasCloseDate() ? new Date(message.getCloseDate()) : null);
+    readChanges(message, issue);
+    issue.setNew(message.getIsNew());
+    issue.setCopied(message.getIsCopied());
+    issue.setBeingClosed(message.getBeingClosed());
+    issue.setOnDisabledRule(message.getOnDisabledRule());
+    issue.setChanged(message.getIsChanged());
+    issue.setSendNotifications(message.getSendNotifications());
+    issue.setSelectedAt(message.hasSelectedAt() ? message.getSelectedAt() : null);
+    return issue;
+  }
+
+  private static void readChanges(CeIssueCache.Issue message, DefaultIssue issue) {
+    List<FieldDiffs> fieldDiffs = new ArrayList<>(message.getFieldDiffsCount());
+    message.getFieldDiffsList().forEach(f -> fieldDiffs.add(fromFieldDiffs(f)));
+    FieldDiffs currentChange = message.hasCurrentChange() ? fieldDiffs.get(message.getCurrentChange()) : null;
+    for (int index : message.getChangesList()) {
+      FieldDiffs change = fieldDiffs.get(index);
+      if (change == currentChange && issue.currentChange() == null) {
+        // also adds the instance to the list of changes
+        issue.setCurrentChange(change);
+      } else {
+        issue.addChange(change);
+      }
+    }
+  }
+
+  private static DefaultIssueComment fromComment(CeIssueCache.Comment message) {
+    DefaultIssueComment comment = new DefaultIssueComment();
+    if (message.hasIssueKey()) {
+      comment.setIssueKey(message.getIssueKey());
+    }
+    comment.setUserUuid(message.hasUserUuid() ? message.getUserUuid() : null);
+    if (message.hasCreatedAt()) {
+      comment.setCreatedAt(new Date(message.getCreatedAt()));
+    }
+    comment.setUpdatedAt(message.hasUpdatedAt() ? new Date(message.getUpdatedAt()) : null);
+    if (message.hasKey()) {
+      comment.setKey(message.getKey());
+    }
+    if (message.hasMarkdownText()) {
+      comment.setMarkdownText(message.getMarkdownText());
+    }
+    comment.setNew(message.getIsNew());
+    return comment;
+  }
+
+  private static FieldDiffs fromFieldDiffs(CeIssueCache.FieldDiffs message) {
+    FieldDiffs fieldDiffs = new FieldDiffs();
+    if (message.hasIssueKey()) {
+      fieldDiffs.setIssueKey(message.getIssueKey());
+    }
+    fieldDiffs.setUserUuid(message.hasUserUuid() ? message.getUserUuid() : null);
+    if (message.hasCreationDate()) {
+      fieldDiffs.setCreationDate(new Date(message.getCreationDate()));
+    }
+    for (CeIssueCache.Diff diff : message.getDiffsList()) {
+      fieldDiffs.setDiff(diff.getField(),
+        diff.hasOldValue() ? fromValue(diff.getOldValue()) : null,
+        diff.hasNewValue() ? fromValue(diff.getNewValue()) : null);
+    }
+    return fieldDiffs;
+  }
+
+  @CheckForNull
+  private static Serializable fromValue(CeIssueCache.Value value) {
+    switch (value.getValueCase()) {
+      case STRING_VALUE:
+        return value.getStringValue();
+      case LONG_VALUE:
+        return value.getLongValue();
+      case INT_VALUE:
+        return value.getIntValue();
+      case SERIALIZED_VALUE:
+        return (Serializable) SerializationUtils.deserialize(value.getSerializedValue().toByteArray());
+      default:
+        return null;
+    }
+  }
+
+  private static DbIssues.Locations parseLocations(ByteString bytes) {
+    try {
+      return DbIssues.Locations.parseFrom(bytes);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Fail to read locations of issue", e);
+    }
+  }
+
+  @CheckForNull
+  private static Long toTime(@Nullable Date date) {
+    return date == null ? null : date.getTime();
+  }
+
+  private static <T> void setIfNotNull(@Nullable T value, Consumer<T> setter) {
+    if (value != null) {
+      setter.accept(value);
+    }
+  }
+}
@@ -23,7 +23,9 @@ import gnu.trove.map.hash.THashMap;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 
@@ -37,10 +39,26 @@ import static java.util.Objects.requireNonNull;
  */
 public final class MapBasedRawMeasureRepository<T> implements MeasureRepository {
   private final Function<Component, T> componentToKey;
-  private final Map<T, Map<String, Measure>> measures = new THashMap<>();
+  private final Supplier<Map<String, Measure>> measuresPerMetricFactory;
+  private final Map<T, Map<String, Measure>> measures;
 
   public MapBasedRawMeasureRepository(Function<Component, T> componentToKey) {
+    this(componentToKey, new THashMap<>(), THashMap::new);
+  }
+
+  private MapBasedRawMeasureRepository(Function<Component, T> componentToKey, Map<T, Map<String, Measure>> measures,
+    Supplier<Map<String, Measure>> measuresPerMetricFactory) {
     this.componentToKey = requireNonNull(componentToKey);
+    this.measures = measures;
+    this.measuresPerMetricFactory = measuresPerMetricFactory;
+  }
+
+  /**
+   * Creates a repository which can be used concurrently from several threads, for instance by
+   * {@link org.sonar.ce.task.projectanalysis.component.FileLocalVisitor} visiting different files.
+   */
+  public static <T> MapBasedRawMeasureRepository<T> concurrent(Function<Component, T> componentToKey) {
+    return new MapBasedRawMeasureRepository<>(componentToKey, new ConcurrentHashMap<>(), ConcurrentHashMap::new);
   }
 
   /**
@@ -121,7 +139,7 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     requireNonNull(overridePolicy);
 
     T componentKey = componentToKey.apply(component);
-    Map<String, Measure> measuresPerMetric = measures.computeIfAbsent(componentKey, key -> new THashMap<>());
+    Map<String, Measure> measuresPerMetric = measures.computeIfAbsent(componentKey, key -> measuresPerMetricFactory.get());
     if (!measuresPerMetric.containsKey(metric.getKey()) || overridePolicy == OverridePolicy.OVERRIDE) {
       measuresPerMetric.put(metric.getKey(), measure);
     }
@@ -20,13 +20,25 @@
 package org.sonar.ce.task.projectanalysis.source;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
@@ -40,94 +52,248 @@ import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
+/**
+ * Sources are persisted by a pipeline of three stages, connected by bounded queues:
+ * <ol>
+ *   <li>the data of each file is computed while crawling the component tree,</li>
+ *   <li>the data is serialized, compressed and hashed by a pool of threads,</li>
+ *   <li>the rows are inserted or updated by a single thread, with JDBC batches.</li>
+ * </ol>
+ */
 public class PersistFileSourcesStep implements ComputationStep {
+  static final String COMPRESSION_THREADS_PROPERTY = "sonar.ce.persistSources.compressionThreads";
+  static final String BATCH_SIZE_PROPERTY = "sonar.ce.persistSources.batchSize";
+  private static final int DEFAULT_COMPRESSION_THREADS = 2;
+  /**
+   * Don't use big batches for file_sources since keeping all data in memory can produce OOM for big files
+   */
+  private static final int DEFAULT_BATCH_SIZE = 10;
+  private static final long POLL_TIMEOUT_MS = 100L;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
   private final SourceLinesHashRepository sourceLinesHash;
   private final FileSourceDataComputer fileSourceDataComputer;
   private final FileSourceDataWarnings fileSourceDataWarnings;
+  private final Configuration configuration;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder,
     SourceLinesHashRepository sourceLinesHash, FileSourceDataComputer fileSourceDataComputer,
-    FileSourceDataWarnings fileSourceDataWarnings) {
+    FileSourceDataWarnings fileSourceDataWarnings, Configuration configuration) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
     this.sourceLinesHash = sourceLinesHash;
     this.fileSourceDataComputer = fileSourceDataComputer;
     this.fileSourceDataWarnings = fileSourceDataWarnings;
+    this.configuration = configuration;
   }
 
   @Override
   public void execute(ComputationStep.Context context) {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
+    int compressionThreads = configuration.getInt(COMPRESSION_THREADS_PROPERTY).orElse(DEFAULT_COMPRESSION_THREADS);
+    int batchSize = configuration.getInt(BATCH_SIZE_PROPERTY).orElse(DEFAULT_BATCH_SIZE);
+    checkArgument(compressionThreads > 0, "Property %s must be greater than 0", COMPRESSION_THREADS_PROPERTY);
+    checkArgument(batchSize > 0, "Property %s must be greater than 0", BATCH_SIZE_PROPERTY);
+
+    Pipeline pipeline = new Pipeline(compressionThreads, batchSize);
     try (DbSession dbSession = dbClient.openSession(false)) {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession))
+      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession, pipeline))
         .visit(treeRootHolder.getRoot());
+      pipeline.finish();
+      pipeline.addStatistics(context.getStatistics());
     } finally {
+      pipeline.close();
       fileSourceDataWarnings.commitWarnings();
     }
   }
 
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final Pipeline pipeline;
 
-    private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
-    private String projectUuid;
-
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(DbSession session, Pipeline pipeline) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.pipeline = pipeline;
     }
 
     @Override
     public void visitProject(Component project) {
-      this.projectUuid = project.getUuid();
-      session.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", projectUuid),
+      Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
+      session.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", project.getUuid()),
         context -> {
           FileSourceDto dto = (FileSourceDto) context.getResultObject();
           previousFileSourcesByUuid.put(dto.getFileUuid(), dto);
         });
+      pipeline.start(project.getUuid(), previousFileSourcesByUuid);
     }
 
     @Override
     public void visitFile(Component file) {
+      ComputedSource computedSource;
       try {
+        long start = System.nanoTime();
         FileSourceDataComputer.Data fileSourceData = fileSourceDataComputer.compute(file, fileSourceDataWarnings);
-        persistSource(fileSourceData, file);
+        int lineHashesVersion = sourceLinesHash.getLineHashesVersion(file);
+        pipeline.computeDurationNs.addAndGet(System.nanoTime() - start);
+        computedSource = new ComputedSource(file, fileSourceData, lineHashesVersion);
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getDbKey()), e);
       }
+      // fails with the error of the compression or write stages, if any
+      pipeline.compress(computedSource);
+    }
+  }
+
+  private final class Pipeline {
+    private final int compressionThreads;
+    private final int batchSize;
+    private final BlockingQueue<ComputedSource> toCompress;
+    private final BlockingQueue<FileSourceOperation> toWrite;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final List<Future<?>> compressors = new ArrayList<>();
+    private final AtomicLong computeDurationNs = new AtomicLong();
+    private final AtomicLong compressDurationNs = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong writeDurationNs = new AtomicLong();
+    private long files = 0;
+    private long inserts = 0;
+    private long updates = 0;
+    private ExecutorService executor;
+    private Future<?> writer;
+    private String projectUuid;
+    private Map<String, FileSourceDto> previousFileSourcesByUuid;
+
+    private Pipeline(int compressionThreads, int batchSize) {
+      this.compressionThreads = compressionThreads;
+      this.batchSize = batchSize;
+      this.toCompress = new ArrayBlockingQueue<>(2 * compressionThreads);
+      this.toWrite = new ArrayBlockingQueue<>(2 * batchSize);
+    }
+
+    /**
+     * Must be called before any file is submitted, {@code previousFileSourcesByUuid} is read-only from then on.
+     */
+    private void start(String projectUuid, Map<String, FileSourceDto> previousFileSourcesByUuid) {
+      this.projectUuid = projectUuid;
+      this.previousFileSourcesByUuid = previousFileSourcesByUuid;
+      this.executor = Executors.newFixedThreadPool(compressionThreads + 1, new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("CE_persist_sources-%d")
+        .build());
+      for (int i = 0; i < compressionThreads; i++) {
+        compressors.add(executor.submit(this::compressLoop));
+      }
+      this.writer = executor.submit(this::writeLoop);
+    }
+
+    private void compress(ComputedSource computedSource) {
+      files++;
+      put(toCompress, computedSource);
+    }
+
+    /**
+     * Waits for all the submitted files to be persisted.
+     */
+    private void finish() {
+      if (executor == null) {
+        return;
+      }
+      for (int i = 0; i < compressionThreads; i++) {
+        put(toCompress, ComputedSource.END);
+      }
+      compressors.forEach(Pipeline::waitFor);
+      put(toWrite, FileSourceOperation.END);
+      waitFor(writer);
     }
 
-    private void persistSource(FileSourceDataComputer.Data fileSourceData, Component file) {
-      DbFileSources.Data lineData = fileSourceData.getLineData();
-
-      byte[] binaryData = FileSourceDto.encodeSourceData(lineData);
-      String dataHash = DigestUtils.md5Hex(binaryData);
-      String srcHash = fileSourceData.getSrcHash();
-      List<String> lineHashes = fileSourceData.getLineHashes();
-      Changeset latestChangeWithRevision = fileSourceData.getLatestChangeWithRevision();
-      int lineHashesVersion = sourceLinesHash.getLineHashesVersion(file);
-      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
-      if (previousDto == null) {
-        FileSourceDto dto = new FileSourceDto()
-          .setProjectUuid(projectUuid)
-          .setFileUuid(file.getUuid())
-          .setBinaryData(binaryData)
-          .setSrcHash(srcHash)
-          .setDataHash(dataHash)
-          .setLineHashes(lineHashes)
-          .setLineHashesVersion(lineHashesVersion)
-          .setCreatedAt(system2.now())
-          .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChangeWithRevision));
-        dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
-      } else {
+    private void close() {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+
+    private void compressLoop() {
+      try {
+        ComputedSource computedSource;
+        while ((computedSource = take(toCompress)) != ComputedSource.END) {
+          long start = System.nanoTime();
+          FileSourceOperation operation = toOperation(computedSource);
+          compressDurationNs.addAndGet(System.nanoTime() - start);
+          if (operation != null) {
+            put(toWrite, operation);
+          }
+        }
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+        throw e;
+      }
+    }
+
+    private void writeLoop() {
+      try (DbSession batchSession = dbClient.openSession(true)) {
+        int pending = 0;
+        FileSourceOperation operation;
+        while ((operation = take(toWrite)) != FileSourceOperation.END) {
+          long start = System.nanoTime();
+          if (operation.insert) {
+            dbClient.fileSourceDao().insert(batchSession, operation.dto);
+            inserts++;
+          } else {
+            dbClient.fileSourceDao().update(batchSession, operation.dto);
+            updates++;
+          }
+          pending++;
+          if (pending >= batchSize) {
+            batchSession.commit();
+            pending = 0;
+          }
+          writeDurationNs.addAndGet(System.nanoTime() - start);
+        }
+        long start = System.nanoTime();
+        batchSession.commit();
+        writeDurationNs.addAndGet(System.nanoTime() - start);
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+        throw e;
+      }
+    }
+
+    @CheckForNull
+    private FileSourceOperation toOperation(ComputedSource computedSource) {
+      Component file = computedSource.file;
+      FileSourceDataComputer.Data fileSourceData = computedSource.data;
+      try {
+        DbFileSources.Data lineData = fileSourceData.getLineData();
+
+        byte[] binaryData = FileSourceDto.encodeSourceData(lineData);
+        compressedBytes.addAndGet(binaryData.length);
+        String dataHash = DigestUtils.md5Hex(binaryData);
+        String srcHash = fileSourceData.getSrcHash();
+        List<String> lineHashes = fileSourceData.getLineHashes();
+        Changeset latestChangeWithRevision = fileSourceData.getLatestChangeWithRevision();
+        int lineHashesVersion = computedSource.lineHashesVersion;
+        FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+        if (previousDto == null) {
+          FileSourceDto dto = new FileSourceDto()
+            .setProjectUuid(projectUuid)
+            .setFileUuid(file.getUuid())
+            .setBinaryData(binaryData)
+            .setSrcHash(srcHash)
+            .setDataHash(dataHash)
+            .setLineHashes(lineHashes)
+            .setLineHashesVersion(lineHashesVersion)
+            .setCreatedAt(system2.now())
+            .setUpdatedAt(system2.now())
+            .setRevision(computeRevision(latestChangeWithRevision));
+          return new FileSourceOperation(dto, true);
+        }
+
         // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
@@ -143,21 +309,112 @@ public class PersistFileSourcesStep implements ComputationStep {
             .setLineHashesVersion(lineHashesVersion)
             .setRevision(revision)
             .setUpdatedAt(system2.now());
-          dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
+          return new FileSourceOperation(previousDto, false);
         }
+        return null;
+      } catch (Exception e) {
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getDbKey()), e);
       }
     }
 
-    @CheckForNull
-    private String computeRevision(@Nullable Changeset latestChangeWithRevision) {
-      if (latestChangeWithRevision == null) {
-        return null;
+    /**
+     * Blocks until there is room in the queue, unless another stage of the pipeline failed.
+     */
+    private <T> void put(BlockingQueue<T> queue, T item) {
+      try {
+        while (!queue.offer(item, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          checkNoFailure();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while persisting sources", e);
+      }
+    }
+
+    /**
+     * Blocks until an item is available in the queue, unless another stage of the pipeline failed.
+     */
+    private <T> T take(BlockingQueue<T> queue) {
+      try {
+        T item;
+        while ((item = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) == null) {
+          checkNoFailure();
+        }
+        return item;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while persisting sources", e);
+      }
+    }
+
+    private void checkNoFailure() {
+      RuntimeException e = failure.get();
+      if (e != null) {
+        throw e;
+      }
+    }
+
+    private void addStatistics(ComputationStep.Statistics statistics) {
+      statistics.add("files", files);
+      statistics.add("inserts", inserts);
+      statistics.add("updates", updates);
+      statistics.add("compressedBytes", compressedBytes.get());
+      statistics.add("computeMs", TimeUnit.NANOSECONDS.toMillis(computeDurationNs.get()));
+      statistics.add("compressMs", TimeUnit.NANOSECONDS.toMillis(compressDurationNs.get()));
+      statistics.add("writeMs", TimeUnit.NANOSECONDS.toMillis(writeDurationNs.get()));
+      statistics.add("compressionThreads", compressionThreads);
+    }
+
+    private static void waitFor(Future<?> future) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while persisting sources", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException("Failed to persist sources", cause);
       }
-      return latestChangeWithRevision.getRevision();
     }
   }
 
+  private static final class ComputedSource {
+    private static final ComputedSource END = new ComputedSource(null, null, 0);
+
+    private final Component file;
+    private final FileSourceDataComputer.Data data;
+    private final int lineHashesVersion;
+
+    private ComputedSource(@Nullable Component file, @Nullable FileSourceDataComputer.Data data, int lineHashesVersion) {
+      this.file = file;
+      this.data = data;
+      this.lineHashesVersion = lineHashesVersion;
+    }
+  }
+
+  private static final class FileSourceOperation {
+    private static final FileSourceOperation END = new FileSourceOperation(null, false);
+
+    private final FileSourceDto dto;
+    private final boolean insert;
+
+    private FileSourceOperation(@Nullable FileSourceDto dto, boolean insert) {
+      this.dto = dto;
+      this.insert = insert;
+    }
+  }
+
+  @CheckForNull
+  private static String computeRevision(@Nullable Changeset latestChangeWithRevision) {
+    if (latestChangeWithRevision == null) {
+      return null;
+    }
+    return latestChangeWithRevision.getRevision();
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
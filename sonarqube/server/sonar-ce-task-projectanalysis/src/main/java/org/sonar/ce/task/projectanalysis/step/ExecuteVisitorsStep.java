@@ -21,6 +21,7 @@ package org.sonar.ce.task.projectanalysis.step;
 
 import java.util.List;
 import java.util.Map;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.projectanalysis.component.ComponentVisitor;
@@ -30,14 +31,22 @@ import org.sonar.ce.task.step.ComputationStep;
 
 public class ExecuteVisitorsStep implements ComputationStep {
 
+  /**
+   * Number of threads used to visit files with the {@link org.sonar.ce.task.projectanalysis.component.FileLocalVisitor}.
+   * Files are visited sequentially by default.
+   */
+  static final String FILE_VISITOR_THREADS_PROPERTY = "sonar.ce.visitors.fileThreads";
+
   private static final Logger LOGGER = Loggers.get(ExecuteVisitorsStep.class);
 
   private final TreeRootHolder treeRootHolder;
   private final List<ComponentVisitor> visitors;
+  private final Configuration configuration;
 
-  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, List<ComponentVisitor> visitors) {
+  public ExecuteVisitorsStep(TreeRootHolder treeRootHolder, List<ComponentVisitor> visitors, Configuration configuration) {
     this.treeRootHolder = treeRootHolder;
     this.visitors = visitors;
+    this.configuration = configuration;
   }
 
   @Override
@@ -47,7 +56,8 @@ public class ExecuteVisitorsStep implements ComputationStep {
 
   @Override
   public void execute(ComputationStep.Context context) {
-    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled());
+    int fileVisitorThreads = configuration.getInt(FILE_VISITOR_THREADS_PROPERTY).orElse(1);
+    VisitorsCrawler visitorsCrawler = new VisitorsCrawler(visitors, LOGGER.isDebugEnabled(), fileVisitorThreads);
     visitorsCrawler.visit(treeRootHolder.getRoot());
     logVisitorExecutionDurations(visitors, visitorsCrawler);
   }
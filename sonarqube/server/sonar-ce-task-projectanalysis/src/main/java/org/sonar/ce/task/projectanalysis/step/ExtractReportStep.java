@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
 import org.apache.commons.io.FileUtils;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.ZipUtils;
@@ -41,51 +42,76 @@ import org.sonar.process.FileUtils2;
 /**
  * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
  * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * <p>
+ * When property {@link #LAZY_EXTRACTION_PROPERTY} is enabled, the zip file is only copied as-is to a temp file,
+ * which is registered in {@link MutableBatchReportDirectoryHolder}. Its entries are then decompressed on demand
+ * by the steps reading the report.
  */
 public class ExtractReportStep implements ComputationStep {
 
+  public static final String LAZY_EXTRACTION_PROPERTY = "sonar.ce.report.lazyExtraction";
+
   private static final Logger LOGGER = Loggers.get(ExtractReportStep.class);
 
   private final DbClient dbClient;
   private final CeTask task;
   private final TempFolder tempFolder;
   private final MutableBatchReportDirectoryHolder reportDirectoryHolder;
+  private final Configuration configuration;
 
   public ExtractReportStep(DbClient dbClient, CeTask task, TempFolder tempFolder,
-    MutableBatchReportDirectoryHolder reportDirectoryHolder) {
+    MutableBatchReportDirectoryHolder reportDirectoryHolder, Configuration configuration) {
     this.dbClient = dbClient;
     this.task = task;
     this.tempFolder = tempFolder;
     this.reportDirectoryHolder = reportDirectoryHolder;
+    this.configuration = configuration;
   }
 
   @Override
   public void execute(ComputationStep.Context context) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
-      if (opt.isPresent()) {
-        File unzippedDir = tempFolder.newDir();
-        try (CeTaskInputDao.DataStream reportStream = opt.get();
-             InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
-          ZipUtils.unzip(zipStream, unzippedDir);
-        } catch (IOException e) {
-          throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
-        }
-        reportDirectoryHolder.setDirectory(unzippedDir);
-        if (LOGGER.isDebugEnabled()) {
-          // size is not added to context statistics because computation
-          // can take time. It's enabled only if log level is DEBUG.
-          try {
-            String dirSize = FileUtils.byteCountToDisplaySize(FileUtils2.sizeOf(unzippedDir.toPath()));
-            LOGGER.debug("Analysis report is {} uncompressed", dirSize);
-          } catch (IOException e) {
-            LOGGER.warn("Fail to compute size of directory " + unzippedDir, e);
-          }
-        }
-
-      } else {
+      if (!opt.isPresent()) {
         throw MessageException.of("Analysis report " + task.getUuid() + " is missing in database");
       }
+      if (configuration.getBoolean(LAZY_EXTRACTION_PROPERTY).orElse(false)) {
+        copyReport(opt.get(), context);
+      } else {
+        extractReport(opt.get());
+      }
+    }
+  }
+
+  private void copyReport(CeTaskInputDao.DataStream reportStream, ComputationStep.Context context) {
+    File zipFile = tempFolder.newFile("report", ".zip");
+    try (CeTaskInputDao.DataStream stream = reportStream) {
+      FileUtils.copyInputStreamToFile(stream.getInputStream(), zipFile);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to copy report " + task.getUuid() + " from database", e);
+    }
+    reportDirectoryHolder.setZipFile(zipFile);
+    context.getStatistics().add("compressedSize", zipFile.length());
+  }
+
+  private void extractReport(CeTaskInputDao.DataStream reportStream) {
+    File unzippedDir = tempFolder.newDir();
+    try (CeTaskInputDao.DataStream stream = reportStream;
+         InputStream zipStream = new BufferedInputStream(stream.getInputStream())) {
+      ZipUtils.unzip(zipStream, unzippedDir);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
+    }
+    reportDirectoryHolder.setDirectory(unzippedDir);
+    if (LOGGER.isDebugEnabled()) {
+      // size is not added to context statistics because computation
+      // can take time. It's enabled only if log level is DEBUG.
+      try {
+        String dirSize = FileUtils.byteCountToDisplaySize(FileUtils2.sizeOf(unzippedDir.toPath()));
+        LOGGER.debug("Analysis report is {} uncompressed", dirSize);
+      } catch (IOException e) {
+        LOGGER.warn("Fail to compute size of directory " + unzippedDir, e);
+      }
     }
   }
 
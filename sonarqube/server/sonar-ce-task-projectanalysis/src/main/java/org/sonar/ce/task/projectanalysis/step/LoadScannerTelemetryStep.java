@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.step;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.util.StringJoiner;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
+import org.sonar.ce.task.step.ComputationStep;
+
+/**
+ * Adds the metrics of the phases of the analysis measured by the scanner to the statistics of the task, so that they
+ * are kept in the logs of the Compute Engine along with the duration of each step.
+ */
+public class LoadScannerTelemetryStep implements ComputationStep {
+
+  private static final Logger LOGGER = Loggers.get(LoadScannerTelemetryStep.class);
+  private static final String[] FIELDS = {"executions", "wallTimeMs", "cpuTimeMs", "allocatedBytes", "files", "bytes"};
+
+  private final BatchReportReader reportReader;
+
+  public LoadScannerTelemetryStep(BatchReportReader reportReader) {
+    this.reportReader = reportReader;
+  }
+
+  @Override
+  public void execute(ComputationStep.Context context) {
+    reportReader.readTelemetry().ifPresent(telemetry -> {
+      try {
+        addStatistics(new JsonParser().parse(telemetry).getAsJsonObject(), context.getStatistics());
+      } catch (JsonParseException | IllegalArgumentException | IllegalStateException e) {
+        // telemetry is only informative, the analysis must not fail because of it
+        LOGGER.warn("Ignoring scanner telemetry that can't be read: {}", e.getMessage());
+      }
+    });
+  }
+
+  private static void addStatistics(JsonObject telemetry, ComputationStep.Statistics statistics) {
+    if (!telemetry.has("phases")) {
+      return;
+    }
+    for (JsonElement element : telemetry.getAsJsonArray("phases")) {
+      JsonObject phase = element.getAsJsonObject();
+      if (phase.has("name")) {
+        statistics.add(phase.get("name").getAsString(), toStatistic(phase));
+      }
+    }
+  }
+
+  private static String toStatistic(JsonObject phase) {
+    StringJoiner joiner = new StringJoiner(",");
+    for (String field : FIELDS) {
+      if (phase.has(field)) {
+        joiner.add(field + ":" + phase.get(field).getAsLong());
+      }
+    }
+    return joiner.toString();
+  }
+
+  @Override
+  public String getDescription() {
+    return "Load scanner telemetry";
+  }
+}
@@ -29,6 +29,7 @@ import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.ce.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.ce.task.step.ComputationStep;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.BulkWriter;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.duplication.DuplicationUnitDto;
@@ -65,22 +66,26 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
 
     try (DbSession dbSession = dbClient.openSession(true)) {
       Component project = treeRootHolder.getRoot();
-      DuplicationVisitor visitor = new DuplicationVisitor(dbSession, analysisMetadataHolder.getUuid());
+      BulkWriter<DuplicationUnitDto> writer = new BulkWriter<>(dtos -> dbClient.duplicationDao().insert(dbSession, dtos));
+      DuplicationVisitor visitor = new DuplicationVisitor(writer, analysisMetadataHolder.getUuid());
       new DepthTraversalTypeAwareCrawler(visitor).visit(project);
+      writer.close();
       dbSession.commit();
-      context.getStatistics().add("inserts", visitor.count);
+      context.getStatistics()
+        .add("inserts", visitor.count)
+        .add("insertsPerSecond", writer.getRowsPerSecond());
     }
   }
 
   private class DuplicationVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
+    private final BulkWriter<DuplicationUnitDto> writer;
     private final String analysisUuid;
     private int count = 0;
 
-    private DuplicationVisitor(DbSession session, String analysisUuid) {
+    private DuplicationVisitor(BulkWriter<DuplicationUnitDto> writer, String analysisUuid) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
-      this.session = session;
+      this.writer = writer;
       this.analysisUuid = analysisUuid;
     }
 
@@ -98,8 +103,7 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
       try (CloseableIterator<ScannerReport.CpdTextBlock> blocks = reportReader.readCpdTextBlocks(component.getReportAttributes().getRef())) {
         while (blocks.hasNext()) {
           ScannerReport.CpdTextBlock block = blocks.next();
-          dbClient.duplicationDao().insert(
-            session,
+          writer.add(
             new DuplicationUnitDto()
               .setHash(block.getHash())
               .setStartLine(block.getStartLine())
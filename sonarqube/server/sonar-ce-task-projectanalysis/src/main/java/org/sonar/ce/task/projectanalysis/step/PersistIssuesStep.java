@@ -92,7 +92,7 @@ public class PersistIssuesStep implements ComputationStep {
       }
       persistNewIssues(statistics, addedIssues, mapper, changeMapper);
       persistUpdatedIssues(statistics, updatedIssues, mapper, changeMapper);
-      flushSession(dbSession);
+      flushSession(statistics, dbSession);
     } finally {
       statistics.dumpTo(context);
     }
@@ -112,6 +112,7 @@ public class PersistIssuesStep implements ComputationStep {
     });
 
     addedIssues.forEach(i -> issueStorage.insertChanges(changeMapper, i));
+    statistics.writeDurationMs += system2.now() - now;
   }
 
   private void persistUpdatedIssues(IssueStatistics statistics, List<DefaultIssue> updatedIssues, IssueMapper mapper, IssueChangeMapper changeMapper) {
@@ -140,11 +141,14 @@ public class PersistIssuesStep implements ComputationStep {
     }
 
     updatedIssues.forEach(i -> issueStorage.insertChanges(changeMapper, i));
+    statistics.writeDurationMs += system2.now() - now;
   }
 
-  private static void flushSession(DbSession dbSession) {
+  private void flushSession(IssueStatistics statistics, DbSession dbSession) {
+    long start = system2.now();
     dbSession.flushStatements();
     dbSession.commit();
+    statistics.writeDurationMs += system2.now() - start;
   }
 
   @Override
@@ -157,13 +161,16 @@ public class PersistIssuesStep implements ComputationStep {
     private int updates = 0;
     private int merged = 0;
     private int untouched = 0;
+    // time spent in the database session only, not in reading the issues to be persisted
+    private long writeDurationMs = 0;
 
     private void dumpTo(ComputationStep.Context context) {
       context.getStatistics()
         .add("inserts", String.valueOf(inserts))
         .add("updates", String.valueOf(updates))
         .add("merged", String.valueOf(merged))
-        .add("untouched", String.valueOf(untouched));
+        .add("untouched", String.valueOf(untouched))
+        .add("writesPerSecond", String.valueOf((inserts + updates) * 1_000L / Math.max(1L, writeDurationMs)));
     }
   }
 }
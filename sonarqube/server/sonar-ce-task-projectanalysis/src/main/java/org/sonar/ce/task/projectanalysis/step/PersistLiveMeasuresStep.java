@@ -39,6 +39,7 @@ import org.sonar.ce.task.projectanalysis.measure.MeasureToMeasureDto;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.db.BulkWriter;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.measure.LiveMeasureDto;
@@ -83,30 +84,44 @@ public class PersistLiveMeasuresStep implements ComputationStep {
     boolean supportUpsert = dbClient.getDatabase().getDialect().supportsUpsert();
     try (DbSession dbSession = dbClient.openSession(false)) {
       Component root = treeRootHolder.getRoot();
-      MeasureVisitor visitor = new MeasureVisitor(dbSession, supportUpsert);
+      BulkWriter<LiveMeasureDto> writer = new BulkWriter<>(dtos -> persist(dbSession, dtos, supportUpsert));
+      MeasureVisitor visitor = new MeasureVisitor(dbSession, writer);
       new DepthTraversalTypeAwareCrawler(visitor).visit(root);
+      writer.close();
+      // deletions of the components visited since the last flush of the writer
+      dbSession.commit();
 
       context.getStatistics()
-        .add("insertsOrUpdates", visitor.insertsOrUpdates);
+        .add("insertsOrUpdates", writer.getRows())
+        .add("insertsOrUpdatesPerSecond", writer.getRowsPerSecond());
+    }
+  }
+
+  private void persist(DbSession dbSession, List<LiveMeasureDto> dtos, boolean supportUpsert) {
+    if (supportUpsert) {
+      dbClient.liveMeasureDao().upsert(dbSession, dtos);
+    } else {
+      for (LiveMeasureDto dto : dtos) {
+        dbClient.liveMeasureDao().insertOrUpdate(dbSession, dto);
+      }
     }
+    dbSession.commit();
   }
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
     private final DbSession dbSession;
-    private final boolean supportUpsert;
-    private int insertsOrUpdates = 0;
+    private final BulkWriter<LiveMeasureDto> writer;
 
-    private MeasureVisitor(DbSession dbSession, boolean supportUpsert) {
+    private MeasureVisitor(DbSession dbSession, BulkWriter<LiveMeasureDto> writer) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
-      this.supportUpsert = supportUpsert;
       this.dbSession = dbSession;
+      this.writer = writer;
     }
 
     @Override
     public void visitAny(Component component) {
       List<Integer> metricIds = new ArrayList<>();
       Map<String, Measure> measures = measureRepository.getRawMeasures(component);
-      List<LiveMeasureDto> dtos = new ArrayList<>();
       for (Map.Entry<String, Measure> measuresByMetricKey : measures.entrySet()) {
         String metricKey = measuresByMetricKey.getKey();
         if (NOT_TO_PERSIST_ON_FILE_METRIC_KEYS.contains(metricKey) && component.getType() == Component.Type.FILE) {
@@ -120,24 +135,16 @@ public class PersistLiveMeasuresStep implements ComputationStep {
           .filter(notBestValueOptimized)
           .map(measure -> measureToMeasureDto.toLiveMeasureDto(measure, metric, component))
           .forEach(lm -> {
-            dtos.add(lm);
+            writer.add(lm);
             metricIds.add(metric.getId());
           });
       }
-      if (supportUpsert) {
-        dbClient.liveMeasureDao().upsert(dbSession, dtos);
-      } else {
-        for (LiveMeasureDto dto : dtos) {
-          dbClient.liveMeasureDao().insertOrUpdate(dbSession, dto);
-        }
-      }
-      insertsOrUpdates += dtos.size();
 
       // The measures that no longer exist on the component must be deleted, for example
       // when the coverage on a file goes to the "best value" 100%.
       // The measures on deleted components are deleted by the step PurgeDatastoresStep
+      // Deletion is committed along with the next chunk of measures written.
       dbClient.liveMeasureDao().deleteByComponentUuidExcludingMetricIds(dbSession, component.getUuid(), metricIds);
-      dbSession.commit();
     }
   }
 
@@ -33,9 +33,9 @@ import org.sonar.ce.task.projectanalysis.measure.MeasureToMeasureDto;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.db.BulkWriter;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.measure.MeasureDao;
 import org.sonar.db.measure.MeasureDto;
 
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
@@ -65,20 +65,24 @@ public class PersistMeasuresStep implements ComputationStep {
   @Override
   public void execute(ComputationStep.Context context) {
     try (DbSession dbSession = dbClient.openSession(true)) {
-      MeasureVisitor visitor = new MeasureVisitor(dbSession);
+      BulkWriter<MeasureDto> writer = new BulkWriter<>(dtos -> dbClient.measureDao().insert(dbSession, dtos));
+      MeasureVisitor visitor = new MeasureVisitor(writer);
       new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      writer.close();
       dbSession.commit();
-      context.getStatistics().add("inserts", visitor.inserts);
+      context.getStatistics()
+        .add("inserts", visitor.inserts)
+        .add("insertsPerSecond", writer.getRowsPerSecond());
     }
   }
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
-    private final DbSession session;
+    private final BulkWriter<MeasureDto> writer;
     private int inserts = 0;
 
-    private MeasureVisitor(DbSession session) {
+    private MeasureVisitor(BulkWriter<MeasureDto> writer) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
-      this.session = session;
+      this.writer = writer;
     }
 
     @Override
@@ -108,7 +112,6 @@ public class PersistMeasuresStep implements ComputationStep {
 
     private void persistMeasures(Component component) {
       Map<String, Measure> measures = measureRepository.getRawMeasures(component);
-      MeasureDao measureDao = dbClient.measureDao();
 
       for (Map.Entry<String, Measure> e : measures.entrySet()) {
         Measure measure = e.getValue();
@@ -118,7 +121,7 @@ public class PersistMeasuresStep implements ComputationStep {
         String metricKey = e.getKey();
         Metric metric = metricRepository.getByKey(metricKey);
         MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
-        measureDao.insert(session, measureDto);
+        writer.add(measureDto);
         inserts++;
       }
     }
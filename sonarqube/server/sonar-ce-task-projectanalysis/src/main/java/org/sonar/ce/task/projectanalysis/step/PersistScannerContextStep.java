@@ -19,6 +19,9 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.collect.Iterators;
+import java.util.Iterator;
+import java.util.Optional;
 import org.sonar.ce.task.CeTask;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.step.ComputationStep;
@@ -26,9 +29,12 @@ import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 
 public class PersistScannerContextStep implements ComputationStep {
+  private static final String TELEMETRY_HEADER = "Scanner telemetry:";
+
   private final BatchReportReader reportReader;
   private final DbClient dbClient;
   private final CeTask ceTask;
@@ -46,7 +52,7 @@ public class PersistScannerContextStep implements ComputationStep {
 
   @Override
   public void execute(ComputationStep.Context context) {
-    try (CloseableIterator<String> logsIterator = reportReader.readScannerLogs()) {
+    try (CloseableIterator<String> logsIterator = readScannerContext()) {
       if (logsIterator.hasNext()) {
         try (DbSession dbSession = dbClient.openSession(false)) {
           // in case the task was restarted, the context might have been already persisted
@@ -60,4 +66,18 @@ public class PersistScannerContextStep implements ComputationStep {
       }
     }
   }
+
+  /**
+   * The telemetry of the phases of the analysis, when the report provides it, is appended to the logs of the scanner,
+   * so that it's kept with the task of the analysis.
+   */
+  private CloseableIterator<String> readScannerContext() {
+    CloseableIterator<String> logsIterator = reportReader.readScannerLogs();
+    Optional<String> telemetry = reportReader.readTelemetry();
+    if (!telemetry.isPresent()) {
+      return logsIterator;
+    }
+    Iterator<String> lines = Iterators.concat(logsIterator, asList(TELEMETRY_HEADER, telemetry.get()).iterator());
+    return CloseableIterator.wrap(CloseableIterator.from(lines), logsIterator);
+  }
 }
@@ -19,34 +19,41 @@
  */
 package org.sonar.ce.task.projectanalysis.util.cache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
-import org.apache.commons.io.FileUtils;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
 /**
  * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * The format of the file is defined by a {@link DiskCacheCodec}, Java serialization by default.
  */
 public class DiskCache<O extends Serializable> {
 
   private final File file;
   private final System2 system2;
+  private final DiskCacheCodec<O> codec;
 
   public DiskCache(File file, System2 system2) {
+    this(file, system2, new JavaSerializationCodec<>());
+  }
+
+  public DiskCache(File file, System2 system2, DiskCacheCodec<O> codec) {
     this.system2 = system2;
     this.file = file;
+    this.codec = codec;
     OutputStream output = null;
     boolean threw = true;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
+      output = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+      codec.writeHeader(output);
       output.flush();
       threw = false;
     } catch (IOException e) {
@@ -68,23 +75,18 @@ public class DiskCache<O extends Serializable> {
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      return codec.newDecoder(new BufferedInputStream(Files.newInputStream(file.toPath())));
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final DiskCacheCodec.Encoder<O> encoder;
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        this.encoder = codec.newEncoder(new BufferedOutputStream(Files.newOutputStream(file.toPath(), StandardOpenOption.APPEND)));
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
@@ -92,8 +94,7 @@ public class DiskCache<O extends Serializable> {
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        encoder.write(object);
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
@@ -102,7 +103,7 @@ public class DiskCache<O extends Serializable> {
 
     @Override
     public void close() {
-      system2.close(output);
+      system2.close(encoder);
     }
   }
 }
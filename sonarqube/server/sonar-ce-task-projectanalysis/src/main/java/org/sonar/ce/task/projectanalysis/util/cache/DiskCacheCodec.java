@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.util.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.sonar.core.util.CloseableIterator;
+
+/**
+ * Format of the objects stored on disk by {@link DiskCache}. A cache file is made of a header,
+ * written once when the cache is created, followed by the content of every {@link Encoder}
+ * successively opened on the file.
+ */
+public interface DiskCacheCodec<O> {
+
+  /**
+   * Writes the header of a new cache file. Can write nothing.
+   */
+  void writeHeader(OutputStream output) throws IOException;
+
+  /**
+   * Opens an encoder appending objects to {@code output}. The encoder is responsible for closing {@code output}.
+   */
+  Encoder<O> newEncoder(OutputStream output) throws IOException;
+
+  /**
+   * Iterates over the objects of a cache file, header included. The iterator is responsible for closing {@code input}.
+   */
+  CloseableIterator<O> newDecoder(InputStream input) throws IOException;
+
+  interface Encoder<O> extends AutoCloseable {
+    void write(O object) throws IOException;
+
+    @Override
+    void close() throws IOException;
+  }
+}
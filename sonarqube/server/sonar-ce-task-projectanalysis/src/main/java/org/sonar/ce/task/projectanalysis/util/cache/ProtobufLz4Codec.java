@@ -0,0 +1,181 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.util.cache;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.apache.commons.io.IOUtils;
+import org.sonar.core.util.CloseableIterator;
+
+/**
+ * Stores objects as length-delimited protobuf messages, grouped in LZ4-compressed blocks.
+ * <p>
+ * Each block is written as its uncompressed size, its compressed size and the compressed bytes. Blocks are
+ * self-contained, so that the content of successive encoders can simply be appended to the same file.
+ * There is no header.
+ */
+public abstract class ProtobufLz4Codec<O, M extends Message> implements DiskCacheCodec<O> {
+
+  static final int BLOCK_SIZE = 64 * 1024;
+
+  private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+  private final Parser<M> parser;
+
+  protected ProtobufLz4Codec(Parser<M> parser) {
+    this.parser = parser;
+  }
+
+  protected abstract M toMessage(O object);
+
+  protected abstract O fromMessage(M message);
+
+  @Override
+  public void writeHeader(OutputStream output) {
+    // no header
+  }
+
+  @Override
+  public Encoder<O> newEncoder(OutputStream output) {
+    return new BlockEncoder(output);
+  }
+
+  @Override
+  public CloseableIterator<O> newDecoder(InputStream input) {
+    return new BlockDecoder(input);
+  }
+
+  private class BlockEncoder implements Encoder<O> {
+    private final DataOutputStream output;
+    private final LZ4Compressor compressor = LZ4.fastCompressor();
+    private byte[] block = new byte[BLOCK_SIZE];
+    private byte[] compressed = new byte[compressor.maxCompressedLength(BLOCK_SIZE)];
+    private int blockLength = 0;
+
+    private BlockEncoder(OutputStream output) {
+      this.output = new DataOutputStream(output);
+    }
+
+    @Override
+    public void write(O object) throws IOException {
+      M message = toMessage(object);
+      int size = message.getSerializedSize();
+      int delimitedSize = CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+      if (blockLength > 0 && blockLength + delimitedSize > block.length) {
+        flushBlock();
+      }
+      if (delimitedSize > block.length) {
+        // message bigger than a block, the block is made of this single message
+        block = new byte[delimitedSize];
+        compressed = new byte[compressor.maxCompressedLength(delimitedSize)];
+      }
+      CodedOutputStream coded = CodedOutputStream.newInstance(block, blockLength, delimitedSize);
+      coded.writeUInt32NoTag(size);
+      message.writeTo(coded);
+      coded.checkNoSpaceLeft();
+      blockLength += delimitedSize;
+    }
+
+    private void flushBlock() throws IOException {
+      int compressedLength = compressor.compress(block, 0, blockLength, compressed, 0, compressed.length);
+      output.writeInt(blockLength);
+      output.writeInt(compressedLength);
+      output.write(compressed, 0, compressedLength);
+      blockLength = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (blockLength > 0) {
+          flushBlock();
+        }
+      } finally {
+        output.close();
+      }
+    }
+  }
+
+  private class BlockDecoder extends CloseableIterator<O> {
+    private final DataInputStream input;
+    private final LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+    private byte[] compressed = new byte[0];
+    private byte[] block = new byte[0];
+    private CodedInputStream blockInput = null;
+
+    private BlockDecoder(InputStream input) {
+      this.input = new DataInputStream(input);
+    }
+
+    @Override
+    protected O doNext() {
+      try {
+        while (blockInput == null || blockInput.isAtEnd()) {
+          if (!readBlock()) {
+            return null;
+          }
+        }
+        int size = blockInput.readRawVarint32();
+        int oldLimit = blockInput.pushLimit(size);
+        M message = parser.parseFrom(blockInput);
+        blockInput.popLimit(oldLimit);
+        return fromMessage(message);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read cache", e);
+      }
+    }
+
+    private boolean readBlock() throws IOException {
+      int blockLength;
+      try {
+        blockLength = input.readInt();
+      } catch (EOFException e) {
+        return false;
+      }
+      int compressedLength = input.readInt();
+      if (compressed.length < compressedLength) {
+        compressed = new byte[compressedLength];
+      }
+      input.readFully(compressed, 0, compressedLength);
+      if (block.length < blockLength) {
+        block = new byte[blockLength];
+      }
+      decompressor.decompress(compressed, 0, block, 0, blockLength);
+      blockInput = CodedInputStream.newInstance(block, 0, blockLength);
+      return true;
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
+}
@@ -23,6 +23,7 @@ import java.io.File;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class BatchReportDirectoryHolderImplTest {
 
@@ -39,4 +40,32 @@ public class BatchReportDirectoryHolderImplTest {
 
     assertThat(holder.getDirectory()).isSameAs(file);
   }
+
+  @Test
+  public void getZipFile_is_empty_if_not_set() {
+    assertThat(new BatchReportDirectoryHolderImpl().getZipFile()).isEmpty();
+  }
+
+  @Test
+  public void setZipFile_replaces_directory() {
+    File dir = new File("");
+    File zip = new File("report.zip");
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setDirectory(dir);
+    holder.setZipFile(zip);
+
+    assertThat(holder.getZipFile()).contains(zip);
+    assertThatThrownBy(holder::getDirectory).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void setDirectory_replaces_zip_file() {
+    File dir = new File("");
+    BatchReportDirectoryHolderImpl holder = new BatchReportDirectoryHolderImpl();
+    holder.setZipFile(new File("report.zip"));
+    holder.setDirectory(dir);
+
+    assertThat(holder.getDirectory()).isSameAs(dir);
+    assertThat(holder.getZipFile()).isEmpty();
+  }
 }
@@ -92,6 +92,18 @@ public class BatchReportReaderImplTest {
     assertThat(logs.hasNext()).isFalse();
   }
 
+  @Test
+  public void readTelemetry() throws IOException {
+    FileUtils.write(writer.getFileStructure().telemetry(), "{\"phases\":[]}");
+
+    assertThat(underTest.readTelemetry()).contains("{\"phases\":[]}");
+  }
+
+  @Test
+  public void readTelemetry_no_telemetry() {
+    assertThat(underTest.readTelemetry()).isEmpty();
+  }
+
   @Test
   public void readComponentMeasures_returns_empty_list_if_there_is_no_measure() {
     assertThat(underTest.readComponentMeasures(COMPONENT_REF)).isExhausted();
@@ -40,6 +40,7 @@ import org.sonar.scanner.protocol.output.ScannerReport.LineSgnificantCode;
 public class BatchReportReaderRule implements TestRule, BatchReportReader {
   private ScannerReport.Metadata metadata;
   private List<String> scannerLogs;
+  private String telemetry;
   private List<ScannerReport.ActiveRule> activeRules = new ArrayList<>();
   private List<ScannerReport.ContextProperty> contextProperties = new ArrayList<>();
   private Map<Integer, List<ScannerReport.Measure>> measures = new HashMap<>();
@@ -75,6 +76,7 @@ public class BatchReportReaderRule implements TestRule, BatchReportReader {
   private void clear() {
     this.metadata = null;
     this.scannerLogs = null;
+    this.telemetry = null;
     this.measures.clear();
     this.changesets.clear();
     this.components.clear();
@@ -124,6 +126,16 @@ public class BatchReportReaderRule implements TestRule, BatchReportReader {
     return this;
   }
 
+  @Override
+  public Optional<String> readTelemetry() {
+    return Optional.ofNullable(telemetry);
+  }
+
+  public BatchReportReaderRule setTelemetry(@Nullable String telemetry) {
+    this.telemetry = telemetry;
+    return this;
+  }
+
   @Override
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
     if (activeRules == null) {
@@ -21,6 +21,7 @@ package org.sonar.ce.task.projectanalysis.batch;
 
 import java.io.File;
 import java.util.Objects;
+import java.util.Optional;
 
 public class ImmutableBatchReportDirectoryHolder implements BatchReportDirectoryHolder {
   private final File directory;
@@ -33,4 +34,9 @@ public class ImmutableBatchReportDirectoryHolder implements BatchReportDirectory
   public File getDirectory() {
     return directory;
   }
+
+  @Override
+  public Optional<File> getZipFile() {
+    return Optional.empty();
+  }
 }
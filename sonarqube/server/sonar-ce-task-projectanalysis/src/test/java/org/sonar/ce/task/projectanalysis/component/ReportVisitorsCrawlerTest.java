@@ -19,7 +19,12 @@
  */
 package org.sonar.ce.task.projectanalysis.component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -121,6 +126,71 @@ public class ReportVisitorsCrawlerTest {
     new VisitorsCrawler(Arrays.asList(componentVisitor));
   }
 
+  @Test
+  public void file_local_visitors_visit_files_concurrently_before_the_tree_is_crawled() {
+    Component file6 = component(FILE, 6);
+    Component file7 = component(FILE, 7);
+    Component directory3 = component(DIRECTORY, 3, file6, file7);
+    Component tree = component(PROJECT, 1, DIRECTORY_4, directory3);
+    RecordingFileLocalVisitor fileLocalVisitor = new RecordingFileLocalVisitor();
+    RecordingFileLocalVisitor otherFileLocalVisitor = new RecordingFileLocalVisitor();
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(fileLocalVisitor, otherFileLocalVisitor, spyPostOrderTypeAwareVisitor), false, 4);
+    underTest.visit(tree);
+
+    for (RecordingFileLocalVisitor visitor : Arrays.asList(fileLocalVisitor, otherFileLocalVisitor)) {
+      assertThat(visitor.visitedFiles).containsOnly(FILE_5, file6, file7).hasSize(3);
+      assertThat(visitor.threadNamesByFile.values()).allMatch(name -> name.startsWith("CE_file_visitor-"));
+      assertThat(visitor.visitedNonFiles).containsExactly(DIRECTORY_4, directory3, tree);
+      assertThat(visitor.threadNamesByComponent.get(tree)).isEqualTo(Thread.currentThread().getName());
+    }
+    // a file is visited by all the file local visitors in the same thread
+    assertThat(otherFileLocalVisitor.threadNamesByFile).isEqualTo(fileLocalVisitor.threadNamesByFile);
+    InOrder inOrder = inOrder(spyPostOrderTypeAwareVisitor);
+    inOrder.verify(spyPostOrderTypeAwareVisitor).visitFile(FILE_5);
+    inOrder.verify(spyPostOrderTypeAwareVisitor).visitDirectory(DIRECTORY_4);
+    inOrder.verify(spyPostOrderTypeAwareVisitor).visitFile(file6);
+    inOrder.verify(spyPostOrderTypeAwareVisitor).visitFile(file7);
+    inOrder.verify(spyPostOrderTypeAwareVisitor).visitDirectory(directory3);
+    inOrder.verify(spyPostOrderTypeAwareVisitor).visitProject(tree);
+  }
+
+  @Test
+  public void file_local_visitor_visits_files_sequentially_when_preceded_by_another_visitor() {
+    RecordingFileLocalVisitor fileLocalVisitor = new RecordingFileLocalVisitor();
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(spyPostOrderTypeAwareVisitor, fileLocalVisitor), false, 4);
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(fileLocalVisitor.visitedFiles).containsOnly(FILE_5);
+    assertThat(fileLocalVisitor.threadNamesByFile.get(FILE_5)).isEqualTo(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void file_local_visitor_visits_files_sequentially_when_only_one_thread() {
+    RecordingFileLocalVisitor fileLocalVisitor = new RecordingFileLocalVisitor();
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(fileLocalVisitor), false, 1);
+    underTest.visit(COMPONENT_TREE);
+
+    assertThat(fileLocalVisitor.visitedFiles).containsOnly(FILE_5);
+    assertThat(fileLocalVisitor.threadNamesByFile.get(FILE_5)).isEqualTo(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void fail_with_VisitException_when_concurrent_visit_of_file_fails() {
+    thrown.expect(VisitException.class);
+    thrown.expectMessage("Visit of Component {key=" + FILE_5.getDbKey() + ",type=FILE} failed");
+
+    VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(new RecordingFileLocalVisitor() {
+      @Override
+      public void visitFile(Component file) {
+        throw new IllegalStateException("failure");
+      }
+    }), false, 2);
+    underTest.visit(COMPONENT_TREE);
+  }
+
   private static Component component(final Component.Type type, final int ref, final Component... children) {
     return ReportComponent.builder(type, ref).addChildren(children).build();
   }
@@ -132,6 +202,35 @@ public class ReportVisitorsCrawlerTest {
     }
   }
 
+  private static class RecordingFileLocalVisitor extends TypeAwareVisitorAdapter implements FileLocalVisitor {
+    private final List<Component> visitedFiles = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Component, String> threadNamesByFile = new ConcurrentHashMap<>();
+    private final List<Component> visitedNonFiles = new ArrayList<>();
+    private final Map<Component, String> threadNamesByComponent = new ConcurrentHashMap<>();
+
+    RecordingFileLocalVisitor() {
+      super(CrawlerDepthLimit.FILE, POST_ORDER);
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      visitedFiles.add(file);
+      threadNamesByFile.put(file, Thread.currentThread().getName());
+    }
+
+    @Override
+    public void visitDirectory(Component directory) {
+      visitedNonFiles.add(directory);
+      threadNamesByComponent.put(directory, Thread.currentThread().getName());
+    }
+
+    @Override
+    public void visitProject(Component project) {
+      visitedNonFiles.add(project);
+      threadNamesByComponent.put(project, Thread.currentThread().getName());
+    }
+  }
+
   private static class TestPathAwareVisitor extends PathAwareVisitorAdapter<Integer> {
 
     public TestPathAwareVisitor(CrawlerDepthLimit maxDepth, ComponentVisitor.Order order) {
@@ -34,6 +34,7 @@ import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
@@ -59,6 +60,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.ce.task.projectanalysis.component.ReportComponent.builder;
 import static org.sonar.ce.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+import static org.sonar.ce.task.projectanalysis.filemove.FileMoveDetectionStep.PRUNE_CANDIDATES_PROPERTY;
 
 public class FileMoveDetectionStepTest {
 
@@ -227,12 +229,14 @@ public class FileMoveDetectionStepTest {
   private ComponentDto project;
 
   private SourceLinesHashRepository sourceLinesHash = mock(SourceLinesHashRepository.class);
-  private FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
+  private SourceSimilarity sourceSimilarity = new SourceSimilarityImpl();
+  private FileSimilarity fileSimilarity = new FileSimilarityImpl(sourceSimilarity);
   private CapturingScoreMatrixDumper scoreMatrixDumper = new CapturingScoreMatrixDumper();
   private RecordingMutableAddedFileRepository addedFileRepository = new RecordingMutableAddedFileRepository();
+  private MapSettings settings = new MapSettings();
 
   private FileMoveDetectionStep underTest = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
-    fileSimilarity, movedFilesRepository, sourceLinesHash, scoreMatrixDumper, addedFileRepository);
+    fileSimilarity, sourceSimilarity, movedFilesRepository, sourceLinesHash, scoreMatrixDumper, addedFileRepository, settings.asConfig());
 
   @Before
   public void setUp() throws Exception {
@@ -583,6 +587,39 @@ public class FileMoveDetectionStepTest {
     verifyStatistics(context, comps.values().size(), 12, 6, 3);
   }
 
+  @Test
+  public void execute_detects_several_moves_when_pruning_candidates() {
+    settings.setProperty(PRUNE_CANDIDATES_PROPERTY, true);
+
+    execute_detects_several_moves();
+  }
+
+  @Test
+  public void execute_does_not_store_scores_below_min_required_score_when_pruning_candidates() {
+    settings.setProperty(PRUNE_CANDIDATES_PROPERTY, true);
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    Component file1 = fileComponent(FILE_1_REF, null);
+    Component file2 = fileComponent(FILE_2_REF, LESS_CONTENT1);
+    insertFiles(file1.getDbKey());
+    insertContentOfFileInDb(file1.getDbKey(), CONTENT1);
+    setFilesInReport(file2);
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).isEmpty();
+    assertThat(scoreMatrixDumper.scoreMatrix.getMaxScore()).isZero();
+    assertThat(addedFileRepository.getComponents()).contains(file2);
+    verifyStatistics(context, 1, 1, 1, 0);
+  }
+
+  @Test
+  public void real_life_use_case_when_pruning_candidates() throws Exception {
+    settings.setProperty(PRUNE_CANDIDATES_PROPERTY, true);
+
+    real_life_use_case();
+  }
+
   private String[] readLines(File filename) throws IOException {
     return FileUtils
       .readLines(filename, StandardCharsets.UTF_8)
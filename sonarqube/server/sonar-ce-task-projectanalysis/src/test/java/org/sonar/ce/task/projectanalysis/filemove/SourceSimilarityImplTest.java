@@ -20,6 +20,7 @@
 package org.sonar.ce.task.projectanalysis.filemove;
 
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.junit.Rule;
@@ -129,4 +130,87 @@ public class SourceSimilarityImplTest {
   public void two_empty_lists_are_not_considered_as_equal() {
     assertThat(underTest.score(emptyList(), emptyList())).isEqualTo(0);
   }
+
+  @Test
+  public void boundedLevenshteinDistance_returns_distance_if_less_than_or_equal_to_threshold() {
+    assertThat(SourceSimilarityImpl.boundedLevenshteinDistance(new int[] {1, 2, 3}, new int[] {1, 2, 3}, 0)).isEqualTo(0);
+    assertThat(SourceSimilarityImpl.boundedLevenshteinDistance(new int[] {1, 2, 3, 4}, new int[] {1, 2, 5, 6}, 2)).isEqualTo(2);
+    assertThat(SourceSimilarityImpl.boundedLevenshteinDistance(new int[] {1}, new int[] {1, 2, 3}, 2)).isEqualTo(2);
+    assertThat(SourceSimilarityImpl.boundedLevenshteinDistance(new int[0], new int[] {1, 2}, 2)).isEqualTo(2);
+  }
+
+  @Test
+  public void boundedLevenshteinDistance_returns_minus_one_if_greater_than_threshold() {
+    assertThat(SourceSimilarityImpl.boundedLevenshteinDistance(new int[] {1, 2, 3, 4}, new int[] {1, 2, 5, 6}, 1)).isEqualTo(-1);
+    assertThat(SourceSimilarityImpl.boundedLevenshteinDistance(new int[] {1}, new int[] {1, 2, 3}, 1)).isEqualTo(-1);
+    assertThat(SourceSimilarityImpl.boundedLevenshteinDistance(new int[] {1, 2, 3}, new int[] {4, 5, 6}, 2)).isEqualTo(-1);
+  }
+
+  @Test
+  public void bounded_distance_gives_same_scores_above_min_required_score_as_full_distance() {
+    Random random = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      int[] left = randomLines(random, 1 + random.nextInt(60));
+      int[] right = mutate(random, left);
+      int maxLength = Math.max(left.length, right.length);
+      int expected = underTest.score(toList(left), toList(right));
+
+      int score = underTest.score(left, right, FileMoveDetectionStep.MIN_REQUIRED_SCORE);
+      if (expected >= FileMoveDetectionStep.MIN_REQUIRED_SCORE) {
+        assertThat(score).isEqualTo(expected);
+      } else {
+        assertThat(score).isEqualTo(-1);
+      }
+    }
+  }
+
+  @Test
+  public void maxDistanceForScore_is_the_largest_distance_reaching_the_score() {
+    for (int maxLength = 1; maxLength <= 1_000; maxLength++) {
+      for (int minScore : new int[] {0, 50, 85, 99, 100}) {
+        int expected = maxLength;
+        while (expected >= 0 && SourceSimilarityImpl.score(expected, maxLength) < minScore) {
+          expected--;
+        }
+        assertThat(underTest.maxDistanceForScore(maxLength, minScore)).as("length %s, score %s", maxLength, minScore).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  public void maxDistanceForScore_is_minus_one_if_score_can_not_be_reached() {
+    assertThat(underTest.maxDistanceForScore(0, 85)).isEqualTo(-1);
+    assertThat(underTest.maxDistanceForScore(10, 101)).isEqualTo(-1);
+  }
+
+  private static int[] randomLines(Random random, int size) {
+    return IntStream.range(0, size).map(i -> random.nextInt(20)).toArray();
+  }
+
+  private static int[] mutate(Random random, int[] lines) {
+    List<Integer> res = toList(lines);
+    int changes = random.nextInt(1 + lines.length / 4);
+    for (int i = 0; i < changes; i++) {
+      int index = random.nextInt(res.size() + 1);
+      switch (random.nextInt(3)) {
+        case 0:
+          res.add(index, random.nextInt(20));
+          break;
+        case 1:
+          if (index < res.size()) {
+            res.remove(index);
+          }
+          break;
+        default:
+          if (index < res.size()) {
+            res.set(index, random.nextInt(20));
+          }
+      }
+    }
+    return res.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static List<Integer> toList(int[] lines) {
+    return IntStream.of(lines).boxed().collect(Collectors.toList());
+  }
 }
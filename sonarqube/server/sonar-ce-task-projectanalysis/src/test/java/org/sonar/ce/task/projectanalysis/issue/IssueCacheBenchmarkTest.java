@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.io.File;
+import java.util.function.Function;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.task.projectanalysis.util.cache.DiskCache;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.util.CloseableIterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares write and traverse throughput of {@link IssueCache} with Java serialization and with {@link ProtobufIssueCodec}.
+ * Too slow to be executed by default, remove {@link Ignore} to run it.
+ */
+@Ignore("benchmark")
+public class IssueCacheBenchmarkTest {
+
+  private static final Logger LOGGER = Loggers.get(IssueCacheBenchmarkTest.class);
+  private static final int ISSUES = 500_000;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void java_serialization() throws Exception {
+    benchmark("java serialization", file -> new DiskCache<>(file, System2.INSTANCE));
+  }
+
+  @Test
+  public void protobuf() throws Exception {
+    benchmark("protobuf", file -> new IssueCache(file, System2.INSTANCE));
+  }
+
+  private void benchmark(String name, Function<File, DiskCache<DefaultIssue>> cacheFactory) throws Exception {
+    File file = temp.newFile();
+    DiskCache<DefaultIssue> cache = cacheFactory.apply(file);
+    DefaultIssue issue = ProtobufIssueCodecTest.newIssue("ISSUE");
+
+    long start = System.currentTimeMillis();
+    try (DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender()) {
+      for (int i = 0; i < ISSUES; i++) {
+        appender.append(issue.setKey("ISSUE_" + i));
+      }
+    }
+    long writeMs = System.currentTimeMillis() - start;
+
+    start = System.currentTimeMillis();
+    int count = 0;
+    try (CloseableIterator<DefaultIssue> it = cache.traverse()) {
+      while (it.hasNext()) {
+        it.next();
+        count++;
+      }
+    }
+    long traverseMs = System.currentTimeMillis() - start;
+
+    assertThat(count).isEqualTo(ISSUES);
+    LOGGER.info("{}: {} bytes, write {} issues/s, traverse {} issues/s", name, file.length(),
+      ISSUES * 1_000L / Math.max(1, writeMs), ISSUES * 1_000L / Math.max(1, traverseMs));
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.util.cache.DiskCache;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ProtobufIssueCodecTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read_all_fields() throws Exception {
+    DefaultIssue issue = newIssue("ISSUE_1");
+    DiskCache<DefaultIssue> cache = newCache();
+
+    cache.newAppender().append(issue).close();
+
+    DefaultIssue read = readAll(cache).get(0);
+    assertThat(read.key()).isEqualTo("ISSUE_1");
+    assertThat(read.type()).isEqualTo(RuleType.BUG);
+    assertThat(read.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(read.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(read.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(read.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(read.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(read.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(read.ruleKey()).isEqualTo(RuleKey.of("java", "S001"));
+    assertThat(read.language()).isEqualTo("java");
+    assertThat(read.severity()).isEqualTo(Severity.BLOCKER);
+    assertThat(read.manualSeverity()).isTrue();
+    assertThat(read.message()).isEqualTo("the message");
+    assertThat(read.line()).isEqualTo(12);
+    assertThat(read.gap()).isEqualTo(1.5);
+    assertThat(read.effort()).isEqualTo(Duration.create(10L));
+    assertThat(read.status()).isEqualTo("OPEN");
+    assertThat(read.resolution()).isEqualTo("FIXED");
+    assertThat(read.assignee()).isEqualTo("ASSIGNEE_UUID");
+    assertThat(read.checksum()).isEqualTo("CHECKSUM");
+    assertThat(read.attributes()).containsOnly(entry("JIRA", "FOO-123"));
+    assertThat(read.authorLogin()).isEqualTo("simon");
+    assertThat(read.tags()).containsExactly("tag1", "tag2");
+    assertThat((DbIssues.Locations) read.getLocations()).isEqualTo(issue.getLocations());
+    assertThat(read.isFromExternalRuleEngine()).isTrue();
+    assertThat(read.creationDate()).isEqualTo(issue.creationDate());
+    assertThat(read.updateDate()).isEqualTo(issue.updateDate());
+    assertThat(read.closeDate()).isEqualTo(issue.closeDate());
+    assertThat(read.isNew()).isFalse();
+    assertThat(read.isCopied()).isTrue();
+    assertThat(read.isBeingClosed()).isTrue();
+    assertThat(read.isOnDisabledRule()).isTrue();
+    assertThat(read.isChanged()).isTrue();
+    assertThat(read.mustSendNotifications()).isTrue();
+    assertThat(read.selectedAt()).isEqualTo(1_000L);
+
+    DefaultIssueComment comment = read.defaultIssueComments().get(0);
+    assertThat(comment.issueKey()).isEqualTo("ISSUE_1");
+    assertThat(comment.key()).isEqualTo("COMMENT_KEY");
+    assertThat(comment.userUuid()).isEqualTo("USER_UUID");
+    assertThat(comment.markdownText()).isEqualTo("the comment");
+    assertThat(comment.createdAt()).isEqualTo(new Date(2_000L));
+    assertThat(comment.updatedAt()).isNull();
+    assertThat(comment.isNew()).isTrue();
+  }
+
+  @Test
+  public void write_and_read_issue_without_optional_fields() throws Exception {
+    DiskCache<DefaultIssue> cache = newCache();
+
+    cache.newAppender().append(new DefaultIssue().setKey("ISSUE_1")).close();
+
+    DefaultIssue read = readAll(cache).get(0);
+    assertThat(read.key()).isEqualTo("ISSUE_1");
+    assertThat(read.type()).isNull();
+    assertThat(read.ruleKey()).isNull();
+    assertThat(read.line()).isNull();
+    assertThat(read.gap()).isNull();
+    assertThat(read.effort()).isNull();
+    assertThat(read.status()).isNull();
+    assertThat(read.creationDate()).isNull();
+    assertThat((Object) read.getLocations()).isNull();
+    assertThat(read.changes()).isEmpty();
+    assertThat(read.currentChange()).isNull();
+    assertThat(read.isNew()).isTrue();
+  }
+
+  @Test
+  public void preserve_identity_of_current_change() throws Exception {
+    DefaultIssue issue = new DefaultIssue().setKey("ISSUE_1");
+    FieldDiffs previousChange = new FieldDiffs().setUserUuid("OLD_USER").setCreationDate(new Date(1_000L));
+    previousChange.setDiff("severity", "MINOR", "MAJOR");
+    issue.addChange(previousChange);
+    IssueChangeContext context = IssueChangeContext.createUser(new Date(2_000L), "USER_UUID");
+    issue.setFieldChange(context, "status", "OPEN", "CLOSED");
+    issue.setFieldChange(context, "effort", 10L, 20L);
+    issue.setFieldChange(context, "line", 3, 5);
+    issue.setFieldChange(context, "type", RuleType.BUG, RuleType.CODE_SMELL);
+    issue.setFieldChange(context, "assignee", null, "user|with,special=chars");
+    DiskCache<DefaultIssue> cache = newCache();
+
+    cache.newAppender().append(issue).close();
+
+    DefaultIssue read = readAll(cache).get(0);
+    assertThat(read.changes()).hasSize(issue.changes().size());
+    assertThat(read.changes().get(0).toEncodedString()).isEqualTo(previousChange.toEncodedString());
+    FieldDiffs currentChange = read.currentChange();
+    assertThat(currentChange).isNotNull();
+    assertThat(read.changes().subList(1, read.changes().size())).allMatch(change -> change == currentChange);
+    assertThat(currentChange.userUuid()).isEqualTo("USER_UUID");
+    assertThat(currentChange.creationDate()).isEqualTo(new Date(2_000L));
+    assertThat(currentChange.toEncodedString()).isEqualTo(issue.currentChange().toEncodedString());
+    assertThat(currentChange.get("effort").newValueLong()).isEqualTo(20L);
+    assertThat(currentChange.get("line").newValue()).isEqualTo(5);
+    assertThat(currentChange.get("type").newValue()).isEqualTo(RuleType.CODE_SMELL);
+    assertThat(currentChange.get("assignee").newValue()).isEqualTo("user|with,special=chars");
+  }
+
+  @Test
+  public void write_and_read_issues_of_multiple_appenders_and_blocks() throws Exception {
+    DiskCache<DefaultIssue> cache = newCache();
+    List<String> keys = new ArrayList<>();
+    for (int appender = 0; appender < 3; appender++) {
+      try (DiskCache<DefaultIssue>.DiskAppender diskAppender = cache.newAppender()) {
+        for (int i = 0; i < 2_000; i++) {
+          String key = "ISSUE_" + appender + "_" + i;
+          keys.add(key);
+          diskAppender.append(newIssue(key));
+        }
+      }
+    }
+    // a single issue bigger than a block
+    String hugeAttribute = StringUtils.repeat("a", 200_000);
+    cache.newAppender().append(new DefaultIssue().setKey("HUGE").setAttribute("huge", hugeAttribute)).close();
+    keys.add("HUGE");
+
+    List<DefaultIssue> read = readAll(cache);
+
+    assertThat(read).extracting(DefaultIssue::key).containsExactlyElementsOf(keys);
+    assertThat(read.get(read.size() - 1).attribute("huge")).isEqualTo(hugeAttribute);
+  }
+
+  @Test
+  public void traverse_empty_cache() throws Exception {
+    assertThat(readAll(newCache())).isEmpty();
+  }
+
+  @Test
+  public void file_is_smaller_than_with_java_serialization() throws Exception {
+    File protobufFile = temp.newFile();
+    File javaFile = temp.newFile();
+    DiskCache<DefaultIssue> protobufCache = new IssueCache(protobufFile, System2.INSTANCE);
+    DiskCache<DefaultIssue> javaCache = new DiskCache<>(javaFile, System2.INSTANCE);
+    try (DiskCache<DefaultIssue>.DiskAppender protobufAppender = protobufCache.newAppender();
+      DiskCache<DefaultIssue>.DiskAppender javaAppender = javaCache.newAppender()) {
+      for (int i = 0; i < 1_000; i++) {
+        DefaultIssue issue = newIssue("ISSUE_" + i);
+        protobufAppender.append(issue);
+        javaAppender.append(issue);
+      }
+    }
+
+    assertThat(protobufFile.length()).isLessThan(javaFile.length());
+  }
+
+  private DiskCache<DefaultIssue> newCache() throws Exception {
+    return new IssueCache(temp.newFile(), System2.INSTANCE);
+  }
+
+  private static List<DefaultIssue> readAll(DiskCache<DefaultIssue> cache) {
+    try (CloseableIterator<DefaultIssue> it = cache.traverse()) {
+      return newArrayList(it);
+    }
+  }
+
+  static DefaultIssue newIssue(String key) {
+    DefaultIssue issue = new DefaultIssue()
+      .setKey(key)
+      .setType(RuleType.BUG)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("java", "S001"))
+      .setLanguage("java")
+      .setSeverity(Severity.BLOCKER)
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(12)
+      .setGap(1.5)
+      .setEffort(Duration.create(10L))
+      .setStatus("OPEN")
+      .setResolution("FIXED")
+      .setAssigneeUuid("ASSIGNEE_UUID")
+      .setChecksum("CHECKSUM")
+      .setAttribute("JIRA", "FOO-123")
+      .setAuthorLogin("simon")
+      .setTags(newArrayList("tag1", "tag2"))
+      .setLocations(DbIssues.Locations.newBuilder()
+        .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(12).setEndLine(13))
+        .build())
+      .setIsFromExternalRuleEngine(true)
+      .setCreationDate(new Date(1_500_000_000_000L))
+      .setUpdateDate(new Date(1_500_000_100_000L))
+      .setCloseDate(new Date(1_500_000_200_000L))
+      .setNew(false)
+      .setCopied(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(1_000L);
+    issue.addComment(new DefaultIssueComment()
+      .setIssueKey(key)
+      .setKey("COMMENT_KEY")
+      .setUserUuid("USER_UUID")
+      .setMarkdownText("the comment")
+      .setCreatedAt(new Date(2_000L))
+      .setNew(true));
+    return issue;
+  }
+}
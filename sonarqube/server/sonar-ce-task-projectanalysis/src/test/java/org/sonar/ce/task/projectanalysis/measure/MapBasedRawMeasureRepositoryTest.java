@@ -23,8 +23,12 @@ import com.google.common.collect.ImmutableList;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -246,4 +250,33 @@ public class MapBasedRawMeasureRepositoryTest {
     assertThat(underTest.getRawMeasure(OTHER_COMPONENT, metric1)).isNotPresent();
     assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric2)).isNotPresent();
   }
+
+  @Test
+  public void concurrent_repository_keeps_measures_added_from_several_threads() throws Exception {
+    MapBasedRawMeasureRepository<Integer> concurrentRepository = MapBasedRawMeasureRepository.concurrent(component -> component.getReportAttributes().getRef());
+    List<Component> files = new ArrayList<>();
+    for (int ref = 1; ref <= 1_000; ref++) {
+      files.add(ReportComponent.builder(Component.Type.FILE, ref).build());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Component file : files) {
+        futures.add(executor.submit(() -> {
+          concurrentRepository.add(file, metric1, SOME_MEASURE);
+          concurrentRepository.add(file, metric2, SOME_MEASURE);
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (Component file : files) {
+      assertThat(concurrentRepository.getRawMeasures(file)).containsOnlyKeys(METRIC_KEY_1, METRIC_KEY_2);
+    }
+  }
 }
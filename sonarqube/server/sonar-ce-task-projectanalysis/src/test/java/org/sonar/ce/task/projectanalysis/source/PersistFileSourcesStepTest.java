@@ -29,6 +29,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.FileAttributes;
@@ -46,6 +47,8 @@ import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.LineHashVersion;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -72,6 +75,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   private SourceLinesHashRepositoryImpl.LineHashesComputer lineHashesComputer = mock(SourceLinesHashRepositoryImpl.LineHashesComputer.class);
   private FileSourceDataComputer fileSourceDataComputer = mock(FileSourceDataComputer.class);
   private FileSourceDataWarnings fileSourceDataWarnings = mock(FileSourceDataWarnings.class);
+  private MapSettings settings = new MapSettings();
 
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession session = dbTester.getSession();
@@ -82,7 +86,8 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   public void setup() {
     when(system2.now()).thenReturn(NOW);
     when(sourceLinesHashRepository.getLineHashesComputerToPersist(Mockito.any(Component.class))).thenReturn(lineHashesComputer);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, sourceLinesHashRepository, fileSourceDataComputer, fileSourceDataWarnings);
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, sourceLinesHashRepository, fileSourceDataComputer, fileSourceDataWarnings,
+      settings.asConfig());
     initBasicReport(1);
   }
 
@@ -160,6 +165,65 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     verify(fileSourceDataWarnings).commitWarnings();
   }
 
+  @Test
+  public void persist_sources_of_many_files_with_several_compression_threads_and_batches() {
+    settings.setProperty(PersistFileSourcesStep.COMPRESSION_THREADS_PROPERTY, 3);
+    settings.setProperty(PersistFileSourcesStep.BATCH_SIZE_PROPERTY, 2);
+    ReportComponent.Builder root = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY);
+    for (int i = 0; i < 7; i++) {
+      root.addChildren(ReportComponent.builder(Component.Type.FILE, FILE1_REF + i).setUuid("FILE" + i).setKey(PROJECT_KEY + ":src/Foo" + i + ".java").build());
+    }
+    treeRootHolder.setRoot(root.build());
+    DbFileSources.Data sourceData = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setSource("line1").setLine(1).build())
+      .build();
+    when(fileSourceDataComputer.compute(any(Component.class), eq(fileSourceDataWarnings)))
+      .thenReturn(new FileSourceDataComputer.Data(sourceData, Collections.singletonList("lineHash"), "sourceHash", null));
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(7);
+    for (int i = 0; i < 7; i++) {
+      assertThat(dbClient.fileSourceDao().selectByFileUuid(session, "FILE" + i).getSourceData()).isEqualTo(sourceData);
+    }
+    context.getStatistics()
+      .assertValue("files", 7L)
+      .assertValue("inserts", 7L)
+      .assertValue("updates", 0L)
+      .assertValue("compressionThreads", 3);
+    verify(fileSourceDataWarnings).commitWarnings();
+  }
+
+  @Test
+  public void add_statistics_of_updated_and_unchanged_files() {
+    dbClient.fileSourceDao().insert(dbTester.getSession(), createDto());
+    dbTester.getSession().commit();
+    setComputedData(DbFileSources.Data.newBuilder().build(), Collections.singletonList("lineHash"), "newSourceHash", null);
+
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
+
+    context.getStatistics()
+      .assertValue("files", 1L)
+      .assertValue("inserts", 0L)
+      .assertValue("updates", 1L);
+    assertThat(context.getStatistics().get("compressedBytes")).isNotNull();
+    assertThat(context.getStatistics().get("computeMs")).isNotNull();
+    assertThat(context.getStatistics().get("compressMs")).isNotNull();
+    assertThat(context.getStatistics().get("writeMs")).isNotNull();
+  }
+
+  @Test
+  public void fail_with_IAE_if_compression_threads_is_not_positive() {
+    settings.setProperty(PersistFileSourcesStep.COMPRESSION_THREADS_PROPERTY, 0);
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Property sonar.ce.persistSources.compressionThreads must be greater than 0");
+
+    underTest.execute(new TestComputationStepContext());
+  }
+
   private ReportComponent.Builder fileComponent() {
     return ReportComponent.builder(Component.Type.FILE, FILE1_REF).setUuid(FILE1_UUID).setKey("PROJECT_KEY" + ":src/Foo.java");
   }
@@ -20,15 +20,19 @@
 package org.sonar.ce.task.projectanalysis.step;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.task.ChangeLogLevel;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ComponentVisitor;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.ce.task.projectanalysis.component.FileLocalVisitor;
 import org.sonar.ce.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
@@ -69,6 +73,8 @@ public class ExecuteVisitorsStepTest {
   @Rule
   public LogTester logTester = new LogTester();
 
+  private MapSettings settings = new MapSettings();
+
   @Before
   public void setUp() throws Exception {
     treeRootHolder.setRoot(
@@ -84,7 +90,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_type_aware_visitor() {
-    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestTypeAwareVisitor()));
+    ExecuteVisitorsStep underStep = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestTypeAwareVisitor()), settings.asConfig());
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(2));
@@ -101,7 +107,7 @@ public class ExecuteVisitorsStepTest {
 
   @Test
   public void execute_with_path_aware_visitor() {
-    ExecuteVisitorsStep underTest = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestPathAwareVisitor()));
+    ExecuteVisitorsStep underTest = new ExecuteVisitorsStep(treeRootHolder, singletonList(new TestPathAwareVisitor()), settings.asConfig());
 
     measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(1));
     measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(1));
@@ -114,6 +120,29 @@ public class ExecuteVisitorsStepTest {
     assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TEST_METRIC_KEY).get().getIntValue()).isEqualTo(2);
   }
 
+  @Test
+  public void execute_visits_files_sequentially_by_default() {
+    TestFileLocalVisitor visitor = new TestFileLocalVisitor();
+    ExecuteVisitorsStep underTest = new ExecuteVisitorsStep(treeRootHolder, singletonList(visitor), settings.asConfig());
+
+    underTest.execute(new TestComputationStepContext());
+
+    assertThat(visitor.threadNamesByFileRef).containsOnlyKeys(FILE_1_REF, FILE_2_REF);
+    assertThat(visitor.threadNamesByFileRef.values()).containsOnly(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void execute_visits_files_concurrently_with_file_local_visitors_if_threads_are_configured() {
+    settings.setProperty(ExecuteVisitorsStep.FILE_VISITOR_THREADS_PROPERTY, "2");
+    TestFileLocalVisitor visitor = new TestFileLocalVisitor();
+    ExecuteVisitorsStep underTest = new ExecuteVisitorsStep(treeRootHolder, singletonList(visitor), settings.asConfig());
+
+    underTest.execute(new TestComputationStepContext());
+
+    assertThat(visitor.threadNamesByFileRef).containsOnlyKeys(FILE_1_REF, FILE_2_REF);
+    assertThat(visitor.threadNamesByFileRef.values()).allMatch(name -> name.startsWith("CE_file_visitor-"));
+  }
+
   @Test
   public void execute_logs_at_info_level_all_execution_duration_of_all_visitors() {
     try (ChangeLogLevel executor = new ChangeLogLevel(ExecuteVisitorsStep.class, LoggerLevel.DEBUG);
@@ -122,7 +151,8 @@ public class ExecuteVisitorsStepTest {
       ChangeLogLevel step3 = new ChangeLogLevel(VisitorB.class, LoggerLevel.DEBUG)) {
       ExecuteVisitorsStep underTest = new ExecuteVisitorsStep(
         treeRootHolder,
-        asList(new VisitorA(), new VisitorB(), new VisitorC()));
+        asList(new VisitorA(), new VisitorB(), new VisitorC()),
+        settings.asConfig());
 
       underTest.execute(new TestComputationStepContext());
 
@@ -154,6 +184,19 @@ public class ExecuteVisitorsStepTest {
     }
   }
 
+  private static class TestFileLocalVisitor extends TypeAwareVisitorAdapter implements FileLocalVisitor {
+    private final Map<Integer, String> threadNamesByFileRef = new ConcurrentHashMap<>();
+
+    TestFileLocalVisitor() {
+      super(CrawlerDepthLimit.FILE, ComponentVisitor.Order.POST_ORDER);
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      threadNamesByFileRef.put(file.getReportAttributes().getRef(), Thread.currentThread().getName());
+    }
+  }
+
   private class TestTypeAwareVisitor extends TypeAwareVisitorAdapter {
 
     TestTypeAwareVisitor() {
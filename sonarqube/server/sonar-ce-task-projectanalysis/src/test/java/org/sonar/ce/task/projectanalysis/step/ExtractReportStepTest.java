@@ -22,10 +22,12 @@ package org.sonar.ce.task.projectanalysis.step;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.impl.utils.JUnitTempFolder;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.System2;
@@ -64,7 +66,9 @@ public class ExtractReportStepTest {
     .setUuid(TASK_UUID)
     .build();
 
-  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder);
+  private MapSettings settings = new MapSettings();
+
+  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder, settings.asConfig());
 
   @Test
   public void fail_if_report_zip_does_not_exist() {
@@ -77,12 +81,7 @@ public class ExtractReportStepTest {
   @Test
   public void unzip_report() throws Exception {
     logTester.setLevel(LoggerLevel.DEBUG);
-    File reportFile = generateReport();
-    try (InputStream input = FileUtils.openInputStream(reportFile)) {
-      dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
-    }
-    dbTester.getSession().commit();
-    dbTester.getSession().close();
+    insertReport();
 
     underTest.execute(new TestComputationStepContext());
 
@@ -95,6 +94,32 @@ public class ExtractReportStepTest {
     assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.matches("Analysis report is \\d+ bytes uncompressed"));
   }
 
+  @Test
+  public void copy_report_without_extracting_it_if_lazy_extraction_is_enabled() throws Exception {
+    settings.setProperty(ExtractReportStep.LAZY_EXTRACTION_PROPERTY, true);
+    insertReport();
+    TestComputationStepContext context = new TestComputationStepContext();
+
+    underTest.execute(context);
+
+    File zipFile = reportDirectoryHolder.getZipFile().get();
+    assertThat(zipFile).isFile();
+    assertThat(new File(zipFile.getParentFile(), "metadata.pb")).doesNotExist();
+    try (ZipFile zip = new ZipFile(zipFile)) {
+      assertThat(zip.getEntry("metadata.pb")).isNotNull();
+    }
+    context.getStatistics().assertValue("compressedSize", zipFile.length());
+  }
+
+  private void insertReport() throws IOException {
+    File reportFile = generateReport();
+    try (InputStream input = FileUtils.openInputStream(reportFile)) {
+      dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
+    }
+    dbTester.getSession().commit();
+    dbTester.getSession().close();
+  }
+
   private File generateReport() throws IOException {
     File zipDir = tempFolder.newDir();
     File metadataFile = new File(zipDir, "metadata.pb");
@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.step;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.ce.task.projectanalysis.batch.BatchReportReaderRule;
+import org.sonar.ce.task.step.TestComputationStepContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadScannerTelemetryStepTest {
+
+  @Rule
+  public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private LoadScannerTelemetryStep underTest = new LoadScannerTelemetryStep(reportReader);
+
+  @Test
+  public void getDescription() {
+    assertThat(underTest.getDescription()).isEqualTo("Load scanner telemetry");
+  }
+
+  @Test
+  public void add_phases_to_statistics() {
+    reportReader.setTelemetry("{\"phases\": ["
+      + "{\"name\": \"Sensor JavaSensor [java]\", \"executions\": 2, \"wallTimeMs\": 1200, \"cpuTimeMs\": 900, \"allocatedBytes\": 4096, \"files\": 12, \"bytes\": 3456},"
+      + "{\"name\": \"Report upload\", \"executions\": 1, \"wallTimeMs\": 30, \"files\": 0, \"bytes\": 1024}"
+      + "]}");
+    TestComputationStepContext context = new TestComputationStepContext();
+
+    underTest.execute(context);
+
+    assertThat(context.getStatistics().getAll()).containsOnlyKeys("Sensor JavaSensor [java]", "Report upload");
+    context.getStatistics()
+      .assertValue("Sensor JavaSensor [java]", "executions:2,wallTimeMs:1200,cpuTimeMs:900,allocatedBytes:4096,files:12,bytes:3456")
+      .assertValue("Report upload", "executions:1,wallTimeMs:30,files:0,bytes:1024");
+  }
+
+  @Test
+  public void do_nothing_if_report_has_no_telemetry() {
+    TestComputationStepContext context = new TestComputationStepContext();
+
+    underTest.execute(context);
+
+    assertThat(context.getStatistics().getAll()).isEmpty();
+  }
+
+  @Test
+  public void ignore_telemetry_that_cannot_be_read() {
+    reportReader.setTelemetry("{\"phases\": [\"not a phase\"]}");
+    TestComputationStepContext context = new TestComputationStepContext();
+
+    underTest.execute(context);
+
+    assertThat(context.getStatistics().getAll()).isEmpty();
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(1);
+  }
+}
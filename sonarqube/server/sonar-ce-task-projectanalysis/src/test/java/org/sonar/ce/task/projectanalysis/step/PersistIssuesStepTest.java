@@ -163,7 +163,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
     List<IssueChangeDto> changes = dbClient.issueChangeDao().selectByIssueKeys(session, Arrays.asList("ISSUE"));
     assertThat(changes).extracting(IssueChangeDto::getChangeType).containsExactly(IssueChangeDto.TYPE_COMMENT, IssueChangeDto.TYPE_FIELD_CHANGE);
     assertThat(context.getStatistics().getAll()).containsOnly(
-      entry("inserts", "1"), entry("updates", "0"), entry("merged", "0"), entry("untouched", "0"));
+      entry("inserts", "1"), entry("updates", "0"), entry("merged", "0"), entry("untouched", "0"),
+      entry("writesPerSecond", "1000"));
   }
 
   @Test
@@ -216,7 +217,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
     List<IssueChangeDto> changes = dbClient.issueChangeDao().selectByIssueKeys(session, Arrays.asList("ISSUE"));
     assertThat(changes).extracting(IssueChangeDto::getChangeType).containsExactly(IssueChangeDto.TYPE_COMMENT, IssueChangeDto.TYPE_FIELD_CHANGE);
     assertThat(context.getStatistics().getAll()).containsOnly(
-      entry("inserts", "1"), entry("updates", "0"), entry("merged", "0"), entry("untouched", "0"));
+      entry("inserts", "1"), entry("updates", "0"), entry("merged", "0"), entry("untouched", "0"),
+      entry("writesPerSecond", "1000"));
   }
 
   @Test
@@ -251,7 +253,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
     verify(conflictResolver).resolve(eq(defaultIssue), issueDtoCaptor.capture(), any(IssueMapper.class));
     assertThat(issueDtoCaptor.getValue().getId()).isEqualTo(issue.getId());
     assertThat(context.getStatistics().getAll()).containsOnly(
-      entry("inserts", "0"), entry("updates", "1"), entry("merged", "1"), entry("untouched", "0"));
+      entry("inserts", "0"), entry("updates", "1"), entry("merged", "1"), entry("untouched", "0"),
+      entry("writesPerSecond", "1000"));
 
   }
 
@@ -287,7 +290,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
     assertThat(result.getStatus()).isEqualTo(STATUS_OPEN);
     assertThat(result.getType()).isEqualTo(RuleType.BUG.getDbConstant());
     assertThat(context.getStatistics().getAll()).containsOnly(
-      entry("inserts", "1"), entry("updates", "0"), entry("merged", "0"), entry("untouched", "0"));
+      entry("inserts", "1"), entry("updates", "0"), entry("merged", "0"), entry("untouched", "0"),
+      entry("writesPerSecond", "1000"));
   }
 
   @Test
@@ -318,7 +322,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
     assertThat(issueReloaded.getStatus()).isEqualTo(STATUS_CLOSED);
     assertThat(issueReloaded.getResolution()).isEqualTo(RESOLUTION_FIXED);
     assertThat(context.getStatistics().getAll()).containsOnly(
-      entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"), entry("untouched", "0"));
+      entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"), entry("untouched", "0"),
+      entry("writesPerSecond", "1000"));
   }
 
   @Test
@@ -358,7 +363,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
         IssueChangeDto::getIssueChangeCreationDate)
       .containsOnly(IssueChangeDto.TYPE_COMMENT, "john_uuid", "Some text", issue.getKey(), NOW);
     assertThat(context.getStatistics().getAll()).containsOnly(
-      entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"), entry("untouched", "0"));
+      entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"), entry("untouched", "0"),
+      entry("writesPerSecond", "1000"));
   }
 
   @Test
@@ -396,7 +402,8 @@ public class PersistIssuesStepTest extends BaseStepTest {
         IssueChangeDto::getIssueChangeCreationDate)
       .containsOnly(IssueChangeDto.TYPE_FIELD_CHANGE, "john_uuid", "technicalDebt=1", issue.getKey(), NOW);
     assertThat(context.getStatistics().getAll()).containsOnly(
-      entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"), entry("untouched", "0"));
+      entry("inserts", "0"), entry("updates", "1"), entry("merged", "0"), entry("untouched", "0"),
+      entry("writesPerSecond", "1000"));
   }
 
 }
@@ -71,6 +71,19 @@ public class PersistScannerContextStepTest {
       .contains("log1" + '\n' + "log2");
   }
 
+  @Test
+  public void executes_persist_telemetry_after_lines_of_reportReader() {
+    String taskUuid = "task uuid";
+    when(ceTask.getUuid()).thenReturn(taskUuid);
+    reportReader.setScannerLogs(asList("log1", "log2"));
+    reportReader.setTelemetry("{\"phases\": []}");
+
+    underTest.execute(new TestComputationStepContext());
+
+    assertThat(dbClient.ceScannerContextDao().selectScannerContext(dbTester.getSession(), taskUuid))
+      .contains("log1" + '\n' + "log2" + '\n' + "Scanner telemetry:" + '\n' + "{\"phases\": []}");
+  }
+
   @Test
   public void executes_persist_does_not_persist_any_scanner_context_if_iterator_is_empty() {
     reportReader.setScannerLogs(emptyList());
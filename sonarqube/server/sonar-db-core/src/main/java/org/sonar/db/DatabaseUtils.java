@@ -116,21 +116,33 @@ public class DatabaseUtils {
    */
   public static <OUTPUT, INPUT extends Comparable<INPUT>> List<OUTPUT> executeLargeInputs(Collection<INPUT> input, Function<List<INPUT>, List<OUTPUT>> function,
     IntFunction<Integer> partitionSizeManipulations) {
-    return executeLargeInputs(input, function, size -> size == 0 ? Collections.emptyList() : new ArrayList<>(size), partitionSizeManipulations);
+    return executeLargeInputs(input, function, partitionSizeManipulations.apply(PARTITION_SIZE_FOR_ORACLE));
+  }
+
+  /**
+   * Partition by {@code partitionSize} elements a list of input and execute a function on each part.
+   *
+   * DAOs opt in for partitions larger than {@link #PARTITION_SIZE_FOR_ORACLE} with the size supported by the
+   * database, see {@link org.sonar.db.dialect.Dialect#getLargeInputsPartitionSize()}, so that large inputs are
+   * processed with as few requests as possible.
+   */
+  public static <OUTPUT, INPUT extends Comparable<INPUT>> List<OUTPUT> executeLargeInputs(Collection<INPUT> input, Function<List<INPUT>, List<OUTPUT>> function,
+    int partitionSize) {
+    return executeLargeInputs(input, function, size -> size == 0 ? Collections.emptyList() : new ArrayList<>(size), partitionSize);
   }
 
   public static <OUTPUT, INPUT extends Comparable<INPUT>> Set<OUTPUT> executeLargeInputsIntoSet(Collection<INPUT> input, Function<List<INPUT>, Set<OUTPUT>> function,
     IntFunction<Integer> partitionSizeManipulations) {
-    return executeLargeInputs(input, function, size -> size == 0 ? Collections.emptySet() : new HashSet<>(size), partitionSizeManipulations);
+    return executeLargeInputs(input, function, size -> size == 0 ? Collections.emptySet() : new HashSet<>(size), partitionSizeManipulations.apply(PARTITION_SIZE_FOR_ORACLE));
   }
 
   private static <OUTPUT, INPUT extends Comparable<INPUT>, RESULT extends Collection<OUTPUT>> RESULT executeLargeInputs(Collection<INPUT> input,
-    Function<List<INPUT>, RESULT> function, java.util.function.IntFunction<RESULT> outputInitializer, IntFunction<Integer> partitionSizeManipulations) {
+    Function<List<INPUT>, RESULT> function, java.util.function.IntFunction<RESULT> outputInitializer, int partitionSize) {
     if (input.isEmpty()) {
       return outputInitializer.apply(0);
     }
     RESULT results = outputInitializer.apply(input.size());
-    for (List<INPUT> partition : toUniqueAndSortedPartitions(input, partitionSizeManipulations)) {
+    for (List<INPUT> partition : toUniqueAndSortedPartitions(input, partitionSize)) {
       RESULT subResults = function.apply(partition);
       if (subResults != null) {
         results.addAll(subResults);
@@ -163,7 +175,16 @@ public class DatabaseUtils {
    */
   public static <INPUT extends Comparable<INPUT>> void executeLargeUpdates(Collection<INPUT> inputs, Consumer<List<INPUT>> consumer,
     IntFunction<Integer> partitionSizeManipulations) {
-    Iterable<List<INPUT>> partitions = toUniqueAndSortedPartitions(inputs, partitionSizeManipulations);
+    executeLargeUpdates(inputs, consumer, partitionSizeManipulations.apply(PARTITION_SIZE_FOR_ORACLE));
+  }
+
+  /**
+   * Partition by {@code partitionSize} elements a list of input and execute a consumer on each part.
+   *
+   * @see #executeLargeInputs(Collection, Function, int)
+   */
+  public static <INPUT extends Comparable<INPUT>> void executeLargeUpdates(Collection<INPUT> inputs, Consumer<List<INPUT>> consumer, int partitionSize) {
+    Iterable<List<INPUT>> partitions = toUniqueAndSortedPartitions(inputs, partitionSize);
     for (List<INPUT> partition : partitions) {
       consumer.accept(partition);
     }
@@ -180,7 +201,11 @@ public class DatabaseUtils {
    * Ensure values {@code inputs} are unique (which avoids useless arguments) and sorted before creating the partition.
    */
   public static <INPUT extends Comparable<INPUT>> Iterable<List<INPUT>> toUniqueAndSortedPartitions(Collection<INPUT> inputs, IntFunction<Integer> partitionSizeManipulations) {
-    int partitionSize = partitionSizeManipulations.apply(PARTITION_SIZE_FOR_ORACLE);
+    return toUniqueAndSortedPartitions(inputs, partitionSizeManipulations.apply(PARTITION_SIZE_FOR_ORACLE));
+  }
+
+  private static <INPUT extends Comparable<INPUT>> Iterable<List<INPUT>> toUniqueAndSortedPartitions(Collection<INPUT> inputs, int partitionSize) {
+    checkArgument(partitionSize > 0, "Partition size must be strictly positive: %s", partitionSize);
     return Iterables.partition(toUniqueAndSortedList(inputs), partitionSize);
   }
 
@@ -55,6 +55,15 @@ public interface Dialect {
     return 200;
   }
 
+  /**
+   * Maximum number of values bound to a single request when a large collection is split into partitions, see
+   * {@link org.sonar.db.DatabaseUtils#executeLargeInputs(java.util.Collection, java.util.function.Function, int)}.
+   * Defaults to the limit of Oracle, which doesn't support more than 1000 elements in a 'in' clause.
+   */
+  default int getLargeInputsPartitionSize() {
+    return 1_000;
+  }
+
   /**
    * Indicates whether DB migration can be perform on the DB vendor implementation associated with the current dialect.
    */
@@ -36,6 +36,14 @@ public class H2 extends AbstractDialect {
     return StringUtils.startsWithIgnoreCase(jdbcConnectionURL, "jdbc:h2:");
   }
 
+  /**
+   * H2 has no limit on the number of parameters of a request
+   */
+  @Override
+  public int getLargeInputsPartitionSize() {
+    return 10_000;
+  }
+
   @Override
   public boolean supportsMigration() {
     return false;
@@ -41,6 +41,14 @@ public class MsSql extends AbstractDialect {
     return StringUtils.startsWithIgnoreCase(jdbcConnectionURL, "jdbc:sqlserver:");
   }
 
+  /**
+   * Microsoft SQL Server supports up to 2100 parameters per request, including the ones which are not part of the partition
+   */
+  @Override
+  public int getLargeInputsPartitionSize() {
+    return 2_000;
+  }
+
   @Override
   public boolean supportsMigration() {
     return true;
@@ -53,6 +53,15 @@ public class PostgreSql extends AbstractDialect {
     return INIT_STATEMENTS;
   }
 
+  /**
+   * PostgreSQL supports up to 32767 parameters per request, and processes a large 'in' clause as a single
+   * {@code = any(array)} condition
+   */
+  @Override
+  public int getLargeInputsPartitionSize() {
+    return 10_000;
+  }
+
   @Override
   public boolean supportsMigration() {
     return true;
@@ -295,6 +295,31 @@ public class DatabaseUtilsTest {
     assertThat(partitions).containsExactly(asList(1,2), asList(3));
   }
 
+  @Test
+  public void executeLargeInputs_uses_specified_partition_size() {
+    List<Integer> inputs = newArrayList();
+    for (int i = 0; i < 2010; i++) {
+      inputs.add(i);
+    }
+    List<Integer> partitionSizes = new ArrayList<>();
+
+    List<Integer> outputs = DatabaseUtils.executeLargeInputs(inputs, partition -> {
+      partitionSizes.add(partition.size());
+      return partition;
+    }, 2000);
+
+    assertThat(outputs).isEqualTo(inputs);
+    assertThat(partitionSizes).containsExactly(2000, 10);
+  }
+
+  @Test
+  public void executeLargeInputs_fails_if_partition_size_is_not_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Partition size must be strictly positive: 0");
+
+    DatabaseUtils.executeLargeInputs(asList(1, 2, 3), partition -> partition, 0);
+  }
+
   @Test
   public void executeLargeUpdates() {
     List<Integer> inputs = newArrayList();
@@ -80,4 +80,9 @@ public class H2Test {
   public void supportsUpsert_returns_false() {
     assertThat(underTest.supportsUpsert()).isFalse();
   }
+
+  @Test
+  public void largeInputsPartitionSize() {
+    assertThat(underTest.getLargeInputsPartitionSize()).isEqualTo(10_000);
+  }
 }
@@ -100,4 +100,9 @@ public class MsSqlTest {
     when(metadata.getDatabaseMinorVersion()).thenReturn(dbMinorVersion);
     return metadata;
   }
+
+  @Test
+  public void largeInputsPartitionSize() {
+    assertThat(underTest.getLargeInputsPartitionSize()).isEqualTo(2_000);
+  }
 }
@@ -142,4 +142,9 @@ public class OracleTest {
     when(metadata.getDriverVersion()).thenReturn(driverVersion);
     return metadata;
   }
+
+  @Test
+  public void largeInputsPartitionSize() {
+    assertThat(underTest.getLargeInputsPartitionSize()).isEqualTo(1_000);
+  }
 }
@@ -134,4 +134,8 @@ public class PostgreSqlTest {
     return metadata;
   }
 
+  @Test
+  public void largeInputsPartitionSize() {
+    assertThat(underTest.getLargeInputsPartitionSize()).isEqualTo(10_000);
+  }
 }
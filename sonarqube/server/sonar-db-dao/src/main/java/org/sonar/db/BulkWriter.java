@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.sonar.api.utils.System2;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Buffers rows and hands them over to a writer by chunks, so that they can be persisted
+ * with multi-row statements rather than one statement per row.
+ * <p>
+ * Number of written rows and time spent in the writer are recorded in order to report the throughput
+ * of the writes (see {@link #getRowsPerSecond()}).
+ * <p>
+ * The remaining buffered rows are written when the writer is closed.
+ */
+public class BulkWriter<T> implements AutoCloseable {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+  private final Consumer<List<T>> writer;
+  private final int chunkSize;
+  private final System2 system2;
+  private List<T> buffer;
+  private int rows = 0;
+  private long writeDurationMs = 0;
+
+  public BulkWriter(Consumer<List<T>> writer) {
+    this(writer, DEFAULT_CHUNK_SIZE);
+  }
+
+  public BulkWriter(Consumer<List<T>> writer, int chunkSize) {
+    this(writer, chunkSize, System2.INSTANCE);
+  }
+
+  BulkWriter(Consumer<List<T>> writer, int chunkSize, System2 system2) {
+    checkArgument(chunkSize > 0, "Chunk size must be strictly positive: %s", chunkSize);
+    this.writer = writer;
+    this.chunkSize = chunkSize;
+    this.system2 = system2;
+    this.buffer = new ArrayList<>(chunkSize);
+  }
+
+  public BulkWriter<T> add(T row) {
+    buffer.add(row);
+    if (buffer.size() >= chunkSize) {
+      flush();
+    }
+    return this;
+  }
+
+  public void flush() {
+    if (buffer.isEmpty()) {
+      return;
+    }
+    long start = system2.now();
+    writer.accept(buffer);
+    writeDurationMs += system2.now() - start;
+    rows += buffer.size();
+    // rows may still be referenced by a batch session until it's flushed
+    buffer = new ArrayList<>(chunkSize);
+  }
+
+  /**
+   * Number of rows handed over to the writer so far. Buffered rows are not counted until they are flushed.
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Throughput of the writes, based on the time spent in the writer only.
+   */
+  public long getRowsPerSecond() {
+    return rows * 1_000L / Math.max(1L, writeDurationMs);
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+}
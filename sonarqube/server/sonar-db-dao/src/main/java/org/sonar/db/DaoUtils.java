@@ -20,8 +20,16 @@
 package org.sonar.db;
 
 import java.util.regex.Pattern;
+import org.apache.ibatis.session.Configuration;
+
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
 
 public class DaoUtils {
+  static final String LARGE_INPUTS_PARTITION_SIZE_VARIABLE = "_largeInputsPartitionSize";
+  /**
+   * SQL Server does not accept more than 1000 rows in a VALUES clause
+   */
+  static final int MAX_ROWS_PER_MULTI_ROW_INSERT = 1_000;
   private static final Pattern ESCAPE_PERCENT_AND_UNDERSCORE = Pattern.compile("[/%_]");
 
   private DaoUtils() {
@@ -54,6 +62,36 @@ public class DaoUtils {
     return escapedValue;
   }
 
+  /**
+   * Number of elements of a large input that can be bound to a single request on the database of the session, see
+   * {@link org.sonar.db.dialect.Dialect#getLargeInputsPartitionSize()}. It's meant to be passed to
+   * {@link DatabaseUtils#executeLargeInputs(java.util.Collection, java.util.function.Function, int)} by DAOs whose
+   * requests use the partition in a single 'in' clause.
+   */
+  public static int largeInputsPartitionSize(DbSession session) {
+    Configuration configuration = session.getConfiguration();
+    String partitionSize = configuration == null ? null : configuration.getVariables().getProperty(LARGE_INPUTS_PARTITION_SIZE_VARIABLE);
+    return partitionSize == null ? PARTITION_SIZE_FOR_ORACLE : Integer.parseInt(partitionSize);
+  }
+
+  /**
+   * Same as {@link #largeInputsPartitionSize(DbSession)} for requests which bind {@code otherParameters} parameters in
+   * addition to the partition, for example a list of metrics, so that the total number of bound parameters doesn't
+   * exceed the limit of the database.
+   */
+  public static int largeInputsPartitionSize(DbSession session, int otherParameters) {
+    return Math.max(1, largeInputsPartitionSize(session) - otherParameters);
+  }
+
+  /**
+   * Number of rows that can be inserted by a single multi-row statement ({@code insert into ... values (...), (...)}) on
+   * the database of the session, given the number of columns bound for each row.
+   */
+  public static int multiRowInsertSize(DbSession session, int columnCount) {
+    int rows = largeInputsPartitionSize(session) / columnCount;
+    return Math.max(1, Math.min(MAX_ROWS_PER_MULTI_ROW_INSERT, rows));
+  }
+
   /**
    * Replace escape percent and underscore by adding a slash just before
    */
@@ -48,6 +48,7 @@ class MyBatisConfBuilder {
     this.conf.getVariables().setProperty("_false", dialect.getFalseSqlValue());
     this.conf.getVariables().setProperty("_from_dual", dialect.getSqlFromDual());
     this.conf.getVariables().setProperty("_scrollFetchSize", String.valueOf(dialect.getScrollDefaultFetchSize()));
+    this.conf.getVariables().setProperty(DaoUtils.LARGE_INPUTS_PARTITION_SIZE_VARIABLE, String.valueOf(dialect.getLargeInputsPartitionSize()));
     this.conf.setLocalCacheScope(LocalCacheScope.STATEMENT);
   }
 
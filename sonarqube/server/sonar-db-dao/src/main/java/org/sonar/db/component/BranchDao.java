@@ -110,6 +110,13 @@ public class BranchDao implements Dao {
     return Optional.ofNullable(mapper(session).selectByUuid(uuid));
   }
 
+  /**
+   * Uuids of all the branches and pull requests, sorted by the database.
+   */
+  public List<String> selectAllUuids(DbSession dbSession) {
+    return mapper(dbSession).selectAllUuids();
+  }
+
   public boolean hasNonMainBranches(DbSession dbSession) {
     return mapper(dbSession).countNonMainBranches() > 0L;
   }
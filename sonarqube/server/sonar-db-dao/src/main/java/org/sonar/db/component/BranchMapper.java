@@ -48,6 +48,8 @@ public interface BranchMapper {
 
   List<BranchDto> selectByUuids(@Param("uuids") Collection<String> uuids);
 
+  List<String> selectAllUuids();
+
   long countNonMainBranches();
 
   long countByTypeAndCreationDate(@Param("branchType") String branchType, @Param("sinceDate") long sinceDate);
@@ -36,6 +36,7 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.Pagination;
 import org.sonar.db.RowNotFoundException;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -43,6 +44,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 import static org.sonar.core.util.stream.MoreCollectors.toList;
 import static org.sonar.core.util.stream.MoreCollectors.toSet;
+import static org.sonar.db.DaoUtils.largeInputsPartitionSize;
 import static org.sonar.db.DatabaseUtils.checkThatNotTooManyConditions;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeInputsIntoSet;
@@ -148,15 +150,15 @@ public class ComponentDao implements Dao {
   }
 
   public List<ComponentDto> selectByIds(DbSession session, Collection<Long> ids) {
-    return executeLargeInputs(ids, mapper(session)::selectByIds);
+    return executeLargeInputs(ids, mapper(session)::selectByIds, largeInputsPartitionSize(session));
   }
 
   public List<ComponentDto> selectByUuids(DbSession session, Collection<String> uuids) {
-    return executeLargeInputs(uuids, mapper(session)::selectByUuids);
+    return executeLargeInputs(uuids, mapper(session)::selectByUuids, largeInputsPartitionSize(session));
   }
 
   public List<String> selectExistingUuids(DbSession session, Collection<String> uuids) {
-    return executeLargeInputs(uuids, mapper(session)::selectExistingUuids);
+    return executeLargeInputs(uuids, mapper(session)::selectExistingUuids, largeInputsPartitionSize(session));
   }
 
   /**
@@ -183,13 +185,13 @@ public class ComponentDao implements Dao {
   }
 
   public List<ComponentDto> selectByKeys(DbSession session, Collection<String> keys) {
-    return executeLargeInputs(keys, mapper(session)::selectByKeys);
+    return executeLargeInputs(keys, mapper(session)::selectByKeys, largeInputsPartitionSize(session));
   }
 
   public List<ComponentDto> selectByKeysAndBranch(DbSession session, Collection<String> keys, String branch) {
     List<String> dbKeys = keys.stream().map(k -> generateBranchKey(k, branch)).collect(toList());
     List<String> allKeys = Stream.of(keys, dbKeys).flatMap(Collection::stream).collect(toList());
-    return executeLargeInputs(allKeys, subKeys -> mapper(session).selectByKeysAndBranch(subKeys, branch));
+    return executeLargeInputs(allKeys, subKeys -> mapper(session).selectByKeysAndBranch(subKeys, branch), largeInputsPartitionSize(session));
   }
 
   /**
@@ -204,13 +206,13 @@ public class ComponentDao implements Dao {
   }
 
   public List<ComponentDto> selectByDbKeys(DbSession session, Set<String> dbKeys) {
-    return executeLargeInputs(dbKeys, subKeys -> mapper(session).selectByDbKeys(subKeys));
+    return executeLargeInputs(dbKeys, subKeys -> mapper(session).selectByDbKeys(subKeys), largeInputsPartitionSize(session));
   }
 
   public List<ComponentDto> selectByKeysAndPullRequest(DbSession session, Collection<String> keys, String pullRequestId) {
     List<String> dbKeys = keys.stream().map(k -> generatePullRequestKey(k, pullRequestId)).collect(toList());
     List<String> allKeys = Stream.of(keys, dbKeys).flatMap(Collection::stream).collect(toList());
-    return executeLargeInputs(allKeys, subKeys -> mapper(session).selectByKeysAndBranch(subKeys, pullRequestId));
+    return executeLargeInputs(allKeys, subKeys -> mapper(session).selectByKeysAndBranch(subKeys, pullRequestId), largeInputsPartitionSize(session));
   }
 
   /**
@@ -242,6 +244,49 @@ public class ComponentDao implements Dao {
     return mapper(dbSession).selectDescendants(query, componentOpt.get().uuid(), query.getUuidPath(component));
   }
 
+  /**
+   * Scrolls the descendants of the base component of {@code query}, sorted by key, starting strictly after
+   * {@code afterKey} when it is not {@code null}. Rows are read through a database cursor, so that the caller
+   * can stream them or stop with {@link org.apache.ibatis.session.ResultContext#stop()} once it got enough of them.
+   * Nothing is scrolled when the qualifiers of {@code query} are empty.
+   *
+   * @param afterKey the key of the last component already returned, for keyset pagination
+   * @param handler  the action to be applied to every result
+   */
+  public void scrollDescendants(DbSession dbSession, ComponentTreeQuery query, @Nullable String afterKey, ResultHandler<ComponentDto> handler) {
+    Collection<String> qualifiers = query.getQualifiers();
+    if (qualifiers != null && qualifiers.isEmpty()) {
+      return;
+    }
+    Optional<ComponentDto> componentOpt = selectByUuid(dbSession, query.getBaseUuid());
+    if (!componentOpt.isPresent()) {
+      return;
+    }
+    ComponentDto component = componentOpt.get();
+    mapper(dbSession).scrollDescendants(query, component.uuid(), query.getUuidPath(component), afterKey, handler);
+  }
+
+  /**
+   * Select a page of the enabled components of the given qualifiers in the tree of the given root (project, branch or
+   * pull request), having a live measure of the given metric with a value greater than 0, sorted by path.
+   */
+  public List<ComponentDto> selectByPositiveMeasure(DbSession dbSession, String rootUuid, Collection<String> qualifiers, int metricId, Pagination pagination) {
+    if (qualifiers.isEmpty()) {
+      return emptyList();
+    }
+    return mapper(dbSession).selectByPositiveMeasure(rootUuid, qualifiers, metricId, pagination);
+  }
+
+  /**
+   * Count the components returned by {@link #selectByPositiveMeasure(DbSession, String, Collection, int, Pagination)} on all pages
+   */
+  public int countByPositiveMeasure(DbSession dbSession, String rootUuid, Collection<String> qualifiers, int metricId) {
+    if (qualifiers.isEmpty()) {
+      return 0;
+    }
+    return mapper(dbSession).countByPositiveMeasure(rootUuid, qualifiers, metricId);
+  }
+
   public ComponentDto selectOrFailByKey(DbSession session, String key) {
     Optional<ComponentDto> component = selectByKey(session, key);
     if (!component.isPresent()) {
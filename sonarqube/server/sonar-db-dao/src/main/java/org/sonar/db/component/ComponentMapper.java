@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.sonar.db.Pagination;
 
 public interface ComponentMapper {
 
@@ -85,6 +86,14 @@ public interface ComponentMapper {
 
   List<ComponentDto> selectDescendants(@Param("query") ComponentTreeQuery query, @Param("baseUuid") String baseUuid, @Param("baseUuidPath") String baseUuidPath);
 
+  void scrollDescendants(@Param("query") ComponentTreeQuery query, @Param("baseUuid") String baseUuid, @Param("baseUuidPath") String baseUuidPath,
+    @Param("afterKey") @Nullable String afterKey, ResultHandler<ComponentDto> handler);
+
+  List<ComponentDto> selectByPositiveMeasure(@Param("rootUuid") String rootUuid, @Param("qualifiers") Collection<String> qualifiers, @Param("metricId") int metricId,
+    @Param("pagination") Pagination pagination);
+
+  int countByPositiveMeasure(@Param("rootUuid") String rootUuid, @Param("qualifiers") Collection<String> qualifiers, @Param("metricId") int metricId);
+
   /**
    * Returns all enabled projects (Scope {@link org.sonar.api.resources.Scopes#PROJECT} and qualifier
    * {@link org.sonar.api.resources.Qualifiers#PROJECT}) no matter if they are ghost project, provisioned projects or
@@ -19,23 +19,29 @@
  */
 package org.sonar.db.duplication;
 
+import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
+import static org.sonar.db.DaoUtils.largeInputsPartitionSize;
+import static org.sonar.db.DaoUtils.multiRowInsertSize;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class DuplicationDao implements Dao {
 
+  private static final int INSERTED_COLUMNS = 6;
+
   /**
    * @param analysisUuid snapshot id of the project from the previous analysis (islast=true)
    */
   public List<DuplicationUnitDto> selectCandidates(DbSession session, @Nullable String analysisUuid, String language, Collection<String> hashes) {
     return executeLargeInputs(
       hashes,
-      partition -> session.getMapper(DuplicationMapper.class).selectCandidates(analysisUuid, language, partition));
+      partition -> session.getMapper(DuplicationMapper.class).selectCandidates(analysisUuid, language, partition),
+      largeInputsPartitionSize(session));
   }
 
   /**
@@ -45,7 +51,17 @@ public class DuplicationDao implements Dao {
   public void insert(DbSession session, DuplicationUnitDto dto) {
     session.getMapper(DuplicationMapper.class).batchInsert(dto);
   }
-  
+
+  /**
+   * Insert rows in the table DUPLICATIONS_INDEX with multi-row statements, as many rows per statement as the
+   * database accepts.
+   * Note that generated ids are not returned.
+   */
+  public void insert(DbSession session, List<DuplicationUnitDto> dtos) {
+    DuplicationMapper mapper = session.getMapper(DuplicationMapper.class);
+    Lists.partition(dtos, multiRowInsertSize(session, INSERTED_COLUMNS)).forEach(mapper::insertRows);
+  }
+
   public List<DuplicationUnitDto> selectComponent(DbSession session, String componentUuid, String analysisUuid) {
     return session.getMapper(DuplicationMapper.class).selectComponent(componentUuid, analysisUuid);
   }
@@ -33,5 +33,7 @@ public interface DuplicationMapper {
 
   void batchInsert(DuplicationUnitDto unit);
 
+  void insertRows(@Param("dtos") List<DuplicationUnitDto> units);
+
   List<DuplicationUnitDto> selectComponent(@Param("componentUuid") String componentUuid, @Param("analysisUuid") String analysisUuid);
 }
@@ -36,10 +36,14 @@ import org.sonar.db.dialect.Dialect;
 
 import static java.util.Collections.singletonList;
 import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.db.DaoUtils.largeInputsPartitionSize;
+import static org.sonar.db.DaoUtils.multiRowInsertSize;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class LiveMeasureDao implements Dao {
 
+  private static final int UPSERTED_COLUMNS = 10;
+
   private final System2 system2;
 
   public LiveMeasureDao(System2 system2) {
@@ -53,7 +57,8 @@ public class LiveMeasureDao implements Dao {
 
     return executeLargeInputs(
       largeComponentUuids,
-      componentUuids -> mapper(dbSession).selectByComponentUuidsAndMetricIds(componentUuids, metricIds));
+      componentUuids -> mapper(dbSession).selectByComponentUuidsAndMetricIds(componentUuids, metricIds),
+      largeInputsPartitionSize(dbSession, metricIds.size()));
   }
 
   public void scrollSelectByComponentUuidAndMetricKeys(DbSession dbSession, String componentUuid, Collection<String> metricIds,
@@ -72,7 +77,8 @@ public class LiveMeasureDao implements Dao {
 
     return executeLargeInputs(
       largeComponentUuids,
-      componentUuids -> mapper(dbSession).selectByComponentUuidsAndMetricKeys(componentUuids, metricKeys));
+      componentUuids -> mapper(dbSession).selectByComponentUuidsAndMetricKeys(componentUuids, metricKeys),
+      largeInputsPartitionSize(dbSession, metricKeys.size()));
   }
 
   public Optional<LiveMeasureDto> selectByComponentUuidAndMetricKey(DbSession dbSession, String componentUuid, String metricKey) {
@@ -89,6 +95,13 @@ public class LiveMeasureDao implements Dao {
     return Optional.empty();
   }
 
+  /**
+   * Date of the last change of the measures of a component, or empty if the component has no measures.
+   */
+  public Optional<Long> selectMaxUpdatedAtByComponentUuid(DbSession dbSession, String componentUuid) {
+    return Optional.ofNullable(mapper(dbSession).selectMaxUpdatedAtByComponentUuid(componentUuid));
+  }
+
   public void selectTreeByQuery(DbSession dbSession, ComponentDto baseComponent, MeasureTreeQuery query, ResultHandler<LiveMeasureDto> resultHandler) {
     if (query.returnsEmpty()) {
       return;
@@ -134,7 +147,7 @@ public class LiveMeasureDao implements Dao {
       dto.setUuidForUpsert(Uuids.create());
     }
     int updated = 0;
-    for (List<LiveMeasureDto> chunk : Iterables.partition(dtos, 100)) {
+    for (List<LiveMeasureDto> chunk : Iterables.partition(dtos, multiRowInsertSize(dbSession, UPSERTED_COLUMNS))) {
       updated += mapper(dbSession).upsert(chunk, system2.now());
     }
     return updated;
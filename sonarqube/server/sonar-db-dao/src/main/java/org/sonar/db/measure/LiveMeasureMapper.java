@@ -46,6 +46,8 @@ public interface LiveMeasureMapper {
     @Param("componentUuid") String componentUuid,
     @Param("metricKey") String metricKey);
 
+  Long selectMaxUpdatedAtByComponentUuid(@Param("componentUuid") String componentUuid);
+
   void selectTreeByQuery(
     @Param("query") MeasureTreeQuery measureQuery,
     @Param("baseUuid") String baseUuid,
@@ -19,6 +19,7 @@
  */
 package org.sonar.db.measure;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import java.util.Collection;
 import java.util.List;
@@ -27,10 +28,13 @@ import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
 import static java.util.Collections.emptyList;
+import static org.sonar.db.DaoUtils.multiRowInsertSize;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class MeasureDao implements Dao {
 
+  private static final int INSERTED_COLUMNS = 9;
+
   public Optional<MeasureDto> selectLastMeasure(DbSession dbSession, String componentUuid, String metricKey) {
     return Optional.ofNullable(mapper(dbSession).selectLastMeasure(componentUuid, metricKey));
   }
@@ -100,9 +104,13 @@ public class MeasureDao implements Dao {
     mapper(session).insert(measureDto);
   }
 
+  /**
+   * Insert the measures with multi-row statements, as many rows per statement as the database accepts.
+   */
   public void insert(DbSession session, Collection<MeasureDto> items) {
-    for (MeasureDto item : items) {
-      insert(session, item);
+    MeasureMapper mapper = mapper(session);
+    for (List<MeasureDto> chunk : Iterables.partition(items, multiRowInsertSize(session, INSERTED_COLUMNS))) {
+      mapper.insertRows(chunk);
     }
   }
 
@@ -50,4 +50,6 @@ public interface MeasureMapper {
   List<MeasureDto> selectPastMeasuresOnSeveralAnalyses(@Param("query") PastMeasureQuery query);
 
   void insert(MeasureDto measureDto);
+
+  void insertRows(@Param("dtos") List<MeasureDto> measureDtos);
 }
@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.ibatis.session.RowBounds;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbSession;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Deletes the rows of a large table which belong to some analyses, by ranges of primary keys: the ids of the next
+ * {@code rangeSize} rows are selected in order, then the rows between the first and the last of these ids are deleted through
+ * the primary key index and the deletion is committed straight away, so that locks are held for a short time only.
+ * <p>
+ * The number of rows deleted by an instance is bounded by a budget. Once it is exhausted, deletions stop and it's up to the
+ * caller to resume them later, for example during the next purge of the project.
+ */
+class IdRangePurge {
+
+  static final int DEFAULT_RANGE_SIZE = 10_000;
+  static final String DUPLICATIONS_INDEX = "duplications_index";
+  static final String PROJECT_MEASURES = "project_measures";
+
+  private static final Logger LOG = Loggers.get(IdRangePurge.class);
+
+  private final DbSession session;
+  private final PurgeMapper purgeMapper;
+  private final System2 system2;
+  private final int rangeSize;
+  private long remainingRows;
+
+  IdRangePurge(DbSession session, PurgeMapper purgeMapper, System2 system2, long maxRows) {
+    this(session, purgeMapper, system2, DEFAULT_RANGE_SIZE, maxRows);
+  }
+
+  IdRangePurge(DbSession session, PurgeMapper purgeMapper, System2 system2, int rangeSize, long maxRows) {
+    checkArgument(rangeSize > 0, "Range size must be strictly positive: %s", rangeSize);
+    this.session = session;
+    this.purgeMapper = purgeMapper;
+    this.system2 = system2;
+    this.rangeSize = rangeSize;
+    this.remainingRows = maxRows;
+  }
+
+  /**
+   * Deletes the rows of the table which belong to the specified analyses and, if not {@code null}, to the specified metrics.
+   *
+   * @return {@code false} if the budget of rows was exhausted before all the rows could be deleted
+   */
+  boolean deleteAnalysisRows(String table, List<String> analysisUuids, @Nullable List<Long> metricIds) {
+    long start = system2.now();
+    long deletedRows = 0;
+    try {
+      long fromId = 0L;
+      while (true) {
+        if (remainingRows <= 0) {
+          // budget is exhausted, unless there's no row left
+          return purgeMapper.selectIdsOfAnalysisRows(table, analysisUuids, metricIds, fromId, new RowBounds(0, 1)).isEmpty();
+        }
+        // the range of the selected ids contains no other row to delete, so that at most remainingRows are deleted
+        List<Long> ids = purgeMapper.selectIdsOfAnalysisRows(table, analysisUuids, metricIds, fromId, new RowBounds(0, (int) Math.min(rangeSize, remainingRows)));
+        if (ids.isEmpty()) {
+          return true;
+        }
+        long toId = ids.get(ids.size() - 1) + 1;
+        int deleted = purgeMapper.deleteAnalysisRowsInIdRange(table, analysisUuids, metricIds, ids.get(0), toId);
+        session.commit();
+        deletedRows += deleted;
+        remainingRows -= deleted;
+        fromId = toId;
+      }
+    } finally {
+      long duration = system2.now() - start;
+      LOG.debug("{} rows deleted from {} in {} ms ({} rows/s)", deletedRows, table, duration, deletedRows * 1_000L / Math.max(1L, duration));
+    }
+  }
+}
@@ -28,13 +28,23 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbSession;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.purge.IdRangePurge.DUPLICATIONS_INDEX;
+import static org.sonar.db.purge.IdRangePurge.PROJECT_MEASURES;
 
 class PurgeCommands {
 
+  private static final Logger LOG = Loggers.get(PurgeCommands.class);
   private static final int MAX_SNAPSHOTS_PER_QUERY = 1000;
+  /**
+   * Maximum number of rows of duplications and measures deleted by a single purge of old analyses. Analyses which could
+   * not be purged are purged by the next tasks.
+   */
+  static final long MAX_PURGED_ROWS_OF_ANALYSES = 1_000_000L;
   private static final int MAX_RESOURCES_PER_QUERY = 1000;
   private static final String[] UNPROCESSED_STATUS = new String[] {"U"};
 
@@ -42,12 +52,10 @@ class PurgeCommands {
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
   private final System2 system2;
+  private final long maxPurgedRowsOfAnalyses;
 
   PurgeCommands(DbSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, System2 system2) {
-    this.session = session;
-    this.purgeMapper = purgeMapper;
-    this.profiler = profiler;
-    this.system2 = system2;
+    this(session, purgeMapper, profiler, system2, MAX_PURGED_ROWS_OF_ANALYSES);
   }
 
   @VisibleForTesting
@@ -55,6 +63,15 @@ class PurgeCommands {
     this(session, session.getMapper(PurgeMapper.class), profiler, system2);
   }
 
+  @VisibleForTesting
+  PurgeCommands(DbSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, System2 system2, long maxPurgedRowsOfAnalyses) {
+    this.session = session;
+    this.purgeMapper = purgeMapper;
+    this.profiler = profiler;
+    this.system2 = system2;
+    this.maxPurgedRowsOfAnalyses = maxPurgedRowsOfAnalyses;
+  }
+
   List<String> selectSnapshotUuids(PurgeSnapshotQuery query) {
     return purgeMapper.selectAnalysisIdsAndUuids(query).stream().map(IdUuidPair::getUuid).collect(Collectors.toList());
   }
@@ -78,11 +95,7 @@ class PurgeCommands {
       purgeMapper.selectAnalysisIdsAndUuids(new PurgeSnapshotQuery(rootComponentUuid))), MAX_SNAPSHOTS_PER_QUERY);
 
     deleteAnalysisDuplications(analysisUuidsPartitions);
-
-    profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
-    profiler.stop();
+    deleteAnalysisMeasures(analysisUuidsPartitions);
 
     profiler.start("deleteAnalyses (analysis_properties)");
     analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisProperties);
@@ -118,10 +131,7 @@ class PurgeCommands {
     session.commit();
     profiler.stop();
 
-    profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
-    profiler.stop();
+    deleteAnalysisMeasures(analysisUuidsPartitions);
 
     profiler.start("deleteAnalyses (analysis_properties)");
     analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisProperties);
@@ -134,24 +144,37 @@ class PurgeCommands {
     profiler.stop();
   }
 
+  /**
+   * Deletes the duplications and the measures of metrics without historical data of the analyses, then flags the analyses
+   * as purged. At most {@link #MAX_PURGED_ROWS_OF_ANALYSES} rows are deleted: the analyses which are not flagged yet are
+   * purged by the next calls.
+   */
   void purgeAnalyses(List<IdUuidPair> analysisUuids) {
     List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisUuids), MAX_SNAPSHOTS_PER_QUERY);
+    List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
+    IdRangePurge idRangePurge = new IdRangePurge(session, purgeMapper, system2, maxPurgedRowsOfAnalyses);
 
-    deleteAnalysisDuplications(analysisUuidsPartitions);
+    for (List<String> analysisUuidsPartition : analysisUuidsPartitions) {
+      profiler.start("deleteAnalysisDuplications (duplications_index)");
+      boolean purged = idRangePurge.deleteAnalysisRows(DUPLICATIONS_INDEX, analysisUuidsPartition, null);
+      profiler.stop();
+
+      if (purged && !metricIdsWithoutHistoricalData.isEmpty()) {
+        profiler.start("deleteSnapshotWastedMeasures (project_measures)");
+        purged = idRangePurge.deleteAnalysisRows(PROJECT_MEASURES, analysisUuidsPartition, metricIdsWithoutHistoricalData);
+        profiler.stop();
+      }
 
-    profiler.start("deleteSnapshotWastedMeasures (project_measures)");
-    List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
-    if (!metricIdsWithoutHistoricalData.isEmpty()) {
-      analysisUuidsPartitions
-        .forEach(analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
+      if (!purged) {
+        LOG.debug("Maximum number of purged rows reached, remaining analyses will be purged later");
+        return;
+      }
+
+      profiler.start("updatePurgeStatusToOne (snapshots)");
+      purgeMapper.updatePurgeStatusToOne(analysisUuidsPartition);
       session.commit();
+      profiler.stop();
     }
-    profiler.stop();
-
-    profiler.start("updatePurgeStatusToOne (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::updatePurgeStatusToOne);
-    session.commit();
-    profiler.stop();
   }
 
   void purgeDisabledComponents(String rootComponentUuid, Collection<String> disabledComponentUuids, PurgeListener listener) {
@@ -199,8 +222,15 @@ class PurgeCommands {
 
   private void deleteAnalysisDuplications(List<List<String>> snapshotUuidsPartitions) {
     profiler.start("deleteAnalysisDuplications (duplications_index)");
-    snapshotUuidsPartitions.forEach(purgeMapper::deleteAnalysisDuplications);
-    session.commit();
+    IdRangePurge idRangePurge = new IdRangePurge(session, purgeMapper, system2, Long.MAX_VALUE);
+    snapshotUuidsPartitions.forEach(partition -> idRangePurge.deleteAnalysisRows(DUPLICATIONS_INDEX, partition, null));
+    profiler.stop();
+  }
+
+  private void deleteAnalysisMeasures(List<List<String>> analysisUuidsPartitions) {
+    profiler.start("deleteAnalyses (project_measures)");
+    IdRangePurge idRangePurge = new IdRangePurge(session, purgeMapper, system2, Long.MAX_VALUE);
+    analysisUuidsPartitions.forEach(partition -> idRangePurge.deleteAnalysisRows(PROJECT_MEASURES, partition, null));
     profiler.stop();
   }
 
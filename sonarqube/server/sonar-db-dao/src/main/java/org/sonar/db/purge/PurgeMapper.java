@@ -24,6 +24,7 @@ import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.RowBounds;
 
 public interface PurgeMapper {
 
@@ -44,21 +45,21 @@ public interface PurgeMapper {
 
   void deleteAnalysisProperties(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisDuplications(@Param("analysisUuids") List<String> analysisUuids);
-
   void deleteAnalysisEvents(@Param("analysisUuids") List<String> analysisUuids);
 
   void deleteAnalysisEventComponentChanges(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisMeasures(@Param("analysisUuids") List<String> analysisUuids);
-
   void fullDeleteComponentMeasures(@Param("componentUuids") List<String> componentUuids);
 
   void deleteComponentMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("componentUuids") List<String> componentUuids);
 
   List<Long> selectMetricIdsWithoutHistoricalData();
 
-  void deleteAnalysisWastedMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("metricIds") List<Long> metricIds);
+  List<Long> selectIdsOfAnalysisRows(@Param("table") String table, @Param("analysisUuids") List<String> analysisUuids,
+    @Nullable @Param("metricIds") List<Long> metricIds, @Param("fromId") long fromId, RowBounds rowBounds);
+
+  int deleteAnalysisRowsInIdRange(@Param("table") String table, @Param("analysisUuids") List<String> analysisUuids,
+    @Nullable @Param("metricIds") List<Long> metricIds, @Param("fromId") long fromId, @Param("toId") long toId);
 
   /**
    * Purge status flag is used to not attempt to remove duplications & historical data of analyses
@@ -0,0 +1,85 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkWriterTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private List<List<String>> chunks = new ArrayList<>();
+  private System2 system2 = mock(System2.class);
+
+  @Test
+  public void write_rows_by_chunks() {
+    BulkWriter<String> underTest = new BulkWriter<>(chunks::add, 2, system2);
+
+    underTest.add("a").add("b").add("c");
+    assertThat(chunks).containsExactly(asList("a", "b"));
+    assertThat(underTest.getRows()).isEqualTo(2);
+
+    underTest.close();
+    assertThat(chunks).containsExactly(asList("a", "b"), asList("c"));
+    assertThat(underTest.getRows()).isEqualTo(3);
+  }
+
+  @Test
+  public void flush_does_nothing_if_no_rows() {
+    BulkWriter<String> underTest = new BulkWriter<>(chunks::add, 2, system2);
+
+    underTest.flush();
+    underTest.close();
+
+    assertThat(chunks).isEmpty();
+    assertThat(underTest.getRows()).isZero();
+    assertThat(underTest.getRowsPerSecond()).isZero();
+  }
+
+  @Test
+  public void compute_throughput_from_time_spent_in_writer() {
+    when(system2.now()).thenReturn(1_000L, 1_500L, 2_000L, 2_500L);
+    BulkWriter<String> underTest = new BulkWriter<>(chunks::add, 2, system2);
+
+    underTest.add("a").add("b").add("c").add("d");
+
+    assertThat(underTest.getRows()).isEqualTo(4);
+    assertThat(underTest.getRowsPerSecond()).isEqualTo(4);
+  }
+
+  @Test
+  public void fail_if_chunk_size_is_not_strictly_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Chunk size must be strictly positive: 0");
+
+    new BulkWriter<String>(chunks::add, 0);
+  }
+}
@@ -19,16 +19,25 @@
  */
 package org.sonar.db;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.System2;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.sonar.db.DaoUtils.buildLikeValue;
+import static org.sonar.db.DaoUtils.MAX_ROWS_PER_MULTI_ROW_INSERT;
+import static org.sonar.db.DaoUtils.largeInputsPartitionSize;
+import static org.sonar.db.DaoUtils.multiRowInsertSize;
 import static org.sonar.db.WildcardPosition.AFTER;
 import static org.sonar.db.WildcardPosition.BEFORE;
 import static org.sonar.db.WildcardPosition.BEFORE_AND_AFTER;
 
 public class DaoUtilsTest {
 
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
   @Test
   public void buildLikeValue_with_special_characters() {
     String escapedValue = "like-\\/_/%//-value";
@@ -39,5 +48,34 @@ public class DaoUtilsTest {
     assertThat(buildLikeValue("like-\\_%/-value", BEFORE_AND_AFTER)).isEqualTo(wildcard + escapedValue + wildcard);
   }
 
+  @Test
+  public void largeInputsPartitionSize_is_the_one_of_the_dialect() {
+    int expected = db.getDbClient().getDatabase().getDialect().getLargeInputsPartitionSize();
+
+    assertThat(largeInputsPartitionSize(db.getSession())).isEqualTo(expected);
+  }
+
+  @Test
+  public void largeInputsPartitionSize_is_the_one_of_oracle_if_session_is_not_configured() {
+    assertThat(largeInputsPartitionSize(mock(DbSession.class))).isEqualTo(DatabaseUtils.PARTITION_SIZE_FOR_ORACLE);
+  }
+
+  @Test
+  public void largeInputsPartitionSize_excludes_other_bound_parameters() {
+    DbSession session = mock(DbSession.class);
+
+    assertThat(largeInputsPartitionSize(session, 0)).isEqualTo(DatabaseUtils.PARTITION_SIZE_FOR_ORACLE);
+    assertThat(largeInputsPartitionSize(session, 150)).isEqualTo(DatabaseUtils.PARTITION_SIZE_FOR_ORACLE - 150);
+    assertThat(largeInputsPartitionSize(session, DatabaseUtils.PARTITION_SIZE_FOR_ORACLE * 2)).isEqualTo(1);
+  }
+
+  @Test
+  public void multiRowInsertSize_depends_on_the_number_of_bound_columns() {
+    DbSession session = mock(DbSession.class);
+
+    assertThat(multiRowInsertSize(session, 10)).isEqualTo(DatabaseUtils.PARTITION_SIZE_FOR_ORACLE / 10);
+    assertThat(multiRowInsertSize(session, 1)).isEqualTo(MAX_ROWS_PER_MULTI_ROW_INSERT);
+    assertThat(multiRowInsertSize(session, DatabaseUtils.PARTITION_SIZE_FOR_ORACLE * 2)).isEqualTo(1);
+  }
 
 }
@@ -518,6 +518,19 @@ public class BranchDaoTest {
     assertThat(underTest.hasNonMainBranches(dbSession)).isTrue();
   }
 
+  @Test
+  public void selectAllUuids() {
+    assertThat(underTest.selectAllUuids(dbSession)).isEmpty();
+
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto branch = db.components().insertProjectBranch(project);
+    ComponentDto pr = db.components().insertProjectBranch(project, b -> b.setBranchType(BranchType.PULL_REQUEST));
+
+    assertThat(underTest.selectAllUuids(dbSession))
+      .containsExactlyInAnyOrder(project.uuid(), branch.uuid(), pr.uuid())
+      .isSorted();
+  }
+
   @Test
   public void countByTypeAndCreationDate() {
     assertThat(underTest.countByTypeAndCreationDate(dbSession, BranchType.BRANCH, 0L)).isEqualTo(0);
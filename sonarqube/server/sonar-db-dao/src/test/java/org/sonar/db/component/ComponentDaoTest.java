@@ -50,6 +50,7 @@ import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.Pagination;
 import org.sonar.db.RowNotFoundException;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
@@ -58,6 +59,7 @@ import org.sonar.db.source.FileSourceDto;
 import static com.google.common.collect.ImmutableSet.of;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
@@ -1884,6 +1886,84 @@ public class ComponentDaoTest {
     assertThat(result).isEmpty();
   }
 
+  @Test
+  public void scroll_descendants_sorted_by_key_after_given_key() {
+    ComponentDto project = newPrivateProjectDto(db.getDefaultOrganization(), PROJECT_UUID);
+    db.components().insertProjectAndSnapshot(project);
+    db.components().insertComponent(newFileDto(project, null, FILE_3_UUID).setDbKey("file-key-3"));
+    db.components().insertComponent(newFileDto(project, null, FILE_1_UUID).setDbKey("file-key-1"));
+    db.components().insertComponent(newFileDto(project, null, FILE_2_UUID).setDbKey("file-key-2"));
+    db.commit();
+    ComponentTreeQuery query = newTreeQuery(PROJECT_UUID).setStrategy(LEAVES).build();
+
+    List<String> keys = new ArrayList<>();
+    underTest.scrollDescendants(dbSession, query, null, context -> keys.add(context.getResultObject().getDbKey()));
+    assertThat(keys).containsExactly("file-key-1", "file-key-2", "file-key-3");
+
+    keys.clear();
+    underTest.scrollDescendants(dbSession, query, "file-key-1", context -> keys.add(context.getResultObject().getDbKey()));
+    assertThat(keys).containsExactly("file-key-2", "file-key-3");
+
+    keys.clear();
+    underTest.scrollDescendants(dbSession, query, null, context -> {
+      keys.add(context.getResultObject().getDbKey());
+      context.stop();
+    });
+    assertThat(keys).containsExactly("file-key-1");
+
+    keys.clear();
+    underTest.scrollDescendants(dbSession, newTreeQuery("unknown").build(), null, context -> keys.add(context.getResultObject().getDbKey()));
+    assertThat(keys).isEmpty();
+  }
+
+  @Test
+  public void scroll_descendants_returns_nothing_if_qualifiers_are_empty() {
+    ComponentDto project = newPrivateProjectDto(db.getDefaultOrganization(), PROJECT_UUID);
+    db.components().insertProjectAndSnapshot(project);
+    db.components().insertComponent(newFileDto(project, null, FILE_1_UUID));
+    db.commit();
+    ComponentTreeQuery query = newTreeQuery(PROJECT_UUID).setStrategy(LEAVES).setQualifiers(emptyList()).build();
+
+    List<String> keys = new ArrayList<>();
+    underTest.scrollDescendants(dbSession, query, null, context -> keys.add(context.getResultObject().getDbKey()));
+
+    assertThat(keys).isEmpty();
+  }
+
+  @Test
+  public void select_and_count_by_positive_measure_sorted_by_path() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto otherProject = db.components().insertPrivateProject();
+    MetricDto metric = db.measures().insertMetric();
+    MetricDto otherMetric = db.measures().insertMetric();
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project).setPath("src/c.xoo"));
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setPath("src/a.xoo"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setPath("src/b.xoo").setQualifier(Qualifiers.UNIT_TEST_FILE));
+    ComponentDto noMeasure = db.components().insertComponent(newFileDto(project).setPath("src/d.xoo"));
+    ComponentDto zero = db.components().insertComponent(newFileDto(project).setPath("src/e.xoo"));
+    ComponentDto disabled = db.components().insertComponent(newFileDto(project).setPath("src/f.xoo").setEnabled(false));
+    ComponentDto otherProjectFile = db.components().insertComponent(newFileDto(otherProject).setPath("src/a.xoo"));
+    for (ComponentDto file : asList(file1, file2, file3, disabled, otherProjectFile)) {
+      db.measures().insertLiveMeasure(file, metric, m -> m.setValue(2.0));
+    }
+    db.measures().insertLiveMeasure(zero, metric, m -> m.setValue(0.0));
+    db.measures().insertLiveMeasure(noMeasure, otherMetric, m -> m.setValue(2.0));
+    List<String> qualifiers = asList(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
+
+    assertThat(underTest.countByPositiveMeasure(dbSession, project.uuid(), qualifiers, metric.getId())).isEqualTo(3);
+    assertThat(underTest.selectByPositiveMeasure(dbSession, project.uuid(), qualifiers, metric.getId(), Pagination.forPage(1).andSize(2)))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file1.uuid(), file2.uuid());
+    assertThat(underTest.selectByPositiveMeasure(dbSession, project.uuid(), qualifiers, metric.getId(), Pagination.forPage(2).andSize(2)))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file3.uuid());
+    assertThat(underTest.selectByPositiveMeasure(dbSession, project.uuid(), singletonList(Qualifiers.UNIT_TEST_FILE), metric.getId(), Pagination.all()))
+      .extracting(ComponentDto::uuid)
+      .containsExactly(file2.uuid());
+    assertThat(underTest.selectByPositiveMeasure(dbSession, project.uuid(), emptyList(), metric.getId(), Pagination.all())).isEmpty();
+    assertThat(underTest.countByPositiveMeasure(dbSession, project.uuid(), emptyList(), metric.getId())).isZero();
+  }
+
   @Test
   public void select_descendants_of_a_view_and_filter_by_name() {
     OrganizationDto organizationDto = db.organizations().insert();
@@ -22,6 +22,8 @@ package org.sonar.db.duplication;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.assertj.core.api.AbstractListAssert;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.ObjectAssert;
@@ -165,6 +167,30 @@ public class DuplicationDaoTest {
     Assertions.assertThat(row.get("END")).isEqualTo(2L);
   }
 
+  @Test
+  public void insert_multiple_rows() {
+    OrganizationDto organization = db.organizations().insert();
+    ComponentDto project = newPrivateProjectDto(organization);
+    SnapshotDto analysis = db.components().insertProjectAndSnapshot(project);
+    List<DuplicationUnitDto> dtos = IntStream.range(0, 2_500)
+      .mapToObj(i -> new DuplicationUnitDto()
+        .setAnalysisUuid(analysis.getUuid())
+        .setComponentUuid(project.uuid())
+        .setHash("hash" + i)
+        .setIndexInFile(i)
+        .setStartLine(i)
+        .setEndLine(i + 1))
+      .collect(Collectors.toList());
+
+    dao.insert(dbSession, dtos);
+    dbSession.commit();
+
+    Assertions.assertThat(db.countRowsOfTable("duplications_index")).isEqualTo(2_500);
+    Assertions.assertThat(dao.selectComponent(dbSession, project.uuid(), analysis.getUuid()))
+      .extracting(DuplicationUnitDto::getHash, DuplicationUnitDto::getIndexInFile, DuplicationUnitDto::getEndLine)
+      .contains(tuple("hash0", 0, 1), tuple("hash2499", 2_499, 2_500));
+  }
+
   public void insert(ComponentDto project, SnapshotDto analysis, String hash, int indexInFile, int startLine, int endLine) {
     dao.insert(dbSession, new DuplicationUnitDto()
       .setAnalysisUuid(analysis.getUuid())
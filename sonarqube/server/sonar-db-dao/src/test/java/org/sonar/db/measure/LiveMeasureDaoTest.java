@@ -102,6 +102,24 @@ public class LiveMeasureDaoTest {
     assertThat(selected).isEmpty();
   }
 
+  @Test
+  public void selectByComponentUuidsAndMetricIds_with_many_components_and_metrics() {
+    LiveMeasureDto measure1 = newLiveMeasure().setMetricId(metric.getId());
+    LiveMeasureDto measure2 = newLiveMeasure().setMetricId(metric.getId());
+    underTest.insert(db.getSession(), measure1);
+    underTest.insert(db.getSession(), measure2);
+    List<String> componentUuids = new ArrayList<>(asList(measure1.getComponentUuid(), measure2.getComponentUuid()));
+    IntStream.range(0, 9_000).forEach(i -> componentUuids.add("missing_" + i));
+    List<Integer> metricIds = new ArrayList<>(singletonList(metric.getId()));
+    IntStream.range(1, 2_500).forEach(i -> metricIds.add(metric.getId() + i));
+
+    List<LiveMeasureDto> selected = underTest.selectByComponentUuidsAndMetricIds(db.getSession(), componentUuids, metricIds);
+
+    assertThat(selected)
+      .extracting(LiveMeasureDto::getComponentUuid)
+      .containsExactlyInAnyOrder(measure1.getComponentUuid(), measure2.getComponentUuid());
+  }
+
   @Test
   public void selectByComponentUuidsAndMetricKeys() {
     LiveMeasureDto measure1 = newLiveMeasure().setMetricId(metric.getId());
@@ -141,6 +159,24 @@ public class LiveMeasureDaoTest {
     assertThat(selected).isEmpty();
   }
 
+  @Test
+  public void selectByComponentUuidsAndMetricKeys_with_many_components_and_metrics() {
+    LiveMeasureDto measure1 = newLiveMeasure().setMetricId(metric.getId());
+    LiveMeasureDto measure2 = newLiveMeasure().setMetricId(metric.getId());
+    underTest.insert(db.getSession(), measure1);
+    underTest.insert(db.getSession(), measure2);
+    List<String> componentUuids = new ArrayList<>(asList(measure1.getComponentUuid(), measure2.getComponentUuid()));
+    IntStream.range(0, 9_000).forEach(i -> componentUuids.add("missing_" + i));
+    List<String> metricKeys = new ArrayList<>(singletonList(metric.getKey()));
+    IntStream.range(1, 2_500).forEach(i -> metricKeys.add("missing_" + i));
+
+    List<LiveMeasureDto> selected = underTest.selectByComponentUuidsAndMetricKeys(db.getSession(), componentUuids, metricKeys);
+
+    assertThat(selected)
+      .extracting(LiveMeasureDto::getComponentUuid)
+      .containsExactlyInAnyOrder(measure1.getComponentUuid(), measure2.getComponentUuid());
+  }
+
   @Test
   public void selectByComponentUuidAndMetricKey() {
     LiveMeasureDto measure = newLiveMeasure().setMetricId(metric.getId());
@@ -152,6 +188,22 @@ public class LiveMeasureDaoTest {
     assertThat(selected.get()).isEqualToComparingFieldByField(measure);
   }
 
+  @Test
+  public void selectMaxUpdatedAtByComponentUuid() {
+    MetricDto otherMetric = db.measures().insertMetric();
+    LiveMeasureDto measure = newLiveMeasure().setMetricId(metric.getId());
+    long before = System2.INSTANCE.now();
+    underTest.insert(db.getSession(), measure);
+    underTest.insert(db.getSession(), newLiveMeasure().setComponentUuid(measure.getComponentUuid()).setMetricId(otherMetric.getId()));
+    long after = System2.INSTANCE.now();
+
+    Optional<Long> updatedAt = underTest.selectMaxUpdatedAtByComponentUuid(db.getSession(), measure.getComponentUuid());
+
+    assertThat(updatedAt).isPresent();
+    assertThat(updatedAt.get()).isBetween(before, after);
+    assertThat(underTest.selectMaxUpdatedAtByComponentUuid(db.getSession(), "other")).isEmpty();
+  }
+
   @Test
   public void selectByComponentUuidAndMetricKey_return_empty_if_component_does_not_match() {
     LiveMeasureDto measure = newLiveMeasure().setMetricId(metric.getId());
@@ -20,6 +20,8 @@
 package org.sonar.db.measure;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -79,6 +81,25 @@ public class MeasureDaoTest {
     assertThat(underTest.selectLastMeasure(dbSession, "_missing_", "_missing_")).isEmpty();
   }
 
+  @Test
+  public void insert_measures_with_multi_row_statements() {
+    MetricDto metric = db.measures().insertMetric();
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = insertAnalysis(project.uuid(), true);
+    List<MeasureDto> measures = IntStream.range(0, 1_500)
+      .mapToObj(i -> MeasureTesting.newMeasureDto(metric, project, analysis).setValue((double) i))
+      .collect(Collectors.toList());
+
+    underTest.insert(dbSession, measures);
+    dbSession.commit();
+
+    assertThat(db.countRowsOfTable("project_measures")).isEqualTo(1_500);
+    assertThat(db.select("select value as \"VALUE\" from project_measures"))
+      .extracting(row -> ((Number) row.get("VALUE")).intValue())
+      .containsOnlyElementsOf(IntStream.range(0, 1_500).boxed().collect(Collectors.toList()))
+      .hasSize(1_500);
+  }
+
   @Test
   public void test_selectMeasure() {
     MetricDto metric = db.measures().insertMetric();
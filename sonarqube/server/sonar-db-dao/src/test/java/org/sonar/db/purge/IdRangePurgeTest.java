@@ -0,0 +1,150 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.purge;
+
+import java.util.stream.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.duplication.DuplicationUnitDto;
+import org.sonar.db.metric.MetricDto;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.purge.IdRangePurge.DUPLICATIONS_INDEX;
+import static org.sonar.db.purge.IdRangePurge.PROJECT_MEASURES;
+
+public class IdRangePurgeTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private DbSession dbSession = db.getSession();
+  private PurgeMapper purgeMapper = dbSession.getMapper(PurgeMapper.class);
+
+  @Test
+  public void delete_rows_of_analyses_by_ranges_of_ids() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    SnapshotDto otherAnalysis = db.components().insertSnapshot(project);
+    IntStream.range(0, 5).forEach(i -> {
+      insertDuplication(project, analysis);
+      insertDuplication(project, otherAnalysis);
+    });
+    IdRangePurge underTest = new IdRangePurge(dbSession, purgeMapper, System2.INSTANCE, 2, Long.MAX_VALUE);
+
+    assertThat(underTest.deleteAnalysisRows(DUPLICATIONS_INDEX, singletonList(analysis.getUuid()), null)).isTrue();
+
+    assertThat(countDuplications(analysis)).isZero();
+    assertThat(countDuplications(otherAnalysis)).isEqualTo(5);
+  }
+
+  @Test
+  public void stop_deleting_rows_once_the_budget_is_exhausted() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    IntStream.range(0, 10).forEach(i -> insertDuplication(project, analysis));
+    IdRangePurge underTest = new IdRangePurge(dbSession, purgeMapper, System2.INSTANCE, 2, 4);
+
+    assertThat(underTest.deleteAnalysisRows(DUPLICATIONS_INDEX, singletonList(analysis.getUuid()), null)).isFalse();
+    assertThat(countDuplications(analysis)).isEqualTo(6);
+
+    // budget is shared by all the calls of the instance
+    assertThat(underTest.deleteAnalysisRows(DUPLICATIONS_INDEX, singletonList(analysis.getUuid()), null)).isFalse();
+    assertThat(countDuplications(analysis)).isEqualTo(6);
+  }
+
+  @Test
+  public void do_not_delete_more_rows_than_the_budget() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    SnapshotDto otherAnalysis = db.components().insertSnapshot(project);
+    IntStream.range(0, 10).forEach(i -> {
+      insertDuplication(project, analysis);
+      insertDuplication(project, otherAnalysis);
+    });
+    IdRangePurge underTest = new IdRangePurge(dbSession, purgeMapper, System2.INSTANCE, 4, 7);
+
+    assertThat(underTest.deleteAnalysisRows(DUPLICATIONS_INDEX, singletonList(analysis.getUuid()), null)).isFalse();
+
+    assertThat(countDuplications(analysis)).isEqualTo(3);
+    assertThat(countDuplications(otherAnalysis)).isEqualTo(10);
+  }
+
+  @Test
+  public void succeed_if_budget_is_exhausted_by_the_last_rows() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    IntStream.range(0, 4).forEach(i -> insertDuplication(project, analysis));
+    IdRangePurge underTest = new IdRangePurge(dbSession, purgeMapper, System2.INSTANCE, 3, 4);
+
+    assertThat(underTest.deleteAnalysisRows(DUPLICATIONS_INDEX, singletonList(analysis.getUuid()), null)).isTrue();
+
+    assertThat(countDuplications(analysis)).isZero();
+  }
+
+  @Test
+  public void delete_only_rows_of_specified_metrics() {
+    MetricDto metric = db.measures().insertMetric();
+    MetricDto otherMetric = db.measures().insertMetric();
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto analysis = db.components().insertSnapshot(project);
+    IntStream.range(0, 3).forEach(i -> {
+      db.measures().insertMeasure(project, analysis, metric);
+      db.measures().insertMeasure(project, analysis, otherMetric);
+    });
+    IdRangePurge underTest = new IdRangePurge(dbSession, purgeMapper, System2.INSTANCE, 2, Long.MAX_VALUE);
+
+    assertThat(underTest.deleteAnalysisRows(PROJECT_MEASURES, singletonList(analysis.getUuid()), singletonList((long) metric.getId()))).isTrue();
+
+    assertThat(db.countSql("select count(1) from project_measures where metric_id=" + metric.getId())).isZero();
+    assertThat(db.countSql("select count(1) from project_measures where metric_id=" + otherMetric.getId())).isEqualTo(3);
+  }
+
+  @Test
+  public void fail_if_range_size_is_not_strictly_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Range size must be strictly positive: 0");
+
+    new IdRangePurge(dbSession, purgeMapper, System2.INSTANCE, 0, Long.MAX_VALUE);
+  }
+
+  private void insertDuplication(ComponentDto project, SnapshotDto analysis) {
+    db.getDbClient().duplicationDao().insert(dbSession, new DuplicationUnitDto()
+      .setAnalysisUuid(analysis.getUuid())
+      .setComponentUuid(project.uuid())
+      .setHash("hash")
+      .setIndexInFile(0)
+      .setStartLine(1)
+      .setEndLine(2));
+    db.commit();
+  }
+
+  private int countDuplications(SnapshotDto analysis) {
+    return db.countSql("select count(1) from duplications_index where analysis_uuid='" + analysis.getUuid() + "'");
+  }
+}
@@ -154,6 +154,22 @@ public class PurgeCommandsTest {
     assertThat(countMeasures(analysis4, withHistoryMetric)).isEqualTo(count);
   }
 
+  @Test
+  public void purgeAnalyses_does_not_flag_analyses_as_purged_when_max_purged_rows_is_reached() {
+    ComponentDto project = dbTester.components().insertPrivateProject();
+    SnapshotDto analysis = dbTester.components().insertSnapshot(project);
+    IntStream.range(0, 3).forEach(i -> insertDuplication(project, analysis));
+
+    new PurgeCommands(dbTester.getSession(), dbTester.getSession().getMapper(PurgeMapper.class), profiler, system2, 0L)
+      .purgeAnalyses(toIdUuidPairs(analysis));
+    assertThat(countDuplications(analysis)).isEqualTo(3);
+    assertThat(isPurged(analysis)).isFalse();
+
+    underTest.purgeAnalyses(toIdUuidPairs(analysis));
+    assertThat(countDuplications(analysis)).isZero();
+    assertThat(isPurged(analysis)).isTrue();
+  }
+
   /**
    * Test that SQL queries execution do not fail with a huge number of parameter
    */
@@ -676,6 +692,10 @@ public class PurgeCommandsTest {
     dbTester.commit();
   }
 
+  private boolean isPurged(SnapshotDto analysis) {
+    return dbTester.countSql("select count(1) from snapshots where uuid='" + analysis.getUuid() + "' and purge_status=1") == 1;
+  }
+
   private int countDuplications(SnapshotDto analysis) {
     return dbTester.countSql("select count(1) from duplications_index where analysis_uuid='" + analysis.getUuid() + "'");
   }
@@ -0,0 +1,58 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * Size of the bulk requests, adapted to the time Elasticsearch takes to process them: it doubles as long as
+ * requests are processed quickly and it's halved when they get slow or fail, within [{@link #MIN_BYTES}, {@link #MAX_BYTES}].
+ */
+class AdaptiveBulkSize {
+
+  static final long MIN_BYTES = new ByteSizeValue(512, ByteSizeUnit.KB).getBytes();
+  static final long INITIAL_BYTES = new ByteSizeValue(1, ByteSizeUnit.MB).getBytes();
+  static final long MAX_BYTES = new ByteSizeValue(16, ByteSizeUnit.MB).getBytes();
+  static final long FAST_RESPONSE_MS = 500L;
+  static final long SLOW_RESPONSE_MS = 2_000L;
+
+  private volatile long bytes = INITIAL_BYTES;
+
+  long getBytes() {
+    return bytes;
+  }
+
+  synchronized void onResponse(long tookMs) {
+    if (tookMs < FAST_RESPONSE_MS) {
+      bytes = Math.min(MAX_BYTES, bytes * 2);
+    } else if (tookMs > SLOW_RESPONSE_MS) {
+      shrink();
+    }
+  }
+
+  synchronized void onFailure() {
+    shrink();
+  }
+
+  private void shrink() {
+    bytes = Math.max(MIN_BYTES, bytes / 2);
+  }
+}
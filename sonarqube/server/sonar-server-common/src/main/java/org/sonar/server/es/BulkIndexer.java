@@ -22,12 +22,21 @@ package org.sonar.server.es;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.LinkedHashMultiset;
 import com.google.common.collect.Multiset;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -43,6 +52,7 @@ import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.document.DocumentField;
@@ -50,7 +60,9 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortOrder;
+import org.sonar.api.utils.TimeUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
@@ -61,8 +73,9 @@ import static java.lang.String.format;
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- * <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
- * <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
+ * <li>bulk request is sent on the wire when its size is higher than 1Mb</li>
+ * <li>on large table indexing, replicas and automatic refresh can be temporarily disabled, and the size of bulk requests
+ * is adapted to the time Elasticsearch takes to process them</li>
  * </ul>
  */
 public class BulkIndexer {
@@ -72,13 +85,27 @@ public class BulkIndexer {
   private static final int FLUSH_ACTIONS = -1;
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final int DEFAULT_NUMBER_OF_SHARDS = 5;
+  private static final ByteSizeValue NO_FLUSH_BYTE_SIZE = new ByteSizeValue(-1);
+  /**
+   * Estimated size of the metadata of a request in a bulk
+   */
+  private static final int REQUEST_OVERHEAD_BYTES = 50;
+  private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(5);
+  private static final int SCROLL_PAGE_SIZE = 1_000;
+  private static final int MAX_DELETION_SLICES = DEFAULT_NUMBER_OF_SHARDS;
 
   private final EsClient client;
   private final IndexType indexType;
+  private final Size size;
   private final BulkProcessor bulkProcessor;
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
+  @CheckForNull
+  private final AdaptiveBulkSize adaptiveBulkSize;
+  private final AtomicLong pendingBytes = new AtomicLong(0L);
+  @CheckForNull
+  private Deletions deletions;
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size) {
     this(client, indexType, size, IndexingListener.FAIL_ON_ERROR);
@@ -87,12 +114,15 @@ public class BulkIndexer {
   public BulkIndexer(EsClient client, IndexType indexType, Size size, IndexingListener indexingListener) {
     this.client = client;
     this.indexType = indexType;
+    this.size = size;
     this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
     this.indexingListener = indexingListener;
+    this.adaptiveBulkSize = sizeHandler.createAdaptiveBulkSize();
     BulkProcessorListener bulkProcessorListener = new BulkProcessorListener();
     this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), bulkProcessorListener)
       .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
-      .setBulkSize(FLUSH_BYTE_SIZE)
+      // when size is adaptive, bulk requests are flushed by this class
+      .setBulkSize(adaptiveBulkSize == null ? FLUSH_BYTE_SIZE : NO_FLUSH_BYTE_SIZE)
       .setBulkActions(FLUSH_ACTIONS)
       .setConcurrentRequests(sizeHandler.getConcurrentRequests())
       .build();
@@ -111,6 +141,7 @@ public class BulkIndexer {
    * @return the number of documents successfully indexed
    */
   public IndexingResult stop() {
+    awaitDeletions();
     try {
       bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
     } catch (InterruptedException e) {
@@ -123,55 +154,136 @@ public class BulkIndexer {
     return result;
   }
 
+  /**
+   * Can be called concurrently by multiple threads.
+   */
   public void add(IndexRequest request) {
     result.incrementRequests();
     bulkProcessor.add(request);
+    flushIfNeeded(request.source().length());
   }
 
   public void add(DeleteRequest request) {
     result.incrementRequests();
     bulkProcessor.add(request);
+    flushIfNeeded(0);
   }
 
   public void add(DocWriteRequest request) {
     result.incrementRequests();
     bulkProcessor.add(request);
+    flushIfNeeded(request instanceof IndexRequest ? ((IndexRequest) request).source().length() : 0);
+  }
+
+  private void flushIfNeeded(int sourceBytes) {
+    if (adaptiveBulkSize != null && pendingBytes.addAndGet(REQUEST_OVERHEAD_BYTES + (long) sourceBytes) >= adaptiveBulkSize.getBytes()) {
+      pendingBytes.set(0L);
+      bulkProcessor.flush();
+    }
   }
 
+  /**
+   * Deletes all the documents matching the search request.
+   * <p>
+   * The results are read in slices, one per primary shard, or a single one when the search request has a routing. The
+   * first page of each slice is read immediately, so that documents added afterwards are not deleted, and next pages are
+   * scrolled and deleted in background. {@link #stop()} waits for all the deletions to be requested.
+   * As a consequence, the documents matching the search request must not be added again before {@link #stop()}:
+   * their deletion could be requested after them.
+   * <p>
+   * A deletion that can't be completed is counted as a failed request, so that {@link IndexingListener#onFinish(IndexingResult)}
+   * does not consider it as successful.
+   */
   public void addDeletion(SearchRequestBuilder searchRequest) {
-    // TODO to be replaced by delete_by_query that is back in ES5
     searchRequest
       .addSort("_doc", SortOrder.ASC)
-      .setScroll(TimeValue.timeValueMinutes(5))
-      .setSize(100)
+      .setScroll(SCROLL_KEEP_ALIVE)
+      .setSize(SCROLL_PAGE_SIZE)
       // load only doc ids, not _source fields
       .setFetchSource(false);
 
-    // this search is synchronous. An optimization would be to be non-blocking,
-    // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
-    // two locks)
-    SearchResponse searchResponse = searchRequest.get();
-
-    while (true) {
-      SearchHit[] hits = searchResponse.getHits().getHits();
-      for (SearchHit hit : hits) {
-        DocumentField routing = hit.field("_routing");
-        DeleteRequestBuilder deleteRequestBuilder = client.prepareDelete(hit.getIndex(), hit.getType(), hit.getId());
-        if (routing != null) {
-          deleteRequestBuilder.setRouting(routing.getValue());
+    // a routing restricts the search to a single shard
+    int slices = searchRequest.request().routing() == null ? countDeletionSlices() : 1;
+    Deletions deletions = deletions();
+    for (int slice = 0; slice < slices; slice++) {
+      if (slices > 1) {
+        searchRequest.slice(new SliceBuilder(slice, slices));
+      }
+      SearchResponse firstPage = searchRequest.get();
+      deletions.pending.add(deletions.executor.submit(() -> deleteScrolledHits(firstPage, deletions.deletedDocs)));
+    }
+  }
+
+  private void deleteScrolledHits(SearchResponse firstPage, AtomicLong deletedDocs) {
+    try {
+      SearchResponse searchResponse = firstPage;
+      while (true) {
+        SearchHit[] hits = searchResponse.getHits().getHits();
+        for (SearchHit hit : hits) {
+          DocumentField routing = hit.field("_routing");
+          DeleteRequestBuilder deleteRequestBuilder = client.prepareDelete(hit.getIndex(), hit.getType(), hit.getId());
+          if (routing != null) {
+            deleteRequestBuilder.setRouting(routing.getValue());
+          }
+          add(deleteRequestBuilder.request());
+          deletedDocs.incrementAndGet();
+        }
+
+        String scrollId = searchResponse.getScrollId();
+        if (scrollId == null) {
+          break;
+        }
+        searchResponse = client.prepareSearchScroll(scrollId).setScroll(SCROLL_KEEP_ALIVE).get();
+        if (hits.length == 0) {
+          client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
+          break;
         }
-        add(deleteRequestBuilder.request());
       }
+    } catch (RuntimeException e) {
+      LOGGER.error(format("Fail to delete documents of index [%s] by query", indexType.getMainType().getIndex().getName()), e);
+      result.incrementRequests();
+    }
+  }
+
+  private synchronized Deletions deletions() {
+    if (deletions == null) {
+      // progress is logged only for large deletions, as other ones are expected to complete quickly
+      deletions = new Deletions(indexType.getMainType().getIndex().getName(), size == Size.LARGE);
+    }
+    return deletions;
+  }
 
-      String scrollId = searchResponse.getScrollId();
-      if (scrollId == null) {
-        break;
+  private int countDeletionSlices() {
+    String index = indexType.getMainType().getIndex().getName();
+    String shards = client.nativeClient().admin().indices().prepareGetSettings(index)
+      .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+      .get()
+      .getSetting(index, IndexMetaData.SETTING_NUMBER_OF_SHARDS);
+    return shards == null ? 1 : Math.max(1, Math.min(MAX_DELETION_SLICES, Integer.parseInt(shards)));
+  }
+
+  private void awaitDeletions() {
+    Deletions toAwait;
+    synchronized (this) {
+      toAwait = deletions;
+      deletions = null;
+    }
+    if (toAwait == null) {
+      return;
+    }
+    try {
+      for (Future<?> future : toAwait.pending) {
+        future.get();
       }
-      searchResponse = client.prepareSearchScroll(scrollId).setScroll(TimeValue.timeValueMinutes(5)).get();
-      if (hits.length == 0) {
-        client.nativeClient().prepareClearScroll().addScrollId(scrollId).get();
-        break;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Deletions of documents by query have been interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to delete documents by query", e.getCause());
+    } finally {
+      toAwait.executor.shutdownNow();
+      if (toAwait.progress != null) {
+        toAwait.progress.stop();
       }
     }
   }
@@ -197,6 +309,31 @@ public class BulkIndexer {
     return bulk.stop();
   }
 
+  /**
+   * Deletions by query being processed in background, by up to one thread per slice
+   */
+  private static final class Deletions {
+    private final ExecutorService executor;
+    private final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong deletedDocs = new AtomicLong(0L);
+    @CheckForNull
+    private final ProgressLogger progress;
+
+    private Deletions(String index, boolean logProgress) {
+      this.executor = Executors.newFixedThreadPool(MAX_DELETION_SLICES, new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat(index + "-deletion-%d")
+        .build());
+      if (logProgress) {
+        this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s] deletions]", index), deletedDocs, LOGGER)
+          .setPluralLabel("documents");
+        this.progress.start();
+      } else {
+        this.progress = null;
+      }
+    }
+  }
+
   private final class BulkProcessorListener implements Listener {
     private final Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER);
 
@@ -208,6 +345,9 @@ public class BulkIndexer {
     @Override
     public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
       stopProfiler(request);
+      if (adaptiveBulkSize != null) {
+        adaptiveBulkSize.onResponse(response.getTook().getMillis());
+      }
       List<DocId> successDocIds = new ArrayList<>();
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
@@ -224,6 +364,9 @@ public class BulkIndexer {
     public void afterBulk(long executionId, BulkRequest request, Throwable e) {
       LOGGER.error("Fail to execute bulk index request: " + request, e);
       stopProfiler(request);
+      if (adaptiveBulkSize != null) {
+        adaptiveBulkSize.onFailure();
+      }
     }
 
     private void stopProfiler(BulkRequest request) {
@@ -355,6 +498,14 @@ public class BulkIndexer {
       return 0;
     }
 
+    /**
+     * @return {@code null} if bulk requests are flushed when reaching a fixed size
+     */
+    @CheckForNull
+    AdaptiveBulkSize createAdaptiveBulkSize() {
+      return null;
+    }
+
     void beforeStart(BulkIndexer bulkIndexer) {
       // nothing to do, to be overridden if needed
     }
@@ -369,6 +520,7 @@ public class BulkIndexer {
     private final Map<String, Object> initialSettings = new HashMap<>();
     private final Runtime2 runtime2;
     private ProgressLogger progress;
+    private long startTime;
 
     LargeSizeHandler(Runtime2 runtime2) {
       this.runtime2 = runtime2;
@@ -382,8 +534,14 @@ public class BulkIndexer {
       return Math.max(1, cores / DEFAULT_NUMBER_OF_SHARDS) - 1;
     }
 
+    @Override
+    AdaptiveBulkSize createAdaptiveBulkSize() {
+      return new AdaptiveBulkSize();
+    }
+
     @Override
     void beforeStart(BulkIndexer bulkIndexer) {
+      this.startTime = System.currentTimeMillis();
       String index = bulkIndexer.indexType.getMainType().getIndex().getName();
       this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s]]", index), bulkIndexer.result.total, LOGGER)
         .setPluralLabel("requests");
@@ -415,6 +573,11 @@ public class BulkIndexer {
 
       updateSettings(bulkIndexer, initialSettings);
       this.progress.stop();
+
+      long duration = System.currentTimeMillis() - startTime;
+      long requests = bulkIndexer.result.getTotal();
+      LOGGER.info("Index [{}]: {} requests processed in {} ({} requests/s)", bulkIndexer.indexType.getMainType().getIndex().getName(),
+        requests, TimeUtils.formatDuration(duration), requests * 1_000L / Math.max(1L, duration));
     }
 
     private static void updateSettings(BulkIndexer bulkIndexer, Map<String, Object> settings) {
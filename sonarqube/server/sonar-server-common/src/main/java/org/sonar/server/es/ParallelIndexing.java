@@ -0,0 +1,165 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.elasticsearch.action.DocWriteRequest;
+import org.sonar.api.config.Configuration;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Feeds a {@link BulkIndexer} from several sources read in parallel, for example ranges of rows of the same table.
+ * Each source is read by its own thread, while documents are converted into requests, which implies serializing
+ * them, by another pool of threads. Readers convert documents themselves when conversion does not keep up.
+ * <p>
+ * Number of readers and of converters is defined by the property {@link #PARALLELISM_PROPERTY}.
+ */
+public class ParallelIndexing {
+
+  public static final String PARALLELISM_PROPERTY = "sonar.search.indexing.parallelism";
+  private static final int BATCH_SIZE = 500;
+  private static final long TERMINATION_TIMEOUT_SECONDS = 30L;
+
+  private final int parallelism;
+
+  public ParallelIndexing(Configuration config) {
+    this(config.getInt(PARALLELISM_PROPERTY).orElse(defaultParallelism()));
+  }
+
+  private ParallelIndexing(int parallelism) {
+    checkArgument(parallelism > 0, "Indexing parallelism must be strictly positive: %s", parallelism);
+    this.parallelism = parallelism;
+  }
+
+  private static int defaultParallelism() {
+    return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Reads all the sources and adds the converted documents to the bulk indexer, which must be started. This method
+   * is blocking. If a source can't be read or a document can't be converted, then the reading of the other sources
+   * is interrupted and their iterators are closed before the failure is propagated.
+   *
+   * @param sources at most {@link #getParallelism()} sources are read at the same time
+   */
+  public <S, D, I extends Iterator<D> & AutoCloseable> void index(BulkIndexer bulkIndexer, Collection<S> sources, Function<S, I> reader,
+    Function<D, DocWriteRequest> converter) {
+    String index = bulkIndexer.getIndexType().getMainType().getIndex().getName();
+    ExecutorService readers = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, sources.size())), newThreadFactory(index + "-reader-%d"));
+    ExecutorService converters = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(2 * parallelism), newThreadFactory(index + "-converter-%d"), new ThreadPoolExecutor.CallerRunsPolicy());
+    Queue<Future<?>> conversions = new ConcurrentLinkedQueue<>();
+    try {
+      List<Future<?>> reads = new ArrayList<>(sources.size());
+      for (S source : sources) {
+        reads.add(readers.submit(() -> read(reader.apply(source),
+          batch -> conversions.add(converters.submit(() -> batch.forEach(doc -> bulkIndexer.add(converter.apply(doc))))))));
+      }
+      awaitAll(reads);
+      awaitAll(conversions);
+    } finally {
+      shutdown(readers);
+      shutdown(converters);
+    }
+  }
+
+  private static <D, I extends Iterator<D> & AutoCloseable> void read(I docs, Consumer<List<D>> batchConsumer) {
+    try (I iterator = docs) {
+      List<D> batch = new ArrayList<>(BATCH_SIZE);
+      while (iterator.hasNext()) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new IllegalStateException("Reading of documents has been interrupted");
+        }
+        batch.add(iterator.next());
+        if (batch.size() == BATCH_SIZE) {
+          batchConsumer.accept(batch);
+          batch = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      if (!batch.isEmpty()) {
+        batchConsumer.accept(batch);
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to close documents iterator", e);
+    }
+  }
+
+  private static void awaitAll(Collection<Future<?>> futures) {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Indexing has been interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to index documents", e.getCause());
+    }
+  }
+
+  /**
+   * Interrupts the running tasks and waits for them to complete, so that the iterators they read are closed
+   * when indexing returns.
+   */
+  private static void shutdown(ExecutorService executor) {
+    executor.shutdownNow();
+    // the interrupted status is restored once the tasks are completed
+    boolean interrupted = Thread.interrupted();
+    try {
+      executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      interrupted = true;
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static ThreadFactory newThreadFactory(String nameFormat) {
+    return new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat(nameFormat)
+      .build();
+  }
+}
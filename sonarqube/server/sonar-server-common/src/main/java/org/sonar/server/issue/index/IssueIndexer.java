@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Set;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -45,6 +46,7 @@ import org.sonar.server.es.IndexingListener;
 import org.sonar.server.es.IndexingResult;
 import org.sonar.server.es.OneToManyResilientIndexingListener;
 import org.sonar.server.es.OneToOneResilientIndexingListener;
+import org.sonar.server.es.ParallelIndexing;
 import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.permission.index.AuthorizationDoc;
 import org.sonar.server.permission.index.AuthorizationScope;
@@ -73,11 +75,13 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
   private final EsClient esClient;
   private final DbClient dbClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final ParallelIndexing parallelIndexing;
 
-  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory) {
+  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, Configuration config) {
     this.esClient = esClient;
     this.dbClient = dbClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.parallelIndexing = new ParallelIndexing(config);
   }
 
   @Override
@@ -92,9 +96,12 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
-    try (IssueIterator issues = issueIteratorFactory.createForAll()) {
-      doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
-    }
+    // issues are read by ranges of projects in parallel
+    List<ProjectUuidRange> ranges = issueIteratorFactory.splitAllProjects(parallelIndexing.getParallelism());
+    BulkIndexer bulkIndexer = createBulkIndexer(Size.LARGE, IndexingListener.FAIL_ON_ERROR);
+    bulkIndexer.start();
+    parallelIndexing.index(bulkIndexer, ranges, issueIteratorFactory::createForProjectUuidRange, this::newIndexRequest);
+    bulkIndexer.stop();
   }
 
   @Override
@@ -20,8 +20,10 @@
 package org.sonar.server.issue.index;
 
 import java.util.Collection;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
 
 public class IssueIteratorFactory {
 
@@ -39,6 +41,20 @@ public class IssueIteratorFactory {
     return new IssueIteratorForSingleChunk(dbClient, projectUuid, null);
   }
 
+  /**
+   * Splits the issues of all the projects in at most {@code count} ranges of project uuids, to be read
+   * independently with {@link #createForProjectUuidRange(ProjectUuidRange)}.
+   */
+  public List<ProjectUuidRange> splitAllProjects(int count) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return ProjectUuidRange.split(dbClient.branchDao().selectAllUuids(dbSession), count);
+    }
+  }
+
+  public IssueIterator createForProjectUuidRange(ProjectUuidRange projectUuidRange) {
+    return new IssueIteratorForSingleChunk(dbClient, projectUuidRange);
+  }
+
   public IssueIterator createForIssueKeys(Collection<String> issueKeys) {
     return new IssueIteratorForMultipleChunks(dbClient, issueKeys);
   }
@@ -88,6 +88,8 @@ class IssueIteratorForSingleChunk implements IssueIterator {
     "inner join components c on c.uuid = i.component_uuid ";
 
   private static final String PROJECT_FILTER = " and c.project_uuid = ? and i.project_uuid = ? ";
+  private static final String PROJECT_RANGE_FROM_FILTER = " and i.project_uuid >= ? ";
+  private static final String PROJECT_RANGE_TO_FILTER = " and i.project_uuid < ? ";
   private static final String ISSUE_KEY_FILTER_PREFIX = " and i.kee in (";
   private static final String ISSUE_KEY_FILTER_SUFFIX = ")";
 
@@ -102,14 +104,27 @@ class IssueIteratorForSingleChunk implements IssueIterator {
   @CheckForNull
   private final Collection<String> issueKeys;
 
+  @CheckForNull
+  private final ProjectUuidRange projectUuidRange;
+
   private final PreparedStatement stmt;
   private final ResultSetIterator<IssueDoc> iterator;
 
   IssueIteratorForSingleChunk(DbClient dbClient, @Nullable String projectUuid, @Nullable Collection<String> issueKeys) {
+    this(dbClient, projectUuid, issueKeys, null);
+  }
+
+  IssueIteratorForSingleChunk(DbClient dbClient, ProjectUuidRange projectUuidRange) {
+    this(dbClient, null, null, projectUuidRange);
+  }
+
+  private IssueIteratorForSingleChunk(DbClient dbClient, @Nullable String projectUuid, @Nullable Collection<String> issueKeys,
+    @Nullable ProjectUuidRange projectUuidRange) {
     checkArgument(issueKeys == null || issueKeys.size() <= DatabaseUtils.PARTITION_SIZE_FOR_ORACLE,
       "Cannot search for more than " + DatabaseUtils.PARTITION_SIZE_FOR_ORACLE + " issue keys at once. Please provide the keys in smaller chunks.");
     this.projectUuid = projectUuid;
     this.issueKeys = issueKeys;
+    this.projectUuidRange = projectUuidRange;
     this.session = dbClient.openSession(false);
 
     try {
@@ -145,6 +160,10 @@ class IssueIteratorForSingleChunk implements IssueIterator {
   private String createSql() {
     String sql = SQL_ALL;
     sql += projectUuid == null ? "" : PROJECT_FILTER;
+    if (projectUuidRange != null) {
+      sql += projectUuidRange.getFromInclusive().isPresent() ? PROJECT_RANGE_FROM_FILTER : "";
+      sql += projectUuidRange.getToExclusive().isPresent() ? PROJECT_RANGE_TO_FILTER : "";
+    }
     if (issueKeys != null && !issueKeys.isEmpty()) {
       sql += ISSUE_KEY_FILTER_PREFIX;
       sql += IntStream.range(0, issueKeys.size()).mapToObj(i -> "?").collect(Collectors.joining(","));
@@ -161,6 +180,16 @@ class IssueIteratorForSingleChunk implements IssueIterator {
       stmt.setString(index, projectUuid);
       index++;
     }
+    if (projectUuidRange != null) {
+      if (projectUuidRange.getFromInclusive().isPresent()) {
+        stmt.setString(index, projectUuidRange.getFromInclusive().get());
+        index++;
+      }
+      if (projectUuidRange.getToExclusive().isPresent()) {
+        stmt.setString(index, projectUuidRange.getToExclusive().get());
+        index++;
+      }
+    }
     if (issueKeys != null) {
       for (String key : issueKeys) {
         stmt.setString(index, key);
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Range of project uuids, lower bound included and upper bound excluded. Missing bounds are unlimited.
+ */
+public class ProjectUuidRange {
+
+  private final String fromInclusive;
+  private final String toExclusive;
+
+  ProjectUuidRange(@Nullable String fromInclusive, @Nullable String toExclusive) {
+    this.fromInclusive = fromInclusive;
+    this.toExclusive = toExclusive;
+  }
+
+  public Optional<String> getFromInclusive() {
+    return Optional.ofNullable(fromInclusive);
+  }
+
+  public Optional<String> getToExclusive() {
+    return Optional.ofNullable(toExclusive);
+  }
+
+  /**
+   * Splits the whole space of project uuids in at most {@code count} contiguous ranges, bounded by some of the given uuids,
+   * so that each range contains about the same number of these uuids. Whatever the uuids, every project belongs to
+   * exactly one range.
+   *
+   * @param sortedUuids uuids sorted by the database, as ranges are compared by the database
+   */
+  static List<ProjectUuidRange> split(List<String> sortedUuids, int count) {
+    checkArgument(count > 0, "Number of ranges must be strictly positive: %s", count);
+    int rangeSize = Math.max(1, (sortedUuids.size() + count - 1) / count);
+    List<ProjectUuidRange> ranges = new ArrayList<>(count);
+    String from = null;
+    for (int i = rangeSize; i < sortedUuids.size(); i += rangeSize) {
+      String to = sortedUuids.get(i);
+      ranges.add(new ProjectUuidRange(from, to));
+      from = to;
+    }
+    ranges.add(new ProjectUuidRange(from, null));
+    return ranges;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ProjectUuidRange that = (ProjectUuidRange) o;
+    return Objects.equals(fromInclusive, that.fromInclusive) && Objects.equals(toExclusive, that.toExclusive);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(fromInclusive, toExclusive);
+  }
+
+  @Override
+  public String toString() {
+    return "[" + fromInclusive + ", " + toExclusive + ")";
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveBulkSizeTest {
+
+  private AdaptiveBulkSize underTest = new AdaptiveBulkSize();
+
+  @Test
+  public void start_with_initial_size() {
+    assertThat(underTest.getBytes()).isEqualTo(AdaptiveBulkSize.INITIAL_BYTES);
+  }
+
+  @Test
+  public void grow_when_elasticsearch_responds_fast() {
+    underTest.onResponse(100L);
+
+    assertThat(underTest.getBytes()).isEqualTo(2 * AdaptiveBulkSize.INITIAL_BYTES);
+  }
+
+  @Test
+  public void keep_size_when_response_time_is_acceptable() {
+    underTest.onResponse(1_000L);
+
+    assertThat(underTest.getBytes()).isEqualTo(AdaptiveBulkSize.INITIAL_BYTES);
+  }
+
+  @Test
+  public void shrink_when_elasticsearch_responds_slowly_or_fails() {
+    underTest.onResponse(100L);
+    underTest.onResponse(100L);
+    underTest.onResponse(5_000L);
+
+    assertThat(underTest.getBytes()).isEqualTo(2 * AdaptiveBulkSize.INITIAL_BYTES);
+
+    underTest.onFailure();
+
+    assertThat(underTest.getBytes()).isEqualTo(AdaptiveBulkSize.INITIAL_BYTES);
+  }
+
+  @Test
+  public void size_is_bounded() {
+    for (int i = 0; i < 20; i++) {
+      underTest.onResponse(1L);
+    }
+    assertThat(underTest.getBytes()).isEqualTo(AdaptiveBulkSize.MAX_BYTES);
+
+    for (int i = 0; i < 20; i++) {
+      underTest.onFailure();
+    }
+    assertThat(underTest.getBytes()).isEqualTo(AdaptiveBulkSize.MIN_BYTES);
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.annotation.Nullable;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.es.BulkIndexer.Size;
+import org.sonar.server.es.newindex.FakeIndexDefinition;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.sonar.server.es.newindex.FakeIndexDefinition.INDEX;
+import static org.sonar.server.es.newindex.FakeIndexDefinition.TYPE_FAKE;
+
+/**
+ * Deletions by query on an index with several shards, which are scrolled in background
+ */
+public class BulkIndexerDeletionTest {
+
+  private static final int SHARDS = 3;
+  // more than a page of results per shard
+  private static final int DOCS = 5_000;
+
+  @Rule
+  public EsTester es = EsTester.createCustom(new FakeIndexDefinition().setShards(SHARDS));
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private final FakeListener listener = new FakeListener();
+
+  @Test
+  public void addDeletion_deletes_documents_of_all_slices() {
+    putDocuments(null);
+    List<String> ids = es.getIds(TYPE_FAKE);
+    assertThat(shards()).isEqualTo(SHARDS);
+
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR, listener);
+    indexer.start();
+    indexer.addDeletion(es.client().prepareSearch(TYPE_FAKE).setQuery(QueryBuilders.matchAllQuery()));
+    IndexingResult result = indexer.stop();
+
+    assertThat(es.countDocuments(TYPE_FAKE)).isZero();
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getTotal()).isEqualTo(DOCS);
+    assertThat(listener.calledDocIds).containsExactlyInAnyOrderElementsOf(toDocIds(ids));
+    assertThat(listener.calledResult).isSameAs(result);
+  }
+
+  @Test
+  public void addDeletion_with_routing_deletes_all_pages_before_stop() {
+    putDocuments("foo");
+    List<String> ids = es.getIds(TYPE_FAKE);
+
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR, listener);
+    indexer.start();
+    indexer.addDeletion(es.client().prepareSearch(TYPE_FAKE).setQuery(QueryBuilders.matchAllQuery()).setRouting("foo"));
+    IndexingResult result = indexer.stop();
+
+    assertThat(es.countDocuments(TYPE_FAKE)).isZero();
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(listener.calledDocIds).containsExactlyInAnyOrderElementsOf(toDocIds(ids));
+  }
+
+  @Test
+  public void addDeletion_does_not_delete_documents_added_afterwards() {
+    putDocuments(null);
+
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.addDeletion(es.client().prepareSearch(TYPE_FAKE).setQuery(QueryBuilders.matchAllQuery()));
+    indexer.add(new IndexRequest(INDEX, TYPE_FAKE.getType()).id("foo").source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, 42)));
+    indexer.stop();
+
+    assertThat(es.getIds(TYPE_FAKE)).containsExactly("foo");
+  }
+
+  @Test
+  public void failure_of_scroll_is_counted_as_failed_request() {
+    putDocuments(null);
+    EsClient client = spy(es.client());
+    doThrow(new IllegalStateException("scroll failure")).when(client).prepareSearchScroll(anyString());
+
+    BulkIndexer indexer = new BulkIndexer(client, TYPE_FAKE, Size.REGULAR, listener);
+    indexer.start();
+    indexer.addDeletion(client.prepareSearch(TYPE_FAKE).setQuery(QueryBuilders.matchAllQuery()));
+    IndexingResult result = indexer.stop();
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getFailures()).isEqualTo(SHARDS);
+    // the documents of the first page of each slice are deleted
+    assertThat(es.countDocuments(TYPE_FAKE)).isEqualTo(DOCS - result.getSuccess());
+    assertThat(listener.calledResult).isSameAs(result);
+    assertThat(logTester.logs(LoggerLevel.ERROR)).contains("Fail to delete documents of index [fakes] by query");
+  }
+
+  private void putDocuments(@Nullable String routing) {
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    for (int i = 0; i < DOCS; i++) {
+      indexer.add(new IndexRequest(INDEX, TYPE_FAKE.getType())
+        .routing(routing)
+        .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, i)));
+    }
+    indexer.stop();
+    assertThat(es.countDocuments(TYPE_FAKE)).isEqualTo(DOCS);
+  }
+
+  private static List<DocId> toDocIds(List<String> ids) {
+    return ids.stream().map(id -> new DocId(INDEX, TYPE_FAKE.getType(), id)).collect(toList());
+  }
+
+  private int shards() {
+    GetSettingsResponse settingsResp = es.client().nativeClient().admin().indices()
+      .prepareGetSettings(INDEX).get();
+    return Integer.parseInt(settingsResp.getSetting(INDEX, IndexMetaData.SETTING_NUMBER_OF_SHARDS));
+  }
+
+  private static class FakeListener implements IndexingListener {
+    private final Queue<DocId> calledDocIds = new ConcurrentLinkedQueue<>();
+    private volatile IndexingResult calledResult;
+
+    @Override
+    public void onSuccess(List<DocId> docIds) {
+      calledDocIds.addAll(docIds);
+    }
+
+    @Override
+    public void onFinish(IndexingResult result) {
+      calledResult = result;
+    }
+  }
+}
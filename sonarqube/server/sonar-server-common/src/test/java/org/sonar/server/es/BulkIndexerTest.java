@@ -119,6 +119,40 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(removeFrom);
   }
 
+  @Test
+  public void addDeletion_scrolls_all_pages_of_results_before_stop() {
+    int max = 2_500;
+    FakeDoc[] docs = new FakeDoc[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = FakeIndexDefinition.newDoc(i);
+    }
+    es.putDocuments(TYPE_FAKE, docs);
+    FakeListener listener = new FakeListener();
+
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR, listener);
+    indexer.start();
+    indexer.addDeletion(es.client().prepareSearch(TYPE_FAKE).setQuery(QueryBuilders.rangeQuery(FakeIndexDefinition.INT_FIELD).gte(100)));
+    IndexingResult result = indexer.stop();
+
+    assertThat(count()).isEqualTo(100);
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getTotal()).isEqualTo(max - 100);
+    assertThat(listener.calledDocIds).hasSize(max - 100);
+  }
+
+  @Test
+  public void addDeletion_does_not_delete_documents_added_afterwards() {
+    es.putDocuments(TYPE_FAKE, FakeIndexDefinition.newDoc(1), FakeIndexDefinition.newDoc(2));
+
+    BulkIndexer indexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.addDeletion(es.client().prepareSearch(TYPE_FAKE).setQuery(QueryBuilders.matchAllQuery()));
+    indexer.add(newIndexRequestWithDocId("foo"));
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(1);
+  }
+
   @Test
   public void listener_is_called_on_successful_requests() {
     FakeListener listener = new FakeListener();
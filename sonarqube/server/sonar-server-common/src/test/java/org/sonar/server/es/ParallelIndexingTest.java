@@ -0,0 +1,261 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.server.es.BulkIndexer.Size;
+import org.sonar.server.es.newindex.FakeIndexDefinition;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.sonar.server.es.ParallelIndexing.PARALLELISM_PROPERTY;
+import static org.sonar.server.es.newindex.FakeIndexDefinition.INDEX;
+import static org.sonar.server.es.newindex.FakeIndexDefinition.TYPE_FAKE;
+
+public class ParallelIndexingTest {
+
+  @Rule
+  public EsTester es = EsTester.createCustom(new FakeIndexDefinition());
+
+  private final Map<Integer, FakeIterator> iterators = new ConcurrentHashMap<>();
+  private final AtomicInteger openIterators = new AtomicInteger();
+  private final AtomicInteger maxOpenIterators = new AtomicInteger();
+  private final BulkIndexer bulkIndexer = new BulkIndexer(es.client(), TYPE_FAKE, Size.REGULAR);
+
+  @Test
+  public void parallelism_is_read_from_configuration() {
+    assertThat(newParallelIndexing(3).getParallelism()).isEqualTo(3);
+    assertThat(new ParallelIndexing(new MapSettings().asConfig()).getParallelism()).isBetween(1, 4);
+  }
+
+  @Test
+  public void fail_if_parallelism_is_not_strictly_positive() {
+    Throwable thrown = catchThrowable(() -> newParallelIndexing(0));
+
+    assertThat(thrown)
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Indexing parallelism must be strictly positive: 0");
+  }
+
+  @Test
+  public void index_sources_when_more_sources_than_readers() {
+    List<Integer> sources = asList(0, 1, 2, 3, 4, 5, 6);
+    bulkIndexer.start();
+
+    newParallelIndexing(2).index(bulkIndexer, sources, source -> open(source, new FakeIterator(1_200)), ParallelIndexingTest::newIndexRequest);
+
+    IndexingResult result = bulkIndexer.stop();
+    assertThat(result.getTotal()).isEqualTo(7 * 1_200L);
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(es.countDocuments(TYPE_FAKE)).isEqualTo(7 * 1_200L);
+    assertThat(iterators.keySet()).containsOnlyElementsOf(sources).hasSize(sources.size());
+    assertThat(iterators.values()).allMatch(FakeIterator::isClosed);
+    assertThat(maxOpenIterators.get()).isBetween(1, 2);
+  }
+
+  @Test
+  public void index_nothing_if_no_sources() {
+    bulkIndexer.start();
+
+    newParallelIndexing(2).index(bulkIndexer, new ArrayList<Integer>(), source -> open(source, new FakeIterator(10)), ParallelIndexingTest::newIndexRequest);
+
+    assertThat(bulkIndexer.stop().getTotal()).isZero();
+  }
+
+  @Test
+  public void propagate_failure_of_reader_and_close_other_iterators() {
+    CountDownLatch allOpened = new CountDownLatch(2);
+    Function<Integer, FakeIterator> reader = source -> {
+      FakeIterator iterator = source == 0 ? new FailingIterator(allOpened) : new BlockingIterator();
+      open(source, iterator);
+      allOpened.countDown();
+      return iterator;
+    };
+    bulkIndexer.start();
+
+    Throwable thrown = catchThrowable(() -> newParallelIndexing(2).index(bulkIndexer, asList(0, 1), reader, ParallelIndexingTest::newIndexRequest));
+
+    assertThat(thrown)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to index documents")
+      .hasRootCauseMessage("Fail to read document");
+    assertThat(iterators.keySet()).containsOnly(0, 1);
+    assertThat(iterators.values()).allMatch(FakeIterator::isClosed);
+  }
+
+  @Test
+  public void propagate_failure_of_converter() {
+    Function<Integer, DocWriteRequest> converter = doc -> {
+      if (doc == 42) {
+        throw new IllegalArgumentException("Fail to convert document");
+      }
+      return newIndexRequest(doc);
+    };
+    bulkIndexer.start();
+
+    Throwable thrown = catchThrowable(() -> newParallelIndexing(2).index(bulkIndexer, asList(0, 1, 2), source -> open(source, new FakeIterator(100)), converter));
+
+    assertThat(thrown)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Fail to index documents")
+      .hasRootCauseMessage("Fail to convert document");
+    assertThat(iterators.values()).allMatch(FakeIterator::isClosed);
+  }
+
+  @Test
+  public void interrupt_reading_of_sources_when_calling_thread_is_interrupted() throws InterruptedException {
+    CountDownLatch opened = new CountDownLatch(1);
+    AtomicReference<Throwable> thrown = new AtomicReference<>();
+    bulkIndexer.start();
+    Thread indexing = new Thread(() -> {
+      try {
+        newParallelIndexing(2).index(bulkIndexer, asList(0), source -> {
+          FakeIterator iterator = open(source, new BlockingIterator());
+          opened.countDown();
+          return iterator;
+        }, ParallelIndexingTest::newIndexRequest);
+      } catch (Throwable e) {
+        thrown.set(e);
+      }
+    });
+    indexing.start();
+    assertThat(opened.await(10, TimeUnit.SECONDS)).isTrue();
+
+    indexing.interrupt();
+    indexing.join(10_000L);
+
+    assertThat(indexing.isAlive()).isFalse();
+    assertThat(thrown.get())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Indexing has been interrupted");
+    assertThat(iterators.get(0).isClosed()).isTrue();
+  }
+
+  private static ParallelIndexing newParallelIndexing(int parallelism) {
+    return new ParallelIndexing(new MapSettings().setProperty(PARALLELISM_PROPERTY, String.valueOf(parallelism)).asConfig());
+  }
+
+  private FakeIterator open(int source, FakeIterator iterator) {
+    iterators.put(source, iterator);
+    maxOpenIterators.accumulateAndGet(openIterators.incrementAndGet(), Math::max);
+    iterator.onClose = openIterators::decrementAndGet;
+    return iterator;
+  }
+
+  private static DocWriteRequest newIndexRequest(int doc) {
+    return new IndexRequest(INDEX, TYPE_FAKE.getType())
+      .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, doc));
+  }
+
+  private static class FakeIterator implements Iterator<Integer>, AutoCloseable {
+    private final int size;
+    private int next = 0;
+    private volatile boolean closed = false;
+    Runnable onClose = () -> {
+    };
+
+    private FakeIterator(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < size;
+    }
+
+    @Override
+    public Integer next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int doc = next;
+      next++;
+      return doc;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      onClose.run();
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+  }
+
+  /**
+   * Fails once all the iterators are opened
+   */
+  private static class FailingIterator extends FakeIterator {
+    private final CountDownLatch allOpened;
+
+    private FailingIterator(CountDownLatch allOpened) {
+      super(Integer.MAX_VALUE);
+      this.allOpened = allOpened;
+    }
+
+    @Override
+    public Integer next() {
+      try {
+        allOpened.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IllegalStateException("Fail to read document");
+    }
+  }
+
+  /**
+   * Waits for documents, like a slow database, until the thread is interrupted
+   */
+  private static class BlockingIterator extends FakeIterator {
+    private BlockingIterator() {
+      super(0);
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+  }
+}
@@ -31,6 +31,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
@@ -58,6 +59,7 @@ import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.rules.ExpectedException.none;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.server.es.ParallelIndexing.PARALLELISM_PROPERTY;
 import static org.sonar.server.issue.IssueDocTesting.newDoc;
 import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_ISSUE;
 import static org.sonar.server.permission.index.IndexAuthorizationConstants.TYPE_AUTHORIZATION;
@@ -75,7 +77,7 @@ public class IssueIndexerTest {
   public LogTester logTester = new LogTester();
 
   private OrganizationDto organization;
-  private IssueIndexer underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()));
+  private IssueIndexer underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), new MapSettings().asConfig());
 
   @Before
   public void setUp() {
@@ -110,6 +112,21 @@ public class IssueIndexerTest {
     assertThatIndexHasOnly(issue1, issue2);
   }
 
+  @Test
+  public void indexOnStartup_reads_ranges_of_projects_in_parallel() {
+    IssueIndexer underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()),
+      new MapSettings().setProperty(PARALLELISM_PROPERTY, "3").asConfig());
+    IssueDto[] issues = new IssueDto[7];
+    for (int i = 0; i < issues.length; i++) {
+      ComponentDto project = db.components().insertPrivateProject(organization);
+      issues[i] = db.issues().insert(db.rules().insert(), project, project);
+    }
+
+    underTest.indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issues);
+  }
+
   @Test
   public void verify_indexed_fields() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -480,7 +497,7 @@ public class IssueIndexerTest {
     IssueDoc issueDoc = new IssueDoc();
     issueDoc.setKey("key");
     issueDoc.setProjectUuid("parent-does-not-exist");
-    new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()))
+    new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), new MapSettings().asConfig())
       .index(asList(issueDoc).iterator());
 
     assertThat(es.countDocuments(TYPE_ISSUE)).isEqualTo(1L);
@@ -23,6 +23,8 @@ import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 import org.junit.Rule;
@@ -153,6 +155,27 @@ public class IssueIteratorFactoryTest {
       .isEmpty();
   }
 
+  @Test
+  public void iterator_over_issues_from_ranges_of_projects() {
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    OrganizationDto organization = dbTester.organizations().insert();
+    ComponentDto project1 = dbTester.components().insertPrivateProject(organization);
+    ComponentDto project2 = dbTester.components().insertPrivateProject(organization);
+    ComponentDto project3 = dbTester.components().insertPrivateProject(organization);
+    String[] issueKeys = Stream.of(project1, project2, project3)
+      .map(project -> dbTester.issues().insert(rule, project, project).getKey())
+      .toArray(String[]::new);
+
+    List<ProjectUuidRange> ranges = new IssueIteratorFactory(dbTester.getDbClient()).splitAllProjects(2);
+
+    assertThat(ranges).hasSize(2);
+    Map<String, IssueDoc> issuesByKey = new HashMap<>();
+    ranges.forEach(range -> issuesByKey.putAll(issuesByKey(factory -> factory.createForProjectUuidRange(range))));
+    assertThat(issuesByKey.keySet()).containsOnly(issueKeys);
+    assertThat(issuesByKey(factory -> factory.createForProjectUuidRange(ranges.get(0))))
+      .hasSize(2);
+  }
+
   @Test
   public void extract_directory_path() {
     RuleDefinitionDto rule = dbTester.rules().insert();
@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectUuidRangeTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void split_in_ranges_of_same_size() {
+    assertThat(ProjectUuidRange.split(asList("a", "b", "c", "d", "e", "f"), 3))
+      .containsExactly(new ProjectUuidRange(null, "c"), new ProjectUuidRange("c", "e"), new ProjectUuidRange("e", null));
+  }
+
+  @Test
+  public void last_range_is_smaller_if_uuids_can_not_be_split_evenly() {
+    assertThat(ProjectUuidRange.split(asList("a", "b", "c", "d", "e"), 2))
+      .containsExactly(new ProjectUuidRange(null, "d"), new ProjectUuidRange("d", null));
+  }
+
+  @Test
+  public void split_in_less_ranges_than_requested_if_not_enough_uuids() {
+    assertThat(ProjectUuidRange.split(asList("a", "b"), 4))
+      .containsExactly(new ProjectUuidRange(null, "b"), new ProjectUuidRange("b", null));
+  }
+
+  @Test
+  public void single_unbounded_range_if_no_uuids() {
+    assertThat(ProjectUuidRange.split(Collections.emptyList(), 4))
+      .containsExactly(new ProjectUuidRange(null, null));
+  }
+
+  @Test
+  public void fail_if_count_is_not_strictly_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Number of ranges must be strictly positive: 0");
+
+    ProjectUuidRange.split(asList("a", "b"), 0);
+  }
+}
@@ -38,15 +38,21 @@ public class FakeIndexDefinition implements IndexDefinition {
   public static final String INT_FIELD = "intField";
 
   private int replicas = 0;
+  private int shards = 1;
 
   public FakeIndexDefinition setReplicas(int replicas) {
     this.replicas = replicas;
     return this;
   }
 
+  public FakeIndexDefinition setShards(int shards) {
+    this.shards = shards;
+    return this;
+  }
+
   @Override
   public void define(IndexDefinitionContext context) {
-    NewIndex index = context.create(DESCRIPTOR, newBuilder(new MapSettings().asConfig()).build());
+    NewIndex index = context.create(DESCRIPTOR, newBuilder(new MapSettings().asConfig()).setDefaultNbOfShards(shards).build());
     index.getSettings().put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, replicas);
     index.getSettings().put("index.refresh_interval", "-1");
     index.createTypeMapping(TYPE_FAKE)
@@ -41,6 +41,8 @@ public class AuthenticationModule extends Module {
       OAuth2AuthenticationParametersImpl.class,
       CredentialsAuthentication.class,
       CredentialsLocalAuthentication.class,
+      VerifiedCredentialsCache.class,
+      VerifiedCredentialsCacheSection.class,
       CredentialsExternalAuthentication.class,
       BasicAuthentication.class,
       HttpHeadersAuthentication.class,
@@ -41,12 +41,14 @@ import static java.util.Objects.requireNonNull;
 public class CredentialsLocalAuthentication {
 
   private final DbClient dbClient;
+  private final VerifiedCredentialsCache verifiedCredentials;
   private static final SecureRandom SECURE_RANDOM = new SecureRandom();
   // The default hash method that must be used is BCRYPT
   private static final HashMethod DEFAULT = HashMethod.BCRYPT;
 
-  public CredentialsLocalAuthentication(DbClient dbClient) {
+  public CredentialsLocalAuthentication(DbClient dbClient, VerifiedCredentialsCache verifiedCredentials) {
     this.dbClient = dbClient;
+    this.verifiedCredentials = verifiedCredentials;
   }
 
   /**
@@ -75,6 +77,12 @@ public class CredentialsLocalAuthentication {
         .build();
     }
 
+    // only the verifications of the default hash method are cached, as passwords using other methods are upgraded
+    boolean cacheable = hashMethod == DEFAULT && password != null;
+    if (cacheable && verifiedCredentials.isVerified(user, password)) {
+      return;
+    }
+
     AuthenticationResult result = hashMethod.checkCredentials(user, password);
     if (!result.isSuccessful()) {
       throw AuthenticationException.newBuilder()
@@ -83,6 +91,9 @@ public class CredentialsLocalAuthentication {
         .setMessage(result.getFailureMessage())
         .build();
     }
+    if (cacheable) {
+      verifiedCredentials.setVerified(user, password);
+    }
 
     // Upgrade the password if it's an old hashMethod
     if (hashMethod != DEFAULT) {
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -50,6 +51,7 @@ import org.sonar.server.organization.MemberUpdater;
 import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.server.user.ExternalIdentity;
 import org.sonar.server.user.NewUser;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UpdateUser;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.UserUpdater;
@@ -57,6 +59,7 @@ import org.sonar.server.usergroups.DefaultGroupFinder;
 
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
 public class UserRegistrarImpl implements UserRegistrar {
@@ -70,28 +73,40 @@ public class UserRegistrarImpl implements UserRegistrar {
   private final OrganizationFlags organizationFlags;
   private final DefaultGroupFinder defaultGroupFinder;
   private final MemberUpdater memberUpdater;
+  private final PermissionCache permissionCache;
 
   public UserRegistrarImpl(DbClient dbClient, UserUpdater userUpdater, DefaultOrganizationProvider defaultOrganizationProvider, OrganizationFlags organizationFlags,
-    DefaultGroupFinder defaultGroupFinder, MemberUpdater memberUpdater) {
+    DefaultGroupFinder defaultGroupFinder, MemberUpdater memberUpdater, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.userUpdater = userUpdater;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.organizationFlags = organizationFlags;
     this.defaultGroupFinder = defaultGroupFinder;
     this.memberUpdater = memberUpdater;
+    this.permissionCache = permissionCache;
   }
 
   @Override
   public UserDto register(UserRegistration registration) {
+    AtomicBoolean groupsChanged = new AtomicBoolean(false);
+    UserDto user = register(registration, groupsChanged);
+    // groups and organizations are synchronized before commit, the permissions of the user are loaded again once committed
+    if (groupsChanged.get()) {
+      permissionCache.invalidate();
+    }
+    return user;
+  }
+
+  private UserDto register(UserRegistration registration, AtomicBoolean groupsChanged) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       UserDto userDto = getUser(dbSession, registration.getUserIdentity(), registration.getProvider());
       if (userDto == null) {
-        return registerNewUser(dbSession, null, registration);
+        return registerNewUser(dbSession, null, registration, groupsChanged);
       }
       if (!userDto.isActive()) {
-        return registerNewUser(dbSession, userDto, registration);
+        return registerNewUser(dbSession, userDto, registration, groupsChanged);
       }
-      return registerExistingUser(dbSession, userDto, registration);
+      return registerExistingUser(dbSession, userDto, registration, groupsChanged);
     }
   }
 
@@ -106,16 +121,17 @@ public class UserRegistrarImpl implements UserRegistrar {
     return dbClient.userDao().selectByExternalLoginAndIdentityProvider(dbSession, userIdentity.getProviderLogin(), provider.getKey());
   }
 
-  private UserDto registerNewUser(DbSession dbSession, @Nullable UserDto disabledUser, UserRegistration authenticatorParameters) {
+  private UserDto registerNewUser(DbSession dbSession, @Nullable UserDto disabledUser, UserRegistration authenticatorParameters, AtomicBoolean groupsChanged) {
     Optional<UserDto> otherUserToIndex = detectEmailUpdate(dbSession, authenticatorParameters);
     NewUser newUser = createNewUser(authenticatorParameters);
     if (disabledUser == null) {
-      return userUpdater.createAndCommit(dbSession, newUser, beforeCommit(dbSession, true, authenticatorParameters), toArray(otherUserToIndex));
+      return userUpdater.createAndCommit(dbSession, newUser, beforeCommit(dbSession, true, authenticatorParameters, groupsChanged), toArray(otherUserToIndex));
     }
-    return userUpdater.reactivateAndCommit(dbSession, disabledUser, newUser, beforeCommit(dbSession, true, authenticatorParameters), toArray(otherUserToIndex));
+    return userUpdater.reactivateAndCommit(dbSession, disabledUser, newUser, beforeCommit(dbSession, true, authenticatorParameters, groupsChanged),
+      toArray(otherUserToIndex));
   }
 
-  private UserDto registerExistingUser(DbSession dbSession, UserDto userDto, UserRegistration authenticatorParameters) {
+  private UserDto registerExistingUser(DbSession dbSession, UserDto userDto, UserRegistration authenticatorParameters, AtomicBoolean groupsChanged) {
     UpdateUser update = new UpdateUser()
       .setEmail(authenticatorParameters.getUserIdentity().getEmail())
       .setName(authenticatorParameters.getUserIdentity().getName())
@@ -124,14 +140,18 @@ public class UserRegistrarImpl implements UserRegistrar {
         authenticatorParameters.getUserIdentity().getProviderLogin(),
         authenticatorParameters.getUserIdentity().getProviderId()));
     Optional<UserDto> otherUserToIndex = detectEmailUpdate(dbSession, authenticatorParameters);
-    userUpdater.updateAndCommit(dbSession, userDto, update, beforeCommit(dbSession, false, authenticatorParameters), toArray(otherUserToIndex));
+    userUpdater.updateAndCommit(dbSession, userDto, update, beforeCommit(dbSession, false, authenticatorParameters, groupsChanged), toArray(otherUserToIndex));
     return userDto;
   }
 
-  private Consumer<UserDto> beforeCommit(DbSession dbSession, boolean isNewUser, UserRegistration authenticatorParameters) {
+  private Consumer<UserDto> beforeCommit(DbSession dbSession, boolean isNewUser, UserRegistration authenticatorParameters, AtomicBoolean groupsChanged) {
     return user -> {
-      syncGroups(dbSession, authenticatorParameters.getUserIdentity(), user);
-      synchronizeOrganizationMembership(dbSession, user, authenticatorParameters, isNewUser);
+      if (syncGroups(dbSession, authenticatorParameters.getUserIdentity(), user)) {
+        groupsChanged.set(true);
+      }
+      if (synchronizeOrganizationMembership(dbSession, user, authenticatorParameters, isNewUser)) {
+        groupsChanged.set(true);
+      }
     };
   }
 
@@ -174,9 +194,12 @@ public class UserRegistrarImpl implements UserRegistrar {
         || Objects.equals(existingUser.getExternalLogin(), authenticatorParameters.getUserIdentity().getProviderLogin())));
   }
 
-  private void syncGroups(DbSession dbSession, UserIdentity userIdentity, UserDto userDto) {
+  /**
+   * @return whether groups were added to or removed from the user
+   */
+  private boolean syncGroups(DbSession dbSession, UserIdentity userIdentity, UserDto userDto) {
     if (!userIdentity.shouldSyncGroups()) {
-      return;
+      return false;
     }
     String userLogin = userDto.getLogin();
     Set<String> userGroups = new HashSet<>(dbClient.groupMembershipDao().selectGroupsByLogins(dbSession, singletonList(userLogin)).get(userLogin));
@@ -192,45 +215,53 @@ public class UserRegistrarImpl implements UserRegistrar {
       .stream()
       .collect(uniqueIndex(GroupDto::getName));
 
-    addGroups(dbSession, userDto, groupsToAdd, groupsByName);
-    removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
+    boolean added = addGroups(dbSession, userDto, groupsToAdd, groupsByName);
+    boolean removed = removeGroups(dbSession, userDto, groupsToRemove, groupsByName);
+    return added || removed;
   }
 
-  private void addGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToAdd, Map<String, GroupDto> groupsByName) {
-    groupsToAdd.stream().map(groupsByName::get).filter(Objects::nonNull).forEach(
+  private boolean addGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToAdd, Map<String, GroupDto> groupsByName) {
+    List<GroupDto> groups = groupsToAdd.stream().map(groupsByName::get).filter(Objects::nonNull).collect(toList());
+    groups.forEach(
       groupDto -> {
         LOGGER.debug("Adding group '{}' to user '{}'", groupDto.getName(), userDto.getLogin());
         dbClient.userGroupDao().insert(dbSession, new UserGroupDto().setGroupId(groupDto.getId()).setUserId(userDto.getId()));
       });
+    return !groups.isEmpty();
   }
 
-  private void removeGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToRemove, Map<String, GroupDto> groupsByName) {
+  private boolean removeGroups(DbSession dbSession, UserDto userDto, Collection<String> groupsToRemove, Map<String, GroupDto> groupsByName) {
     Optional<GroupDto> defaultGroup = getDefaultGroup(dbSession);
-    groupsToRemove.stream().map(groupsByName::get)
+    List<GroupDto> groups = groupsToRemove.stream().map(groupsByName::get)
       .filter(Objects::nonNull)
       // user should be member of default group only when organizations are disabled, as the IdentityProvider API doesn't handle yet
       // organizations
       .filter(group -> !defaultGroup.isPresent() || !group.getId().equals(defaultGroup.get().getId()))
-      .forEach(groupDto -> {
-        LOGGER.debug("Removing group '{}' from user '{}'", groupDto.getName(), userDto.getLogin());
-        dbClient.userGroupDao().delete(dbSession, groupDto.getId(), userDto.getId());
-      });
+      .collect(toList());
+    groups.forEach(groupDto -> {
+      LOGGER.debug("Removing group '{}' from user '{}'", groupDto.getName(), userDto.getLogin());
+      dbClient.userGroupDao().delete(dbSession, groupDto.getId(), userDto.getId());
+    });
+    return !groups.isEmpty();
   }
 
   private Optional<GroupDto> getDefaultGroup(DbSession dbSession) {
     return organizationFlags.isEnabled(dbSession) ? Optional.empty() : Optional.of(defaultGroupFinder.findDefaultGroup(dbSession, defaultOrganizationProvider.get().getUuid()));
   }
 
-  private void synchronizeOrganizationMembership(DbSession dbSession, UserDto userDto, UserRegistration authenticatorParameters, boolean isNewUser) {
+  /**
+   * @return whether the user was added to or removed from organizations
+   */
+  private boolean synchronizeOrganizationMembership(DbSession dbSession, UserDto userDto, UserRegistration authenticatorParameters, boolean isNewUser) {
     Set<String> almOrganizationIds = authenticatorParameters.getOrganizationAlmIds();
     if (almOrganizationIds == null || !isNewUser || !organizationFlags.isEnabled(dbSession)) {
-      return;
+      return false;
     }
     UserSession.IdentityProvider identityProvider = UserSession.IdentityProvider.getFromKey(authenticatorParameters.getProvider().getKey());
     if (identityProvider != UserSession.IdentityProvider.GITHUB) {
-      return;
+      return false;
     }
-    memberUpdater.synchronizeUserOrganizationMembership(dbSession, userDto, ALM.GITHUB, almOrganizationIds);
+    return memberUpdater.synchronizeUserOrganizationMembership(dbSession, userDto, ALM.GITHUB, almOrganizationIds);
   }
 
   private static NewUser createNewUser(UserRegistration authenticatorParameters) {
@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.authentication;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import org.sonar.db.user.UserDto;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Successful verifications of the password of local users, so that clients sending the same credentials on every
+ * request, like with HTTP Basic authentication, don't pay the cost of bcrypt each time.
+ * <p>
+ * Entries are keyed by a HMAC of the user, of the hash of its password stored in database and of the password sent,
+ * with a secret generated at startup, so that passwords are never kept in memory. Changing the password of a user
+ * changes its stored hash, hence its previous entries are not used anymore, even when the password is changed by another
+ * node of the cluster. Deactivated users are not verified anymore, as their credentials are never checked. Entries also
+ * expire after a short delay.
+ */
+public class VerifiedCredentialsCache {
+
+  private static final long TTL_SECONDS = 60;
+  private static final long MAX_SIZE = 10_000;
+
+  private final HashFunction hmac;
+  private final Cache<HashCode, Boolean> verified;
+
+  public VerifiedCredentialsCache() {
+    this(TTL_SECONDS, TimeUnit.SECONDS, MAX_SIZE, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  VerifiedCredentialsCache(long ttl, TimeUnit ttlUnit, long maxSize, Ticker ticker) {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.hmac = Hashing.hmacSha256(secret);
+    this.verified = CacheBuilder.newBuilder()
+      .expireAfterWrite(ttl, ttlUnit)
+      .maximumSize(maxSize)
+      .ticker(ticker)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Whether the given password was successfully verified against the password of the user stored in database
+   */
+  public boolean isVerified(UserDto user, String password) {
+    return verified.getIfPresent(key(user, password)) != null;
+  }
+
+  public void setVerified(UserDto user, String password) {
+    verified.put(key(user, password), Boolean.TRUE);
+  }
+
+  public CacheStats stats() {
+    return verified.stats();
+  }
+
+  public long size() {
+    return verified.size();
+  }
+
+  private HashCode key(UserDto user, String password) {
+    return hmac.newHasher()
+      .putString(user.getUuid(), UTF_8)
+      .putByte((byte) 0)
+      .putString(String.valueOf(user.getCryptedPassword()), UTF_8)
+      .putByte((byte) 0)
+      .putString(password, UTF_8)
+      .hash();
+  }
+}
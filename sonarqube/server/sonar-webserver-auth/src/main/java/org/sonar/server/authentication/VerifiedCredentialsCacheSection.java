@@ -0,0 +1,50 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.authentication;
+
+import com.google.common.cache.CacheStats;
+import org.sonar.process.systeminfo.SystemInfoSection;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo.Section;
+
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Statistics of the {@link VerifiedCredentialsCache} of the node
+ */
+public class VerifiedCredentialsCacheSection implements SystemInfoSection {
+
+  private final VerifiedCredentialsCache cache;
+
+  public VerifiedCredentialsCacheSection(VerifiedCredentialsCache cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public Section toProtobuf() {
+    Section.Builder protobuf = Section.newBuilder();
+    protobuf.setName("Web Credentials Cache");
+    CacheStats stats = cache.stats();
+    setAttribute(protobuf, "Size", cache.size());
+    setAttribute(protobuf, "Hits", stats.hitCount());
+    setAttribute(protobuf, "Misses", stats.missCount());
+    setAttribute(protobuf, "Evictions", stats.evictionCount());
+    return protobuf.build();
+  }
+}
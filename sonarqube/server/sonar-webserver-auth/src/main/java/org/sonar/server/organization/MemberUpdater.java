@@ -31,6 +31,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.organization.OrganizationMemberDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
 
@@ -49,11 +50,13 @@ public class MemberUpdater {
   private final DbClient dbClient;
   private final DefaultGroupFinder defaultGroupFinder;
   private final UserIndexer userIndexer;
+  private final PermissionCache permissionCache;
 
-  public MemberUpdater(DbClient dbClient, DefaultGroupFinder defaultGroupFinder, UserIndexer userIndexer) {
+  public MemberUpdater(DbClient dbClient, DefaultGroupFinder defaultGroupFinder, UserIndexer userIndexer, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.defaultGroupFinder = defaultGroupFinder;
     this.userIndexer = userIndexer;
+    this.permissionCache = permissionCache;
   }
 
   public void addMember(DbSession dbSession, OrganizationDto organization, UserDto user) {
@@ -71,6 +74,7 @@ public class MemberUpdater {
     }
     usersToAdd.forEach(u -> addMemberInDb(dbSession, organization, u));
     userIndexer.commitAndIndex(dbSession, usersToAdd);
+    permissionCache.invalidate();
   }
 
   private void addMemberInDb(DbSession dbSession, OrganizationDto organization, UserDto user) {
@@ -101,13 +105,17 @@ public class MemberUpdater {
 
     usersToRemove.forEach(u -> removeMemberInDb(dbSession, organization, u));
     userIndexer.commitAndIndex(dbSession, usersToRemove);
+    permissionCache.invalidate();
   }
 
   /**
    * Synchronize organization membership of a user from a list of ALM organization specific ids
    * Please note that no commit will not be executed.
+   *
+   * @return whether the user was added to or removed from organizations, in which case the {@link PermissionCache}
+   * must be invalidated once committed
    */
-  public void synchronizeUserOrganizationMembership(DbSession dbSession, UserDto user, ALM alm, Set<String> organizationAlmIds) {
+  public boolean synchronizeUserOrganizationMembership(DbSession dbSession, UserDto user, ALM alm, Set<String> organizationAlmIds) {
     Set<String> userOrganizationUuids = dbClient.organizationMemberDao().selectOrganizationUuidsByUser(dbSession, user.getId());
     Set<String> userOrganizationUuidsWithMembersSyncEnabled = dbClient.organizationAlmBindingDao().selectByOrganizationUuids(dbSession, userOrganizationUuids).stream()
       .filter(OrganizationAlmBindingDto::isMembersSyncEnable)
@@ -130,6 +138,7 @@ public class MemberUpdater {
     allOrganizationsByUuid.entrySet().stream()
       .filter(entry -> organizationUuidsToBeRemoved.contains(entry.getKey()))
       .forEach(entry -> removeMemberInDb(dbSession, entry.getValue(), user));
+    return !allOrganizationsByUuid.isEmpty();
   }
 
   private void removeMemberInDb(DbSession dbSession, OrganizationDto organization, UserDto user) {
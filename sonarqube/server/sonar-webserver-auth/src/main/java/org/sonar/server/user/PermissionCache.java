@@ -0,0 +1,157 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+
+/**
+ * Permissions of users on projects and organizations, shared by the requests of all users so that the permissions
+ * loaded by a request are reused by the next ones.
+ * <p>
+ * The cache is versioned: changes of permissions, of permission templates applied to projects, of group membership
+ * (including the groups synchronized at authentication and the deactivation of users), of organization membership
+ * (including the deletion of organizations) and of project visibility done by this node call {@link #invalidate()}
+ * once committed, which increments the version. Entries loaded
+ * with a previous version are ignored, including the ones that were being loaded while the version changed. Changes
+ * done by other nodes of a cluster are taken into account when entries expire, a short delay after being loaded.
+ * <p>
+ * The number of entries is bounded by an estimation of the memory they use, configured by
+ * {@link #MAX_MEMORY_PROPERTY}. The cache is disabled when set to 0.
+ */
+@ServerSide
+public class PermissionCache {
+
+  public static final String MAX_MEMORY_PROPERTY = "sonar.web.permissionCache.maxMemoryInMb";
+  private static final int DEFAULT_MAX_MEMORY_IN_MB = 16;
+  private static final long TTL_SECONDS = 30;
+
+  // estimations of the memory used by an entry, its key and each permission of its set
+  private static final int ENTRY_BYTES = 128;
+  private static final int BYTES_PER_CHAR = 2;
+  private static final int PERMISSION_BYTES = 32;
+
+  private final AtomicLong version = new AtomicLong();
+  @CheckForNull
+  private final Cache<String, Entry> entries;
+
+  public PermissionCache(Configuration config) {
+    this(1024L * 1024L * config.getInt(MAX_MEMORY_PROPERTY).orElse(DEFAULT_MAX_MEMORY_IN_MB), TTL_SECONDS, TimeUnit.SECONDS, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  PermissionCache(long maxMemoryInBytes, long ttl, TimeUnit ttlUnit, Ticker ticker) {
+    if (maxMemoryInBytes <= 0) {
+      this.entries = null;
+    } else {
+      this.entries = CacheBuilder.newBuilder()
+        .maximumWeight(maxMemoryInBytes)
+        .weigher((String key, Entry entry) -> ENTRY_BYTES + BYTES_PER_CHAR * key.length() + PERMISSION_BYTES * entry.permissions.size())
+        .expireAfterWrite(ttl, ttlUnit)
+        .ticker(ticker)
+        .recordStats()
+        .build();
+    }
+  }
+
+  /**
+   * A cache that doesn't keep any permission
+   */
+  public static PermissionCache disabled() {
+    return new PermissionCache(0, TTL_SECONDS, TimeUnit.SECONDS, Ticker.systemTicker());
+  }
+
+  /**
+   * Permissions of a user, or of anonymous when {@code userId} is null, on a project
+   */
+  Set<String> getProjectPermissions(@Nullable Integer userId, String projectUuid, Supplier<Set<String>> loader) {
+    return get("project:" + userKey(userId) + ':' + projectUuid, loader);
+  }
+
+  /**
+   * Permissions of a user, or of anonymous when {@code userId} is null, on an organization
+   */
+  Set<String> getOrganizationPermissions(@Nullable Integer userId, String organizationUuid, Supplier<Set<String>> loader) {
+    return get("organization:" + userKey(userId) + ':' + organizationUuid, loader);
+  }
+
+  /**
+   * Drops all the permissions, which will be loaded again on next use
+   */
+  public void invalidate() {
+    version.incrementAndGet();
+    if (entries != null) {
+      entries.invalidateAll();
+    }
+  }
+
+  /**
+   * Incremented each time the permissions are changed on this node, see {@link #invalidate()}
+   */
+  public long version() {
+    return version.get();
+  }
+
+  public CacheStats stats() {
+    return entries == null ? new CacheStats(0, 0, 0, 0, 0, 0) : entries.stats();
+  }
+
+  private Set<String> get(String key, Supplier<Set<String>> loader) {
+    if (entries == null) {
+      return loader.get();
+    }
+    long currentVersion = version.get();
+    Entry entry = entries.getIfPresent(key);
+    if (entry != null && entry.version == currentVersion) {
+      return entry.permissions;
+    }
+    Set<String> permissions = ImmutableSet.copyOf(loader.get());
+    if (version.get() == currentVersion) {
+      entries.put(key, new Entry(currentVersion, permissions));
+    }
+    return permissions;
+  }
+
+  private static String userKey(@Nullable Integer userId) {
+    return userId == null ? "anonymous" : userId.toString();
+  }
+
+  private static final class Entry {
+    private final long version;
+    private final Set<String> permissions;
+
+    private Entry(long version, Set<String> permissions) {
+      this.version = version;
+      this.permissions = permissions;
+    }
+  }
+}
@@ -59,6 +59,7 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final PermissionCache permissionCache;
   private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = new HashMap<>();
@@ -67,10 +68,11 @@ public class ServerUserSession extends AbstractUserSession {
   private Set<String> organizationMembership = new HashSet<>();
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, PermissionCache permissionCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.permissionCache = permissionCache;
     this.userDto = userDto;
   }
 
@@ -142,14 +144,14 @@ public class ServerUserSession extends AbstractUserSession {
   }
 
   private Set<OrganizationPermission> loadOrganizationPermissions(String organizationUuid) {
-    Set<String> permissionKeys;
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      if (userDto != null && userDto.getId() != null) {
-        permissionKeys = dbClient.authorizationDao().selectOrganizationPermissions(dbSession, organizationUuid, userDto.getId());
-      } else {
-        permissionKeys = dbClient.authorizationDao().selectOrganizationPermissionsOfAnonymous(dbSession, organizationUuid);
+    Set<String> permissionKeys = permissionCache.getOrganizationPermissions(permissionUserId(), organizationUuid, () -> {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        if (userDto != null && userDto.getId() != null) {
+          return dbClient.authorizationDao().selectOrganizationPermissions(dbSession, organizationUuid, userDto.getId());
+        }
+        return dbClient.authorizationDao().selectOrganizationPermissionsOfAnonymous(dbSession, organizationUuid);
       }
-    }
+    });
     return permissionKeys.stream()
       .map(OrganizationPermission::fromKey)
       .collect(MoreCollectors.toSet(permissionKeys.size()));
@@ -179,10 +181,19 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByProjectUuid == null) {
       permissionsByProjectUuid = new HashMap<>();
     }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
+    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid,
+      uuid -> permissionCache.getProjectPermissions(permissionUserId(), uuid, () -> loadProjectPermissions(uuid)));
     return permissions.contains(permission);
   }
 
+  /**
+   * Id of the user whose permissions are loaded, or null when the permissions of anonymous are loaded
+   */
+  @CheckForNull
+  private Integer permissionUserId() {
+    return userDto == null ? null : userDto.getId();
+  }
+
   /**
    * Also applies to views
    */
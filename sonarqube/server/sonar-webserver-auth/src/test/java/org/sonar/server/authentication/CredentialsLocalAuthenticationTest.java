@@ -33,6 +33,7 @@ import org.sonar.server.authentication.event.AuthenticationException;
 
 import static org.apache.commons.lang.RandomStringUtils.randomAlphanumeric;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.sonar.db.user.UserTesting.newUserDto;
 import static org.sonar.server.authentication.CredentialsLocalAuthentication.HashMethod.BCRYPT;
 import static org.sonar.server.authentication.CredentialsLocalAuthentication.HashMethod.SHA1;
@@ -45,7 +46,8 @@ public class CredentialsLocalAuthenticationTest {
 
   private static final Random RANDOM = new Random();
 
-  private CredentialsLocalAuthentication underTest = new CredentialsLocalAuthentication(db.getDbClient());
+  private VerifiedCredentialsCache verifiedCredentials = new VerifiedCredentialsCache();
+  private CredentialsLocalAuthentication underTest = new CredentialsLocalAuthentication(db.getDbClient(), verifiedCredentials);
 
   @Test
   public void incorrect_hash_should_throw_AuthenticationException() {
@@ -185,4 +187,64 @@ public class CredentialsLocalAuthenticationTest {
     // authentication must work with upgraded hash method
     underTest.authenticate(db.getSession(), user, password, AuthenticationEvent.Method.BASIC);
   }
+
+  @Test
+  public void successful_bcrypt_authentication_is_cached() {
+    String password = randomAlphanumeric(60);
+    UserDto user = newUserDto()
+      .setHashMethod(BCRYPT.name())
+      .setCryptedPassword(BCrypt.hashpw(password, BCrypt.gensalt(4)));
+
+    underTest.authenticate(db.getSession(), user, password, AuthenticationEvent.Method.BASIC);
+    underTest.authenticate(db.getSession(), user, password, AuthenticationEvent.Method.BASIC);
+
+    assertThat(verifiedCredentials.isVerified(user, password)).isTrue();
+    assertThat(verifiedCredentials.stats().hitCount()).isEqualTo(2);
+    assertThat(verifiedCredentials.stats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void failed_authentication_is_not_cached() {
+    String password = randomAlphanumeric(60);
+    UserDto user = newUserDto()
+      .setHashMethod(BCRYPT.name())
+      .setCryptedPassword(BCrypt.hashpw(password, BCrypt.gensalt(4)));
+
+    assertThatThrownBy(() -> underTest.authenticate(db.getSession(), user, "WHATEVER", AuthenticationEvent.Method.BASIC))
+      .isInstanceOf(AuthenticationException.class)
+      .hasMessage("wrong password");
+
+    assertThat(verifiedCredentials.isVerified(user, "WHATEVER")).isFalse();
+    assertThat(verifiedCredentials.size()).isZero();
+  }
+
+  @Test
+  public void cached_authentication_is_not_used_once_password_is_changed() {
+    String password = randomAlphanumeric(60);
+    UserDto user = newUserDto()
+      .setHashMethod(BCRYPT.name())
+      .setCryptedPassword(BCrypt.hashpw(password, BCrypt.gensalt(4)));
+    underTest.authenticate(db.getSession(), user, password, AuthenticationEvent.Method.BASIC);
+
+    user.setCryptedPassword(BCrypt.hashpw("new password", BCrypt.gensalt(4)));
+
+    expectedException.expect(AuthenticationException.class);
+    expectedException.expectMessage("wrong password");
+
+    underTest.authenticate(db.getSession(), user, password, AuthenticationEvent.Method.BASIC);
+  }
+
+  @Test
+  public void sha1_authentication_is_not_cached() {
+    String password = randomAlphanumeric(60);
+    String salt = DigestUtils.sha1Hex("salt");
+    UserDto user = newUserDto()
+      .setHashMethod(SHA1.name())
+      .setCryptedPassword(DigestUtils.sha1Hex("--" + salt + "--" + password + "--"))
+      .setSalt(salt);
+
+    underTest.authenticate(db.getSession(), user, password, AuthenticationEvent.Method.BASIC);
+
+    assertThat(verifiedCredentials.size()).isZero();
+  }
 }
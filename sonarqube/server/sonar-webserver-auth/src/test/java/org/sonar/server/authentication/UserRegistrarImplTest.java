@@ -44,6 +44,7 @@ import org.sonar.server.organization.OrganizationUpdater;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.usergroups.DefaultGroupFinder;
@@ -89,7 +90,7 @@ public class UserRegistrarImplTest {
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
   private OrganizationUpdater organizationUpdater = mock(OrganizationUpdater.class);
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
-  private CredentialsLocalAuthentication localAuthentication = new CredentialsLocalAuthentication(db.getDbClient());
+  private CredentialsLocalAuthentication localAuthentication = new CredentialsLocalAuthentication(db.getDbClient(), new VerifiedCredentialsCache());
   private UserUpdater userUpdater = new UserUpdater(
     system2,
     mock(NewUserNotifier.class),
@@ -103,8 +104,10 @@ public class UserRegistrarImplTest {
 
   private DefaultGroupFinder defaultGroupFinder = new DefaultGroupFinder(db.getDbClient());
 
+  private PermissionCache permissionCache = PermissionCache.disabled();
+
   private UserRegistrarImpl underTest = new UserRegistrarImpl(db.getDbClient(), userUpdater, defaultOrganizationProvider, organizationFlags,
-    defaultGroupFinder, new MemberUpdater(db.getDbClient(), defaultGroupFinder, userIndexer));
+    defaultGroupFinder, new MemberUpdater(db.getDbClient(), defaultGroupFinder, userIndexer, permissionCache), permissionCache);
 
   @Test
   public void authenticate_new_user() {
@@ -687,10 +690,30 @@ public class UserRegistrarImplTest {
       .setName("John"));
     GroupDto group1 = db.users().insertGroup(db.getDefaultOrganization(), "group1");
     GroupDto group2 = db.users().insertGroup(db.getDefaultOrganization(), "group2");
+    long version = permissionCache.version();
 
     authenticate(USER_IDENTITY.getProviderLogin(), "group1", "group2", "group3");
 
     checkGroupMembership(user, group1, group2);
+    assertThat(permissionCache.version()).isGreaterThan(version);
+  }
+
+  @Test
+  public void do_not_invalidate_permission_cache_when_groups_of_existing_user_are_unchanged() {
+    organizationFlags.setEnabled(true);
+    UserDto user = db.users().insertUser(newUserDto()
+      .setExternalIdentityProvider(IDENTITY_PROVIDER.getKey())
+      .setExternalLogin(USER_IDENTITY.getProviderLogin())
+      .setActive(true)
+      .setName("John"));
+    GroupDto group1 = db.users().insertGroup(db.getDefaultOrganization(), "group1");
+    db.users().insertMember(group1, user);
+    long version = permissionCache.version();
+
+    authenticate(USER_IDENTITY.getProviderLogin(), "group1", "unknown");
+
+    checkGroupMembership(user, group1);
+    assertThat(permissionCache.version()).isEqualTo(version);
   }
 
   @Test
@@ -705,10 +728,12 @@ public class UserRegistrarImplTest {
     GroupDto group2 = db.users().insertGroup(db.getDefaultOrganization(), "group2");
     db.users().insertMember(group1, user);
     db.users().insertMember(group2, user);
+    long version = permissionCache.version();
 
     authenticate(USER_IDENTITY.getProviderLogin(), "group1");
 
     checkGroupMembership(user, group1);
+    assertThat(permissionCache.version()).isGreaterThan(version);
   }
 
   @Test
@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.authentication;
+
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.sonar.db.user.UserDto;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.user.UserTesting.newUserDto;
+import static org.sonar.process.systeminfo.SystemInfoUtils.attribute;
+
+public class VerifiedCredentialsCacheTest {
+
+  private FakeTicker ticker = new FakeTicker();
+  private VerifiedCredentialsCache underTest = new VerifiedCredentialsCache(60, TimeUnit.SECONDS, 2, ticker);
+  private UserDto user = newUserDto().setCryptedPassword("hash");
+
+  @Test
+  public void verified_credentials_are_cached_for_same_user_and_password() {
+    underTest.setVerified(user, "password");
+
+    assertThat(underTest.isVerified(user, "password")).isTrue();
+    assertThat(underTest.isVerified(user, "other password")).isFalse();
+    assertThat(underTest.isVerified(newUserDto().setCryptedPassword("hash"), "password")).isFalse();
+    assertThat(underTest.isVerified(user.setCryptedPassword("new hash"), "password")).isFalse();
+    assertThat(underTest.stats().hitCount()).isEqualTo(1);
+    assertThat(underTest.stats().missCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void verified_credentials_expire() {
+    underTest.setVerified(user, "password");
+
+    ticker.advance(59, TimeUnit.SECONDS);
+    assertThat(underTest.isVerified(user, "password")).isTrue();
+    ticker.advance(1, TimeUnit.SECONDS);
+    assertThat(underTest.isVerified(user, "password")).isFalse();
+  }
+
+  @Test
+  public void size_is_bounded() {
+    underTest.setVerified(newUserDto(), "password");
+    underTest.setVerified(newUserDto(), "password");
+    underTest.setVerified(newUserDto(), "password");
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.stats().evictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void section_exposes_statistics() {
+    underTest.setVerified(user, "password");
+    underTest.isVerified(user, "password");
+    underTest.isVerified(user, "other password");
+
+    ProtobufSystemInfo.Section section = new VerifiedCredentialsCacheSection(underTest).toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Web Credentials Cache");
+    assertThat(attribute(section, "Size").getLongValue()).isEqualTo(1);
+    assertThat(attribute(section, "Hits").getLongValue()).isEqualTo(1);
+    assertThat(attribute(section, "Misses").getLongValue()).isEqualTo(1);
+    assertThat(attribute(section, "Evictions").getLongValue()).isZero();
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long duration, TimeUnit unit) {
+      nanos += unit.toNanos(duration);
+    }
+  }
+}
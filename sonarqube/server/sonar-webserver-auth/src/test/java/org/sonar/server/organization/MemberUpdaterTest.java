@@ -43,6 +43,7 @@ import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.SearchOptions;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserDoc;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexDefinition;
@@ -78,7 +79,9 @@ public class MemberUpdaterTest {
   private UserIndex userIndex = new UserIndex(es.client(), System2.INSTANCE);
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
 
-  private MemberUpdater underTest = new MemberUpdater(dbClient, new DefaultGroupFinder(dbClient), userIndexer);
+  private PermissionCache permissionCache = PermissionCache.disabled();
+
+  private MemberUpdater underTest = new MemberUpdater(dbClient, new DefaultGroupFinder(dbClient), userIndexer, permissionCache);
 
   @Test
   public void add_member_in_db_and_user_index() {
@@ -175,6 +178,44 @@ public class MemberUpdaterTest {
     assertUserIsNotMember(organization, user);
   }
 
+  @Test
+  public void add_member_invalidates_permission_cache() {
+    OrganizationDto organization = db.organizations().insert();
+    db.users().insertDefaultGroup(organization, "Members");
+    UserDto user = db.users().insertUser();
+    long version = permissionCache.version();
+
+    underTest.addMember(db.getSession(), organization, user);
+
+    assertThat(permissionCache.version()).isGreaterThan(version);
+  }
+
+  @Test
+  public void remove_member_invalidates_permission_cache() {
+    OrganizationDto organization = db.organizations().insert();
+    GroupDto defaultGroup = db.users().insertDefaultGroup(organization, "Members");
+    UserDto user = db.users().insertUser();
+    UserDto adminUser = db.users().insertAdminByUserPermission(organization);
+    db.organizations().addMember(organization, user, adminUser);
+    db.users().insertMember(defaultGroup, user);
+    long version = permissionCache.version();
+
+    underTest.removeMember(db.getSession(), organization, user);
+
+    assertThat(permissionCache.version()).isGreaterThan(version);
+  }
+
+  @Test
+  public void does_not_invalidate_permission_cache_when_no_member_is_removed() {
+    OrganizationDto organization = db.organizations().insert();
+    UserDto userNotMember = db.users().insertUser();
+    long version = permissionCache.version();
+
+    underTest.removeMember(db.getSession(), organization, userNotMember);
+
+    assertThat(permissionCache.version()).isEqualTo(version);
+  }
+
   @Test
   public void remove_members_from_db_and_user_index() {
     OrganizationDto organization = db.organizations().insert();
@@ -422,8 +463,10 @@ public class MemberUpdaterTest {
     db.organizations().addMember(organization3, user);
     db.users().insertMember(org3defaultGroup, user);
 
-    underTest.synchronizeUserOrganizationMembership(db.getSession(), user, GITHUB, ImmutableSet.of(gitHubInstall1.getOrganizationAlmId(), gitHubInstall2.getOrganizationAlmId()));
+    boolean changed = underTest.synchronizeUserOrganizationMembership(db.getSession(), user, GITHUB,
+      ImmutableSet.of(gitHubInstall1.getOrganizationAlmId(), gitHubInstall2.getOrganizationAlmId()));
 
+    assertThat(changed).isTrue();
     db.organizations().assertUserIsMemberOfOrganization(organization1, user);
     db.organizations().assertUserIsMemberOfOrganization(organization2, user);
     assertUserIsNotMember(organization3, user);
@@ -450,8 +493,9 @@ public class MemberUpdaterTest {
     db.alm().insertOrganizationAlmBinding(organization, gitHubInstall, true);
     UserDto user = db.users().insertUser();
 
-    underTest.synchronizeUserOrganizationMembership(db.getSession(), user, GITHUB, ImmutableSet.of("unknown"));
+    boolean changed = underTest.synchronizeUserOrganizationMembership(db.getSession(), user, GITHUB, ImmutableSet.of("unknown"));
 
+    assertThat(changed).isFalse();
     // User is member of no organization
     assertThat(db.getDbClient().organizationMemberDao().selectOrganizationUuidsByUser(db.getSession(), user.getId())).isEmpty();
   }
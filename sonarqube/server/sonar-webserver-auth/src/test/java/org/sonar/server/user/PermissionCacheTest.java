@@ -0,0 +1,139 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PermissionCacheTest {
+
+  private FakeTicker ticker = new FakeTicker();
+  private PermissionCache underTest = new PermissionCache(1024 * 1024, 30, TimeUnit.SECONDS, ticker);
+  private AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void permissions_are_loaded_once_per_user_and_project() {
+    assertThat(underTest.getProjectPermissions(1, "P1", loader("user"))).containsExactly("user");
+    assertThat(underTest.getProjectPermissions(1, "P1", loader("admin"))).containsExactly("user");
+    assertThat(underTest.getProjectPermissions(2, "P1", loader("admin"))).containsExactly("admin");
+    assertThat(underTest.getProjectPermissions(null, "P1", loader("codeviewer"))).containsExactly("codeviewer");
+    assertThat(underTest.getOrganizationPermissions(1, "P1", loader("scan"))).containsExactly("scan");
+
+    assertThat(loads).hasValue(4);
+    assertThat(underTest.stats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void permissions_are_loaded_again_after_invalidation() {
+    underTest.getProjectPermissions(1, "P1", loader("user"));
+    underTest.invalidate();
+
+    assertThat(underTest.getProjectPermissions(1, "P1", loader("admin"))).containsExactly("admin");
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void invalidation_increments_version() {
+    long version = underTest.version();
+
+    underTest.invalidate();
+
+    assertThat(underTest.version()).isEqualTo(version + 1);
+  }
+
+  @Test
+  public void permissions_loaded_while_cache_is_invalidated_are_not_kept() {
+    Supplier<Set<String>> invalidatingLoader = () -> {
+      underTest.invalidate();
+      return loader("user").get();
+    };
+    assertThat(underTest.getProjectPermissions(1, "P1", invalidatingLoader)).containsExactly("user");
+
+    assertThat(underTest.getProjectPermissions(1, "P1", loader("admin"))).containsExactly("admin");
+  }
+
+  @Test
+  public void permissions_expire() {
+    underTest.getProjectPermissions(1, "P1", loader("user"));
+
+    ticker.advance(29, TimeUnit.SECONDS);
+    assertThat(underTest.getProjectPermissions(1, "P1", loader("admin"))).containsExactly("user");
+    ticker.advance(1, TimeUnit.SECONDS);
+    assertThat(underTest.getProjectPermissions(1, "P1", loader("admin"))).containsExactly("admin");
+  }
+
+  @Test
+  public void size_is_bounded_by_memory() {
+    underTest = new PermissionCache(1_000, 30, TimeUnit.SECONDS, ticker);
+    for (int i = 0; i < 100; i++) {
+      underTest.getProjectPermissions(i, "P1", loader("user"));
+    }
+
+    assertThat(underTest.stats().evictionCount()).isGreaterThan(90);
+  }
+
+  @Test
+  public void disabled_cache_always_loads_permissions() {
+    underTest = PermissionCache.disabled();
+
+    underTest.getProjectPermissions(1, "P1", loader("user"));
+    underTest.getProjectPermissions(1, "P1", loader("user"));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  public void cache_is_disabled_when_memory_is_zero() {
+    underTest = new PermissionCache(new MapSettings().setProperty(PermissionCache.MAX_MEMORY_PROPERTY, 0).asConfig());
+
+    underTest.getProjectPermissions(1, "P1", loader("user"));
+    underTest.getProjectPermissions(1, "P1", loader("user"));
+
+    assertThat(loads).hasValue(2);
+  }
+
+  private Supplier<Set<String>> loader(String... permissions) {
+    return () -> {
+      loads.incrementAndGet();
+      return ImmutableSet.copyOf(permissions);
+    };
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long duration, TimeUnit unit) {
+      nanos += unit.toNanos(duration);
+    }
+  }
+}
@@ -19,7 +19,9 @@
  */
 package org.sonar.server.user;
 
+import com.google.common.base.Ticker;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
@@ -27,18 +29,26 @@ import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.organization.MemberUpdater;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
+import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.usergroups.DefaultGroupFinder;
 
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.sonar.core.permission.GlobalPermissions.PROVISIONING;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
 import static org.sonar.db.component.ComponentTesting.newChildComponent;
@@ -56,6 +66,7 @@ public class ServerUserSessionTest {
   private DbClient dbClient = db.getDbClient();
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
+  private PermissionCache permissionCache = PermissionCache.disabled();
 
   @Test
   public void anonymous_is_not_logged_in_and_does_not_have_login() {
@@ -694,8 +705,59 @@ public class ServerUserSessionTest {
     newUserSession(root).checkMembership(organization);
   }
 
+  @Test
+  public void project_permissions_are_shared_between_sessions_until_cache_is_invalidated() {
+    permissionCache = new PermissionCache(1024 * 1024, 30, TimeUnit.SECONDS, Ticker.systemTicker());
+    UserDto user = db.users().insertUser();
+    ComponentDto project = db.components().insertPrivateProject();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.USER, project)).isFalse();
+
+    db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.USER, project)).isFalse();
+    assertThat(newAnonymousSession().hasComponentPermission(UserRole.USER, project)).isFalse();
+
+    permissionCache.invalidate();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.USER, project)).isTrue();
+    assertThat(permissionCache.stats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void organization_permissions_are_shared_between_sessions_until_cache_is_invalidated() {
+    permissionCache = new PermissionCache(1024 * 1024, 30, TimeUnit.SECONDS, Ticker.systemTicker());
+    OrganizationDto org = db.organizations().insert();
+    UserDto user = db.users().insertUser();
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isFalse();
+
+    db.users().insertPermissionOnUser(org, user, PROVISION_PROJECTS);
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isFalse();
+
+    permissionCache.invalidate();
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isTrue();
+  }
+
+  @Test
+  public void removed_organization_member_loses_cached_permissions_immediately() {
+    permissionCache = new PermissionCache(1024 * 1024, 30, TimeUnit.SECONDS, Ticker.systemTicker());
+    OrganizationDto org = db.organizations().insert();
+    UserDto admin = db.users().insertAdminByUserPermission(org);
+    UserDto user = db.users().insertUser();
+    db.organizations().addMember(org, admin, user);
+    db.users().insertPermissionOnUser(org, user, PROVISION_PROJECTS);
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isTrue();
+    UserIndexer userIndexer = mock(UserIndexer.class);
+    doAnswer(invocation -> {
+      ((DbSession) invocation.getArgument(0)).commit();
+      return null;
+    }).when(userIndexer).commitAndIndex(any(DbSession.class), anyCollection());
+    MemberUpdater memberUpdater = new MemberUpdater(dbClient, new DefaultGroupFinder(dbClient), userIndexer, permissionCache);
+
+    memberUpdater.removeMember(db.getSession(), org, user);
+
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org)).isFalse();
+  }
+
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
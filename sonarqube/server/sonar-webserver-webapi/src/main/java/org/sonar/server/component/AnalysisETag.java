@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.util.Optional;
+import org.sonar.api.platform.Server;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.server.user.PermissionCache;
+import org.sonar.server.user.UserSession;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Strong ETags of the responses of web services returning data which only changes when a new analysis of the
+ * project, branch or pull request is persisted.
+ * <p>
+ * The ETag is derived from the last analysis of the branch, the requested component, the user and the version of
+ * permissions, the media type of the response and the server version. Web services may add their own
+ * discriminators, for example the date of the last change of live measures.
+ * <p>
+ * Permissions must be checked before calling {@link #checkNotModified(DbSession, ComponentDto, Request, Response, String...)}
+ * so that a user who lost access to a project doesn't get a 304.
+ */
+@ServerSide
+public class AnalysisETag {
+
+  static final String ETAG_HEADER = "ETag";
+  static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+  static final String CACHE_CONTROL_HEADER = "Cache-Control";
+  private static final int NOT_MODIFIED = 304;
+
+  private final DbClient dbClient;
+  private final UserSession userSession;
+  private final PermissionCache permissionCache;
+  private final Server server;
+
+  public AnalysisETag(DbClient dbClient, UserSession userSession, PermissionCache permissionCache, Server server) {
+    this.dbClient = dbClient;
+    this.userSession = userSession;
+    this.permissionCache = permissionCache;
+    this.server = server;
+  }
+
+  /**
+   * The ETag of the response about a component, or empty if the branch of the component has never been analyzed.
+   * Request parameters are not part of it: like any ETag, it is only compared with the responses to the same URL.
+   */
+  public Optional<String> compute(DbSession dbSession, ComponentDto component, String mediaType, String... discriminators) {
+    return dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(dbSession, component.projectUuid())
+      .map(analysis -> compute(analysis, component, mediaType, discriminators));
+  }
+
+  /**
+   * Sets the ETag header of the response. If the request has a matching {@code If-None-Match} header, the status
+   * of the response is set to 304 and {@code true} is returned: the body must not be written.
+   */
+  public boolean checkNotModified(DbSession dbSession, ComponentDto component, Request request, Response response, String... discriminators) {
+    Optional<String> eTag = compute(dbSession, component, request.getMediaType(), discriminators);
+    if (!eTag.isPresent()) {
+      return false;
+    }
+    response.setHeader(ETAG_HEADER, eTag.get());
+    response.setHeader(CACHE_CONTROL_HEADER, "private, no-cache");
+    if (request.header(IF_NONE_MATCH_HEADER).filter(header -> matches(header, eTag.get())).isPresent()) {
+      response.stream().setStatus(NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  private String compute(SnapshotDto analysis, ComponentDto component, String mediaType, String... discriminators) {
+    Hasher hasher = Hashing.sha256().newHasher()
+      .putString(server.getVersion(), UTF_8).putByte((byte) 0)
+      .putString(analysis.getUuid(), UTF_8).putByte((byte) 0)
+      .putLong(analysis.getCreatedAt())
+      .putString(component.uuid(), UTF_8).putByte((byte) 0)
+      .putString(mediaType, UTF_8).putByte((byte) 0)
+      .putLong(permissionCache.version());
+    String userUuid = userSession.isLoggedIn() ? userSession.getUuid() : "";
+    hasher.putString(userUuid, UTF_8).putByte((byte) 0);
+    for (String discriminator : discriminators) {
+      hasher.putString(discriminator, UTF_8).putByte((byte) 0);
+    }
+    return '"' + hasher.hash().toString() + '"';
+  }
+
+  /**
+   * If-None-Match uses the weak comparison: the "W/" prefix is ignored
+   */
+  private static boolean matches(String ifNoneMatch, String eTag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if (trimmed.startsWith("W/")) {
+        trimmed = trimmed.substring(2);
+      }
+      if ("*".equals(trimmed) || eTag.equals(trimmed)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -40,6 +40,7 @@ import org.sonar.server.es.ProjectIndexer.Cause;
 import org.sonar.server.es.ProjectIndexers;
 import org.sonar.server.favorite.FavoriteUpdater;
 import org.sonar.server.permission.PermissionTemplateService;
+import org.sonar.server.user.PermissionCache;
 
 import static java.util.Collections.singletonList;
 import static org.sonar.api.resources.Qualifiers.APP;
@@ -57,16 +58,18 @@ public class ComponentUpdater {
   private final PermissionTemplateService permissionTemplateService;
   private final FavoriteUpdater favoriteUpdater;
   private final ProjectIndexers projectIndexers;
+  private final PermissionCache permissionCache;
 
   public ComponentUpdater(DbClient dbClient, I18n i18n, System2 system2,
     PermissionTemplateService permissionTemplateService, FavoriteUpdater favoriteUpdater,
-    ProjectIndexers projectIndexers) {
+    ProjectIndexers projectIndexers, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.i18n = i18n;
     this.system2 = system2;
     this.permissionTemplateService = permissionTemplateService;
     this.favoriteUpdater = favoriteUpdater;
     this.projectIndexers = projectIndexers;
+    this.permissionCache = permissionCache;
   }
 
   /**
@@ -98,6 +101,8 @@ public class ComponentUpdater {
 
   public void commitAndIndex(DbSession dbSession, ComponentDto componentDto) {
     projectIndexers.commitAndIndexComponents(dbSession, singletonList(componentDto), Cause.PROJECT_CREATION);
+    // permissions of the default template are visible to other requests only once committed
+    permissionCache.invalidate();
   }
 
   private ComponentDto createRootComponent(DbSession session, NewComponent newComponent, Consumer<ComponentDto> componentModifier) {
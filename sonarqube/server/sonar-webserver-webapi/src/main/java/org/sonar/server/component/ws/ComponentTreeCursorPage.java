@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.ws;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTreeQuery;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * A page of descendants of a component, sorted by key, which is loaded after the key of the last component of the
+ * previous page (keyset pagination) rather than after an offset. The cost of a page doesn't depend on its position
+ * in the tree and only the components of the page are kept in memory.
+ */
+public class ComponentTreeCursorPage {
+
+  /**
+   * The value of the cursor to request the first page
+   */
+  public static final String FIRST_PAGE_CURSOR = "*";
+
+  private final List<ComponentDto> components;
+  private final String nextCursor;
+
+  private ComponentTreeCursorPage(List<ComponentDto> components, @Nullable String nextCursor) {
+    this.components = components;
+    this.nextCursor = nextCursor;
+  }
+
+  public static ComponentTreeCursorPage load(DbClient dbClient, DbSession dbSession, ComponentTreeQuery query, String cursor, int pageSize) {
+    String afterKey = FIRST_PAGE_CURSOR.equals(cursor) ? null : cursor;
+    // one more component is read to know whether the page is the last one
+    List<ComponentDto> components = new ArrayList<>(pageSize + 1);
+    dbClient.componentDao().scrollDescendants(dbSession, query, afterKey, context -> {
+      components.add(context.getResultObject());
+      if (components.size() > pageSize) {
+        context.stop();
+      }
+    });
+    if (components.size() <= pageSize) {
+      return new ComponentTreeCursorPage(components, null);
+    }
+    List<ComponentDto> page = new ArrayList<>(components.subList(0, pageSize));
+    return new ComponentTreeCursorPage(page, page.get(pageSize - 1).getDbKey());
+  }
+
+  public List<ComponentDto> getComponents() {
+    return components;
+  }
+
+  /**
+   * The cursor of the next page, or empty if this page is the last one
+   */
+  public Optional<String> getNextCursor() {
+    return ofNullable(nextCursor);
+  }
+}
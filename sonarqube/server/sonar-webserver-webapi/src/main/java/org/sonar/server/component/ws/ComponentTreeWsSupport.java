@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.ws;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.resources.ResourceTypes;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.server.ws.WebService.Param;
+import org.sonar.core.i18n.I18n;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTreeQuery;
+import org.sonar.db.component.ComponentTreeQuery.Strategy;
+
+import static org.sonar.db.component.ComponentTreeQuery.Strategy.CHILDREN;
+import static org.sonar.db.component.ComponentTreeQuery.Strategy.LEAVES;
+import static org.sonar.server.ws.WsParameterBuilder.createQualifiersParameter;
+import static org.sonar.server.ws.WsParameterBuilder.QualifierParameterContext.newQualifierParameterContext;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_STRATEGY;
+
+/**
+ * Parameters shared by the web services browsing the descendants of a component: api/components/tree and
+ * api/components/stream_tree.
+ */
+class ComponentTreeWsSupport {
+
+  static final String ALL_STRATEGY = "all";
+  static final String CHILDREN_STRATEGY = "children";
+  static final String LEAVES_STRATEGY = "leaves";
+  static final Map<String, Strategy> STRATEGIES = ImmutableMap.of(
+    ALL_STRATEGY, LEAVES,
+    CHILDREN_STRATEGY, CHILDREN,
+    LEAVES_STRATEGY, LEAVES);
+
+  private static final int QUERY_MINIMUM_LENGTH = 3;
+
+  private ComponentTreeWsSupport() {
+    // only statics
+  }
+
+  /**
+   * Defines the parameters {@link Param#TEXT_QUERY}, qualifiers and strategy
+   */
+  static void createTreeParams(WebService.NewAction action, I18n i18n, ResourceTypes resourceTypes) {
+    action.createParam(Param.TEXT_QUERY)
+      .setDescription("Limit search to: <ul>" +
+        "<li>component names that contain the supplied string</li>" +
+        "<li>component keys that are exactly the same as the supplied string</li>" +
+        "</ul>")
+      .setMinimumLength(QUERY_MINIMUM_LENGTH)
+      .setExampleValue("FILE_NAM");
+
+    createQualifiersParameter(action, newQualifierParameterContext(i18n, resourceTypes));
+
+    action.createParam(PARAM_STRATEGY)
+      .setDescription("Strategy to search for base component descendants:" +
+        "<ul>" +
+        "<li>children: return the children components of the base component. Grandchildren components are not returned</li>" +
+        "<li>all: return all the descendants components of the base component. Grandchildren are returned.</li>" +
+        "<li>leaves: return all the descendant components (files, in general) which don't have other children. They are the leaves of the component tree.</li>" +
+        "</ul>")
+      .setPossibleValues(STRATEGIES.keySet())
+      .setDefaultValue(ALL_STRATEGY);
+  }
+
+  static ComponentTreeQuery toComponentTreeQuery(ResourceTypes resourceTypes, ComponentDto baseComponent, String strategy,
+    @Nullable String textQuery, @Nullable List<String> requestQualifiers) {
+    ComponentTreeQuery.Builder query = ComponentTreeQuery.builder()
+      .setBaseUuid(baseComponent.uuid())
+      .setStrategy(STRATEGIES.get(strategy));
+    if (textQuery != null) {
+      query.setNameOrKeyQuery(textQuery);
+    }
+    List<String> childrenQualifiers = childrenQualifiers(resourceTypes, requestQualifiers, strategy, baseComponent.qualifier());
+    if (childrenQualifiers != null) {
+      query.setQualifiers(childrenQualifiers);
+    }
+    return query.build();
+  }
+
+  @CheckForNull
+  private static List<String> childrenQualifiers(ResourceTypes resourceTypes, @Nullable List<String> requestQualifiers, String strategy,
+    String baseQualifier) {
+    List<String> childrenQualifiers = null;
+    if (LEAVES_STRATEGY.equals(strategy)) {
+      childrenQualifiers = resourceTypes.getLeavesQualifiers(baseQualifier);
+    }
+
+    if (requestQualifiers == null) {
+      return childrenQualifiers;
+    }
+
+    if (childrenQualifiers == null) {
+      return requestQualifiers;
+    }
+
+    Sets.SetView<String> qualifiersIntersection = Sets.intersection(new HashSet<>(childrenQualifiers), new HashSet<>(requestQualifiers));
+
+    return new ArrayList<>(qualifiersIntersection);
+  }
+}
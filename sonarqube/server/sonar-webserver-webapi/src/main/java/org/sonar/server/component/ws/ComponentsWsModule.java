@@ -31,6 +31,7 @@ public class ComponentsWsModule extends Module {
       SearchAction.class,
       SuggestionsAction.class,
       TreeAction.class,
+      StreamTreeAction.class,
       ShowAction.class,
       SearchProjectsAction.class);
   }
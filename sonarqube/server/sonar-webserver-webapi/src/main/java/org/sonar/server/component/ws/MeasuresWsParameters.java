@@ -43,6 +43,7 @@ public class MeasuresWsParameters {
   public static final String PARAM_METRIC_SORT = "metricSort";
   public static final String PARAM_METRIC_PERIOD_SORT = "metricPeriodSort";
   public static final String PARAM_METRIC_SORT_FILTER = "metricSortFilter";
+  public static final String PARAM_CURSOR = "cursor";
   public static final String PARAM_ADDITIONAL_FIELDS = "additionalFields";
   public static final String PARAM_PROJECT_KEYS = "projectKeys";
   public static final String PARAM_FROM = "from";
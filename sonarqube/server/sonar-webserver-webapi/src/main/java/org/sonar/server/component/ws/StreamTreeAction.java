@@ -0,0 +1,217 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.ws;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import org.sonar.api.resources.ResourceTypes;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.server.ws.WebService.Param;
+import org.sonar.api.web.UserRole;
+import org.sonar.core.i18n.I18n;
+import org.sonar.core.util.ProtobufJsonFormat;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTreeQuery;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.project.ProjectDto;
+import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.user.UserSession;
+import org.sonarqube.ws.Components;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.Optional.ofNullable;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+import static org.sonar.server.component.ws.ComponentDtoToWsComponent.componentDtoToWsComponent;
+import static org.sonar.server.component.ws.ComponentTreeWsSupport.createTreeParams;
+import static org.sonar.server.component.ws.ComponentTreeWsSupport.toComponentTreeQuery;
+import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
+import static org.sonarqube.ws.MediaTypes.PROTOBUF;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.ACTION_STREAM_TREE;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_BRANCH;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_COMPONENT;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_PULL_REQUEST;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_QUALIFIERS;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_STRATEGY;
+
+/**
+ * Streams all the descendants of a component, sorted by key, as they are read from the database cursor. Unlike
+ * api/components/tree, there is neither paging nor limit, and the memory used doesn't depend on the size of the tree.
+ */
+public class StreamTreeAction implements ComponentsWsAction {
+
+  static final String NDJSON = "application/x-ndjson";
+
+  /**
+   * Number of components whose reference components are loaded at once
+   */
+  private static final int BATCH_SIZE = 500;
+
+  private final DbClient dbClient;
+  private final ComponentFinder componentFinder;
+  private final ResourceTypes resourceTypes;
+  private final UserSession userSession;
+  private final I18n i18n;
+
+  public StreamTreeAction(DbClient dbClient, ComponentFinder componentFinder, ResourceTypes resourceTypes, UserSession userSession, I18n i18n) {
+    this.dbClient = dbClient;
+    this.componentFinder = componentFinder;
+    this.resourceTypes = resourceTypes;
+    this.userSession = userSession;
+    this.i18n = i18n;
+  }
+
+  @Override
+  public void define(WebService.NewController context) {
+    WebService.NewAction action = context.createAction(ACTION_STREAM_TREE)
+      .setDescription("Stream all the descendants of a component, sorted by key, without paging.<br>" +
+        "The response is a sequence of components: one JSON document per line (NDJSON, media type '" + NDJSON + "'), " +
+        "or length-delimited Protocol Buffers messages when Protocol Buffers are requested.<br>" +
+        "Requires the following permission: 'Browse' on the specified project.")
+      .setSince("8.2")
+      .setResponseExample(getClass().getResource("stream_tree-example.txt"))
+      .setHandler(this);
+
+    action.createParam(PARAM_COMPONENT)
+      .setDescription("Base component key. The search is based on this component.")
+      .setRequired(true)
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action.createParam(PARAM_BRANCH)
+      .setDescription("Branch key")
+      .setExampleValue(KEY_BRANCH_EXAMPLE_001)
+      .setInternal(true);
+
+    action.createParam(PARAM_PULL_REQUEST)
+      .setDescription("Pull request id")
+      .setExampleValue(KEY_PULL_REQUEST_EXAMPLE_001)
+      .setInternal(true);
+
+    createTreeParams(action, i18n, resourceTypes);
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      ComponentDto baseComponent = componentFinder.getByKeyAndOptionalBranchOrPullRequest(dbSession, request.mandatoryParam(PARAM_COMPONENT),
+        request.param(PARAM_BRANCH), request.param(PARAM_PULL_REQUEST));
+      userSession.checkComponentPermission(UserRole.USER, baseComponent);
+      OrganizationDto organization = componentFinder.getOrganization(dbSession, baseComponent);
+      // all the components of a tree belong to the same project, branch or view
+      ProjectDto parentProject = dbClient.projectDao().selectByUuid(dbSession,
+        ofNullable(baseComponent.getMainBranchProjectUuid()).orElse(baseComponent.projectUuid())).orElse(null);
+      ComponentTreeQuery query = toComponentTreeQuery(resourceTypes, baseComponent, request.mandatoryParam(PARAM_STRATEGY),
+        request.param(Param.TEXT_QUERY), request.paramAsStrings(PARAM_QUALIFIERS));
+
+      boolean protobuf = PROTOBUF.equals(request.getMediaType());
+      response.stream().setMediaType(protobuf ? PROTOBUF : NDJSON);
+      // reference components are loaded while the cursor of the main session is still open
+      try (OutputStream output = response.stream().output();
+        DbSession referenceSession = dbClient.openSession(false)) {
+        ComponentStreamWriter writer = new ComponentStreamWriter(referenceSession, output, protobuf, parentProject, organization);
+        dbClient.componentDao().scrollDescendants(dbSession, query, null, context -> writer.add(context.getResultObject()));
+        writer.flush();
+      }
+    }
+  }
+
+  /**
+   * Buffers at most {@link #BATCH_SIZE} components, so that their reference components are loaded in a single request
+   */
+  private class ComponentStreamWriter {
+    private final DbSession dbSession;
+    private final OutputStream output;
+    private final boolean protobuf;
+    private final ProjectDto parentProject;
+    private final OrganizationDto organization;
+    private final List<ComponentDto> buffer = new ArrayList<>(BATCH_SIZE);
+
+    private ComponentStreamWriter(DbSession dbSession, OutputStream output, boolean protobuf, @Nullable ProjectDto parentProject, OrganizationDto organization) {
+      this.dbSession = dbSession;
+      this.output = output;
+      this.protobuf = protobuf;
+      this.parentProject = parentProject;
+      this.organization = organization;
+    }
+
+    void add(ComponentDto component) {
+      buffer.add(component);
+      if (buffer.size() >= BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    void flush() {
+      Map<String, ComponentDto> referenceComponentsByUuid = searchReferenceComponentsByUuid();
+      try {
+        for (ComponentDto component : buffer) {
+          write(toWsComponent(component, referenceComponentsByUuid));
+        }
+        output.flush();
+      } catch (IOException e) {
+        throw new IllegalStateException("Error while streaming components", e);
+      }
+      buffer.clear();
+    }
+
+    private Map<String, ComponentDto> searchReferenceComponentsByUuid() {
+      List<String> referenceComponentUuids = buffer.stream()
+        .map(ComponentDto::getCopyResourceUuid)
+        .filter(Objects::nonNull)
+        .collect(toList());
+      if (referenceComponentUuids.isEmpty()) {
+        return emptyMap();
+      }
+      return dbClient.componentDao().selectByUuids(dbSession, referenceComponentUuids).stream()
+        .collect(MoreCollectors.uniqueIndex(ComponentDto::uuid));
+    }
+
+    private Components.Component toWsComponent(ComponentDto component, Map<String, ComponentDto> referenceComponentsByUuid) {
+      Components.Component.Builder wsComponent = componentDtoToWsComponent(component, parentProject, organization, null);
+      ComponentDto referenceComponent = referenceComponentsByUuid.get(component.getCopyResourceUuid());
+      if (referenceComponent != null) {
+        wsComponent.setRefId(referenceComponent.uuid());
+        wsComponent.setRefKey(referenceComponent.getKey());
+      }
+      return wsComponent.build();
+    }
+
+    private void write(Components.Component wsComponent) throws IOException {
+      if (protobuf) {
+        wsComponent.writeDelimitedTo(output);
+      } else {
+        output.write(ProtobufJsonFormat.toJson(wsComponent).getBytes(UTF_8));
+        output.write('\n');
+      }
+    }
+  }
+}
@@ -23,9 +23,6 @@ import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Ordering;
-import com.google.common.collect.Sets;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -47,9 +44,9 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTreeQuery;
-import org.sonar.db.component.ComponentTreeQuery.Strategy;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.project.ProjectDto;
+import org.sonar.server.component.AnalysisETag;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.Components;
@@ -61,19 +58,17 @@ import static java.util.Collections.emptyMap;
 import static java.util.Optional.ofNullable;
 import static org.sonar.api.utils.Paging.offset;
 import static org.sonar.core.util.stream.MoreCollectors.toList;
-import static org.sonar.db.component.ComponentTreeQuery.Strategy.CHILDREN;
-import static org.sonar.db.component.ComponentTreeQuery.Strategy.LEAVES;
 import static org.sonar.server.component.ws.ComponentDtoToWsComponent.componentDtoToWsComponent;
 import static org.sonar.server.component.ws.ComponentDtoToWsComponent.projectOrAppToWsComponent;
+import static org.sonar.server.component.ws.ComponentTreeWsSupport.createTreeParams;
 import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
-import static org.sonar.server.ws.WsParameterBuilder.createQualifiersParameter;
-import static org.sonar.server.ws.WsParameterBuilder.QualifierParameterContext.newQualifierParameterContext;
 import static org.sonar.server.ws.WsUtils.writeProtobuf;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.ACTION_TREE;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_BRANCH;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_COMPONENT;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_CURSOR;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_PULL_REQUEST;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_QUALIFIERS;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_STRATEGY;
@@ -81,14 +76,6 @@ import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_STR
 public class TreeAction implements ComponentsWsAction {
 
   private static final int MAX_SIZE = 500;
-  private static final int QUERY_MINIMUM_LENGTH = 3;
-  private static final String ALL_STRATEGY = "all";
-  private static final String CHILDREN_STRATEGY = "children";
-  private static final String LEAVES_STRATEGY = "leaves";
-  private static final Map<String, Strategy> STRATEGIES = ImmutableMap.of(
-    ALL_STRATEGY, LEAVES,
-    CHILDREN_STRATEGY, CHILDREN,
-    LEAVES_STRATEGY, LEAVES);
 
   private static final String NAME_SORT = "name";
   private static final String PATH_SORT = "path";
@@ -100,15 +87,18 @@ public class TreeAction implements ComponentsWsAction {
   private final ResourceTypes resourceTypes;
   private final UserSession userSession;
   private final I18n i18n;
+  private final AnalysisETag analysisETag;
 
   private static final Set<String> PROJECT_OR_APP_QUALIFIERS = ImmutableSortedSet.of(Qualifiers.PROJECT, Qualifiers.APP);
 
-  public TreeAction(DbClient dbClient, ComponentFinder componentFinder, ResourceTypes resourceTypes, UserSession userSession, I18n i18n) {
+  public TreeAction(DbClient dbClient, ComponentFinder componentFinder, ResourceTypes resourceTypes, UserSession userSession, I18n i18n,
+    AnalysisETag analysisETag) {
     this.dbClient = dbClient;
     this.componentFinder = componentFinder;
     this.resourceTypes = resourceTypes;
     this.userSession = userSession;
     this.i18n = i18n;
+    this.analysisETag = analysisETag;
   }
 
   @Override
@@ -122,7 +112,8 @@ public class TreeAction implements ComponentsWsAction {
       .setResponseExample(getClass().getResource("tree-example.json"))
       .setChangelog(
         new Change("7.6", String.format("The use of 'BRC' as value for parameter '%s' is deprecated", PARAM_QUALIFIERS)),
-        new Change("7.6", String.format("The use of module keys in parameter '%s' is deprecated", PARAM_COMPONENT)))
+        new Change("7.6", String.format("The use of module keys in parameter '%s' is deprecated", PARAM_COMPONENT)),
+        new Change("8.2", String.format("Parameter '%s' is added, and field 'nextCursor' is returned when it's set", PARAM_CURSOR)))
       .setHandler(this)
       .addPagingParams(100, MAX_SIZE);
 
@@ -147,49 +138,54 @@ public class TreeAction implements ComponentsWsAction {
       .setDescription("Comma-separated list of sort fields")
       .setExampleValue(NAME_SORT + ", " + PATH_SORT);
 
-    action.createParam(Param.TEXT_QUERY)
-      .setDescription("Limit search to: <ul>" +
-        "<li>component names that contain the supplied string</li>" +
-        "<li>component keys that are exactly the same as the supplied string</li>" +
-        "</ul>")
-      .setMinimumLength(QUERY_MINIMUM_LENGTH)
-      .setExampleValue("FILE_NAM");
-
-    createQualifiersParameter(action, newQualifierParameterContext(i18n, resourceTypes));
-
-    action.createParam(PARAM_STRATEGY)
-      .setDescription("Strategy to search for base component descendants:" +
-        "<ul>" +
-        "<li>children: return the children components of the base component. Grandchildren components are not returned</li>" +
-        "<li>all: return all the descendants components of the base component. Grandchildren are returned.</li>" +
-        "<li>leaves: return all the descendant components (files, in general) which don't have other children. They are the leaves of the component tree.</li>" +
-        "</ul>")
-      .setPossibleValues(STRATEGIES.keySet())
-      .setDefaultValue(ALL_STRATEGY);
+    createTreeParams(action, i18n, resourceTypes);
+
+    action.createParam(PARAM_CURSOR)
+      .setDescription(format("Paginate with a cursor rather than with the '%s' parameter: '%s' requests the first page, " +
+        "then the value of the field 'nextCursor' of the previous response requests the next page. " +
+        "Components are sorted by key, parameters '%s' and '%s' are ignored and the total is not returned. " +
+        "The last page has no 'nextCursor'.<br>" +
+        "The time to get a page doesn't depend on its position, which suits browsing large projects.",
+        Param.PAGE, ComponentTreeCursorPage.FIRST_PAGE_CURSOR, Param.SORT, Param.ASCENDING))
+      .setExampleValue(ComponentTreeCursorPage.FIRST_PAGE_CURSOR)
+      .setSince("8.2");
   }
 
   @Override
   public void handle(org.sonar.api.server.ws.Request request, Response response) throws Exception {
-    TreeWsResponse treeWsResponse = doHandle(toTreeWsRequest(request));
-    writeProtobuf(treeWsResponse, request, response);
+    doHandle(toTreeWsRequest(request), request, response);
   }
 
-  private TreeWsResponse doHandle(Request treeRequest) {
+  private void doHandle(Request treeRequest, org.sonar.api.server.ws.Request request, Response response) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       ComponentDto baseComponent = loadComponent(dbSession, treeRequest);
       checkPermissions(baseComponent);
+      if (analysisETag.checkNotModified(dbSession, baseComponent, request, response)) {
+        return;
+      }
       OrganizationDto organizationDto = componentFinder.getOrganization(dbSession, baseComponent);
 
       ComponentTreeQuery query = toComponentTreeQuery(treeRequest, baseComponent);
-      List<ComponentDto> components = dbClient.componentDao().selectDescendants(dbSession, query);
-      int total = components.size();
-      components = sortComponents(components, treeRequest);
-      components = paginateComponents(components, treeRequest);
-
-      Map<String, ComponentDto> referenceComponentsByUuid = searchReferenceComponentsByUuid(dbSession, components);
-
-      return buildResponse(dbSession, baseComponent, organizationDto, components, referenceComponentsByUuid,
-        Paging.forPageIndex(treeRequest.getPage()).withPageSize(treeRequest.getPageSize()).andTotal(total));
+      TreeWsResponse.Builder treeWsResponse;
+      if (treeRequest.getCursor() == null) {
+        List<ComponentDto> components = dbClient.componentDao().selectDescendants(dbSession, query);
+        int total = components.size();
+        components = sortComponents(components, treeRequest);
+        components = paginateComponents(components, treeRequest);
+
+        treeWsResponse = buildResponse(dbSession, baseComponent, organizationDto, components);
+        Paging paging = Paging.forPageIndex(treeRequest.getPage()).withPageSize(treeRequest.getPageSize()).andTotal(total);
+        treeWsResponse.getPagingBuilder()
+          .setPageIndex(paging.pageIndex())
+          .setPageSize(paging.pageSize())
+          .setTotal(paging.total());
+      } else {
+        ComponentTreeCursorPage page = ComponentTreeCursorPage.load(dbClient, dbSession, query, treeRequest.getCursor(), treeRequest.getPageSize());
+        treeWsResponse = buildResponse(dbSession, baseComponent, organizationDto, page.getComponents());
+        treeWsResponse.getPagingBuilder().setPageSize(treeRequest.getPageSize());
+        page.getNextCursor().ifPresent(treeWsResponse::setNextCursor);
+      }
+      writeProtobuf(treeWsResponse.build(), request, response);
     }
   }
 
@@ -217,24 +213,24 @@ public class TreeAction implements ComponentsWsAction {
     userSession.checkComponentPermission(UserRole.USER, baseComponent);
   }
 
-  private TreeWsResponse buildResponse(DbSession dbSession, ComponentDto baseComponent, OrganizationDto organizationDto, List<ComponentDto> components,
-    Map<String, ComponentDto> referenceComponentsByUuid, Paging paging) {
-    TreeWsResponse.Builder response = TreeWsResponse.newBuilder();
-    response.getPagingBuilder()
-      .setPageIndex(paging.pageIndex())
-      .setPageSize(paging.pageSize())
-      .setTotal(paging.total())
-      .build();
+  private TreeWsResponse.Builder buildResponse(DbSession dbSession, ComponentDto baseComponent, OrganizationDto organizationDto, List<ComponentDto> components) {
+    Map<String, ComponentDto> referenceComponentsByUuid = searchReferenceComponentsByUuid(dbSession, components);
+    // all the components of a tree belong to the same project, branch or view
+    ProjectDto parentProject = selectParentProject(dbSession, baseComponent).orElse(null);
 
-    response.setBaseComponent(toWsComponent(dbSession, baseComponent, organizationDto, referenceComponentsByUuid));
+    TreeWsResponse.Builder response = TreeWsResponse.newBuilder();
+    response.setBaseComponent(toWsComponent(dbSession, baseComponent, parentProject, organizationDto, referenceComponentsByUuid));
     for (ComponentDto dto : components) {
-      response.addComponents(toWsComponent(dbSession, dto, organizationDto, referenceComponentsByUuid));
+      response.addComponents(toWsComponent(dbSession, dto, parentProject, organizationDto, referenceComponentsByUuid));
     }
+    return response;
+  }
 
-    return response.build();
+  private Optional<ProjectDto> selectParentProject(DbSession dbSession, ComponentDto component) {
+    return dbClient.projectDao().selectByUuid(dbSession, ofNullable(component.getMainBranchProjectUuid()).orElse(component.projectUuid()));
   }
 
-  private Components.Component.Builder toWsComponent(DbSession dbSession, ComponentDto component, OrganizationDto organizationDto,
+  private Components.Component.Builder toWsComponent(DbSession dbSession, ComponentDto component, @Nullable ProjectDto parentProject, OrganizationDto organizationDto,
     Map<String, ComponentDto> referenceComponentsByUuid) {
 
     Components.Component.Builder wsComponent;
@@ -243,9 +239,7 @@ public class TreeAction implements ComponentsWsAction {
       ProjectDto projectDto = componentFinder.getProjectOrApplicationByKey(dbSession, component.getKey());
       wsComponent = projectOrAppToWsComponent(projectDto, organizationDto, null);
     } else {
-      Optional<ProjectDto> parentProject = dbClient.projectDao().selectByUuid(dbSession,
-        ofNullable(component.getMainBranchProjectUuid()).orElse(component.projectUuid()));
-      wsComponent = componentDtoToWsComponent(component, parentProject.orElse(null), organizationDto, null);
+      wsComponent = componentDtoToWsComponent(component, parentProject, organizationDto, null);
     }
 
     ComponentDto referenceComponent = referenceComponentsByUuid.get(component.getCopyResourceUuid());
@@ -258,40 +252,7 @@ public class TreeAction implements ComponentsWsAction {
   }
 
   private ComponentTreeQuery toComponentTreeQuery(Request request, ComponentDto baseComponent) {
-    List<String> childrenQualifiers = childrenQualifiers(request, baseComponent.qualifier());
-
-    ComponentTreeQuery.Builder query = ComponentTreeQuery.builder()
-      .setBaseUuid(baseComponent.uuid())
-      .setStrategy(STRATEGIES.get(request.getStrategy()));
-    if (request.getQuery() != null) {
-      query.setNameOrKeyQuery(request.getQuery());
-    }
-    if (childrenQualifiers != null) {
-      query.setQualifiers(childrenQualifiers);
-    }
-
-    return query.build();
-  }
-
-  @CheckForNull
-  private List<String> childrenQualifiers(Request request, String baseQualifier) {
-    List<String> requestQualifiers = request.getQualifiers();
-    List<String> childrenQualifiers = null;
-    if (LEAVES_STRATEGY.equals(request.getStrategy())) {
-      childrenQualifiers = resourceTypes.getLeavesQualifiers(baseQualifier);
-    }
-
-    if (requestQualifiers == null) {
-      return childrenQualifiers;
-    }
-
-    if (childrenQualifiers == null) {
-      return requestQualifiers;
-    }
-
-    Sets.SetView<String> qualifiersIntersection = Sets.intersection(new HashSet<>(childrenQualifiers), new HashSet<>(requestQualifiers));
-
-    return new ArrayList<>(qualifiersIntersection);
+    return ComponentTreeWsSupport.toComponentTreeQuery(resourceTypes, baseComponent, request.getStrategy(), request.getQuery(), request.getQualifiers());
   }
 
   private static Request toTreeWsRequest(org.sonar.api.server.ws.Request request) {
@@ -304,6 +265,7 @@ public class TreeAction implements ComponentsWsAction {
       .setQualifiers(request.paramAsStrings(PARAM_QUALIFIERS))
       .setSort(request.mandatoryParamAsStrings(Param.SORT))
       .setAsc(request.mandatoryParamAsBoolean(Param.ASCENDING))
+      .setCursor(request.param(PARAM_CURSOR))
       .setPage(request.mandatoryParamAsInt(Param.PAGE))
       .setPageSize(request.mandatoryParamAsInt(Param.PAGE_SIZE));
   }
@@ -356,6 +318,7 @@ public class TreeAction implements ComponentsWsAction {
     private Boolean asc;
     private Integer page;
     private Integer pageSize;
+    private String cursor;
 
     public Request setComponent(String component) {
       this.component = component;
@@ -455,6 +418,16 @@ public class TreeAction implements ComponentsWsAction {
       this.pageSize = pageSize;
       return this;
     }
+
+    @CheckForNull
+    private String getCursor() {
+      return cursor;
+    }
+
+    private Request setCursor(@Nullable String cursor) {
+      this.cursor = cursor;
+      return this;
+    }
   }
 
 }
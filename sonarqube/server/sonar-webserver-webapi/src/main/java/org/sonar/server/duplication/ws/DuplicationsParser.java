@@ -24,9 +24,11 @@ import java.io.Serializable;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.xml.stream.XMLInputFactory;
@@ -40,6 +42,10 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toSet;
+
 @ServerSide
 public class DuplicationsParser {
   private static final BlockComparator BLOCK_COMPARATOR = new BlockComparator();
@@ -50,21 +56,44 @@ public class DuplicationsParser {
   }
 
   public List<Block> parse(DbSession session, ComponentDto component, @Nullable String branch, @Nullable String pullRequest, @Nullable String duplicationsData) {
-    Map<String, ComponentDto> componentsByKey = new LinkedHashMap<>();
-    List<Block> blocks = new ArrayList<>();
     if (duplicationsData == null) {
-      return blocks;
+      return new ArrayList<>();
     }
+    return parse(session, singletonMap(component, duplicationsData), branch, pullRequest).get(component.uuid());
+  }
 
-    DuplicationComparator duplicationComparator = new DuplicationComparator(component.uuid(), component.projectUuid());
+  /**
+   * Parses the duplications of several files of the same branch or pull request. The components referenced by
+   * the duplications of all the files are loaded at once.
+   *
+   * @return the blocks of duplications, by uuid of file
+   */
+  public Map<String, List<Block>> parse(DbSession session, Map<ComponentDto, String> duplicationsDataByFile, @Nullable String branch, @Nullable String pullRequest) {
+    Map<ComponentDto, List<List<BlockRef>>> refsByFile = new LinkedHashMap<>();
+    duplicationsDataByFile.forEach((file, data) -> refsByFile.put(file, readRefs(data)));
+
+    Set<String> componentKeys = refsByFile.values().stream()
+      .flatMap(List::stream)
+      .flatMap(List::stream)
+      .filter(ref -> !ref.disableLink)
+      .map(ref -> convertToKey(ref.componentDbKey))
+      .collect(toSet());
+    Map<String, ComponentDto> componentsByKey = loadComponents(session, componentKeys, branch, pullRequest);
 
+    Map<String, List<Block>> blocksByFileUuid = new LinkedHashMap<>();
+    refsByFile.forEach((file, refs) -> blocksByFileUuid.put(file.uuid(), toBlocks(file, refs, componentsByKey)));
+    return blocksByFileUuid;
+  }
+
+  private static List<List<BlockRef>> readRefs(String duplicationsData) {
+    List<List<BlockRef>> groups = new ArrayList<>();
     try {
       SMInputFactory inputFactory = initStax();
       SMHierarchicCursor root = inputFactory.rootElementCursor(new StringReader(duplicationsData));
       root.advance(); // <duplications>
       SMInputCursor cursor = root.childElementCursor("g");
       while (cursor.getNext() != null) {
-        List<Duplication> duplications = new ArrayList<>();
+        List<BlockRef> refs = new ArrayList<>();
         SMInputCursor bCursor = cursor.childElementCursor("b");
         while (bCursor.getNext() != null) {
           String from = bCursor.getAttrValue("s");
@@ -72,43 +101,72 @@ public class DuplicationsParser {
           boolean disableLink = Boolean.parseBoolean(bCursor.getAttrValue("t"));
           String componentDbKey = bCursor.getAttrValue("r");
           if (from != null && size != null && componentDbKey != null) {
-            if (disableLink) {
-              // flag means that the target refers to an unchanged file in PRs that doesn't exist in DB.
-              // Display as text without a link or other details.
-              duplications.add(Duplication.newTextComponent(componentDbKey, Integer.valueOf(from), Integer.valueOf(size)));
-            } else {
-              duplications.add(createDuplication(componentsByKey, branch, pullRequest, from, size, componentDbKey, session));
-            }
+            refs.add(new BlockRef(componentDbKey, Integer.valueOf(from), Integer.valueOf(size), disableLink));
           }
         }
-        duplications.sort(duplicationComparator);
-        blocks.add(new Block(duplications));
+        groups.add(refs);
       }
-      blocks.sort(BLOCK_COMPARATOR);
-      return blocks;
+      return groups;
     } catch (XMLStreamException e) {
       throw new IllegalStateException("XML is not valid", e);
     }
   }
 
-  private Duplication createDuplication(Map<String, ComponentDto> componentsByKey, @Nullable String branch, @Nullable String pullRequest, String from,
-    String size, String componentDbKey, DbSession session) {
-    String componentKey = convertToKey(componentDbKey);
-
-    ComponentDto component;
-    if (componentsByKey.containsKey(componentKey)) {
-      component = componentsByKey.get(componentKey);
-    } else {
-      component = loadComponent(session, componentKey, branch, pullRequest);
-      componentsByKey.put(componentKey, component);
+  private static List<Block> toBlocks(ComponentDto file, List<List<BlockRef>> groups, Map<String, ComponentDto> componentsByKey) {
+    DuplicationComparator duplicationComparator = new DuplicationComparator(file.uuid(), file.projectUuid());
+    List<Block> blocks = new ArrayList<>();
+    for (List<BlockRef> refs : groups) {
+      List<Duplication> duplications = new ArrayList<>();
+      for (BlockRef ref : refs) {
+        duplications.add(toDuplication(ref, componentsByKey));
+      }
+      duplications.sort(duplicationComparator);
+      blocks.add(new Block(duplications));
     }
+    blocks.sort(BLOCK_COMPARATOR);
+    return blocks;
+  }
 
+  private static Duplication toDuplication(BlockRef ref, Map<String, ComponentDto> componentsByKey) {
+    if (ref.disableLink) {
+      // flag means that the target refers to an unchanged file in PRs that doesn't exist in DB.
+      // Display as text without a link or other details.
+      return Duplication.newTextComponent(ref.componentDbKey, ref.from, ref.size);
+    }
+    String componentKey = convertToKey(ref.componentDbKey);
+    ComponentDto component = componentsByKey.get(componentKey);
     if (component != null) {
-      return Duplication.newComponent(component, Integer.valueOf(from), Integer.valueOf(size));
+      return Duplication.newComponent(component, ref.from, ref.size);
+    }
+    //This can happen if the target was removed (cross-project duplications)
+    return Duplication.newRemovedComponent(componentKey, ref.from, ref.size);
+  }
+
+  private Map<String, ComponentDto> loadComponents(DbSession session, Set<String> componentKeys, @Nullable String branch, @Nullable String pullRequest) {
+    if (componentKeys.isEmpty()) {
+      return emptyMap();
+    }
+    List<ComponentDto> components;
+    if (branch != null) {
+      components = componentDao.selectByKeysAndBranch(session, componentKeys, branch);
+    } else if (pullRequest != null) {
+      components = componentDao.selectByKeysAndPullRequest(session, componentKeys, pullRequest);
     } else {
-      //This can happen if the target was removed (cross-project duplications)
-      return Duplication.newRemovedComponent(componentKey, Integer.valueOf(from), Integer.valueOf(size));
+      components = componentDao.selectByKeys(session, componentKeys);
     }
+    Map<String, ComponentDto> componentsByKey = new HashMap<>();
+    components.forEach(c -> componentsByKey.putIfAbsent(c.getKey(), c));
+    // the batch selections ignore disabled components, which are still returned as duplications by the selection
+    // of a single key
+    componentKeys.stream()
+      .filter(key -> !componentsByKey.containsKey(key))
+      .forEach(key -> {
+        ComponentDto component = loadComponent(session, key, branch, pullRequest);
+        if (component != null) {
+          componentsByKey.put(key, component);
+        }
+      });
+    return componentsByKey;
   }
 
   @CheckForNull
@@ -212,6 +270,20 @@ public class DuplicationsParser {
     }
   }
 
+  private static class BlockRef {
+    private final String componentDbKey;
+    private final Integer from;
+    private final Integer size;
+    private final boolean disableLink;
+
+    private BlockRef(String componentDbKey, Integer from, Integer size, boolean disableLink) {
+      this.componentDbKey = componentDbKey;
+      this.from = from;
+      this.size = size;
+      this.disableLink = disableLink;
+    }
+  }
+
   static class Block {
     private final List<Duplication> duplications;
 
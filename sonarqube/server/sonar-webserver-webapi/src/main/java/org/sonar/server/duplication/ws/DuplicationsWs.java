@@ -23,10 +23,10 @@ import org.sonar.api.server.ws.WebService;
 
 public class DuplicationsWs implements WebService {
 
-  private final ShowAction showAction;
+  private final DuplicationsWsAction[] actions;
 
-  public DuplicationsWs(ShowAction showAction) {
-    this.showAction = showAction;
+  public DuplicationsWs(DuplicationsWsAction... actions) {
+    this.actions = actions;
   }
 
   @Override
@@ -34,7 +34,9 @@ public class DuplicationsWs implements WebService {
     NewController controller = context.createController("api/duplications")
       .setSince("4.4")
       .setDescription("Get duplication information for a project.");
-    showAction.define(controller);
+    for (DuplicationsWsAction action : actions) {
+      action.define(controller);
+    }
     controller.done();
   }
 }
@@ -0,0 +1,155 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.duplication.ws;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.server.ws.WebService.Param;
+import org.sonar.api.utils.Paging;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.Pagination;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.metric.MetricDto;
+import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.user.UserSession;
+import org.sonarqube.ws.Duplications.ListResponse;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.sonar.api.measures.CoreMetrics.DUPLICATED_BLOCKS_KEY;
+import static org.sonar.api.measures.CoreMetrics.DUPLICATIONS_DATA_KEY;
+import static org.sonar.api.resources.Qualifiers.FILE;
+import static org.sonar.api.resources.Qualifiers.UNIT_TEST_FILE;
+import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
+import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
+import static org.sonar.server.ws.WsUtils.writeProtobuf;
+
+public class ListAction implements DuplicationsWsAction {
+
+  private static final String PARAM_PROJECT = "project";
+  private static final String PARAM_BRANCH = "branch";
+  private static final String PARAM_PULL_REQUEST = "pullRequest";
+  private static final int MAX_PAGE_SIZE = 500;
+  private static final List<String> FILE_QUALIFIERS = asList(FILE, UNIT_TEST_FILE);
+
+  private final DbClient dbClient;
+  private final DuplicationsParser parser;
+  private final ShowResponseBuilder responseBuilder;
+  private final UserSession userSession;
+  private final ComponentFinder componentFinder;
+
+  public ListAction(DbClient dbClient, DuplicationsParser parser, ShowResponseBuilder responseBuilder, UserSession userSession, ComponentFinder componentFinder) {
+    this.dbClient = dbClient;
+    this.parser = parser;
+    this.responseBuilder = responseBuilder;
+    this.userSession = userSession;
+    this.componentFinder = componentFinder;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("list")
+      .setDescription("Get the duplications of all the files of a project having duplicated blocks, ordered by path.<br>" +
+        "Requires the 'Browse' permission on the project.")
+      .setSince("8.2")
+      .setHandler(this)
+      .addPagingParams(100, MAX_PAGE_SIZE)
+      .setResponseExample(getClass().getResource("list-example.json"));
+
+    action
+      .createParam(PARAM_PROJECT)
+      .setDescription("Project key")
+      .setRequired(true)
+      .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_BRANCH)
+      .setDescription("Branch key")
+      .setInternal(true)
+      .setExampleValue(KEY_BRANCH_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_PULL_REQUEST)
+      .setDescription("Pull request id")
+      .setInternal(true)
+      .setExampleValue(KEY_PULL_REQUEST_EXAMPLE_001);
+  }
+
+  @Override
+  public void handle(Request request, Response response) {
+    String branch = request.param(PARAM_BRANCH);
+    String pullRequest = request.param(PARAM_PULL_REQUEST);
+    int page = request.mandatoryParamAsInt(Param.PAGE);
+    int pageSize = request.mandatoryParamAsInt(Param.PAGE_SIZE);
+
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      ComponentDto project = componentFinder.getByKeyAndOptionalBranchOrPullRequest(dbSession, request.mandatoryParam(PARAM_PROJECT), branch, pullRequest);
+      userSession.checkComponentPermission(UserRole.CODEVIEWER, project);
+
+      // files having at least one duplicated block, the duplications data is loaded for the requested page only
+      MetricDto duplicatedBlocks = dbClient.metricDao().selectByKey(dbSession, DUPLICATED_BLOCKS_KEY);
+      int total = 0;
+      List<ComponentDto> pageOfFiles = emptyList();
+      if (duplicatedBlocks != null) {
+        total = dbClient.componentDao().countByPositiveMeasure(dbSession, project.uuid(), FILE_QUALIFIERS, duplicatedBlocks.getId());
+        pageOfFiles = dbClient.componentDao().selectByPositiveMeasure(dbSession, project.uuid(), FILE_QUALIFIERS, duplicatedBlocks.getId(),
+          Pagination.forPage(page).andSize(pageSize));
+      }
+
+      Map<ComponentDto, String> duplicationsDataByFile = selectDuplicationsData(dbSession, pageOfFiles);
+      Map<String, List<DuplicationsParser.Block>> blocksByFileUuid = parser.parse(dbSession, duplicationsDataByFile, branch, pullRequest);
+
+      ListResponse.Builder wsResponse = ListResponse.newBuilder();
+      Paging paging = Paging.forPageIndex(page).withPageSize(pageSize).andTotal(total);
+      wsResponse.getPagingBuilder()
+        .setPageIndex(paging.pageIndex())
+        .setPageSize(paging.pageSize())
+        .setTotal(paging.total());
+      wsResponse.addAllFileDuplications(responseBuilder.build(dbSession, pageOfFiles, blocksByFileUuid, branch, pullRequest));
+      writeProtobuf(wsResponse.build(), request, response);
+    }
+  }
+
+  private Map<ComponentDto, String> selectDuplicationsData(DbSession dbSession, List<ComponentDto> files) {
+    List<String> fileUuids = files.stream().map(ComponentDto::uuid).collect(toList());
+    Map<String, String> dataByFileUuid = new HashMap<>();
+    dbClient.liveMeasureDao().selectByComponentUuidsAndMetricKeys(dbSession, fileUuids, singletonList(DUPLICATIONS_DATA_KEY))
+      .forEach(measure -> dataByFileUuid.put(measure.getComponentUuid(), measure.getDataAsString()));
+
+    Map<ComponentDto, String> dataByFile = new LinkedHashMap<>();
+    for (ComponentDto file : files) {
+      String data = dataByFileUuid.get(file.uuid());
+      if (data != null) {
+        dataByFile.put(file, data);
+      }
+    }
+    return dataByFile;
+  }
+}
@@ -31,6 +31,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.measure.LiveMeasureDto;
+import org.sonar.server.component.AnalysisETag;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.user.UserSession;
 
@@ -51,13 +52,16 @@ public class ShowAction implements DuplicationsWsAction {
   private final ShowResponseBuilder responseBuilder;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
+  private final AnalysisETag analysisETag;
 
-  public ShowAction(DbClient dbClient, DuplicationsParser parser, ShowResponseBuilder responseBuilder, UserSession userSession, ComponentFinder componentFinder) {
+  public ShowAction(DbClient dbClient, DuplicationsParser parser, ShowResponseBuilder responseBuilder, UserSession userSession, ComponentFinder componentFinder,
+    AnalysisETag analysisETag) {
     this.dbClient = dbClient;
     this.parser = parser;
     this.responseBuilder = responseBuilder;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
+    this.analysisETag = analysisETag;
   }
 
   @Override
@@ -101,6 +105,9 @@ public class ShowAction implements DuplicationsWsAction {
     try (DbSession dbSession = dbClient.openSession(false)) {
       ComponentDto component = loadComponent(dbSession, request);
       userSession.checkComponentPermission(UserRole.CODEVIEWER, component);
+      if (analysisETag.checkNotModified(dbSession, component, request, response)) {
+        return;
+      }
       String duplications = findDataFromComponent(dbSession, component);
       String branch = component.getBranch();
       String pullRequest = component.getPullRequest();
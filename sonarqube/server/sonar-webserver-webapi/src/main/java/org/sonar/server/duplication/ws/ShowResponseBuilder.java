@@ -20,11 +20,14 @@
 package org.sonar.server.duplication.ws;
 
 import com.google.common.annotations.VisibleForTesting;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
@@ -34,9 +37,14 @@ import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
 import org.sonarqube.ws.Duplications;
 import org.sonarqube.ws.Duplications.Block;
+import org.sonarqube.ws.Duplications.FileDuplications;
 import org.sonarqube.ws.Duplications.ShowResponse;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
 public class ShowResponseBuilder {
 
@@ -58,10 +66,41 @@ public class ShowResponseBuilder {
       .map(block -> toWsDuplication(block, refByComponentKey))
       .forEach(response::addDuplications);
 
-    writeFileRefs(session, refByComponentKey, response, branch, pullRequest);
+    Map<String, ComponentDto> parentsByUuid = loadParents(session, refByComponentKey.values());
+    writeFileRefs(refByComponentKey, parentsByUuid, response::putFiles, branch, pullRequest);
     return response.build();
   }
 
+  /**
+   * Builds the duplications of several files of the same branch or pull request. The projects and modules of
+   * the referenced files are loaded at once.
+   */
+  List<FileDuplications> build(DbSession session, List<ComponentDto> files, Map<String, List<DuplicationsParser.Block>> blocksByFileUuid,
+    @Nullable String branch, @Nullable String pullRequest) {
+    List<Map<String, Reference>> refsByFile = new ArrayList<>(files.size());
+    List<FileDuplications.Builder> builders = new ArrayList<>(files.size());
+    for (ComponentDto file : files) {
+      Map<String, Reference> refByComponentKey = new LinkedHashMap<>();
+      FileDuplications.Builder fileDuplications = FileDuplications.newBuilder().setKey(file.getKey());
+      blocksByFileUuid.getOrDefault(file.uuid(), emptyList()).stream()
+        .map(block -> toWsDuplication(block, refByComponentKey))
+        .forEach(fileDuplications::addDuplications);
+      refsByFile.add(refByComponentKey);
+      builders.add(fileDuplications);
+    }
+
+    Map<String, ComponentDto> parentsByUuid = loadParents(session, refsByFile.stream()
+      .flatMap(refs -> refs.values().stream())
+      .collect(toList()));
+    List<FileDuplications> result = new ArrayList<>(builders.size());
+    for (int i = 0; i < builders.size(); i++) {
+      FileDuplications.Builder fileDuplications = builders.get(i);
+      writeFileRefs(refsByFile.get(i), parentsByUuid, fileDuplications::putFiles, branch, pullRequest);
+      result.add(fileDuplications.build());
+    }
+    return result;
+  }
+
   private static Duplications.Duplication.Builder toWsDuplication(DuplicationsParser.Block block, Map<String, Reference> refByComponentKey) {
     Duplications.Duplication.Builder wsDuplication = Duplications.Duplication.newBuilder();
     block.getDuplications().stream()
@@ -88,20 +127,34 @@ public class ShowResponseBuilder {
     return block;
   }
 
-  private void writeFileRefs(DbSession session, Map<String, Reference> refByComponentKey, ShowResponse.Builder response, @Nullable String branch, @Nullable String pullRequest) {
-    Map<String, ComponentDto> projectsByUuid = new HashMap<>();
-    Map<String, ComponentDto> parentModulesByUuid = new HashMap<>();
+  private Map<String, ComponentDto> loadParents(DbSession session, Collection<Reference> refs) {
+    Set<String> parentUuids = new HashSet<>();
+    for (Reference ref : refs) {
+      ComponentDto file = ref.getDto();
+      if (file != null) {
+        parentUuids.add(file.projectUuid());
+        parentUuids.add(file.moduleUuid());
+      }
+    }
+    parentUuids.remove(null);
+    if (parentUuids.isEmpty()) {
+      return emptyMap();
+    }
+    return componentDao.selectByUuids(session, parentUuids).stream()
+      .collect(uniqueIndex(ComponentDto::uuid));
+  }
 
-    for (Map.Entry<String, Reference> entry : refByComponentKey.entrySet()) {
-      Reference ref = entry.getValue();
+  private static void writeFileRefs(Map<String, Reference> refByComponentKey, Map<String, ComponentDto> parentsByUuid,
+    BiConsumer<String, Duplications.File> fileConsumer, @Nullable String branch, @Nullable String pullRequest) {
+    for (Reference ref : refByComponentKey.values()) {
       ComponentDto file = ref.getDto();
 
       if (file != null) {
-        ComponentDto project = getProject(file.projectUuid(), projectsByUuid, session);
-        ComponentDto parentModule = getParentProject(file.moduleUuid(), parentModulesByUuid, session);
-        response.putFiles(ref.getId(), toWsFile(file, project, parentModule, branch, pullRequest));
+        ComponentDto project = parentsByUuid.get(file.projectUuid());
+        ComponentDto parentModule = file.moduleUuid() == null ? null : parentsByUuid.get(file.moduleUuid());
+        fileConsumer.accept(ref.getId(), toWsFile(file, project, parentModule, branch, pullRequest));
       } else {
-        response.putFiles(ref.getId(), toWsFile(ref.getComponentKey(), branch, pullRequest));
+        fileConsumer.accept(ref.getId(), toWsFile(ref.getComponentKey(), branch, pullRequest));
       }
     }
   }
@@ -140,30 +193,6 @@ public class ShowResponseBuilder {
     return wsFile.build();
   }
 
-  private ComponentDto getProject(String projectUuid, Map<String, ComponentDto> projectsByUuid, DbSession session) {
-    ComponentDto project = projectsByUuid.get(projectUuid);
-    if (project == null) {
-      Optional<ComponentDto> projectOptional = componentDao.selectByUuid(session, projectUuid);
-      if (projectOptional.isPresent()) {
-        project = projectOptional.get();
-        projectsByUuid.put(project.uuid(), project);
-      }
-    }
-    return project;
-  }
-
-  private ComponentDto getParentProject(String rootUuid, Map<String, ComponentDto> subProjectsByUuid, DbSession session) {
-    ComponentDto project = subProjectsByUuid.get(rootUuid);
-    if (project == null) {
-      Optional<ComponentDto> projectOptional = componentDao.selectByUuid(session, rootUuid);
-      if (projectOptional.isPresent()) {
-        project = projectOptional.get();
-        subProjectsByUuid.put(project.uuid(), project);
-      }
-    }
-    return project;
-  }
-
   private static class Reference {
     private final String id;
     private final ComponentDto dto;
@@ -45,6 +45,7 @@ import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.metric.MetricDtoFunctions;
+import org.sonar.server.component.AnalysisETag;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
@@ -81,11 +82,13 @@ public class ComponentAction implements MeasuresWsAction {
   private final DbClient dbClient;
   private final ComponentFinder componentFinder;
   private final UserSession userSession;
+  private final AnalysisETag analysisETag;
 
-  public ComponentAction(DbClient dbClient, ComponentFinder componentFinder, UserSession userSession) {
+  public ComponentAction(DbClient dbClient, ComponentFinder componentFinder, UserSession userSession, AnalysisETag analysisETag) {
     this.dbClient = dbClient;
     this.componentFinder = componentFinder;
     this.userSession = userSession;
+    this.analysisETag = analysisETag;
   }
 
   @Override
@@ -126,16 +129,22 @@ public class ComponentAction implements MeasuresWsAction {
 
   @Override
   public void handle(Request request, Response response) throws Exception {
-    ComponentWsResponse componentWsResponse = doHandle(toComponentWsRequest(request));
-    writeProtobuf(componentWsResponse, request, response);
+    doHandle(toComponentWsRequest(request), request, response);
   }
 
-  private ComponentWsResponse doHandle(ComponentRequest request) {
+  private void doHandle(ComponentRequest request, Request wsRequest, Response response) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       String branch = request.getBranch();
       String pullRequest = request.getPullRequest();
       ComponentDto component = loadComponent(dbSession, request, branch, pullRequest);
       checkPermissions(component);
+      // live measures are also updated when issues change, between analyses
+      String measuresUpdatedAt = dbClient.liveMeasureDao().selectMaxUpdatedAtByComponentUuid(dbSession, component.uuid())
+        .map(String::valueOf)
+        .orElse("");
+      if (analysisETag.checkNotModified(dbSession, component, wsRequest, response, measuresUpdatedAt)) {
+        return;
+      }
       SnapshotDto analysis = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(dbSession, component.projectUuid()).orElse(null);
 
       boolean isPR = isPR(pullRequest);
@@ -158,7 +167,7 @@ public class ComponentAction implements MeasuresWsAction {
 
       Optional<Measures.Period> period = snapshotToWsPeriods(analysis);
       Optional<ComponentDto> refComponent = getReferenceComponent(dbSession, component);
-      return buildResponse(request, component, refComponent, measuresByMetric, metrics, period);
+      writeProtobuf(buildResponse(request, component, refComponent, measuresByMetric, metrics, period), wsRequest, response);
     }
   }
 
@@ -66,6 +66,7 @@ import org.sonar.db.measure.MeasureTreeQuery;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.metric.MetricDtoFunctions;
 import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.component.ws.ComponentTreeCursorPage;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.Measures;
@@ -92,6 +93,7 @@ import static org.sonar.server.component.ws.MeasuresWsParameters.DEPRECATED_PARA
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_ADDITIONAL_FIELDS;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_BRANCH;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_COMPONENT;
+import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_CURSOR;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_METRIC_KEYS;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_METRIC_PERIOD_SORT;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_METRIC_SORT;
@@ -182,6 +184,7 @@ public class ComponentTreeAction implements MeasuresWsAction {
       .setHandler(this)
       .addPagingParams(100, MAX_SIZE)
       .setChangelog(
+        new Change("8.2", format("Parameter '%s' is added, and field 'nextCursor' is returned when it's set", PARAM_CURSOR)),
         new Change("8.1", "the response field periods under measures field is deprecated. Use period instead."),
         new Change("8.1", "the response field periods is deprecated. Use period instead."),
         new Change("7.6", format("The use of module keys in parameter '%s' is deprecated", PARAM_COMPONENT)),
@@ -259,6 +262,16 @@ public class ComponentTreeAction implements MeasuresWsAction {
         "</ul>")
       .setPossibleValues(STRATEGIES.keySet())
       .setDefaultValue(ALL_STRATEGY);
+
+    action.createParam(PARAM_CURSOR)
+      .setDescription(format("Paginate with a cursor rather than with the '%s' parameter: '%s' requests the first page, " +
+        "then the value of the field 'nextCursor' of the previous response requests the next page. " +
+        "Components are sorted by key, sorting by a metric is not supported and the total is not returned. " +
+        "The last page has no 'nextCursor'.<br>" +
+        "The time to get a page doesn't depend on its position, and measures are loaded for the components of the page only.",
+        Param.PAGE, ComponentTreeCursorPage.FIRST_PAGE_CURSOR))
+      .setExampleValue(ComponentTreeCursorPage.FIRST_PAGE_CURSOR)
+      .setSince("8.2");
   }
 
   @Override
@@ -284,11 +297,16 @@ public class ComponentTreeAction implements MeasuresWsAction {
 
   private static ComponentTreeWsResponse buildResponse(ComponentTreeRequest request, ComponentTreeData data, Paging paging) {
     ComponentTreeWsResponse.Builder response = ComponentTreeWsResponse.newBuilder();
-    response.getPagingBuilder()
-      .setPageIndex(paging.pageIndex())
-      .setPageSize(paging.pageSize())
-      .setTotal(paging.total())
-      .build();
+    if (request.getCursor() == null) {
+      response.getPagingBuilder()
+        .setPageIndex(paging.pageIndex())
+        .setPageSize(paging.pageSize())
+        .setTotal(paging.total())
+        .build();
+    } else {
+      response.getPagingBuilder().setPageSize(paging.pageSize());
+      Optional.ofNullable(data.getNextCursor()).ifPresent(response::setNextCursor);
+    }
 
     response.setBaseComponent(
       toWsComponent(
@@ -330,10 +348,14 @@ public class ComponentTreeAction implements MeasuresWsAction {
 
   private static ComponentTreeWsResponse emptyResponse(@Nullable ComponentDto baseComponent, ComponentTreeRequest request) {
     ComponentTreeWsResponse.Builder response = ComponentTreeWsResponse.newBuilder();
-    response.getPagingBuilder()
-      .setPageIndex(request.getPage())
-      .setPageSize(request.getPageSize())
-      .setTotal(0);
+    if (request.getCursor() == null) {
+      response.getPagingBuilder()
+        .setPageIndex(request.getPage())
+        .setPageSize(request.getPageSize())
+        .setTotal(0);
+    } else {
+      response.getPagingBuilder().setPageSize(request.getPageSize());
+    }
     if (baseComponent != null) {
       response.setBaseComponent(componentDtoToWsComponent(baseComponent));
     }
@@ -359,6 +381,7 @@ public class ComponentTreeAction implements MeasuresWsAction {
       .setMetricPeriodSort(request.paramAsInt(PARAM_METRIC_PERIOD_SORT))
       .setPage(request.mandatoryParamAsInt(Param.PAGE))
       .setPageSize(request.mandatoryParamAsInt(Param.PAGE_SIZE))
+      .setCursor(request.param(PARAM_CURSOR))
       .setQuery(request.param(Param.TEXT_QUERY));
     String metricSortValue = componentTreeRequest.getMetricSort();
     checkRequest(!componentTreeRequest.getMetricKeys().isEmpty(), "The '%s' parameter must contain at least one metric key", PARAM_METRIC_KEYS);
@@ -373,6 +396,8 @@ public class ComponentTreeAction implements MeasuresWsAction {
     checkRequest(ALL_METRIC_SORT_FILTER.equals(componentTreeRequest.getMetricSortFilter()) || metricSortValue != null,
       "To filter components based on the sort metric, the '%s' parameter must contain '%s' or '%s' and the '%s' parameter must be provided",
       Param.SORT, METRIC_SORT, METRIC_PERIOD_SORT, PARAM_METRIC_SORT);
+    checkRequest(componentTreeRequest.getCursor() == null || metricSortValue == null,
+      "Parameter '%s' can't be used when sorting by a metric", PARAM_CURSOR);
     return componentTreeRequest;
   }
 
@@ -414,6 +439,9 @@ public class ComponentTreeAction implements MeasuresWsAction {
       }
 
       ComponentTreeQuery componentTreeQuery = toComponentTreeQuery(wsRequest, baseComponent);
+      if (wsRequest.getCursor() != null) {
+        return loadPage(dbSession, wsRequest, baseComponent, baseSnapshot.get(), componentTreeQuery, requestedMetricKeys, metricKeysToSearch);
+      }
       List<ComponentDto> components = searchComponents(dbSession, componentTreeQuery);
 
       List<MetricDto> metrics = searchMetrics(dbSession, metricKeysToSearch);
@@ -444,6 +472,34 @@ public class ComponentTreeAction implements MeasuresWsAction {
     }
   }
 
+  /**
+   * Loads a page of components after the cursor of the request. Unlike the offset pagination, measures are loaded
+   * for the components of the page only, which keeps the cost of a page independent of the size of the tree.
+   */
+  private ComponentTreeData loadPage(DbSession dbSession, ComponentTreeRequest wsRequest, ComponentDto baseComponent, SnapshotDto baseSnapshot,
+    ComponentTreeQuery componentTreeQuery, Set<String> requestedMetricKeys, Set<String> metricKeysToSearch) {
+    List<MetricDto> metrics = searchMetrics(dbSession, metricKeysToSearch);
+    ComponentTreeCursorPage page = ComponentTreeCursorPage.load(dbClient, dbSession, componentTreeQuery, wsRequest.getCursor(), wsRequest.getPageSize());
+    List<ComponentDto> components = page.getComponents();
+
+    Table<String, MetricDto, ComponentTreeData.Measure> measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent,
+      components, metrics);
+    if (isPR(wsRequest.getPullRequest())) {
+      PrMeasureFix.removeMetricsNotRequested(metrics, requestedMetricKeys);
+      PrMeasureFix.createReplacementMeasures(metrics, measuresByComponentUuidAndMetric, requestedMetricKeys);
+    }
+
+    return ComponentTreeData.builder()
+      .setBaseComponent(baseComponent)
+      .setComponentsFromDb(components)
+      .setNextCursor(page.getNextCursor().orElse(null))
+      .setMeasuresByComponentUuidAndMetric(measuresByComponentUuidAndMetric)
+      .setMetrics(metrics)
+      .setPeriod(snapshotToWsPeriods(baseSnapshot).orElse(null))
+      .setReferenceComponentsByUuid(searchReferenceComponentsById(dbSession, components))
+      .build();
+  }
+
   private boolean isPR(@Nullable String pullRequest) {
     return pullRequest != null;
   }
@@ -527,6 +583,25 @@ public class ComponentTreeAction implements MeasuresWsAction {
     return measuresByComponentUuidAndMetric;
   }
 
+  private Table<String, MetricDto, ComponentTreeData.Measure> searchMeasuresByComponentUuidAndMetric(DbSession dbSession, ComponentDto baseComponent,
+    List<ComponentDto> components, List<MetricDto> metrics) {
+    Map<Integer, MetricDto> metricsById = Maps.uniqueIndex(metrics, MetricDto::getId);
+    List<String> componentUuids = new ArrayList<>(components.size() + 1);
+    componentUuids.add(baseComponent.uuid());
+    components.forEach(component -> componentUuids.add(component.uuid()));
+
+    Table<String, MetricDto, ComponentTreeData.Measure> measuresByComponentUuidAndMetric = HashBasedTable.create(componentUuids.size(), metrics.size());
+    dbClient.liveMeasureDao().selectByComponentUuidsAndMetricIds(dbSession, componentUuids, metricsById.keySet())
+      .forEach(measureDto -> measuresByComponentUuidAndMetric.put(
+        measureDto.getComponentUuid(),
+        metricsById.get(measureDto.getMetricId()),
+        ComponentTreeData.Measure.createFromMeasureDto(measureDto)));
+
+    addBestValuesToMeasures(measuresByComponentUuidAndMetric, components, metrics);
+
+    return measuresByComponentUuidAndMetric;
+  }
+
   /**
    * Conditions for best value measure:
    * <ul>
@@ -37,6 +37,7 @@ class ComponentTreeData {
   private final ComponentDto baseComponent;
   private final List<ComponentDto> components;
   private final int componentCount;
+  private final String nextCursor;
   private final Map<String, ComponentDto> referenceComponentsByUuid;
   private final List<MetricDto> metrics;
   private final Measures.Period period;
@@ -46,6 +47,7 @@ class ComponentTreeData {
     this.baseComponent = builder.baseComponent;
     this.components = builder.componentsFromDb;
     this.componentCount = builder.componentCount;
+    this.nextCursor = builder.nextCursor;
     this.referenceComponentsByUuid = builder.referenceComponentsByUuid;
     this.metrics = builder.metrics;
     this.measuresByComponentUuidAndMetric = builder.measuresByComponentUuidAndMetric;
@@ -66,6 +68,11 @@ class ComponentTreeData {
     return componentCount;
   }
 
+  @CheckForNull
+  String getNextCursor() {
+    return nextCursor;
+  }
+
   @CheckForNull
   public Map<String, ComponentDto> getReferenceComponentsByUuid() {
     return referenceComponentsByUuid;
@@ -94,6 +101,7 @@ class ComponentTreeData {
     private List<ComponentDto> componentsFromDb;
     private Map<String, ComponentDto> referenceComponentsByUuid;
     private int componentCount;
+    private String nextCursor;
     private List<MetricDto> metrics;
     private Measures.Period period;
     private Table<String, MetricDto, Measure> measuresByComponentUuidAndMetric;
@@ -117,6 +125,11 @@ class ComponentTreeData {
       return this;
     }
 
+    public Builder setNextCursor(@Nullable String nextCursor) {
+      this.nextCursor = nextCursor;
+      return this;
+    }
+
     public Builder setMetrics(List<MetricDto> metrics) {
       this.metrics = metrics;
       return this;
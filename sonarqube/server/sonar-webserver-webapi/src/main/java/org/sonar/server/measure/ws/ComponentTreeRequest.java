@@ -41,6 +41,7 @@ class ComponentTreeRequest {
   private List<String> metricKeys;
   private Integer page;
   private Integer pageSize;
+  private String cursor;
 
   /**
    * @deprecated since 6.6, please use {@link #getComponent()} instead
@@ -200,6 +201,16 @@ class ComponentTreeRequest {
     return this;
   }
 
+  @CheckForNull
+  public String getCursor() {
+    return cursor;
+  }
+
+  public ComponentTreeRequest setCursor(@Nullable String cursor) {
+    this.cursor = cursor;
+    return this;
+  }
+
   @CheckForNull
   public Integer getMetricPeriodSort() {
     return metricPeriodSort;
@@ -40,6 +40,7 @@ import org.sonar.server.organization.BillingValidationsProxy;
 import org.sonar.server.project.Project;
 import org.sonar.server.project.ProjectLifeCycleListeners;
 import org.sonar.server.qualityprofile.QProfileFactory;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndexer;
 
 import static org.sonar.db.Pagination.forPage;
@@ -57,16 +58,18 @@ public class OrganizationDeleter {
   private final QProfileFactory qProfileFactory;
   private final ProjectLifeCycleListeners projectLifeCycleListeners;
   private final BillingValidationsProxy billingValidations;
+  private final PermissionCache permissionCache;
 
   public OrganizationDeleter(DbClient dbClient, ComponentCleanerService componentCleanerService, UserIndexer userIndexer,
     QProfileFactory qProfileFactory, ProjectLifeCycleListeners projectLifeCycleListeners,
-    BillingValidationsProxy billingValidations) {
+    BillingValidationsProxy billingValidations, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.componentCleanerService = componentCleanerService;
     this.userIndexer = userIndexer;
     this.qProfileFactory = qProfileFactory;
     this.projectLifeCycleListeners = projectLifeCycleListeners;
     this.billingValidations = billingValidations;
+    this.permissionCache = permissionCache;
   }
 
   void delete(DbSession dbSession, OrganizationDto organization) {
@@ -77,6 +80,8 @@ public class OrganizationDeleter {
     deleteQualityGates(dbSession, organization);
     deleteOrganizationAlmBinding(dbSession, organization);
     deleteOrganization(dbSession, organization);
+    // deleteOrganization() commits the deletion of the permissions and memberships of the organization
+    permissionCache.invalidate();
     billingValidations.onDelete(new BillingValidations.Organization(organization.getKey(), organization.getUuid(), organization.getName()));
   }
 
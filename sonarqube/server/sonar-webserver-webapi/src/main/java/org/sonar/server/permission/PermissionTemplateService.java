@@ -42,6 +42,7 @@ import org.sonar.db.permission.template.PermissionTemplateGroupDto;
 import org.sonar.db.permission.template.PermissionTemplateUserDto;
 import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.es.ProjectIndexers;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.UserSession;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -58,13 +59,15 @@ public class PermissionTemplateService {
   private final ProjectIndexers projectIndexers;
   private final UserSession userSession;
   private final DefaultTemplatesResolver defaultTemplatesResolver;
+  private final PermissionCache permissionCache;
 
   public PermissionTemplateService(DbClient dbClient, ProjectIndexers projectIndexers, UserSession userSession,
-    DefaultTemplatesResolver defaultTemplatesResolver) {
+    DefaultTemplatesResolver defaultTemplatesResolver, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.projectIndexers = projectIndexers;
     this.userSession = userSession;
     this.defaultTemplatesResolver = defaultTemplatesResolver;
+    this.permissionCache = permissionCache;
   }
 
   public boolean wouldUserHaveScanPermissionWithDefaultTemplate(DbSession dbSession, String organizationUuid, @Nullable Integer userId, String projectKey) {
@@ -96,11 +99,13 @@ public class PermissionTemplateService {
       copyPermissions(dbSession, template, project, null);
     }
     projectIndexers.commitAndIndexComponents(dbSession, projects, ProjectIndexer.Cause.PERMISSION_CHANGE);
+    permissionCache.invalidate();
   }
 
   /**
    * Apply the default permission template to project. The project can already exist (so it has permissions) or
-   * can be provisioned (so has no permissions yet).
+   * can be provisioned (so has no permissions yet). The session is not committed, the caller must invalidate the
+   * {@link PermissionCache} once committed.
    * @param projectCreatorUserId id of the user who creates the project, only if project is provisioned. He will
    */
   public void applyDefault(DbSession dbSession, ComponentDto component, @Nullable Integer projectCreatorUserId) {
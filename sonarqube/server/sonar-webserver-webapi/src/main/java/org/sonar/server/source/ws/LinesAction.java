@@ -35,6 +35,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.server.component.AnalysisETag;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.source.SourceService;
 import org.sonar.server.user.UserSession;
@@ -61,14 +62,16 @@ public class LinesAction implements SourcesWsAction {
   private final LinesJsonWriter linesJsonWriter;
   private final DbClient dbClient;
   private final UserSession userSession;
+  private final AnalysisETag analysisETag;
 
   public LinesAction(ComponentFinder componentFinder, DbClient dbClient, SourceService sourceService,
-    LinesJsonWriter linesJsonWriter, UserSession userSession) {
+    LinesJsonWriter linesJsonWriter, UserSession userSession, AnalysisETag analysisETag) {
     this.componentFinder = componentFinder;
     this.sourceService = sourceService;
     this.linesJsonWriter = linesJsonWriter;
     this.dbClient = dbClient;
     this.userSession = userSession;
+    this.analysisETag = analysisETag;
   }
 
   @Override
@@ -144,6 +147,9 @@ public class LinesAction implements SourcesWsAction {
         .map(SnapshotDto::getPeriodDate);
 
       userSession.checkComponentPermission(UserRole.CODEVIEWER, file);
+      if (analysisETag.checkNotModified(dbSession, file, request, response)) {
+        return;
+      }
       int from = request.mandatoryParamAsInt(PARAM_FROM);
       int to = MoreObjects.firstNonNull(request.paramAsInt(PARAM_TO), Integer.MAX_VALUE);
 
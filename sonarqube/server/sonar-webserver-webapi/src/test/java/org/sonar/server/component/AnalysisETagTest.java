@@ -0,0 +1,125 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.platform.Server;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.PermissionCache;
+import org.sonar.server.ws.DumbResponse;
+import org.sonar.server.ws.TestRequest;
+import org.sonarqube.ws.MediaTypes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+
+public class AnalysisETagTest {
+
+  @Rule
+  public DbTester db = DbTester.create();
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private Server server = mock(Server.class);
+  private PermissionCache permissionCache = PermissionCache.disabled();
+  private AnalysisETag underTest = new AnalysisETag(db.getDbClient(), userSession, permissionCache, server);
+
+  @Test
+  public void no_etag_if_branch_has_never_been_analyzed() {
+    ComponentDto project = db.components().insertPrivateProject();
+    DumbResponse response = new DumbResponse();
+
+    assertThat(underTest.checkNotModified(db.getSession(), project, new TestRequest(), response)).isFalse();
+    assertThat(response.getHeader("ETag")).isNull();
+  }
+
+  @Test
+  public void set_strong_etag_of_last_analysis() {
+    when(server.getVersion()).thenReturn("8.4");
+    ComponentDto project = db.components().insertPrivateProject();
+    db.components().insertSnapshot(project);
+    DumbResponse response = new DumbResponse();
+
+    assertThat(underTest.checkNotModified(db.getSession(), project, new TestRequest(), response)).isFalse();
+
+    assertThat(response.getHeader("ETag")).matches("\"[0-9a-f]{64}\"");
+    assertThat(response.getHeader("Cache-Control")).isEqualTo("private, no-cache");
+    assertThat(response.stream().status()).isEqualTo(200);
+  }
+
+  @Test
+  public void return_304_if_etag_matches() {
+    when(server.getVersion()).thenReturn("8.4");
+    ComponentDto project = db.components().insertPrivateProject();
+    db.components().insertSnapshot(project);
+    String eTag = underTest.compute(db.getSession(), project, MediaTypes.JSON).get();
+
+    DumbResponse response = new DumbResponse();
+    TestRequest request = new TestRequest().setMediaType(MediaTypes.JSON).setHeader("If-None-Match", "\"other\", W/" + eTag);
+
+    assertThat(underTest.checkNotModified(db.getSession(), project, request, response)).isTrue();
+    assertThat(response.stream().status()).isEqualTo(304);
+    assertThat(response.getHeader("ETag")).isEqualTo(eTag);
+  }
+
+  @Test
+  public void etag_changes_with_analysis() {
+    when(server.getVersion()).thenReturn("8.4");
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    db.components().insertSnapshot(project);
+    String eTag = underTest.compute(db.getSession(), file, MediaTypes.JSON).get();
+    SnapshotDto newAnalysis = db.components().insertSnapshot(project, s -> s.setLast(false));
+    db.getDbClient().snapshotDao().switchIsLastFlagAndSetProcessedStatus(db.getSession(), project.uuid(), newAnalysis.getUuid());
+
+    assertThat(underTest.compute(db.getSession(), file, MediaTypes.JSON)).doesNotContain(eTag);
+  }
+
+  @Test
+  public void etag_depends_on_component_media_type_user_permissions_server_version_and_discriminators() {
+    when(server.getVersion()).thenReturn("8.4");
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    db.components().insertSnapshot(project);
+    String eTag = underTest.compute(db.getSession(), file, MediaTypes.JSON).get();
+
+    assertThat(underTest.compute(db.getSession(), file, MediaTypes.JSON)).contains(eTag);
+    assertThat(underTest.compute(db.getSession(), project, MediaTypes.JSON)).doesNotContain(eTag);
+    assertThat(underTest.compute(db.getSession(), file, MediaTypes.PROTOBUF)).doesNotContain(eTag);
+    assertThat(underTest.compute(db.getSession(), file, MediaTypes.JSON, "42")).doesNotContain(eTag);
+
+    userSession.logIn();
+    assertThat(underTest.compute(db.getSession(), file, MediaTypes.JSON)).doesNotContain(eTag);
+    userSession.anonymous();
+
+    permissionCache.invalidate();
+    assertThat(underTest.compute(db.getSession(), file, MediaTypes.JSON)).doesNotContain(eTag);
+    eTag = underTest.compute(db.getSession(), file, MediaTypes.JSON).get();
+
+    when(server.getVersion()).thenReturn("8.5");
+    assertThat(underTest.compute(db.getSession(), file, MediaTypes.JSON)).doesNotContain(eTag);
+  }
+}
@@ -39,6 +39,7 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.favorite.FavoriteUpdater;
 import org.sonar.server.l18n.I18nRule;
 import org.sonar.server.permission.PermissionTemplateService;
+import org.sonar.server.user.PermissionCache;
 
 import static java.util.stream.IntStream.rangeClosed;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -66,11 +67,13 @@ public class ComponentUpdaterTest {
 
   private TestProjectIndexers projectIndexers = new TestProjectIndexers();
   private PermissionTemplateService permissionTemplateService = mock(PermissionTemplateService.class);
+  private PermissionCache permissionCache = PermissionCache.disabled();
 
   private ComponentUpdater underTest = new ComponentUpdater(db.getDbClient(), i18n, system2,
     permissionTemplateService,
     new FavoriteUpdater(db.getDbClient()),
-    projectIndexers);
+    projectIndexers,
+    permissionCache);
 
   @Test
   public void persist_and_index_when_creating_project() {
@@ -108,6 +111,23 @@ public class ComponentUpdaterTest {
     assertThat(branch.get().getProjectUuid()).isEqualTo(returned.uuid());
   }
 
+  @Test
+  public void invalidate_permission_cache_once_committed() {
+    NewComponent project = NewComponent.newComponentBuilder()
+      .setKey(DEFAULT_PROJECT_KEY)
+      .setName(DEFAULT_PROJECT_NAME)
+      .setOrganizationUuid(db.getDefaultOrganization().getUuid())
+      .build();
+    long version = permissionCache.version();
+
+    ComponentDto created = underTest.createWithoutCommit(db.getSession(), project, null, c -> {
+    });
+    assertThat(permissionCache.version()).isEqualTo(version);
+
+    underTest.commitAndIndex(db.getSession(), created);
+    assertThat(permissionCache.version()).isGreaterThan(version);
+  }
+
   @Test
   public void persist_private_flag_true_when_creating_project() {
     OrganizationDto organization = db.organizations().insert();
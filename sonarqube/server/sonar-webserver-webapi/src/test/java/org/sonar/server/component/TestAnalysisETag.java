@@ -0,0 +1,40 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component;
+
+import org.sonar.api.platform.Server;
+import org.sonar.db.DbTester;
+import org.sonar.server.user.PermissionCache;
+import org.sonar.server.user.UserSession;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestAnalysisETag extends AnalysisETag {
+  private TestAnalysisETag(DbTester dbTester, UserSession userSession, Server server) {
+    super(dbTester.getDbClient(), userSession, PermissionCache.disabled(), server);
+  }
+
+  public static TestAnalysisETag from(DbTester dbTester, UserSession userSession) {
+    Server server = mock(Server.class);
+    when(server.getVersion()).thenReturn("8.4");
+    return new TestAnalysisETag(dbTester, userSession, server);
+  }
+}
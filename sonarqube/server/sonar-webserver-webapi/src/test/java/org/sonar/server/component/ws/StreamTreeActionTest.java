@@ -0,0 +1,192 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.component.ws;
+
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.server.ws.WebService.Param;
+import org.sonar.api.utils.System2;
+import org.sonar.api.web.UserRole;
+import org.sonar.core.i18n.I18n;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.component.ResourceTypesRule;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.Components.Component;
+import org.sonarqube.ws.MediaTypes;
+
+import static java.util.Arrays.stream;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.sonar.api.resources.Qualifiers.FILE;
+import static org.sonar.api.resources.Qualifiers.PROJECT;
+import static org.sonar.api.resources.Qualifiers.UNIT_TEST_FILE;
+import static org.sonar.db.component.ComponentTesting.newDirectory;
+import static org.sonar.db.component.ComponentTesting.newModuleDto;
+import static org.sonar.db.component.ComponentTesting.newPrivateProjectDto;
+import static org.sonar.db.component.ComponentTesting.newProjectCopy;
+import static org.sonar.db.component.ComponentTesting.newView;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_COMPONENT;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_QUALIFIERS;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_STRATEGY;
+
+public class StreamTreeActionTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private ResourceTypesRule resourceTypes = new ResourceTypesRule()
+    .setRootQualifiers(PROJECT)
+    .setLeavesQualifiers(FILE, UNIT_TEST_FILE);
+  private DbClient dbClient = db.getDbClient();
+
+  private WsActionTester ws = new WsActionTester(new StreamTreeAction(dbClient, new ComponentFinder(dbClient, resourceTypes), resourceTypes, userSession,
+    mock(I18n.class)));
+
+  @Test
+  public void verify_definition() {
+    WebService.Action action = ws.getDef();
+
+    assertThat(action.since()).isEqualTo("8.2");
+    assertThat(action.isInternal()).isFalse();
+    assertThat(action.responseExample()).isNotNull();
+    assertThat(action.params()).extracting(WebService.Param::key).containsExactlyInAnyOrder("component", "branch", "pullRequest", "qualifiers", "strategy", "q");
+  }
+
+  @Test
+  public void stream_leaves_as_ndjson_sorted_by_key() {
+    ComponentDto project = insertProjectWithFiles();
+
+    TestResponse response = ws.newRequest()
+      .setParam(PARAM_STRATEGY, "leaves")
+      .setParam(PARAM_COMPONENT, project.getDbKey())
+      .setParam(PARAM_QUALIFIERS, FILE)
+      .execute();
+
+    assertThat(response.getMediaType()).isEqualTo(StreamTreeAction.NDJSON);
+    assertThat(stream(response.getInput().split("\n"))
+      .map(line -> new JsonParser().parse(line).getAsJsonObject().get("key").getAsString()))
+        .containsExactly("file-key-1", "file-key-2", "file-key-3");
+  }
+
+  @Test
+  public void stream_components_as_delimited_protobuf() throws IOException {
+    ComponentDto project = insertProjectWithFiles();
+
+    TestResponse response = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam(PARAM_STRATEGY, "children")
+      .setParam(PARAM_COMPONENT, project.getDbKey())
+      .execute();
+
+    assertThat(response.getMediaType()).isEqualTo(MediaTypes.PROTOBUF);
+    List<Component> components = new ArrayList<>();
+    try (InputStream input = response.getInputStream()) {
+      Component component;
+      while ((component = Component.parseDelimitedFrom(input)) != null) {
+        components.add(component);
+      }
+    }
+    assertThat(components).extracting(Component::getKey).containsExactly("KEY_project-uuid:directory-path-1", "MODULE_KEY_module-uuid-1", "file-key-3");
+  }
+
+  @Test
+  public void stream_nothing_when_no_component_matches() {
+    ComponentDto project = insertProjectWithFiles();
+
+    TestResponse response = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getDbKey())
+      .setParam(Param.TEXT_QUERY, "unknown")
+      .execute();
+
+    assertThat(response.getInput()).isEmpty();
+  }
+
+  @Test
+  public void stream_project_references_from_portfolio() {
+    OrganizationDto organizationDto = db.organizations().insert();
+    ComponentDto view = newView(organizationDto, "view-uuid");
+    db.components().insertViewAndSnapshot(view);
+    ComponentDto project = newPrivateProjectDto(organizationDto, "project-uuid-1").setDbKey("project-key-1");
+    db.components().insertProjectAndSnapshot(project);
+    db.components().insertComponent(newProjectCopy("project-uuid-1-copy", project, view));
+    db.commit();
+    userSession.logIn().registerComponents(view, project);
+
+    TestResponse response = ws.newRequest()
+      .setParam(PARAM_STRATEGY, "children")
+      .setParam(PARAM_COMPONENT, view.getDbKey())
+      .execute();
+
+    assertThat(response.getInput()).contains("\"refId\":\"project-uuid-1\"", "\"refKey\":\"project-key-1\"");
+  }
+
+  @Test
+  public void fail_when_not_enough_privileges() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSession.logIn();
+
+    expectedException.expect(ForbiddenException.class);
+
+    ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getDbKey())
+      .execute();
+  }
+
+  private ComponentDto insertProjectWithFiles() {
+    ComponentDto project = newPrivateProjectDto(db.getDefaultOrganization(), "project-uuid");
+    db.components().insertProjectAndSnapshot(project);
+    ComponentDto module = newModuleDto("module-uuid-1", project);
+    db.components().insertComponent(module);
+    db.components().insertComponent(newFileDto(project, 3));
+    db.components().insertComponent(newFileDto(module, 1));
+    ComponentDto directory = newDirectory(project, "directory-path-1");
+    db.components().insertComponent(directory);
+    db.components().insertComponent(newFileDto(module, 2));
+    db.commit();
+    userSession.logIn().addProjectPermission(UserRole.USER, project);
+    return project;
+  }
+
+  private static ComponentDto newFileDto(ComponentDto moduleOrProject, int i) {
+    return ComponentTesting.newFileDto(moduleOrProject, null, "file-uuid-" + i)
+      .setName("file-name-" + i)
+      .setDbKey("file-key-" + i)
+      .setPath("file-path-" + i);
+  }
+}
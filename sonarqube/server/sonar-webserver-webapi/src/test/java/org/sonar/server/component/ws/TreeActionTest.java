@@ -44,6 +44,7 @@ import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.component.ResourceTypesRule;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.component.ComponentFinder;
+import org.sonar.server.component.TestAnalysisETag;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
@@ -71,6 +72,7 @@ import static org.sonar.db.component.ComponentTesting.newSubView;
 import static org.sonar.db.component.ComponentTesting.newView;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_BRANCH;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_COMPONENT;
+import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_CURSOR;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_PULL_REQUEST;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_QUALIFIERS;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_STRATEGY;
@@ -89,7 +91,7 @@ public class TreeActionTest {
   private DbClient dbClient = db.getDbClient();
 
   private WsActionTester ws = new WsActionTester(new TreeAction(dbClient, new ComponentFinder(dbClient, resourceTypes), resourceTypes, userSession,
-    mock(I18n.class)));
+    mock(I18n.class), TestAnalysisETag.from(db, userSession)));
 
   @Test
   public void verify_definition() {
@@ -100,9 +102,10 @@ public class TreeActionTest {
     assertThat(action.responseExample()).isNotNull();
     assertThat(action.changelog()).extracting(Change::getVersion, Change::getDescription).containsExactlyInAnyOrder(
       tuple("7.6", "The use of 'BRC' as value for parameter 'qualifiers' is deprecated"),
-      tuple("7.6", "The use of module keys in parameter 'component' is deprecated"));
+      tuple("7.6", "The use of module keys in parameter 'component' is deprecated"),
+      tuple("8.2", "Parameter 'cursor' is added, and field 'nextCursor' is returned when it's set"));
     assertThat(action.params()).extracting(Param::key).containsExactlyInAnyOrder("component", "branch", "pullRequest", "qualifiers", "strategy",
-      "q", "s", "p", "asc", "ps");
+      "q", "s", "p", "asc", "ps", "cursor");
 
     Param component = action.param(PARAM_COMPONENT);
     assertThat(component.isRequired()).isTrue();
@@ -232,6 +235,64 @@ public class TreeActionTest {
     assertThat(response.getComponentsList()).extracting("key").containsExactly("file-key-1", "file-key-2", "file-key-3");
   }
 
+  @Test
+  public void paginate_leaves_with_cursor() {
+    ComponentDto project = newPrivateProjectDto(db.getDefaultOrganization(), "project-uuid");
+    db.components().insertProjectAndSnapshot(project);
+    ComponentDto module = newModuleDto("module-uuid-1", project);
+    db.components().insertComponent(module);
+    db.components().insertComponent(newFileDto(project, 3));
+    db.components().insertComponent(newFileDto(module, 1));
+    ComponentDto directory = newDirectory(project, "directory-path-1");
+    db.components().insertComponent(directory);
+    db.components().insertComponent(newFileDto(module, directory, 2));
+    db.commit();
+    logInWithBrowsePermission(project);
+
+    TreeWsResponse firstPage = ws.newRequest()
+      .setParam(PARAM_STRATEGY, "leaves")
+      .setParam(PARAM_COMPONENT, project.getDbKey())
+      .setParam(PARAM_QUALIFIERS, FILE)
+      .setParam(PARAM_CURSOR, "*")
+      .setParam(Param.PAGE_SIZE, "2")
+      .executeProtobuf(TreeWsResponse.class);
+
+    assertThat(firstPage.getComponentsList()).extracting("key").containsExactly("file-key-1", "file-key-2");
+    assertThat(firstPage.getPaging().getPageSize()).isEqualTo(2);
+    assertThat(firstPage.getPaging().hasTotal()).isFalse();
+    assertThat(firstPage.getNextCursor()).isEqualTo("file-key-2");
+
+    TreeWsResponse lastPage = ws.newRequest()
+      .setParam(PARAM_STRATEGY, "leaves")
+      .setParam(PARAM_COMPONENT, project.getDbKey())
+      .setParam(PARAM_QUALIFIERS, FILE)
+      .setParam(PARAM_CURSOR, firstPage.getNextCursor())
+      .setParam(Param.PAGE_SIZE, "2")
+      .executeProtobuf(TreeWsResponse.class);
+
+    assertThat(lastPage.getComponentsList()).extracting("key").containsExactly("file-key-3");
+    assertThat(lastPage.hasNextCursor()).isFalse();
+  }
+
+  @Test
+  public void last_page_with_cursor_has_no_next_cursor_when_it_is_full() {
+    ComponentDto project = newPrivateProjectDto(db.organizations().insert(), "project-uuid");
+    db.components().insertProjectAndSnapshot(project);
+    db.components().insertComponent(newFileDto(project, 1));
+    db.components().insertComponent(newFileDto(project, 2));
+    db.commit();
+    logInWithBrowsePermission(project);
+
+    TreeWsResponse response = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getDbKey())
+      .setParam(PARAM_CURSOR, "*")
+      .setParam(Param.PAGE_SIZE, "2")
+      .executeProtobuf(TreeWsResponse.class);
+
+    assertThat(response.getComponentsList()).extracting("key").containsExactly("file-key-1", "file-key-2");
+    assertThat(response.hasNextCursor()).isFalse();
+  }
+
   @Test
   public void sort_descendants_by_qualifier() {
     ComponentDto project = newPrivateProjectDto(db.organizations().insert(), "project-uuid");
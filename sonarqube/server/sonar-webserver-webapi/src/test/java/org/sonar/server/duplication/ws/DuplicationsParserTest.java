@@ -20,7 +20,9 @@
 package org.sonar.server.duplication.ws;
 
 import com.google.common.collect.Iterables;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,6 +32,7 @@ import org.sonar.db.component.ComponentDto;
 
 import static java.lang.String.format;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 
 public class DuplicationsParserTest {
@@ -204,6 +207,25 @@ public class DuplicationsParserTest {
     assertThat(duplication2.size()).isEqualTo(5);
   }
 
+  @Test
+  public void duplication_on_disabled_file() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    ComponentDto disabledFile = db.components().insertComponent(newFileDto(project).setEnabled(false));
+    List<DuplicationsParser.Block> blocks = parser.parse(db.getSession(), file, null, null,
+      format("<duplications>\n" +
+        "  <g>\n" +
+        "    <b s=\"20\" l=\"5\" r=\"%s\"/>\n" +
+        "    <b s=\"31\" l=\"5\" r=\"%s\"/>\n" +
+        "  </g>\n" +
+        "</duplications>", file.getDbKey(), disabledFile.getDbKey()));
+
+    assertThat(blocks).hasSize(1);
+    assertThat(blocks.get(0).getDuplications())
+      .extracting(Duplication::componentDto, Duplication::from, Duplication::removed)
+      .containsExactly(tuple(file, 20, false), tuple(disabledFile, 31, false));
+  }
+
   @Test
   public void compare_duplications() {
     ComponentDto project1 = db.components().insertPrivateProject();
@@ -244,6 +266,38 @@ public class DuplicationsParserTest {
       Duplication.newComponent(currentFile, 5, 2))).isEqualTo(1);
   }
 
+  @Test
+  public void parse_duplications_of_several_files() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project));
+    Map<ComponentDto, String> dataByFile = new LinkedHashMap<>();
+    dataByFile.put(file1, format("<duplications>\n" +
+      "  <g>\n" +
+      "    <b s=\"20\" l=\"5\" r=\"%s\"/>\n" +
+      "    <b s=\"31\" l=\"5\" r=\"%s\"/>\n" +
+      "  </g>\n" +
+      "</duplications>", file2.getDbKey(), file1.getDbKey()));
+    dataByFile.put(file2, format("<duplications>\n" +
+      "  <g>\n" +
+      "    <b s=\"31\" l=\"5\" r=\"%s\"/>\n" +
+      "    <b s=\"20\" l=\"5\" r=\"%s\"/>\n" +
+      "    <b s=\"40\" l=\"5\" r=\"%s\"/>\n" +
+      "  </g>\n" +
+      "</duplications>", file1.getDbKey(), file2.getDbKey(), "removed:file"));
+
+    Map<String, List<DuplicationsParser.Block>> blocksByFileUuid = parser.parse(db.getSession(), dataByFile, null, null);
+
+    assertThat(blocksByFileUuid).containsOnlyKeys(file1.uuid(), file2.uuid());
+    assertThat(blocksByFileUuid.get(file1.uuid())).hasSize(1);
+    assertThat(blocksByFileUuid.get(file1.uuid()).get(0).getDuplications())
+      .extracting(Duplication::componentDto, Duplication::from)
+      .containsExactly(tuple(file1, 31), tuple(file2, 20));
+    assertThat(blocksByFileUuid.get(file2.uuid()).get(0).getDuplications())
+      .extracting(Duplication::componentDto, Duplication::from, Duplication::removed)
+      .containsExactly(tuple(file2, 20, false), tuple(file1, 31, false), tuple(null, 40, true));
+  }
+
   @Test
   public void duplication_on_branch() {
     ComponentDto project = db.components().insertPublicProject();
@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.duplication.ws;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.metric.MetricDto;
+import org.sonar.server.component.TestComponentFinder;
+import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.metric.MetricToDto;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.WsActionTester;
+import org.sonarqube.ws.Duplications.FileDuplications;
+import org.sonarqube.ws.Duplications.ListResponse;
+
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+
+public class ListActionTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public UserSessionRule userSessionRule = UserSessionRule.standalone();
+  @Rule
+  public DbTester db = DbTester.create();
+
+  private MetricDto dataMetric = MetricToDto.INSTANCE.apply(CoreMetrics.DUPLICATIONS_DATA);
+  private MetricDto blocksMetric = MetricToDto.INSTANCE.apply(CoreMetrics.DUPLICATED_BLOCKS);
+  private DuplicationsParser parser = new DuplicationsParser(db.getDbClient().componentDao());
+  private ShowResponseBuilder responseBuilder = new ShowResponseBuilder(db.getDbClient());
+
+  private WsActionTester ws = new WsActionTester(new ListAction(db.getDbClient(), parser, responseBuilder, userSessionRule, TestComponentFinder.from(db)));
+
+  @Before
+  public void setUp() {
+    db.getDbClient().metricDao().insert(db.getSession(), dataMetric);
+    db.getDbClient().metricDao().insert(db.getSession(), blocksMetric);
+    db.commit();
+  }
+
+  @Test
+  public void define_ws() {
+    WebService.Action list = ws.getDef();
+    assertThat(list.since()).isEqualTo("8.2");
+    assertThat(list.isInternal()).isFalse();
+    assertThat(list.responseExampleAsString()).isNotEmpty();
+    assertThat(list.params()).extracting(WebService.Param::key).containsExactlyInAnyOrder("project", "branch", "pullRequest", "p", "ps");
+  }
+
+  @Test
+  public void return_duplications_of_all_duplicated_files_of_project() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSessionRule.addProjectPermission(UserRole.CODEVIEWER, project);
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setPath("src/A.java"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setPath("src/B.java"));
+    ComponentDto notDuplicated = db.components().insertComponent(newFileDto(project).setPath("src/C.java"));
+    insertDuplications(file1, file2);
+    insertDuplications(file2, file1);
+    db.measures().insertLiveMeasure(notDuplicated, blocksMetric, m -> m.setValue(0d));
+
+    ListResponse response = ws.newRequest()
+      .setParam("project", project.getKey())
+      .executeProtobuf(ListResponse.class);
+
+    assertThat(response.getPaging().getTotal()).isEqualTo(2);
+    assertThat(response.getFileDuplicationsList()).extracting(FileDuplications::getKey).containsExactly(file1.getKey(), file2.getKey());
+    FileDuplications duplications = response.getFileDuplications(0);
+    assertThat(duplications.getDuplicationsList()).hasSize(1);
+    assertThat(duplications.getDuplications(0).getBlocksList())
+      .extracting(b -> b.getFrom(), b -> b.getSize(), b -> b.getRef())
+      .containsExactly(tuple(10, 5, "1"), tuple(20, 5, "2"));
+    assertThat(duplications.getFilesMap().get("1").getKey()).isEqualTo(file1.getKey());
+    assertThat(duplications.getFilesMap().get("2").getKey()).isEqualTo(file2.getKey());
+    assertThat(duplications.getFilesMap().get("2").getProject()).isEqualTo(project.getKey());
+  }
+
+  @Test
+  public void paginate_files() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSessionRule.addProjectPermission(UserRole.CODEVIEWER, project);
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setPath("src/A.java"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setPath("src/B.java"));
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project).setPath("src/C.java"));
+    insertDuplications(file1, file2);
+    insertDuplications(file2, file3);
+    insertDuplications(file3, file1);
+
+    ListResponse response = ws.newRequest()
+      .setParam("project", project.getKey())
+      .setParam("p", "2")
+      .setParam("ps", "2")
+      .executeProtobuf(ListResponse.class);
+
+    assertThat(response.getPaging().getPageIndex()).isEqualTo(2);
+    assertThat(response.getPaging().getPageSize()).isEqualTo(2);
+    assertThat(response.getPaging().getTotal()).isEqualTo(3);
+    assertThat(response.getFileDuplicationsList()).extracting(FileDuplications::getKey).containsExactly(file3.getKey());
+  }
+
+  @Test
+  public void return_duplications_of_branch() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSessionRule.addProjectPermission(UserRole.CODEVIEWER, project);
+    ComponentDto branch = db.components().insertProjectBranch(project);
+    ComponentDto file1 = db.components().insertComponent(newFileDto(branch));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(branch));
+    insertDuplications(file1, file2);
+
+    ListResponse response = ws.newRequest()
+      .setParam("project", project.getKey())
+      .setParam("branch", branch.getBranch())
+      .executeProtobuf(ListResponse.class);
+
+    assertThat(response.getFileDuplicationsList()).hasSize(1);
+    FileDuplications duplications = response.getFileDuplications(0);
+    assertThat(duplications.getKey()).isEqualTo(file1.getKey());
+    assertThat(duplications.getFilesMap().values())
+      .extracting(f -> f.getKey(), f -> f.getBranch())
+      .containsExactlyInAnyOrder(tuple(file1.getKey(), branch.getBranch()), tuple(file2.getKey(), branch.getBranch()));
+  }
+
+  @Test
+  public void return_empty_list_when_project_has_no_duplications() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSessionRule.addProjectPermission(UserRole.CODEVIEWER, project);
+    db.components().insertComponent(newFileDto(project));
+
+    ListResponse response = ws.newRequest()
+      .setParam("project", project.getKey())
+      .executeProtobuf(ListResponse.class);
+
+    assertThat(response.getPaging().getTotal()).isZero();
+    assertThat(response.getFileDuplicationsList()).isEmpty();
+  }
+
+  @Test
+  public void fail_if_user_is_not_allowed_to_access_project() {
+    ComponentDto project = db.components().insertPrivateProject();
+
+    expectedException.expect(ForbiddenException.class);
+
+    ws.newRequest()
+      .setParam("project", project.getKey())
+      .execute();
+  }
+
+  private void insertDuplications(ComponentDto file, ComponentDto otherFile) {
+    db.measures().insertLiveMeasure(file, blocksMetric, m -> m.setValue(1d));
+    db.measures().insertLiveMeasure(file, dataMetric, m -> m.setData(format("<duplications>\n" +
+      "  <g>\n" +
+      "    <b s=\"10\" l=\"5\" r=\"%s\"/>\n" +
+      "    <b s=\"20\" l=\"5\" r=\"%s\"/>\n" +
+      "  </g>\n" +
+      "</duplications>\n", file.getDbKey(), otherFile.getDbKey())));
+  }
+}
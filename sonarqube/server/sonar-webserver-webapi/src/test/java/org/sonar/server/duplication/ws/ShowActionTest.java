@@ -32,6 +32,7 @@ import org.sonar.db.component.BranchType;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.server.component.TestAnalysisETag;
 import org.sonar.server.component.TestComponentFinder;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
@@ -61,7 +62,8 @@ public class ShowActionTest {
   private DuplicationsParser parser = new DuplicationsParser(db.getDbClient().componentDao());
   private ShowResponseBuilder showResponseBuilder = new ShowResponseBuilder(db.getDbClient());
 
-  private WsActionTester ws = new WsActionTester(new ShowAction(db.getDbClient(), parser, showResponseBuilder, userSessionRule, TestComponentFinder.from(db)));
+  private WsActionTester ws = new WsActionTester(new ShowAction(db.getDbClient(), parser, showResponseBuilder, userSessionRule, TestComponentFinder.from(db),
+    TestAnalysisETag.from(db, userSessionRule)));
 
   @Before
   public void setUp() {
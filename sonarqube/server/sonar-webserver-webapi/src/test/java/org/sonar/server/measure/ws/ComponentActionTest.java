@@ -33,11 +33,13 @@ import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.server.component.TestAnalysisETag;
 import org.sonar.server.component.TestComponentFinder;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.Common;
 import org.sonarqube.ws.Measures;
@@ -69,7 +71,8 @@ public class ComponentActionTest {
   @Rule
   public DbTester db = DbTester.create(System2.INSTANCE);
 
-  private WsActionTester ws = new WsActionTester(new ComponentAction(db.getDbClient(), TestComponentFinder.from(db), userSession));
+  private WsActionTester ws = new WsActionTester(new ComponentAction(db.getDbClient(), TestComponentFinder.from(db), userSession,
+    TestAnalysisETag.from(db, userSession)));
 
   @Test
   public void definition() {
@@ -102,6 +105,31 @@ public class ComponentActionTest {
     assertThat(response.getComponent().getKey()).isEqualTo(project.getDbKey());
   }
 
+  @Test
+  public void return_not_modified_if_etag_matches() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSession.addProjectPermission(UserRole.USER, project);
+    db.components().insertSnapshot(project);
+    MetricDto metric = db.measures().insertMetric(m -> m.setValueType("INT"));
+    db.measures().insertLiveMeasure(project, metric, m -> m.setValue(10d));
+
+    TestResponse response = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getKey())
+      .setParam(PARAM_METRIC_KEYS, metric.getKey())
+      .execute();
+    String eTag = response.getHeader("ETag");
+    assertThat(eTag).isNotEmpty();
+
+    TestResponse notModified = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getKey())
+      .setParam(PARAM_METRIC_KEYS, metric.getKey())
+      .setHeader("If-None-Match", eTag)
+      .execute();
+
+    assertThat(notModified.getStatus()).isEqualTo(304);
+    assertThat(notModified.getInput()).isEmpty();
+  }
+
   @Test
   public void without_additional_fields() {
     ComponentDto project = db.components().insertPrivateProject();
@@ -82,6 +82,7 @@ import static org.sonar.server.component.ws.MeasuresWsParameters.DEPRECATED_PARA
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_ADDITIONAL_FIELDS;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_BRANCH;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_COMPONENT;
+import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_CURSOR;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_METRIC_KEYS;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_METRIC_PERIOD_SORT;
 import static org.sonar.server.component.ws.MeasuresWsParameters.PARAM_METRIC_SORT;
@@ -848,6 +849,62 @@ public class ComponentTreeActionTest {
       .executeProtobuf(ComponentTreeWsResponse.class);
   }
 
+  @Test
+  public void paginate_with_cursor_and_load_measures_of_the_page() {
+    ComponentDto project = db.components().insertPrivateProject();
+    db.components().insertSnapshot(project);
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project, null, "file-uuid-3").setDbKey("file-key-3"));
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project, null, "file-uuid-1").setDbKey("file-key-1"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project, null, "file-uuid-2").setDbKey("file-key-2"));
+    MetricDto coverage = insertCoverageMetric();
+    db.commit();
+    db.measures().insertLiveMeasure(file1, coverage, m -> m.setValue(1.0d));
+    db.measures().insertLiveMeasure(file2, coverage, m -> m.setValue(2.0d));
+    db.measures().insertLiveMeasure(file3, coverage, m -> m.setValue(3.0d));
+
+    ComponentTreeWsResponse firstPage = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getKey())
+      .setParam(PARAM_METRIC_KEYS, "coverage")
+      .setParam(PARAM_STRATEGY, "leaves")
+      .setParam(PARAM_CURSOR, "*")
+      .setParam(Param.PAGE_SIZE, "2")
+      .executeProtobuf(ComponentTreeWsResponse.class);
+
+    assertThat(firstPage.getComponentsList()).extracting("key").containsExactly("file-key-1", "file-key-2");
+    assertThat(firstPage.getComponentsList()).extracting(c -> c.getMeasures(0).getValue()).containsExactly("1.0", "2.0");
+    assertThat(firstPage.getPaging().hasTotal()).isFalse();
+    assertThat(firstPage.getNextCursor()).isEqualTo("file-key-2");
+
+    ComponentTreeWsResponse lastPage = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getKey())
+      .setParam(PARAM_METRIC_KEYS, "coverage")
+      .setParam(PARAM_STRATEGY, "leaves")
+      .setParam(PARAM_CURSOR, firstPage.getNextCursor())
+      .setParam(Param.PAGE_SIZE, "2")
+      .executeProtobuf(ComponentTreeWsResponse.class);
+
+    assertThat(lastPage.getComponentsList()).extracting("key").containsExactly("file-key-3");
+    assertThat(lastPage.getComponentsList()).extracting(c -> c.getMeasures(0).getValue()).containsExactly("3.0");
+    assertThat(lastPage.hasNextCursor()).isFalse();
+  }
+
+  @Test
+  public void fail_when_cursor_and_sort_by_metric() {
+    ComponentDto project = db.components().insertPrivateProject();
+    db.components().insertSnapshot(project);
+    insertCoverageMetric();
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Parameter 'cursor' can't be used when sorting by a metric");
+
+    ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getKey())
+      .setParam(PARAM_METRIC_KEYS, "coverage")
+      .setParam(SORT, METRIC_SORT)
+      .setParam(PARAM_METRIC_SORT, "coverage")
+      .setParam(PARAM_CURSOR, "*")
+      .executeProtobuf(ComponentTreeWsResponse.class);
+  }
+
   @Test
   public void fail_when_sort_by_metric_and_no_metric_sort_provided() {
     ComponentDto project = db.components().insertPrivateProject();
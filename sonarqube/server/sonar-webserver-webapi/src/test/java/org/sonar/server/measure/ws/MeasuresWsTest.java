@@ -25,7 +25,7 @@ import org.sonar.api.server.ws.WebService;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class MeasuresWsTest {
-  private MeasuresWs underTest = new MeasuresWs(new ComponentAction(null, null, null));
+  private MeasuresWs underTest = new MeasuresWs(new ComponentAction(null, null, null, null));
 
   @Test
   public void define_ws() {
@@ -63,6 +63,7 @@ import org.sonar.server.project.Project;
 import org.sonar.server.project.ProjectLifeCycleListeners;
 import org.sonar.server.qualityprofile.QProfileFactoryImpl;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.user.index.UserQuery;
@@ -79,6 +80,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.sonar.core.util.stream.MoreCollectors.toSet;
+import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
 import static org.sonar.db.user.UserTesting.newUserDto;
 import static org.sonar.server.organization.ws.OrganizationDeleter.PAGE_SIZE;
 
@@ -102,11 +104,13 @@ public class OrganizationDeleterTest {
   private final UserIndexer userIndexer = new UserIndexer(dbClient, esClient);
   private final ProjectLifeCycleListeners projectLifeCycleListeners = mock(ProjectLifeCycleListeners.class);
   private final BillingValidationsProxy billingValidations = mock(BillingValidationsProxy.class);
+  private final PermissionCache permissionCache = PermissionCache.disabled();
 
   private final OrganizationDeleter underTest = new OrganizationDeleter(dbClient, componentCleanerService, userIndexer,
     new QProfileFactoryImpl(dbClient, UuidFactoryFast.getInstance(), new System2(), new ActiveRuleIndexer(dbClient, esClient)),
     projectLifeCycleListeners,
-    billingValidations);
+    billingValidations,
+    permissionCache);
 
   @Test
   public void delete_specified_organization() {
@@ -118,6 +122,19 @@ public class OrganizationDeleterTest {
     verify(projectLifeCycleListeners).onProjectsDeleted(emptySet());
   }
 
+  @Test
+  public void delete_organization_invalidates_permission_cache() {
+    OrganizationDto organization = db.organizations().insert();
+    UserDto user = db.users().insertUser();
+    db.organizations().addMember(organization, user);
+    db.users().insertPermissionOnUser(organization, user, ADMINISTER);
+    long version = permissionCache.version();
+
+    underTest.delete(dbSession, organization);
+
+    assertThat(permissionCache.version()).isGreaterThan(version);
+  }
+
   @Test
   public void delete_webhooks_of_organization_if_exist() {
     OrganizationDto organization = db.organizations().insert();
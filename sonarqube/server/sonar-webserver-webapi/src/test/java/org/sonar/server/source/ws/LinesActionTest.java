@@ -36,6 +36,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.component.TestAnalysisETag;
 import org.sonar.server.component.TestComponentFinder;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
@@ -70,7 +71,8 @@ public class LinesActionTest {
   private HtmlSourceDecorator htmlSourceDecorator = mock(HtmlSourceDecorator.class);
   private SourceService sourceService = new SourceService(db.getDbClient(), htmlSourceDecorator);
   private LinesJsonWriter linesJsonWriter = new LinesJsonWriter(htmlSourceDecorator);
-  private LinesAction underTest = new LinesAction(TestComponentFinder.from(db), db.getDbClient(), sourceService, linesJsonWriter, userSession);
+  private LinesAction underTest = new LinesAction(TestComponentFinder.from(db), db.getDbClient(), sourceService, linesJsonWriter, userSession,
+    TestAnalysisETag.from(db, userSession));
   private WsActionTester tester = new WsActionTester(underTest);
 
   @Before
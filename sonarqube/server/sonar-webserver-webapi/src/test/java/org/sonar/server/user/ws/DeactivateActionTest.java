@@ -47,6 +47,7 @@ import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.index.UserIndexDefinition;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.ws.TestRequest;
@@ -88,8 +89,9 @@ public class DeactivateActionTest {
   private DbClient dbClient = db.getDbClient();
   private UserIndexer userIndexer = new UserIndexer(dbClient, es.client());
   private DbSession dbSession = db.getSession();
+  private PermissionCache permissionCache = PermissionCache.disabled();
   private WsActionTester ws = new WsActionTester(new DeactivateAction(dbClient, userIndexer, userSession,
-    new UserJsonWriter(userSession), defaultOrganizationProvider));
+    new UserJsonWriter(userSession), defaultOrganizationProvider, permissionCache));
 
   @Test
   public void deactivate_user_and_delete_his_related_data() {
@@ -118,9 +120,12 @@ public class DeactivateActionTest {
     db.users().insertGroup();
     db.users().insertMember(group1, user);
 
+    long version = permissionCache.version();
+
     deactivate(user.getLogin());
 
     assertThat(db.getDbClient().groupMembershipDao().selectGroupIdsByUserId(dbSession, user.getId())).isEmpty();
+    assertThat(permissionCache.version()).isGreaterThan(version);
   }
 
   @Test
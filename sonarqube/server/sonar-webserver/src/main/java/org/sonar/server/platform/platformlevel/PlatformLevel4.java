@@ -49,6 +49,7 @@ import org.sonar.server.branch.pr.ws.PullRequestWsModule;
 import org.sonar.server.branch.ws.BranchWsModule;
 import org.sonar.server.ce.CeModule;
 import org.sonar.server.ce.ws.CeWsModule;
+import org.sonar.server.component.AnalysisETag;
 import org.sonar.server.component.ComponentCleanerService;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.component.ComponentService;
@@ -200,6 +201,7 @@ import org.sonar.server.ui.ws.NavigationWsModule;
 import org.sonar.server.updatecenter.UpdateCenterModule;
 import org.sonar.server.updatecenter.ws.UpdateCenterWsModule;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.PermissionCache;
 import org.sonar.server.user.SecurityRealmFactory;
 import org.sonar.server.user.UserSessionFactoryImpl;
 import org.sonar.server.user.UserUpdater;
@@ -356,6 +358,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // users
       UserSessionFactoryImpl.class,
+      PermissionCache.class,
       SecurityRealmFactory.class,
       NewUserNotifier.class,
       UserIndexDefinition.class,
@@ -389,6 +392,7 @@ public class PlatformLevel4 extends PlatformLevel {
       ComponentService.class,
       ComponentUpdater.class,
       ComponentFinder.class,
+      AnalysisETag.class,
       QGChangeNotificationHandler.class,
       QGChangeNotificationHandler.newMetadata(),
       ComponentCleanerService.class,
@@ -441,6 +445,7 @@ public class PlatformLevel4 extends PlatformLevel {
       DuplicationsWs.class,
       ShowResponseBuilder.class,
       org.sonar.server.duplication.ws.ShowAction.class,
+      org.sonar.server.duplication.ws.ListAction.class,
 
       // text
       MacroInterpreter.class,
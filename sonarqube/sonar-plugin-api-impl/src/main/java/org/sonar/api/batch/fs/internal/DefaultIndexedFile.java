@@ -61,7 +61,9 @@ public class DefaultIndexedFile extends DefaultInputComponent implements Indexed
     super(batchId);
     this.projectKey = projectKey;
     this.projectRelativePath = PathUtils.sanitize(projectRelativePath);
-    this.moduleRelativePath = PathUtils.sanitize(moduleRelativePath);
+    String sanitizedModuleRelativePath = PathUtils.sanitize(moduleRelativePath);
+    // both paths are the same for files of the root module, keep a single copy of them
+    this.moduleRelativePath = this.projectRelativePath.equals(sanitizedModuleRelativePath) ? this.projectRelativePath : sanitizedModuleRelativePath;
     this.type = type;
     this.language = language;
     this.sensorStrategy = sensorStrategy;
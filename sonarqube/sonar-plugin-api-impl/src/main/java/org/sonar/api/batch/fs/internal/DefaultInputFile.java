@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -58,6 +59,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private final DefaultIndexedFile indexedFile;
   private final String contents;
   private final Consumer<DefaultInputFile> metadataGenerator;
+  private final Function<DefaultInputFile, Optional<String>> cachedContentsLoader;
 
   private boolean published;
   private boolean excludedForCoverage;
@@ -67,19 +69,34 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private BitSet noSonarLines;
   private Status status;
   private Charset charset;
-  private Metadata metadata;
+  private volatile Metadata metadata;
   private Collection<int[]> ignoreIssuesOnlineRanges;
   private BitSet executableLines;
 
   public DefaultInputFile(DefaultIndexedFile indexedFile, Consumer<DefaultInputFile> metadataGenerator) {
-    this(indexedFile, metadataGenerator, null);
+    this(indexedFile, metadataGenerator, null, f -> Optional.empty());
+  }
+
+  /**
+   * @param cachedContentsLoader gives the contents decoded while generating metadata, if they are still available, so that
+   *                             the file doesn't need to be read and decoded again
+   */
+  public DefaultInputFile(DefaultIndexedFile indexedFile, Consumer<DefaultInputFile> metadataGenerator,
+    Function<DefaultInputFile, Optional<String>> cachedContentsLoader) {
+    this(indexedFile, metadataGenerator, null, cachedContentsLoader);
   }
 
   // For testing
   public DefaultInputFile(DefaultIndexedFile indexedFile, Consumer<DefaultInputFile> metadataGenerator, @Nullable String contents) {
+    this(indexedFile, metadataGenerator, contents, f -> Optional.empty());
+  }
+
+  private DefaultInputFile(DefaultIndexedFile indexedFile, Consumer<DefaultInputFile> metadataGenerator, @Nullable String contents,
+    Function<DefaultInputFile, Optional<String>> cachedContentsLoader) {
     super(indexedFile.scannerId());
     this.indexedFile = indexedFile;
     this.metadataGenerator = metadataGenerator;
+    this.cachedContentsLoader = cachedContentsLoader;
     this.metadata = null;
     this.published = false;
     this.excludedForCoverage = false;
@@ -88,7 +105,12 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
 
   public void checkMetadata() {
     if (metadata == null) {
-      metadataGenerator.accept(this);
+      // sensors executed concurrently may read the same file
+      synchronized (this) {
+        if (metadata == null) {
+          metadataGenerator.accept(this);
+        }
+      }
     }
   }
 
@@ -103,6 +125,11 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   public String contents() throws IOException {
     if (contents != null) {
       return contents;
+    }
+    checkMetadata();
+    Optional<String> cachedContents = cachedContents();
+    if (cachedContents.isPresent()) {
+      return cachedContents.get();
     } else {
       ByteArrayOutputStream result = new ByteArrayOutputStream();
       try (InputStream inputStream = inputStream()) {
@@ -116,6 +143,16 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     }
   }
 
+  /**
+   * Contents of the file, if already decoded and still in memory. Contrary to {@link #contents()}, the file is never read.
+   */
+  public Optional<String> cachedContents() {
+    if (contents != null) {
+      return Optional.of(contents);
+    }
+    return metadata != null ? cachedContentsLoader.apply(this) : Optional.empty();
+  }
+
   public DefaultInputFile setPublished(boolean published) {
     this.published = published;
     return this;
@@ -250,7 +287,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   public int[] originalLineStartOffsets() {
-    checkMetadata();
+    checkLineOffsets();
     checkState(metadata.originalLineStartOffsets() != null, "InputFile is not properly initialized.");
     checkState(metadata.originalLineStartOffsets().length == metadata.lines(),
       "InputFile is not properly initialized. 'originalLineStartOffsets' property length should be equal to 'lines'");
@@ -258,11 +295,46 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   public int[] originalLineEndOffsets() {
-    checkMetadata();
-    checkState(metadata.originalLineEndOffsets() != null, "InputFile is not properly initialized.");
-    checkState(metadata.originalLineEndOffsets().length == metadata.lines(),
+    checkLineOffsets();
+    int[] originalLineEndOffsets = metadata.originalLineEndOffsets();
+    checkState(originalLineEndOffsets != null, "InputFile is not properly initialized.");
+    checkState(originalLineEndOffsets.length == metadata.lines(),
       "InputFile is not properly initialized. 'originalLineEndOffsets' property length should be equal to 'lines'");
-    return metadata.originalLineEndOffsets();
+    return originalLineEndOffsets;
+  }
+
+  private int originalLineEndOffset(int line) {
+    // checks that line offsets are loaded and properly initialized
+    originalLineStartOffsets();
+    return metadata.originalLineEndOffset(line - 1);
+  }
+
+  private void checkLineOffsets() {
+    checkMetadata();
+    if (!metadata.hasLineOffsets()) {
+      // same lock as checkMetadata(), line offsets are restored by the metadata generator
+      synchronized (this) {
+        if (!metadata.hasLineOffsets()) {
+          metadataGenerator.accept(this);
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops the line offsets of the file to save memory, while keeping the rest of its metadata. They are given back by
+   * the metadata generator the next time they are needed.
+   *
+   * @return the metadata with the line offsets that were released, or null if they were not loaded
+   */
+  @CheckForNull
+  public synchronized Metadata releaseLineOffsets() {
+    Metadata released = metadata;
+    if (released == null || !released.hasLineOffsets()) {
+      return null;
+    }
+    metadata = released.withoutLineOffsets();
+    return released;
   }
 
   @Override
@@ -318,7 +390,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     int line = findLine(globalOffset);
     int startLineOffset = originalLineStartOffsets()[line - 1];
     // In case the global offset is between \r and \n, move the pointer to a valid location
-    return new DefaultTextPointer(line, Math.min(globalOffset, originalLineEndOffsets()[line - 1]) - startLineOffset);
+    return new DefaultTextPointer(line, Math.min(globalOffset, originalLineEndOffset(line)) - startLineOffset);
   }
 
   public DefaultInputFile setStatus(Status status) {
@@ -341,7 +413,8 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   public int lineLength(int line) {
-    return originalLineEndOffsets()[line - 1] - originalLineStartOffsets()[line - 1];
+    int startOffset = originalLineStartOffsets()[line - 1];
+    return originalLineEndOffset(line) - startOffset;
   }
 
   private static TextRange newRangeValidPointers(TextPointer start, TextPointer end, boolean acceptEmptyRange) {
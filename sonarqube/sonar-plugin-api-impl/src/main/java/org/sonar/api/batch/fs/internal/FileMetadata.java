@@ -19,21 +19,19 @@
  */
 package org.sonar.api.batch.fs.internal;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
-import org.sonar.api.batch.fs.internal.charhandler.FileHashComputer;
-import org.sonar.api.batch.fs.internal.charhandler.LineCounter;
 import org.sonar.api.batch.fs.internal.charhandler.LineHashComputer;
-import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 
 /**
  * Computes hash of files. Ends of Lines are ignored, so files with
@@ -43,26 +41,35 @@ import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final int READ_BUFFER_SIZE = 8 * 1024;
 
   /**
    * Compute hash of a file ignoring line ends differences.
    * Maximum performance is needed.
    */
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath, @Nullable CharHandler otherHandler) {
-    LineCounter lineCounter = new LineCounter(filePath, encoding);
-    FileHashComputer fileHashComputer = new FileHashComputer(filePath);
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    return readMetadata(stream, encoding, filePath, otherHandler, null);
+  }
 
-    if (otherHandler != null) {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter, otherHandler};
-      readFile(stream, encoding, filePath, handlers);
-    } else {
-      CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
-      readFile(stream, encoding, filePath, handlers);
+  /**
+   * Same as {@link #readMetadata(InputStream, Charset, String, CharHandler)}, but the decoded contents of the file are also
+   * given to the consumer, when not longer than {@link ContentsConsumer#maxLength()}, so that the file doesn't need to be
+   * read and decoded again.
+   */
+  public Metadata readMetadata(InputStream stream, Charset encoding, String filePath, @Nullable CharHandler otherHandler,
+    @Nullable ContentsConsumer contentsConsumer) {
+    MetadataComputer computer = new MetadataComputer(filePath, encoding, otherHandler, contentsConsumer == null ? 0 : contentsConsumer.maxLength());
+    Metadata metadata;
+    try (Reader reader = new InputStreamReader(stream, encoding)) {
+      metadata = computer.read(reader);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
+    }
+    String contents = computer.getContents();
+    if (contentsConsumer != null && contents != null) {
+      contentsConsumer.consume(contents);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineStartOffsets(),
-      lineOffsetCounter.getOriginalLineEndOffsets(),
-      lineOffsetCounter.getLastValidOffset());
+    return metadata;
   }
 
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath) {
@@ -73,23 +80,15 @@ public class FileMetadata {
    * For testing purpose
    */
   public Metadata readMetadata(Reader reader) {
-    LineCounter lineCounter = new LineCounter("fromString", StandardCharsets.UTF_16);
-    FileHashComputer fileHashComputer = new FileHashComputer("fromString");
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    CharHandler[] handlers = {lineCounter, fileHashComputer, lineOffsetCounter};
-
     try {
-      read(reader, handlers);
+      return new MetadataComputer("fromString", StandardCharsets.UTF_16, null, 0).read(reader);
     } catch (IOException e) {
       throw new IllegalStateException("Should never occur", e);
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineStartOffsets(),
-      lineOffsetCounter.getOriginalLineEndOffsets(),
-      lineOffsetCounter.getLastValidOffset());
   }
 
   public static void readFile(InputStream stream, Charset encoding, String filePath, CharHandler[] handlers) {
-    try (Reader reader = new BufferedReader(new InputStreamReader(stream, encoding))) {
+    try (Reader reader = new InputStreamReader(stream, encoding)) {
       read(reader, handlers);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", filePath, encoding), e);
@@ -97,43 +96,44 @@ public class FileMetadata {
   }
 
   private static void read(Reader reader, CharHandler[] handlers) throws IOException {
-    char c;
-    int i = reader.read();
+    char[] buffer = new char[READ_BUFFER_SIZE];
     boolean afterCR = false;
-    while (i != -1) {
-      c = (char) i;
-      if (afterCR) {
-        for (CharHandler handler : handlers) {
-          if (c == CARRIAGE_RETURN) {
-            handler.newLine();
-            handler.handleAll(c);
-          } else if (c == LINE_FEED) {
+    int read;
+    while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+      for (int i = 0; i < read; i++) {
+        char c = buffer[i];
+        if (afterCR) {
+          for (CharHandler handler : handlers) {
+            if (c == CARRIAGE_RETURN) {
+              handler.newLine();
+              handler.handleAll(c);
+            } else if (c == LINE_FEED) {
+              handler.handleAll(c);
+              handler.newLine();
+            } else {
+              handler.newLine();
+              handler.handleIgnoreEoL(c);
+              handler.handleAll(c);
+            }
+          }
+          afterCR = c == CARRIAGE_RETURN;
+        } else if (c == LINE_FEED) {
+          for (CharHandler handler : handlers) {
             handler.handleAll(c);
             handler.newLine();
-          } else {
-            handler.newLine();
+          }
+        } else if (c == CARRIAGE_RETURN) {
+          afterCR = true;
+          for (CharHandler handler : handlers) {
+            handler.handleAll(c);
+          }
+        } else {
+          for (CharHandler handler : handlers) {
             handler.handleIgnoreEoL(c);
             handler.handleAll(c);
           }
         }
-        afterCR = c == CARRIAGE_RETURN;
-      } else if (c == LINE_FEED) {
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-          handler.newLine();
-        }
-      } else if (c == CARRIAGE_RETURN) {
-        afterCR = true;
-        for (CharHandler handler : handlers) {
-          handler.handleAll(c);
-        }
-      } else {
-        for (CharHandler handler : handlers) {
-          handler.handleIgnoreEoL(c);
-          handler.handleAll(c);
-        }
       }
-      i = reader.read();
     }
     for (CharHandler handler : handlers) {
       if (afterCR) {
@@ -143,6 +143,18 @@ public class FileMetadata {
     }
   }
 
+  /**
+   * Receives the decoded contents of a file read by {@link #readMetadata(InputStream, Charset, String, CharHandler, ContentsConsumer)}.
+   */
+  public interface ContentsConsumer {
+    /**
+     * Maximum number of chars of the contents. Contents of longer files are not given to the consumer.
+     */
+    int maxLength();
+
+    void consume(String contents);
+  }
+
   @FunctionalInterface
   public interface LineHashConsumer {
     void consume(int lineIdx, @Nullable byte[] hash);
@@ -150,10 +162,23 @@ public class FileMetadata {
 
   /**
    * Compute a MD5 hash of each line of the file after removing of all blank chars
+   * <p>
+   * Line hashes are not computed while reading metadata: only some plugins ask for them, and keeping them for every
+   * indexed file would cost more memory than decoding again the cached contents of the few files which need them.
    */
   public static void computeLineHashesForIssueTracking(InputFile f, LineHashConsumer consumer) {
+    CharHandler[] handlers = {new LineHashComputer(consumer, f.file())};
+    Optional<String> cachedContents = f instanceof DefaultInputFile ? ((DefaultInputFile) f).cachedContents() : Optional.empty();
+    if (cachedContents.isPresent()) {
+      try (Reader reader = new StringReader(cachedContents.get())) {
+        read(reader, handlers);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to compute line hashes for " + f.absolutePath(), e);
+      }
+      return;
+    }
     try {
-      readFile(f.inputStream(), f.charset(), f.absolutePath(), new CharHandler[] {new LineHashComputer(consumer, f.file())});
+      readFile(f.inputStream(), f.charset(), f.absolutePath(), handlers);
     } catch (IOException e) {
       throw new IllegalStateException("Failed to compute line hashes for " + f.absolutePath(), e);
     }
@@ -20,7 +20,7 @@
 package org.sonar.api.batch.fs.internal;
 
 import java.util.Arrays;
-
+import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.Immutable;
 
 @Immutable
@@ -28,17 +28,68 @@ public class Metadata {
   private final int lines;
   private final int nonBlankLines;
   private final String hash;
+  private final int lastValidOffset;
+
+  // Line offsets, null once released. The end of a line is stored as the gap before the start of the next line, which is the length of the
+  // line terminator: the same for all the lines of most files, and always small enough for a byte.
   private final int[] originalLineStartOffsets;
   private final int[] originalLineEndOffsets;
-  private final int lastValidOffset;
+  private final byte[] lineEndGaps;
+  private final int uniformLineEndGap;
+  private final int lastLineEndOffset;
+  // built on first call to originalLineEndOffsets(), when the end offsets are not stored as is
+  private volatile int[] lineEndOffsetsCache;
 
   public Metadata(int lines, int nonBlankLines, String hash, int[] originalLineStartOffsets, int[] originalLineEndOffsets, int lastValidOffset) {
     this.lines = lines;
     this.nonBlankLines = nonBlankLines;
     this.hash = hash;
-    this.originalLineStartOffsets = Arrays.copyOf(originalLineStartOffsets, originalLineStartOffsets.length);
-    this.originalLineEndOffsets = Arrays.copyOf(originalLineEndOffsets, originalLineEndOffsets.length);
     this.lastValidOffset = lastValidOffset;
+    this.originalLineStartOffsets = Arrays.copyOf(originalLineStartOffsets, originalLineStartOffsets.length);
+
+    int count = originalLineEndOffsets.length;
+    Integer uniformGap = null;
+    boolean gapsFitInBytes = count == originalLineStartOffsets.length;
+    for (int i = 0; gapsFitInBytes && i < count - 1; i++) {
+      int gap = originalLineStartOffsets[i + 1] - originalLineEndOffsets[i];
+      gapsFitInBytes = gap >= 0 && gap <= Byte.MAX_VALUE;
+      if (uniformGap == null) {
+        uniformGap = gap;
+      } else if (uniformGap != gap) {
+        uniformGap = -1;
+      }
+    }
+    if (!gapsFitInBytes) {
+      this.originalLineEndOffsets = Arrays.copyOf(originalLineEndOffsets, count);
+      this.lineEndGaps = null;
+      this.uniformLineEndGap = 0;
+      this.lastLineEndOffset = 0;
+    } else {
+      this.originalLineEndOffsets = null;
+      this.lastLineEndOffset = count > 0 ? originalLineEndOffsets[count - 1] : 0;
+      if (uniformGap == null || uniformGap >= 0) {
+        this.lineEndGaps = null;
+        this.uniformLineEndGap = uniformGap == null ? 0 : uniformGap;
+      } else {
+        this.lineEndGaps = new byte[count - 1];
+        for (int i = 0; i < count - 1; i++) {
+          this.lineEndGaps[i] = (byte) (originalLineStartOffsets[i + 1] - originalLineEndOffsets[i]);
+        }
+        this.uniformLineEndGap = 0;
+      }
+    }
+  }
+
+  private Metadata(Metadata metadata) {
+    this.lines = metadata.lines;
+    this.nonBlankLines = metadata.nonBlankLines;
+    this.hash = metadata.hash;
+    this.lastValidOffset = metadata.lastValidOffset;
+    this.originalLineStartOffsets = null;
+    this.originalLineEndOffsets = null;
+    this.lineEndGaps = null;
+    this.uniformLineEndGap = 0;
+    this.lastLineEndOffset = 0;
   }
 
   public int lines() {
@@ -53,12 +104,51 @@ public class Metadata {
     return hash;
   }
 
+  /**
+   * @return null if line offsets were released
+   */
+  @CheckForNull
   public int[] originalLineStartOffsets() {
     return originalLineStartOffsets;
   }
 
+  /**
+   * Offsets of the end of all the lines. The array is built at the first call and kept as long as the line offsets,
+   * prefer {@link #originalLineEndOffset(int)}.
+   * @return null if line offsets were released
+   */
+  @CheckForNull
   public int[] originalLineEndOffsets() {
-    return originalLineEndOffsets;
+    if (originalLineStartOffsets == null) {
+      return null;
+    }
+    if (originalLineEndOffsets != null) {
+      return originalLineEndOffsets;
+    }
+    int[] result = lineEndOffsetsCache;
+    if (result == null) {
+      result = new int[originalLineStartOffsets.length];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = originalLineEndOffset(i);
+      }
+      lineEndOffsetsCache = result;
+    }
+    return result;
+  }
+
+  /**
+   * Offset of the end of the line, excluding its terminator.
+   * @param lineIndex 0-based index of the line
+   */
+  public int originalLineEndOffset(int lineIndex) {
+    if (originalLineEndOffsets != null) {
+      return originalLineEndOffsets[lineIndex];
+    }
+    if (lineIndex == originalLineStartOffsets.length - 1) {
+      return lastLineEndOffset;
+    }
+    int gap = lineEndGaps != null ? lineEndGaps[lineIndex] : uniformLineEndGap;
+    return originalLineStartOffsets[lineIndex + 1] - gap;
   }
 
   public int lastValidOffset() {
@@ -68,4 +158,15 @@ public class Metadata {
   public boolean isEmpty() {
     return lastValidOffset == 0;
   }
+
+  public boolean hasLineOffsets() {
+    return originalLineStartOffsets != null;
+  }
+
+  /**
+   * Same metadata, without the line offsets that take most of the memory.
+   */
+  public Metadata withoutLineOffsets() {
+    return hasLineOffsets() ? new Metadata(this) : this;
+  }
 }
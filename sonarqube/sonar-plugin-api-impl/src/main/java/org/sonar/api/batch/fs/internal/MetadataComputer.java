@@ -0,0 +1,279 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Single pass computation of {@link Metadata}. Characters are read in bulk into a buffer reused by the thread, and
+ * the line count, hash and line offsets are computed inline, without dispatching each character to a list of
+ * {@link CharHandler}. Only the optional additional handler is called for each character.
+ * <p>
+ * The results are the same as the ones of {@link org.sonar.api.batch.fs.internal.charhandler.LineCounter},
+ * {@link org.sonar.api.batch.fs.internal.charhandler.FileHashComputer} and
+ * {@link org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter}.
+ */
+final class MetadataComputer {
+  private static final Logger LOG = Loggers.get(MetadataComputer.class);
+  private static final char LINE_FEED = '\n';
+  private static final char CARRIAGE_RETURN = '\r';
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final ThreadLocal<char[]> READ_BUFFER = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+
+  private final String filePath;
+  private final Charset encoding;
+  @Nullable
+  private final CharHandler otherHandler;
+
+  // line count
+  private int lines = 1;
+  private int nonBlankLines = 0;
+  private boolean blankLine = true;
+  private boolean alreadyLoggedInvalidCharacter = false;
+
+  // hash of the file, line per line, ignoring ends of lines
+  private final MessageDigest md5Digest = DigestUtils.getMd5Digest();
+  private char[] lineChars = new char[256];
+  private int lineLength = 0;
+  private boolean asciiLine = true;
+  private byte[] lineBytes = new byte[256];
+  private CharsetEncoder utf8Encoder;
+
+  // line offsets
+  private long offset = 0;
+  private long lineEndOffset = 0;
+  private int[] lineStartOffsets = new int[64];
+  private int lineStartOffsetsSize = 0;
+  private int[] lineEndOffsets = new int[64];
+  private int lineEndOffsetsSize = 0;
+
+  // decoded contents, kept only if small enough
+  @CheckForNull
+  private StringBuilder contents;
+  private final int maxContentsLength;
+
+  MetadataComputer(String filePath, Charset encoding, @Nullable CharHandler otherHandler, int maxContentsLength) {
+    this.filePath = filePath;
+    this.encoding = encoding;
+    this.otherHandler = otherHandler;
+    this.maxContentsLength = maxContentsLength;
+    this.contents = maxContentsLength > 0 ? new StringBuilder() : null;
+    lineStartOffsets[lineStartOffsetsSize++] = 0;
+  }
+
+  Metadata read(Reader reader) throws IOException {
+    char[] buffer = READ_BUFFER.get();
+    boolean afterCR = false;
+    int read;
+    while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+      keepContents(buffer, read);
+      for (int i = 0; i < read; i++) {
+        char c = buffer[i];
+        if (afterCR) {
+          if (c == CARRIAGE_RETURN) {
+            newLine();
+            handleAll(c);
+          } else if (c == LINE_FEED) {
+            handleAll(c);
+            newLine();
+          } else {
+            newLine();
+            handleIgnoreEoL(c);
+            handleAll(c);
+          }
+          afterCR = c == CARRIAGE_RETURN;
+        } else if (c == LINE_FEED) {
+          handleAll(c);
+          newLine();
+        } else if (c == CARRIAGE_RETURN) {
+          afterCR = true;
+          handleAll(c);
+        } else {
+          handleIgnoreEoL(c);
+          handleAll(c);
+        }
+      }
+    }
+    if (afterCR) {
+      newLine();
+    }
+    eof();
+
+    return new Metadata(lines, nonBlankLines, Hex.encodeHexString(md5Digest.digest()),
+      Arrays.copyOf(lineStartOffsets, lineStartOffsetsSize), Arrays.copyOf(lineEndOffsets, lineEndOffsetsSize), toInt(offset));
+  }
+
+  /**
+   * Decoded contents of the file, or {@code null} if it is longer than the maximum length.
+   */
+  @CheckForNull
+  String getContents() {
+    return contents == null ? null : contents.toString();
+  }
+
+  private void keepContents(char[] buffer, int length) {
+    if (contents != null) {
+      if (contents.length() + length > maxContentsLength) {
+        contents = null;
+      } else {
+        contents.append(buffer, 0, length);
+      }
+    }
+  }
+
+  private void handleAll(char c) {
+    if (c == '\ufffd' && !alreadyLoggedInvalidCharacter) {
+      LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.",
+        filePath, lines, encoding, CoreProperties.ENCODING_PROPERTY);
+      alreadyLoggedInvalidCharacter = true;
+    }
+    offset++;
+    if (otherHandler != null) {
+      otherHandler.handleAll(c);
+    }
+  }
+
+  private void handleIgnoreEoL(char c) {
+    if (blankLine && !Character.isWhitespace(c)) {
+      blankLine = false;
+    }
+    appendToLine(c);
+    lineEndOffset++;
+    if (otherHandler != null) {
+      otherHandler.handleIgnoreEoL(c);
+    }
+  }
+
+  private void newLine() {
+    lines++;
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    blankLine = true;
+
+    appendToLine(LINE_FEED);
+    hashLine();
+
+    if (offset > Integer.MAX_VALUE) {
+      throw new IllegalStateException("File is too big: " + offset);
+    }
+    addLineStartOffset((int) offset);
+    addLineEndOffset((int) lineEndOffset);
+    lineEndOffset = offset;
+
+    if (otherHandler != null) {
+      otherHandler.newLine();
+    }
+  }
+
+  private void eof() {
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    hashLine();
+    addLineEndOffset((int) lineEndOffset);
+    if (otherHandler != null) {
+      otherHandler.eof();
+    }
+  }
+
+  private void appendToLine(char c) {
+    if (lineLength == lineChars.length) {
+      lineChars = Arrays.copyOf(lineChars, lineChars.length * 2);
+    }
+    lineChars[lineLength++] = c;
+    if (c >= 0x80) {
+      asciiLine = false;
+    }
+  }
+
+  private void hashLine() {
+    if (lineLength == 0) {
+      return;
+    }
+    if (asciiLine) {
+      // ASCII chars are encoded in UTF-8 as a single byte of the same value
+      if (lineBytes.length < lineLength) {
+        lineBytes = new byte[Math.max(lineLength, lineBytes.length * 2)];
+      }
+      for (int i = 0; i < lineLength; i++) {
+        lineBytes[i] = (byte) lineChars[i];
+      }
+      md5Digest.update(lineBytes, 0, lineLength);
+    } else {
+      try {
+        ByteBuffer encoded = utf8Encoder().encode(CharBuffer.wrap(lineChars, 0, lineLength));
+        md5Digest.update(encoded.array(), 0, encoded.limit());
+      } catch (CharacterCodingException e) {
+        throw new IllegalStateException("Error encoding line hash in file: " + filePath, e);
+      }
+    }
+    lineLength = 0;
+    asciiLine = true;
+  }
+
+  private CharsetEncoder utf8Encoder() {
+    if (utf8Encoder == null) {
+      utf8Encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    return utf8Encoder;
+  }
+
+  private void addLineStartOffset(int value) {
+    if (lineStartOffsetsSize == lineStartOffsets.length) {
+      lineStartOffsets = Arrays.copyOf(lineStartOffsets, lineStartOffsets.length + (lineStartOffsets.length >> 1));
+    }
+    lineStartOffsets[lineStartOffsetsSize++] = value;
+  }
+
+  private void addLineEndOffset(int value) {
+    if (lineEndOffsetsSize == lineEndOffsets.length) {
+      lineEndOffsets = Arrays.copyOf(lineEndOffsets, lineEndOffsets.length + (lineEndOffsets.length >> 1));
+    }
+    lineEndOffsets[lineEndOffsetsSize++] = value;
+  }
+
+  private static int toInt(long lastValidOffset) {
+    if (lastValidOffset > Integer.MAX_VALUE) {
+      throw new IllegalStateException("File is too big: " + lastValidOffset);
+    }
+    return (int) lastValidOffset;
+  }
+}
@@ -33,6 +33,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Rule;
@@ -100,6 +104,34 @@ public class DefaultInputFileTest {
     assertThat(new File(inputFile.relativePath())).isRelative();
   }
 
+  @Test
+  public void metadata_is_generated_once_when_read_concurrently() throws InterruptedException {
+    AtomicInteger generations = new AtomicInteger();
+    CountDownLatch generating = new CountDownLatch(1);
+    DefaultInputFile inputFile = new DefaultInputFile(indexedFile, f -> {
+      generations.incrementAndGet();
+      generating.countDown();
+      sleep(50);
+      f.setMetadata(new Metadata(42, 42, "", new int[0], new int[0], 10));
+    });
+
+    Thread other = new Thread(inputFile::checkMetadata);
+    other.start();
+    generating.await(10, TimeUnit.SECONDS);
+    assertThat(inputFile.lines()).isEqualTo(42);
+    other.join();
+
+    assertThat(generations.get()).isEqualTo(1);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   @Test
   public void test_content() throws IOException {
     Path testFile = baseDir.resolve(PROJECT_RELATIVE_PATH);
@@ -123,6 +155,25 @@ public class DefaultInputFileTest {
 
   }
 
+  @Test
+  public void use_cached_contents_without_reading_file() throws IOException {
+    Metadata metadata = new Metadata(1, 1, "", new int[] {0}, new int[] {6}, 6);
+
+    DefaultInputFile inputFile = new DefaultInputFile(indexedFile, f -> f.setMetadata(metadata), f -> Optional.of("cached"))
+      .setCharset(StandardCharsets.UTF_8);
+
+    // the file doesn't exist
+    assertThat(inputFile.cachedContents()).contains("cached");
+    assertThat(inputFile.contents()).isEqualTo("cached");
+  }
+
+  @Test
+  public void no_cached_contents_before_metadata_is_generated() {
+    DefaultInputFile inputFile = new DefaultInputFile(indexedFile, f -> f.setMetadata(mock(Metadata.class)), f -> Optional.of("cached"));
+
+    assertThat(inputFile.cachedContents()).isEmpty();
+  }
+
   @Test
   public void test_content_exclude_bom() throws IOException {
     Path testFile = baseDir.resolve(PROJECT_RELATIVE_PATH);
@@ -315,4 +366,25 @@ public class DefaultInputFileTest {
     assertThat(file.newRange(file.newPointer(1, 0), file.newPointer(1, 1)).overlap(file.newRange(file.newPointer(1, 1), file.newPointer(1, 2)))).isFalse();
     assertThat(file.newRange(file.newPointer(1, 2), file.newPointer(1, 3)).overlap(file.newRange(file.newPointer(1, 0), file.newPointer(1, 2)))).isFalse();
   }
+
+  @Test
+  public void reload_released_line_offsets_with_metadata_generator() {
+    Metadata metadata = new Metadata(2, 2, "", new int[] {0, 10}, new int[] {9, 15}, 16);
+    AtomicInteger generations = new AtomicInteger();
+    DefaultInputFile file = new DefaultInputFile(new DefaultIndexedFile("ABCDE", Paths.get("module"), MODULE_RELATIVE_PATH, null), f -> {
+      generations.incrementAndGet();
+      f.setMetadata(metadata);
+    });
+    assertThat(file.releaseLineOffsets()).isNull();
+    assertThat(file.lines()).isEqualTo(2);
+
+    assertThat(file.releaseLineOffsets()).isSameAs(metadata);
+    assertThat(file.releaseLineOffsets()).isNull();
+    assertThat(file.lines()).isEqualTo(2);
+    assertThat(generations.get()).isEqualTo(1);
+
+    assertThat(file.lineLength(1)).isEqualTo(9);
+    assertThat(file.originalLineEndOffsets()).containsExactly(9, 15);
+    assertThat(generations.get()).isEqualTo(2);
+  }
 }
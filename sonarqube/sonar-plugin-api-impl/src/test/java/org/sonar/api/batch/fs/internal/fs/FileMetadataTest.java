@@ -19,10 +19,14 @@
  */
 package org.sonar.api.batch.fs.internal.fs;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
@@ -34,6 +38,10 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.batch.fs.internal.Metadata;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.fs.internal.charhandler.CharHandler;
+import org.sonar.api.batch.fs.internal.charhandler.FileHashComputer;
+import org.sonar.api.batch.fs.internal.charhandler.LineCounter;
+import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 
@@ -308,4 +316,74 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void same_metadata_as_char_handlers_for_content_spanning_several_buffers() throws Exception {
+    Random random = new Random(42);
+    char[] alphabet = {'a', 'b', ' ', '\t', '\n', '\r', 'é', '\u1D11'};
+    for (int i = 0; i < 20; i++) {
+      StringBuilder sb = new StringBuilder();
+      int length = random.nextInt(40_000);
+      for (int j = 0; j < length; j++) {
+        // long lines, to exceed the size of the buffers
+        sb.append(random.nextInt(100) == 0 ? alphabet[random.nextInt(alphabet.length)] : alphabet[random.nextInt(3)]);
+      }
+      String content = sb.toString();
+
+      LineCounter lineCounter = new LineCounter("file", StandardCharsets.UTF_8);
+      FileHashComputer fileHashComputer = new FileHashComputer("file");
+      LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+      FileMetadata.readFile(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, "file",
+        new CharHandler[] {lineCounter, fileHashComputer, lineOffsetCounter});
+
+      Metadata metadata = new FileMetadata().readMetadata(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, "file");
+
+      assertThat(metadata.lines()).isEqualTo(lineCounter.lines());
+      assertThat(metadata.nonBlankLines()).isEqualTo(lineCounter.nonBlankLines());
+      assertThat(metadata.hash()).isEqualTo(fileHashComputer.getHash());
+      assertThat(metadata.originalLineStartOffsets()).isEqualTo(lineOffsetCounter.getOriginalLineStartOffsets());
+      assertThat(metadata.originalLineEndOffsets()).isEqualTo(lineOffsetCounter.getOriginalLineEndOffsets());
+      assertThat(metadata.lastValidOffset()).isEqualTo(lineOffsetCounter.getLastValidOffset());
+    }
+  }
+
+  @Test
+  public void give_decoded_contents_to_consumer() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "föo\r\nbàr\n", StandardCharsets.UTF_8, true);
+    List<String> consumed = new ArrayList<>();
+
+    Metadata metadata = new FileMetadata().readMetadata(new FileInputStream(tempFile), StandardCharsets.UTF_8, tempFile.getName(), null,
+      contentsConsumer(100, consumed));
+
+    assertThat(metadata.lines()).isEqualTo(3);
+    assertThat(consumed).containsExactly("föo\r\nbàr\n");
+  }
+
+  @Test
+  public void dont_give_contents_longer_than_max_length_to_consumer() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "foo\nbar\n", StandardCharsets.UTF_8, true);
+    List<String> consumed = new ArrayList<>();
+
+    Metadata metadata = new FileMetadata().readMetadata(new FileInputStream(tempFile), StandardCharsets.UTF_8, tempFile.getName(), null,
+      contentsConsumer(7, consumed));
+
+    assertThat(metadata.lines()).isEqualTo(3);
+    assertThat(consumed).isEmpty();
+  }
+
+  private static FileMetadata.ContentsConsumer contentsConsumer(int maxLength, List<String> consumed) {
+    return new FileMetadata.ContentsConsumer() {
+      @Override
+      public int maxLength() {
+        return maxLength;
+      }
+
+      @Override
+      public void consume(String contents) {
+        consumed.add(contents);
+      }
+    };
+  }
+
 }
@@ -36,4 +36,47 @@ public class MetadataTest {
     assertThat(metadata.lastValidOffset()).isEqualTo(5);
     assertThat(metadata.hash()).isEqualTo("hash");
   }
+
+  @Test
+  public void keep_line_ends_of_lines_with_different_terminators() {
+    // "a\nbc\r\n\rd"
+    Metadata metadata = new Metadata(4, 3, "hash", new int[] {0, 2, 6, 7}, new int[] {1, 4, 6, 8}, 8);
+
+    assertThat(metadata.originalLineEndOffsets()).isEqualTo(new int[] {1, 4, 6, 8});
+    assertThat(metadata.originalLineEndOffset(0)).isEqualTo(1);
+    assertThat(metadata.originalLineEndOffset(1)).isEqualTo(4);
+    assertThat(metadata.originalLineEndOffset(3)).isEqualTo(8);
+  }
+
+  @Test
+  public void build_line_end_offsets_once() {
+    Metadata metadata = new Metadata(2, 2, "hash", new int[] {0, 2}, new int[] {1, 3}, 3);
+
+    assertThat(metadata.originalLineEndOffsets()).isSameAs(metadata.originalLineEndOffsets());
+  }
+
+  @Test
+  public void keep_line_ends_far_from_next_line_start() {
+    Metadata metadata = new Metadata(2, 2, "hash", new int[] {0, 1000}, new int[] {1, 1002}, 1002);
+
+    assertThat(metadata.originalLineEndOffsets()).isEqualTo(new int[] {1, 1002});
+    assertThat(metadata.originalLineEndOffset(0)).isEqualTo(1);
+  }
+
+  @Test
+  public void release_line_offsets() {
+    Metadata metadata = new Metadata(2, 1, "hash", new int[] {0, 2}, new int[] {1, 3}, 3);
+
+    Metadata released = metadata.withoutLineOffsets();
+
+    assertThat(metadata.hasLineOffsets()).isTrue();
+    assertThat(released.hasLineOffsets()).isFalse();
+    assertThat(released.originalLineStartOffsets()).isNull();
+    assertThat(released.originalLineEndOffsets()).isNull();
+    assertThat(released.lines()).isEqualTo(2);
+    assertThat(released.nonBlankLines()).isEqualTo(1);
+    assertThat(released.hash()).isEqualTo("hash");
+    assertThat(released.lastValidOffset()).isEqualTo(3);
+    assertThat(released.withoutLineOffsets()).isSameAs(released);
+  }
 }
@@ -26,7 +26,11 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.ClassUtils;
@@ -35,6 +39,7 @@ import org.sonar.api.batch.DependsUpon;
 import org.sonar.api.batch.Phase;
 import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.api.utils.dag.DirectAcyclicGraph;
+import org.sonar.api.utils.dag.Node;
 import org.sonar.core.platform.ComponentContainer;
 
 public abstract class AbstractExtensionDictionnary {
@@ -87,6 +92,42 @@ public abstract class AbstractExtensionDictionnary {
   }
 
   protected <T> Collection<T> sort(Collection<T> extensions) {
+    DirectAcyclicGraph dag = buildDag(extensions);
+    List<?> sortedList = dag.sort();
+
+    return (Collection<T>) sortedList.stream()
+      .filter(extensions::contains)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * For each extension, the extensions of the collection that must be executed before it, directly or transitively,
+   * because of phases and {@link DependsUpon}/{@link DependedUpon} annotations.
+   */
+  public <T> Map<T, Set<T>> dependencies(Collection<T> extensions) {
+    DirectAcyclicGraph dag = buildDag(extensions);
+    Map<T, Set<T>> result = new HashMap<>();
+    for (T extension : extensions) {
+      Set<T> dependencies = new HashSet<>();
+      collectDependencies(dag.add(extension), extensions, dependencies, new HashSet<>());
+      result.put(extension, dependencies);
+    }
+    return result;
+  }
+
+  private static <T> void collectDependencies(Node node, Collection<T> extensions, Set<T> dependencies, Set<Node> visited) {
+    for (Node dependency : node.getDependencies()) {
+      if (visited.add(dependency)) {
+        Object object = dependency.getObject();
+        if (extensions.contains(object)) {
+          dependencies.add((T) object);
+        }
+        collectDependencies(dependency, extensions, dependencies, visited);
+      }
+    }
+  }
+
+  private <T> DirectAcyclicGraph buildDag(Collection<T> extensions) {
     DirectAcyclicGraph dag = new DirectAcyclicGraph();
 
     for (T extension : extensions) {
@@ -99,11 +140,7 @@ public abstract class AbstractExtensionDictionnary {
       }
       completePhaseDependencies(dag, extension);
     }
-    List<?> sortedList = dag.sort();
-
-    return (Collection<T>) sortedList.stream()
-      .filter(extensions::contains)
-      .collect(Collectors.toList());
+    return dag;
   }
 
   /**
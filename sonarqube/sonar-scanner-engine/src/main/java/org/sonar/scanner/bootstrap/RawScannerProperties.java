@@ -19,6 +19,9 @@
  */
 package org.sonar.scanner.bootstrap;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -63,4 +66,18 @@ public class RawScannerProperties {
   public String property(String key) {
     return properties.get(key);
   }
+
+  /**
+   * Home directory of the scanner, where data is kept between analyses.
+   */
+  public Path userHome() {
+    String home = property("sonar.userHome");
+    if (home == null) {
+      home = System.getenv("SONAR_USER_HOME");
+    }
+    if (home == null) {
+      home = System.getProperty("user.home") + File.separator + ".sonar";
+    }
+    return Paths.get(home).toAbsolutePath();
+  }
 }
@@ -0,0 +1,139 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputProject;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.platform.PluginInfo;
+import org.sonar.scanner.bootstrap.RawScannerProperties;
+import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.scan.ScanProperties;
+
+/**
+ * Outputs computed by the scanner for the files of the previous analysis of the project, stored in the user home.
+ * Entries are addressed by the content of the file, so that they are reused when it didn't change. The whole cache is
+ * dropped when the version of the scanner or of any installed plugin changes, and only the entries used by the last
+ * analysis are kept.
+ */
+public class AnalysisCache implements Startable {
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+
+  @CheckForNull
+  private final CacheFile cacheFile;
+  private final Map<String, byte[]> previous = new HashMap<>();
+  private final Map<String, byte[]> current = new HashMap<>();
+  private int hits = 0;
+  private int misses = 0;
+
+  public AnalysisCache(ScanProperties scanProperties, RawScannerProperties rawScannerProperties, DefaultInputProject project, ScannerPluginRepository pluginRepository,
+    SonarRuntime runtime) {
+    this(scanProperties.isAnalysisCacheEnabled() ? cacheFile(rawScannerProperties, project) : null, fingerprint(pluginRepository, runtime));
+  }
+
+  AnalysisCache(@CheckForNull Path cacheFile, String fingerprint) {
+    this.cacheFile = cacheFile == null ? null : new CacheFile(cacheFile, fingerprint);
+  }
+
+  /**
+   * A cache that never returns any entry and doesn't keep what is put in it.
+   */
+  public static AnalysisCache disabled() {
+    return new AnalysisCache(null, "");
+  }
+
+  private static Path cacheFile(RawScannerProperties rawScannerProperties, DefaultInputProject project) {
+    return rawScannerProperties.userHome().resolve("analysis-cache").resolve(DigestUtils.md5Hex(project.key() + ":" + project.getBaseDir()));
+  }
+
+  private static String fingerprint(ScannerPluginRepository pluginRepository, SonarRuntime runtime) {
+    StringBuilder sb = new StringBuilder(runtime.getApiVersion().toString());
+    pluginRepository.getPluginInfos().stream()
+      .sorted(Comparator.comparing(PluginInfo::getKey))
+      .forEach(p -> sb.append(',').append(p.getKey()).append(':').append(p.getVersion()));
+    return DigestUtils.md5Hex(sb.toString());
+  }
+
+  public boolean isEnabled() {
+    return cacheFile != null;
+  }
+
+  @Override
+  public void start() {
+    if (cacheFile != null) {
+      previous.putAll(cacheFile.read());
+    }
+  }
+
+  /**
+   * Data of the given kind stored for a file having the same content by the previous analysis.
+   */
+  public synchronized Optional<byte[]> get(String kind, DefaultInputFile file) {
+    if (cacheFile == null) {
+      return Optional.empty();
+    }
+    String key = key(kind, file);
+    byte[] data = previous.get(key);
+    if (data == null) {
+      misses++;
+      return Optional.empty();
+    }
+    hits++;
+    current.put(key, data);
+    return Optional.of(data);
+  }
+
+  public synchronized void put(String kind, DefaultInputFile file, byte[] data) {
+    if (cacheFile != null) {
+      current.put(key(kind, file), data);
+    }
+  }
+
+  /**
+   * Replaces the content of the cache file by the entries used by this analysis.
+   */
+  @Override
+  public synchronized void stop() {
+    if (cacheFile == null) {
+      return;
+    }
+    if (hits + misses > 0) {
+      LOG.info("Analysis cache: {} hits, {} misses", hits, misses);
+    }
+    cacheFile.write(current);
+    previous.clear();
+    current.clear();
+  }
+
+  private static String key(String kind, DefaultInputFile file) {
+    return kind + ':' + file.md5Hash() + ':' + file.charset().name();
+  }
+}
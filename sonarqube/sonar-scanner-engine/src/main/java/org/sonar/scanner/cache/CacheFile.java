@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * File of binary entries addressed by keys, stored in the user home between two analyses. Entries are tagged with a
+ * fingerprint, for example a revision or the versions of plugins, and entries written with another fingerprint are ignored.
+ * The file is replaced as a whole, atomically when the file system supports it.
+ */
+public class CacheFile {
+
+  private static final Logger LOG = Loggers.get(CacheFile.class);
+  private static final int FORMAT_VERSION = 1;
+
+  private final Path path;
+  private final String fingerprint;
+
+  public CacheFile(Path path, String fingerprint) {
+    this.path = path;
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * @return the entries of the file, empty if it doesn't exist, can't be read or has another fingerprint
+   */
+  public Map<String, byte[]> read() {
+    Map<String, byte[]> entries = new HashMap<>();
+    if (!Files.isRegularFile(path)) {
+      return entries;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() == FORMAT_VERSION && fingerprint.equals(in.readUTF())) {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+          String key = in.readUTF();
+          byte[] data = new byte[in.readInt()];
+          in.readFully(data);
+          entries.put(key, data);
+        }
+      }
+    } catch (IOException e) {
+      LOG.debug("Ignoring cache " + path + " that can't be read", e);
+      entries.clear();
+    }
+    return entries;
+  }
+
+  /**
+   * Replaces the content of the file by the given entries. Failures are logged and ignored, the cache being only
+   * an optimization.
+   */
+  public void write(Map<String, byte[]> entries) {
+    Path tmpFile = null;
+    try {
+      Files.createDirectories(path.getParent());
+      tmpFile = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(fingerprint);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeInt(entry.getValue().length);
+          out.write(entry.getValue());
+        }
+      }
+      move(tmpFile, path);
+    } catch (IOException e) {
+      LOG.debug("Unable to write cache " + path, e);
+      if (tmpFile != null) {
+        FileUtils.deleteQuietly(tmpFile.toFile());
+      }
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
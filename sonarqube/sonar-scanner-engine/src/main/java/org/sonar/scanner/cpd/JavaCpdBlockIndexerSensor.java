@@ -19,12 +19,18 @@
  */
 package org.sonar.scanner.cpd;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
@@ -37,11 +43,13 @@ import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.scanner.sensor.ProjectSensor;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.BlockChunker;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.java.JavaStatementBuilder;
 import org.sonar.duplications.java.JavaTokenProducer;
 import org.sonar.duplications.statement.Statement;
 import org.sonar.duplications.statement.StatementChunker;
 import org.sonar.duplications.token.TokenChunker;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 
@@ -52,11 +60,14 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 public class JavaCpdBlockIndexerSensor implements ProjectSensor {
 
   private static final int BLOCK_SIZE = 10;
+  private static final String CACHE_KIND = "java-cpd-blocks";
   private static final Logger LOG = LoggerFactory.getLogger(JavaCpdBlockIndexerSensor.class);
   private final SonarCpdBlockIndex index;
+  private final AnalysisCache cache;
 
-  public JavaCpdBlockIndexerSensor(SonarCpdBlockIndex index) {
+  public JavaCpdBlockIndexerSensor(SonarCpdBlockIndex index, AnalysisCache cache) {
     this.index = index;
+    this.cache = cache;
   }
 
   @Override
@@ -92,10 +103,15 @@ public class JavaCpdBlockIndexerSensor implements ProjectSensor {
       LOG.debug("Populating index from {}", inputFile);
       String resourceEffectiveKey = inputFile.key();
 
+      Optional<byte[]> cachedBlocks = cache.get(CACHE_KIND, (DefaultInputFile) inputFile);
+      if (cachedBlocks.isPresent()) {
+        index.insert(inputFile, decode(resourceEffectiveKey, cachedBlocks.get()));
+        continue;
+      }
+
       List<Statement> statements;
 
-      try (InputStream is = inputFile.inputStream();
-        Reader reader = new InputStreamReader(is, inputFile.charset())) {
+      try (Reader reader = openReader((DefaultInputFile) inputFile)) {
         statements = statementChunker.chunk(tokenChunker.chunk(reader));
       } catch (FileNotFoundException e) {
         throw new IllegalStateException("Cannot find file " + inputFile.file(), e);
@@ -109,8 +125,64 @@ public class JavaCpdBlockIndexerSensor implements ProjectSensor {
       } catch (Exception e) {
         throw new IllegalStateException("Cannot process file " + inputFile.file(), e);
       }
+      if (cache.isEnabled()) {
+        cache.put(CACHE_KIND, (DefaultInputFile) inputFile, encode(blocks));
+      }
       index.insert(inputFile, blocks);
     }
   }
 
+  /**
+   * Opens the contents decoded while generating metadata when they are still in memory, so that the file is not
+   * read and decoded again
+   */
+  private static Reader openReader(DefaultInputFile inputFile) throws IOException {
+    Optional<String> cachedContents = inputFile.cachedContents();
+    if (cachedContents.isPresent()) {
+      return new StringReader(cachedContents.get());
+    }
+    return new InputStreamReader(inputFile.inputStream(), inputFile.charset());
+  }
+
+  private static byte[] encode(List<Block> blocks) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(blocks.size());
+      for (Block block : blocks) {
+        byte[] hash = block.getBlockHash().getBytes();
+        out.writeInt(hash.length);
+        out.write(hash);
+        out.writeInt(block.getIndexInFile());
+        out.writeInt(block.getStartLine());
+        out.writeInt(block.getEndLine());
+        out.writeInt(block.getStartUnit());
+        out.writeInt(block.getEndUnit());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to encode blocks", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<Block> decode(String resourceKey, byte[] data) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      int size = in.readInt();
+      List<Block> blocks = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        byte[] hash = new byte[in.readInt()];
+        in.readFully(hash);
+        blocks.add(Block.builder()
+          .setResourceId(resourceKey)
+          .setBlockHash(new ByteArray(hash))
+          .setIndexInFile(in.readInt())
+          .setLines(in.readInt(), in.readInt())
+          .setUnit(in.readInt(), in.readInt())
+          .build());
+      }
+      return blocks;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to decode blocks", e);
+    }
+  }
+
 }
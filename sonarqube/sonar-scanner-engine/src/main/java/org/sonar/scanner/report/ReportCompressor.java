@@ -0,0 +1,320 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.scan.ScanProperties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compresses the files of the scanner report into a zip file, on a pool of threads. Files that are not modified anymore,
+ * like sources, are compressed while the rest of the report is still being generated, so that the zip file is ready
+ * shortly after the last file of the report is written.
+ * <p>
+ * Files are deflated independently from each other, then appended to the zip file in the order in which their
+ * compression completes.
+ */
+public class ReportCompressor implements Startable {
+
+  private static final Logger LOG = Loggers.get(ReportCompressor.class);
+  private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final short VERSION = 20;
+  private static final short ZIP64_VERSION = 45;
+  private static final short UTF8_NAMES_FLAG = 0x0800;
+  private static final short DEFLATED = 8;
+  private static final int MAX_ENTRIES = 0xFFFF;
+  private static final long MAX_SIZE = 0xFFFFFFFFL;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ScanProperties properties;
+
+  private final Set<Path> compressedFiles = new HashSet<>();
+  private final List<Future<?>> compressions = new ArrayList<>();
+  private final List<ZipEntry> entries = new ArrayList<>();
+  @CheckForNull
+  private ExecutorService executorService;
+  private Path reportDir;
+  private File zipFile;
+  private OutputStream output;
+  private long offset;
+
+  public ReportCompressor(ScanProperties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    close();
+  }
+
+  /**
+   * Starts the compression of the given report directory into the given zip file
+   */
+  void open(Path reportDir, File zipFile) {
+    try {
+      this.output = new BufferedOutputStream(Files.newOutputStream(zipFile.toPath()), BUFFER_SIZE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to create " + zipFile, e);
+    }
+    this.reportDir = reportDir;
+    this.zipFile = zipFile;
+    this.offset = 0;
+    int threads = Math.max(1, properties.reportCompressionThreads());
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executorService = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "Report compressor " + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Compresses in background a file of the report, which must not be modified anymore. Does nothing if the compression
+   * of the report is not started.
+   */
+  void compress(File file) {
+    if (executorService != null && compressedFiles.add(file.toPath())) {
+      compressions.add(executorService.submit(() -> {
+        addEntry(file.toPath());
+        return null;
+      }));
+    }
+  }
+
+  /**
+   * Compresses the files of the report that are not compressed yet, and waits for the zip file to be complete
+   */
+  void finish() {
+    try {
+      List<Path> files;
+      try (Stream<Path> stream = Files.walk(reportDir)) {
+        files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+      files.forEach(file -> compress(file.toFile()));
+      for (Future<?> compression : compressions) {
+        await(compression);
+      }
+      if (offset > MAX_SIZE || entries.stream().anyMatch(entry -> entry.size > MAX_SIZE)) {
+        // would require the ZIP64 extensions for sizes and offsets
+        LOG.debug("Analysis report is too large to be compressed in parallel");
+        output.close();
+        ZipUtils.zipDir(reportDir.toFile(), zipFile);
+      } else {
+        writeCentralDirectory();
+        output.close();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to compress analysis report", e);
+    } finally {
+      close();
+    }
+  }
+
+  private void close() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+      executorService = null;
+      IOUtils.closeQuietly(output);
+      compressedFiles.clear();
+      compressions.clear();
+      entries.clear();
+    }
+  }
+
+  private static void await(Future<?> compression) {
+    try {
+      compression.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compressing analysis report", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to compress analysis report", e.getCause());
+    }
+  }
+
+  private void addEntry(Path file) throws IOException {
+    CRC32 crc = new CRC32();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    long size;
+    try (InputStream input = new CheckedInputStream(Files.newInputStream(file), crc);
+      OutputStream deflated = new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE)) {
+      size = IOUtils.copyLarge(input, deflated);
+    } finally {
+      deflater.end();
+    }
+    String name = reportDir.relativize(file).toString().replace(File.separatorChar, '/');
+    ZipEntry entry = new ZipEntry(name, dosTime(Files.getLastModifiedTime(file).toMillis()), crc.getValue(), compressed.size(), size);
+    writeEntry(entry, compressed);
+  }
+
+  private synchronized void writeEntry(ZipEntry entry, ByteArrayOutputStream data) throws IOException {
+    entry.offset = offset;
+    ByteBuffer header = ByteBuffer.allocate(30 + entry.name.length).order(ByteOrder.LITTLE_ENDIAN)
+      .putInt(LOCAL_FILE_HEADER_SIGNATURE)
+      .putShort(VERSION)
+      .putShort(UTF8_NAMES_FLAG)
+      .putShort(DEFLATED)
+      .putInt(entry.dosTime)
+      .putInt((int) entry.crc)
+      .putInt((int) entry.compressedSize)
+      .putInt((int) entry.size)
+      .putShort((short) entry.name.length)
+      .putShort((short) 0)
+      .put(entry.name);
+    output.write(header.array());
+    data.writeTo(output);
+    offset += header.capacity() + (long) data.size();
+    entries.add(entry);
+  }
+
+  private void writeCentralDirectory() throws IOException {
+    long centralDirectoryOffset = offset;
+    for (ZipEntry entry : entries) {
+      ByteBuffer header = ByteBuffer.allocate(46 + entry.name.length).order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(CENTRAL_DIRECTORY_HEADER_SIGNATURE)
+        .putShort(VERSION)
+        .putShort(VERSION)
+        .putShort(UTF8_NAMES_FLAG)
+        .putShort(DEFLATED)
+        .putInt(entry.dosTime)
+        .putInt((int) entry.crc)
+        .putInt((int) entry.compressedSize)
+        .putInt((int) entry.size)
+        .putShort((short) entry.name.length)
+        // extra field, comment, disk number, internal and external attributes
+        .putShort((short) 0)
+        .putShort((short) 0)
+        .putShort((short) 0)
+        .putShort((short) 0)
+        .putInt(0)
+        .putInt((int) entry.offset)
+        .put(entry.name);
+      output.write(header.array());
+      offset += header.capacity();
+    }
+    long centralDirectorySize = offset - centralDirectoryOffset;
+
+    if (entries.size() >= MAX_ENTRIES) {
+      // the number of entries doesn't fit in the end of central directory record
+      long zip64EndOffset = offset;
+      ByteBuffer zip64End = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+        .putLong(44)
+        .putShort(ZIP64_VERSION)
+        .putShort(ZIP64_VERSION)
+        .putInt(0)
+        .putInt(0)
+        .putLong(entries.size())
+        .putLong(entries.size())
+        .putLong(centralDirectorySize)
+        .putLong(centralDirectoryOffset)
+        .putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE)
+        .putInt(0)
+        .putLong(zip64EndOffset)
+        .putInt(1);
+      output.write(zip64End.array());
+    }
+
+    ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN)
+      .putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+      .putShort((short) 0)
+      .putShort((short) 0)
+      .putShort((short) Math.min(entries.size(), MAX_ENTRIES))
+      .putShort((short) Math.min(entries.size(), MAX_ENTRIES))
+      .putInt((int) centralDirectorySize)
+      .putInt((int) centralDirectoryOffset)
+      .putShort((short) 0);
+    output.write(end.array());
+  }
+
+  /**
+   * Date and time in MS-DOS format, as expected by zip headers
+   */
+  private static int dosTime(long millis) {
+    LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    if (time.getYear() < 1980) {
+      // 1980-01-01
+      return (1 << 21) | (1 << 16);
+    }
+    return ((time.getYear() - 1980) << 25) | (time.getMonthValue() << 21) | (time.getDayOfMonth() << 16)
+      | (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+  }
+
+  private static class ZipEntry {
+    private final byte[] name;
+    private final int dosTime;
+    private final long crc;
+    private final long compressedSize;
+    private final long size;
+    private long offset;
+
+    private ZipEntry(String name, int dosTime, long crc, long compressedSize, long size) {
+      this.name = name.getBytes(UTF_8);
+      this.dosTime = dosTime;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+  }
+}
@@ -37,7 +37,6 @@ import org.picocontainer.Startable;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
@@ -48,6 +47,7 @@ import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.branch.BranchType;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
 import org.sonarqube.ws.Ce;
 import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.client.HttpException;
@@ -79,6 +79,8 @@ public class ReportPublisher implements Startable {
   private final BranchConfiguration branchConfiguration;
   private final ScanProperties properties;
   private final CeTaskReportDataHolder ceTaskReportDataHolder;
+  private final ReportCompressor reportCompressor;
+  private final ScannerTelemetry telemetry;
 
   private Path reportDir;
   private ScannerReportWriter writer;
@@ -86,7 +88,7 @@ public class ReportPublisher implements Startable {
 
   public ReportPublisher(ScanProperties properties, DefaultScannerWsClient wsClient, Server server, AnalysisContextReportPublisher contextPublisher,
     InputModuleHierarchy moduleHierarchy, GlobalAnalysisMode analysisMode, TempFolder temp, ReportPublisherStep[] publishers, BranchConfiguration branchConfiguration,
-    CeTaskReportDataHolder ceTaskReportDataHolder) {
+    CeTaskReportDataHolder ceTaskReportDataHolder, ReportCompressor reportCompressor, ScannerTelemetry telemetry) {
     this.wsClient = wsClient;
     this.server = server;
     this.contextPublisher = contextPublisher;
@@ -97,6 +99,8 @@ public class ReportPublisher implements Startable {
     this.branchConfiguration = branchConfiguration;
     this.properties = properties;
     this.ceTaskReportDataHolder = ceTaskReportDataHolder;
+    this.reportCompressor = reportCompressor;
+    this.telemetry = telemetry;
   }
 
   @Override
@@ -139,9 +143,14 @@ public class ReportPublisher implements Startable {
       LOG.info("Analysis report generated in " + reportDir);
     }
     if (!analysisMode.isMediumTest()) {
-      String taskId = upload(report);
+      String taskId;
+      try (ScannerTelemetry.Measure measure = telemetry.start("Report upload")) {
+        taskId = upload(report);
+        measure.addBytes(report.length());
+      }
       prepareAndDumpMetadata(taskId);
     }
+    telemetry.writeJson(moduleHierarchy.root().getWorkDir().resolve(writer.getFileStructure().telemetry().getName()));
 
     logSuccess();
   }
@@ -157,23 +166,31 @@ public class ReportPublisher implements Startable {
   }
 
   private File generateReportFile() {
-    try {
-      long startTime = System.currentTimeMillis();
+    long startTime = System.currentTimeMillis();
+    File reportZip = temp.newFile("scanner-report", ".zip");
+    // files that are complete are compressed in background while the report is generated
+    reportCompressor.open(reportDir, reportZip);
+    long dirSize;
+    try (ScannerTelemetry.Measure measure = telemetry.start("Report generation")) {
       for (ReportPublisherStep publisher : publishers) {
         publisher.publish(writer);
       }
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
-
-      startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("scanner-report", ".zip");
-      ZipUtils.zipDir(reportDir.toFile(), reportZip);
-      stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
-      return reportZip;
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to prepare analysis report", e);
+      dirSize = FileUtils.sizeOfDirectory(reportDir.toFile());
+      measure.addBytes(dirSize);
+    }
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(dirSize));
+    // metrics of the analysis up to the generation of the report, so that they are stored with the analysis
+    telemetry.writeJson(writer.getFileStructure().telemetry().toPath());
+
+    startTime = System.currentTimeMillis();
+    try (ScannerTelemetry.Measure measure = telemetry.start("Report compression")) {
+      reportCompressor.finish();
+      measure.addBytes(FileUtils.sizeOf(reportZip));
     }
+    stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
+    return reportZip;
   }
 
   /**
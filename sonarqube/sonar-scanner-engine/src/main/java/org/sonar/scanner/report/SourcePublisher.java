@@ -27,7 +27,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
@@ -36,9 +38,11 @@ import org.sonar.scanner.scan.filesystem.InputComponentStore;
 public class SourcePublisher implements ReportPublisherStep {
 
   private final InputComponentStore componentCache;
+  private final ReportCompressor reportCompressor;
 
-  public SourcePublisher(InputComponentStore componentStore) {
+  public SourcePublisher(InputComponentStore componentStore, ReportCompressor reportCompressor) {
     this.componentCache = componentStore;
+    this.reportCompressor = reportCompressor;
   }
 
   @Override
@@ -47,15 +51,25 @@ public class SourcePublisher implements ReportPublisherStep {
       File iofile = writer.getSourceFile(inputFile.scannerId());
 
       try (OutputStream output = new BufferedOutputStream(new FileOutputStream(iofile));
-        InputStream in = inputFile.inputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in, inputFile.charset()))) {
+        BufferedReader reader = openReader(inputFile)) {
         writeSource(reader, output, inputFile.lines());
       } catch (IOException e) {
         throw new IllegalStateException("Unable to store file source in the report", e);
       }
+      // sources are not modified anymore
+      reportCompressor.compress(iofile);
     }
   }
 
+  private static BufferedReader openReader(DefaultInputFile inputFile) throws IOException {
+    Optional<String> cachedContents = inputFile.cachedContents();
+    if (cachedContents.isPresent()) {
+      return new BufferedReader(new StringReader(cachedContents.get()));
+    }
+    InputStream in = inputFile.inputStream();
+    return new BufferedReader(new InputStreamReader(in, inputFile.charset()));
+  }
+
   private static void writeSource(BufferedReader reader, OutputStream output, int lines) throws IOException {
     int line = 0;
     String lineStr = reader.readLine();
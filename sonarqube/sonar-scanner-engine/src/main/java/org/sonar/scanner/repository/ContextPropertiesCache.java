@@ -19,14 +19,14 @@
  */
 package org.sonar.scanner.repository;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.sonar.api.utils.Preconditions.checkArgument;
 
 public class ContextPropertiesCache {
 
-  private final Map<String, String> props = new HashMap<>();
+  private final Map<String, String> props = new ConcurrentHashMap<>();
 
   /**
    * Value is overridden if the key was already stored.
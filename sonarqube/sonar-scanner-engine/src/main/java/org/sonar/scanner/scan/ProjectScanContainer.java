@@ -45,6 +45,7 @@ import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.bootstrap.MetricProvider;
 import org.sonar.scanner.bootstrap.PostJobExtensionDictionnary;
 import org.sonar.scanner.bootstrap.ProcessedScannerProperties;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.ci.CiConfigurationProvider;
 import org.sonar.scanner.ci.vendors.AppVeyor;
 import org.sonar.scanner.ci.vendors.AzureDevops;
@@ -85,6 +86,7 @@ import org.sonar.scanner.report.ChangedLinesPublisher;
 import org.sonar.scanner.report.ComponentsPublisher;
 import org.sonar.scanner.report.ContextPropertiesPublisher;
 import org.sonar.scanner.report.MetadataPublisher;
+import org.sonar.scanner.report.ReportCompressor;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.report.SourcePublisher;
 import org.sonar.scanner.report.TestExecutionPublisher;
@@ -110,8 +112,10 @@ import org.sonar.scanner.scan.branch.BranchConfigurationProvider;
 import org.sonar.scanner.scan.branch.BranchType;
 import org.sonar.scanner.scan.branch.ProjectBranchesProvider;
 import org.sonar.scanner.scan.branch.ProjectPullRequestsProvider;
+import org.sonar.scanner.scan.filesystem.DecodedContentsCache;
 import org.sonar.scanner.scan.filesystem.DefaultProjectFileSystem;
 import org.sonar.scanner.scan.filesystem.FileIndexer;
+import org.sonar.scanner.scan.filesystem.FileMetadataSpill;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 import org.sonar.scanner.scan.filesystem.LanguageDetection;
 import org.sonar.scanner.scan.filesystem.MetadataGenerator;
@@ -130,6 +134,7 @@ import org.sonar.scanner.sensor.ProjectSensorContext;
 import org.sonar.scanner.sensor.ProjectSensorExtensionDictionnary;
 import org.sonar.scanner.sensor.ProjectSensorOptimizer;
 import org.sonar.scanner.sensor.ProjectSensorsExecutor;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
 
 import static org.sonar.api.batch.InstantiationStrategy.PER_BATCH;
 import static org.sonar.core.extension.CoreExtensionsInstaller.noExtensionFilter;
@@ -159,6 +164,7 @@ public class ProjectScanContainer extends ComponentContainer {
         new ExternalProjectKeyAndOrganizationProvider(),
         ProcessedScannerProperties.class,
         ScanProperties.class,
+        ScannerTelemetry.class,
         ProjectReactorBuilder.class,
         WorkDirectoriesInitializer.class,
         new MutableProjectReactorProvider(),
@@ -190,6 +196,8 @@ public class ProjectScanContainer extends ComponentContainer {
         StatusDetection.class,
         LanguageDetection.class,
         MetadataGenerator.class,
+        DecodedContentsCache.class,
+        FileMetadataSpill.class,
         FileMetadata.class,
         FileIndexer.class,
         ProjectFileIndexer.class,
@@ -241,6 +249,7 @@ public class ProjectScanContainer extends ComponentContainer {
         // Report
         ScannerMetrics.class,
         ReportPublisher.class,
+        ReportCompressor.class,
         AnalysisContextReportPublisher.class,
         MetadataPublisher.class,
         ActiveRulesPublisher.class,
@@ -260,6 +269,9 @@ public class ProjectScanContainer extends ComponentContainer {
         CpdSettings.class,
         SonarCpdBlockIndex.class,
 
+        // Analysis cache
+        AnalysisCache.class,
+
         // PostJobs
         PostJobsExecutor.class,
         PostJobOptimizer.class,
@@ -343,7 +355,11 @@ public class ProjectScanContainer extends ComponentContainer {
       LOG.info("Branch name: {}", branchConfig.branchName());
     }
 
-    getComponentByType(ProjectFileIndexer.class).index();
+    ScannerTelemetry telemetry = getComponentByType(ScannerTelemetry.class);
+    try (ScannerTelemetry.Measure measure = telemetry.start("Indexing")) {
+      getComponentByType(ProjectFileIndexer.class).index();
+      measure.addFiles(getComponentByType(InputComponentStore.class).inputFiles().size());
+    }
 
     // Log detected languages and their profiles after FS is indexed and languages detected
     getComponentByType(QProfileVerifier.class).execute();
@@ -353,7 +369,9 @@ public class ProjectScanContainer extends ComponentContainer {
     LOG.info("------------- Run sensors on project");
     getComponentByType(ProjectSensorsExecutor.class).execute();
 
-    getComponentByType(ScmPublisher.class).publish();
+    try (ScannerTelemetry.Measure measure = telemetry.start("SCM")) {
+      getComponentByType(ScmPublisher.class).publish();
+    }
 
     // if (analysisMode.isIssues()) {
     //   getComponentByType(IssueTransition.class).execute();
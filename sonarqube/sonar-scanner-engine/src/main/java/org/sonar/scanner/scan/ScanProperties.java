@@ -21,11 +21,14 @@ package org.sonar.scanner.scan;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.Set;
 import org.sonar.api.batch.fs.internal.DefaultInputProject;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.MessageException;
 
+import static java.util.stream.Collectors.toSet;
 import static org.sonar.core.config.ScannerProperties.BRANCH_NAME;
 import static org.sonar.core.config.ScannerProperties.ORGANIZATION;
 
@@ -39,8 +42,17 @@ public class ScanProperties {
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
   public static final String SONAR_REPORT_EXPORT_PATH = "sonar.report.export.path";
   public static final String PRELOAD_FILE_METADATA_KEY = "sonar.preloadFileMetadata";
+  public static final String CONTENTS_CACHE_SIZE_KEY = "sonar.scanner.contentsCacheSize";
+  public static final String SPILL_FILE_METADATA_KEY = "sonar.scanner.spillFileMetadata";
+  public static final String INDEXING_THREADS_KEY = "sonar.scanner.indexingThreads";
+  public static final String SENSOR_THREADS_KEY = "sonar.scanner.sensorThreads";
+  public static final String SEQUENTIAL_SENSOR_PLUGINS_KEY = "sonar.scanner.sequentialSensorPlugins";
+  public static final String REPORT_COMPRESSION_THREADS_KEY = "sonar.scanner.reportCompressionThreads";
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
   public static final String SCM_REVISION = "sonar.scm.revision";
+  public static final String SCM_BLAME_THREADS_KEY = "sonar.scm.blameThreads";
+  public static final String SCM_BLAME_CACHE_DISABLED_KEY = "sonar.scm.blameCache.disabled";
+  public static final String ANALYSIS_CACHE_DISABLED_KEY = "sonar.scanner.analysisCache.disabled";
   public static final String QUALITY_GATE_WAIT = "sonar.qualitygate.wait";
   public static final String QUALITY_GATE_TIMEOUT_IN_SEC = "sonar.qualitygate.timeout";
 
@@ -60,6 +72,82 @@ public class ScanProperties {
     return configuration.getBoolean(PRELOAD_FILE_METADATA_KEY).orElse(false);
   }
 
+  /**
+   * Size in MB of the memory used to keep the contents of files decoded while computing their metadata
+   */
+  public int contentsCacheSizeInMb() {
+    return configuration.getInt(CONTENTS_CACHE_SIZE_KEY).orElse(64);
+  }
+
+  /**
+   * Whether line offsets of files are written to disk between sensors, instead of being kept in memory
+   */
+  public boolean spillFileMetadata() {
+    return configuration.getBoolean(SPILL_FILE_METADATA_KEY).orElse(false);
+  }
+
+  /**
+   * Number of threads used to index files. Files are indexed sequentially by default.
+   */
+  public int indexingThreads() {
+    return threads(INDEXING_THREADS_KEY);
+  }
+
+  /**
+   * Number of threads used to execute sensors. Sensors are executed sequentially by default.
+   */
+  public int sensorThreads() {
+    return threads(SENSOR_THREADS_KEY);
+  }
+
+  /**
+   * Keys of the plugins whose sensors are not executed concurrently with any other sensor, when sensors are executed by
+   * several threads
+   */
+  public Set<String> sequentialSensorPlugins() {
+    return Arrays.stream(configuration.getStringArray(SEQUENTIAL_SENSOR_PLUGINS_KEY)).collect(toSet());
+  }
+
+  /**
+   * Number of threads used to compress the report. Defaults to the number of processors, up to 4.
+   */
+  public int reportCompressionThreads() {
+    return threads(REPORT_COMPRESSION_THREADS_KEY, Math.min(4, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Number of threads used to blame files. Files are blamed by a single call to the SCM provider by default.
+   */
+  public int blameThreads() {
+    return threads(SCM_BLAME_THREADS_KEY);
+  }
+
+  /**
+   * Whether the changesets of files that didn't change since the previous analysis of the same revision are reused
+   */
+  public boolean isBlameCacheEnabled() {
+    return !configuration.getBoolean(SCM_BLAME_CACHE_DISABLED_KEY).orElse(false);
+  }
+
+  /**
+   * Whether the outputs computed by the scanner for files that didn't change since the previous analysis are reused
+   */
+  public boolean isAnalysisCacheEnabled() {
+    return !configuration.getBoolean(ANALYSIS_CACHE_DISABLED_KEY).orElse(false);
+  }
+
+  private int threads(String propertyKey) {
+    return threads(propertyKey, 1);
+  }
+
+  private int threads(String propertyKey, int defaultThreads) {
+    int threads = configuration.getInt(propertyKey).orElse(defaultThreads);
+    if (threads < 1) {
+      throw MessageException.of(String.format("Property '%s' must be greater than 0: %d", propertyKey, threads));
+    }
+    return threads;
+  }
+
   public Optional<String> organizationKey() {
     return configuration.get(ORGANIZATION);
   }
@@ -45,6 +45,11 @@ public abstract class AbstractExclusionFilters {
   private PathPattern[] testInclusionsPattern;
   private PathPattern[] testExclusionsPattern;
 
+  private final CompiledPathPatterns compiledMainInclusions;
+  private final CompiledPathPatterns compiledMainExclusions;
+  private final CompiledPathPatterns compiledTestInclusions;
+  private final CompiledPathPatterns compiledTestExclusions;
+
   public AbstractExclusionFilters(Function<String, String[]> configProvider) {
     this.sourceInclusions = inclusions(configProvider, CoreProperties.PROJECT_INCLUSIONS_PROPERTY);
     this.testInclusions = inclusions(configProvider, CoreProperties.PROJECT_TEST_INCLUSIONS_PROPERTY);
@@ -54,6 +59,10 @@ public abstract class AbstractExclusionFilters {
     this.mainExclusionsPattern = prepareMainExclusions(sourceExclusions, testInclusions);
     this.testInclusionsPattern = prepareTestInclusions(testInclusions);
     this.testExclusionsPattern = prepareTestExclusions(testExclusions);
+    this.compiledMainInclusions = new CompiledPathPatterns(mainInclusionsPattern);
+    this.compiledMainExclusions = new CompiledPathPatterns(mainExclusionsPattern);
+    this.compiledTestInclusions = new CompiledPathPatterns(testInclusionsPattern);
+    this.compiledTestExclusions = new CompiledPathPatterns(testExclusionsPattern);
   }
 
   public void log(String indent) {
@@ -120,34 +129,28 @@ public abstract class AbstractExclusionFilters {
   }
 
   public boolean isIncluded(Path absolutePath, Path relativePath, InputFile.Type type) {
-    PathPattern[] inclusionPatterns = InputFile.Type.MAIN == type ? mainInclusionsPattern : testInclusionsPattern;
-
-    if (inclusionPatterns.length == 0) {
-      return true;
-    }
-
-    for (PathPattern pattern : inclusionPatterns) {
-      if (pattern.match(absolutePath, relativePath)) {
-        return true;
-      }
-    }
-
-    return false;
+    CompiledPathPatterns inclusionPatterns = InputFile.Type.MAIN == type ? compiledMainInclusions : compiledTestInclusions;
+    return inclusionPatterns.isEmpty() || inclusionPatterns.matchAny(absolutePath, relativePath);
   }
 
   public boolean isExcluded(Path absolutePath, Path relativePath, InputFile.Type type) {
-    PathPattern[] exclusionPatterns = InputFile.Type.MAIN == type ? mainExclusionsPattern : testExclusionsPattern;
-
-    if (exclusionPatterns.length == 0) {
-      return false;
-    }
+    CompiledPathPatterns exclusionPatterns = InputFile.Type.MAIN == type ? compiledMainExclusions : compiledTestExclusions;
+    return !exclusionPatterns.isEmpty() && exclusionPatterns.matchAny(absolutePath, relativePath);
+  }
 
-    for (PathPattern pattern : exclusionPatterns) {
-      if (pattern.match(absolutePath, relativePath)) {
-        return true;
-      }
-    }
+  /**
+   * Whether some files below the given directory may be included. Used to skip directories that contain no file to index.
+   */
+  public boolean mayIncludeBelow(Path relativeDirectory, InputFile.Type type) {
+    CompiledPathPatterns inclusionPatterns = InputFile.Type.MAIN == type ? compiledMainInclusions : compiledTestInclusions;
+    return inclusionPatterns.isEmpty() || inclusionPatterns.mayMatchBelow(relativeDirectory);
+  }
 
-    return false;
+  /**
+   * Whether all the files below the given directory are excluded. Used to skip directories that contain no file to index.
+   */
+  public boolean isExcludedBelow(Path relativeDirectory, InputFile.Type type) {
+    CompiledPathPatterns exclusionPatterns = InputFile.Type.MAIN == type ? compiledMainExclusions : compiledTestExclusions;
+    return !exclusionPatterns.isEmpty() && exclusionPatterns.matchAllBelow(relativeDirectory);
   }
 }
@@ -0,0 +1,386 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.batch.fs.internal.PathPattern;
+import org.sonar.api.utils.PathUtils;
+import org.sonar.api.utils.WildcardPattern;
+
+/**
+ * Set of {@link PathPattern}s compiled into a single trie over path segments. A path is split into segments once and
+ * matched against all the patterns at the same time, instead of evaluating the regular expression of each
+ * {@link WildcardPattern}. Patterns that can't be represented in the trie, for instance the deprecated absolute path
+ * patterns, are still evaluated one by one.
+ * <p>
+ * Results are the same as calling {@link PathPattern#match(Path, Path, boolean)} on each pattern.
+ */
+@Immutable
+class CompiledPathPatterns {
+
+  private static final String ABSOLUTE_PATH_PATTERN_PREFIX = "file:";
+  private static final String DOUBLE_STAR = "**";
+
+  private final PathPattern[] patterns;
+  private final Node root = new Node(false);
+  /**
+   * Indexes of the patterns that are not compiled in the trie
+   */
+  private final int[] uncompiled;
+
+  CompiledPathPatterns(PathPattern[] patterns) {
+    this.patterns = patterns;
+    List<Integer> notCompiled = new ArrayList<>();
+    for (int i = 0; i < patterns.length; i++) {
+      if (!compile(patterns[i].toString(), i)) {
+        notCompiled.add(i);
+      }
+    }
+    this.uncompiled = notCompiled.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  PathPattern[] patterns() {
+    return patterns;
+  }
+
+  boolean isEmpty() {
+    return patterns.length == 0;
+  }
+
+  /**
+   * Whether at least one pattern matches the file, the file extension being case-sensitive.
+   */
+  boolean matchAny(Path absolutePath, Path relativePath) {
+    BitSet matching = new BitSet(patterns.length);
+    match(absolutePath, relativePath, true, true, matching);
+    return !matching.isEmpty();
+  }
+
+  /**
+   * Indexes of the patterns matching the file.
+   */
+  BitSet match(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension) {
+    BitSet matching = new BitSet(patterns.length);
+    match(absolutePath, relativePath, caseSensitiveFileExtension, false, matching);
+    return matching;
+  }
+
+  /**
+   * Whether all the files below the given directory, whatever their names, match at least one pattern.
+   * Only patterns ending with "/**" are considered, so it may return false even though all the files match.
+   */
+  boolean matchAllBelow(Path relativeDirectory) {
+    String path = normalize(relativeDirectory, true);
+    if (path == null || path.isEmpty() || path.contains("//")) {
+      return false;
+    }
+    BitSet matching = new BitSet(patterns.length);
+    for (Node state : walk(path, true, matching)) {
+      matching.or(state.matchingRemainingSegments);
+    }
+    return !matching.isEmpty();
+  }
+
+  /**
+   * Whether some file below the given directory could match at least one pattern. It may return true even though
+   * no file matches, for instance when the names of the files don't match the wildcards of the patterns.
+   */
+  boolean mayMatchBelow(Path relativeDirectory) {
+    String path = normalize(relativeDirectory, true);
+    if (uncompiled.length > 0 || path == null || path.isEmpty() || path.contains("//")) {
+      return true;
+    }
+    BitSet matching = new BitSet(patterns.length);
+    List<Node> states = walk(path, true, matching);
+    return !matching.isEmpty() || states.stream().anyMatch(Node::hasNext);
+  }
+
+  private void match(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension, boolean stopAtFirstMatch, BitSet matching) {
+    String path = normalize(relativePath, caseSensitiveFileExtension);
+    if (path != null) {
+      if (path.isEmpty() || path.contains("//")) {
+        // unusual path, that can't be split into segments like the patterns of the trie
+        matchOneByOne(absolutePath, relativePath, caseSensitiveFileExtension, stopAtFirstMatch, matching);
+        return;
+      }
+      for (Node state : walk(path, stopAtFirstMatch, matching)) {
+        matching.or(state.matching);
+      }
+    }
+    for (int index : uncompiled) {
+      if (stopAtFirstMatch && !matching.isEmpty()) {
+        return;
+      }
+      if (patterns[index].match(absolutePath, relativePath, caseSensitiveFileExtension)) {
+        matching.set(index);
+      }
+    }
+  }
+
+  private void matchOneByOne(Path absolutePath, Path relativePath, boolean caseSensitiveFileExtension, boolean stopAtFirstMatch, BitSet matching) {
+    for (int i = 0; i < patterns.length; i++) {
+      if (patterns[i].match(absolutePath, relativePath, caseSensitiveFileExtension)) {
+        matching.set(i);
+        if (stopAtFirstMatch) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Same normalization of the relative path than {@link PathPattern} and {@link WildcardPattern#match(String)}
+   */
+  @CheckForNull
+  private static String normalize(Path relativePath, boolean caseSensitiveFileExtension) {
+    String path = PathUtils.sanitize(relativePath.toString());
+    if (path == null) {
+      return null;
+    }
+    if (!caseSensitiveFileExtension) {
+      String extension = StringUtils.lowerCase(StringUtils.removeStart(FilenameUtils.getExtension(path), "."));
+      if (StringUtils.isNotBlank(extension)) {
+        path = StringUtils.removeEndIgnoreCase(path, extension);
+        path = path + extension;
+      }
+    }
+    path = StringUtils.removeStart(path, "/");
+    return StringUtils.removeEnd(path, "/");
+  }
+
+  /**
+   * @return the states of the trie after the last segment of the path, or an empty list if the walk stopped at the first match
+   */
+  private List<Node> walk(String path, boolean stopAtFirstMatch, BitSet matching) {
+    List<Node> states = new ArrayList<>();
+    addWithDoubleStars(states, root);
+    int start = 0;
+    while (start <= path.length() && !states.isEmpty()) {
+      int end = path.indexOf('/', start);
+      if (end < 0) {
+        end = path.length();
+      }
+      String segment = path.substring(start, end);
+      List<Node> nextStates = new ArrayList<>();
+      for (Node state : states) {
+        // at least one segment remains, which is what a trailing "**" expects
+        matching.or(state.matchingRemainingSegments);
+        state.next(segment, nextStates);
+      }
+      if (stopAtFirstMatch && !matching.isEmpty()) {
+        return Collections.emptyList();
+      }
+      states = nextStates;
+      start = end + 1;
+    }
+    return states;
+  }
+
+  private boolean compile(String pattern, int index) {
+    if (StringUtils.startsWithIgnoreCase(pattern, ABSOLUTE_PATH_PATTERN_PREFIX)) {
+      return false;
+    }
+    String relativePattern = pattern.startsWith("/") || pattern.startsWith("\\") ? pattern.substring(1) : pattern;
+    String[] segments = relativePattern.split("[/\\\\]", -1);
+    for (String segment : segments) {
+      if (segment.isEmpty() || (!DOUBLE_STAR.equals(segment) && segment.contains(DOUBLE_STAR))) {
+        // "**" is only supported as a full segment
+        return false;
+      }
+    }
+    Node node = root;
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+      if (DOUBLE_STAR.equals(segment)) {
+        if (i == segments.length - 1) {
+          node.matchingRemainingSegments.set(index);
+          return true;
+        }
+        node = node.doubleStarChild();
+      } else {
+        node = node.child(segment);
+      }
+    }
+    node.matching.set(index);
+    return true;
+  }
+
+  private static void addWithDoubleStars(List<Node> states, Node node) {
+    if (!states.contains(node)) {
+      states.add(node);
+      if (node.doubleStarChild != null) {
+        addWithDoubleStars(states, node.doubleStarChild);
+      }
+    }
+  }
+
+  private static class Node {
+    /**
+     * "**" segment, which matches any number of segments
+     */
+    private final boolean doubleStar;
+    private final Map<String, Node> literalChildren = new HashMap<>();
+    /**
+     * Children of segments like "*.java", by their last extension
+     */
+    private final Map<String, List<SuffixChild>> suffixChildren = new HashMap<>();
+    private final List<WildcardChild> wildcardChildren = new ArrayList<>();
+    @CheckForNull
+    private Node doubleStarChild;
+    /**
+     * Patterns matching a path ending at this node
+     */
+    private final BitSet matching = new BitSet();
+    /**
+     * Patterns ending with "/**" at this node, which match a path having at least one segment after this node
+     */
+    private final BitSet matchingRemainingSegments = new BitSet();
+
+    private Node(boolean doubleStar) {
+      this.doubleStar = doubleStar;
+    }
+
+    /**
+     * Whether patterns may match paths having more segments than the paths ending at this node
+     */
+    private boolean hasNext() {
+      return doubleStar || doubleStarChild != null || !literalChildren.isEmpty() || !suffixChildren.isEmpty() || !wildcardChildren.isEmpty()
+        || !matchingRemainingSegments.isEmpty();
+    }
+
+    private Node doubleStarChild() {
+      if (doubleStarChild == null) {
+        doubleStarChild = new Node(true);
+      }
+      return doubleStarChild;
+    }
+
+    private Node child(String segment) {
+      if (segment.indexOf('*') < 0 && segment.indexOf('?') < 0) {
+        return literalChildren.computeIfAbsent(segment, s -> new Node(false));
+      }
+      String suffix = segment.substring(1);
+      int lastDot = suffix.lastIndexOf('.');
+      if (segment.charAt(0) == '*' && lastDot >= 0 && suffix.indexOf('*') < 0 && suffix.indexOf('?') < 0) {
+        List<SuffixChild> children = suffixChildren.computeIfAbsent(suffix.substring(lastDot + 1), s -> new ArrayList<>());
+        for (SuffixChild child : children) {
+          if (child.suffix.equals(suffix)) {
+            return child.node;
+          }
+        }
+        SuffixChild child = new SuffixChild(suffix);
+        children.add(child);
+        return child.node;
+      }
+      for (WildcardChild child : wildcardChildren) {
+        if (child.pattern.equals(segment)) {
+          return child.node;
+        }
+      }
+      WildcardChild child = new WildcardChild(segment);
+      wildcardChildren.add(child);
+      return child.node;
+    }
+
+    private void next(String segment, List<Node> nextStates) {
+      if (doubleStar) {
+        addWithDoubleStars(nextStates, this);
+      }
+      Node literalChild = literalChildren.get(segment);
+      if (literalChild != null) {
+        addWithDoubleStars(nextStates, literalChild);
+      }
+      if (!suffixChildren.isEmpty()) {
+        List<SuffixChild> children = suffixChildren.get(segment.substring(segment.lastIndexOf('.') + 1));
+        if (children != null) {
+          for (SuffixChild child : children) {
+            if (segment.endsWith(child.suffix)) {
+              addWithDoubleStars(nextStates, child.node);
+            }
+          }
+        }
+      }
+      for (WildcardChild child : wildcardChildren) {
+        if (matchSegment(child.pattern, segment)) {
+          addWithDoubleStars(nextStates, child.node);
+        }
+      }
+    }
+  }
+
+  private static class SuffixChild {
+    private final String suffix;
+    private final Node node = new Node(false);
+
+    private SuffixChild(String suffix) {
+      this.suffix = suffix;
+    }
+  }
+
+  private static class WildcardChild {
+    private final String pattern;
+    private final Node node = new Node(false);
+
+    private WildcardChild(String pattern) {
+      this.pattern = pattern;
+    }
+  }
+
+  /**
+   * Matches a segment without directory separator against a pattern where '*' matches zero or more characters
+   * and '?' matches a single character.
+   */
+  static boolean matchSegment(String pattern, String segment) {
+    int p = 0;
+    int s = 0;
+    int starP = -1;
+    int starS = 0;
+    while (s < segment.length()) {
+      if (p < pattern.length() && pattern.charAt(p) == '*') {
+        starP = p;
+        starS = s;
+        p++;
+      } else if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == segment.charAt(s))) {
+        p++;
+        s++;
+      } else if (starP >= 0) {
+        p = starP + 1;
+        starS++;
+        s = starS;
+      } else {
+        return false;
+      }
+    }
+    while (p < pattern.length() && pattern.charAt(p) == '*') {
+      p++;
+    }
+    return p == pattern.length();
+  }
+}
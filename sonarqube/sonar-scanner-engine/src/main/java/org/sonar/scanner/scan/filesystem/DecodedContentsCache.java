@@ -0,0 +1,94 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.scanner.scan.ScanProperties;
+
+/**
+ * Keeps in memory the contents of files decoded while computing their metadata, so that sensors and the publishing of
+ * sources don't need to read and decode them again. The least recently used contents are evicted once the total
+ * size exceeds the configured budget.
+ */
+@ThreadSafe
+public class DecodedContentsCache {
+  /**
+   * A single file can't take more than this fraction of the budget, so that a few big files don't evict everything else
+   */
+  private static final int MAX_ENTRY_FRACTION = 16;
+
+  private final long maxChars;
+  private final int maxEntryLength;
+  private final Map<Integer, String> contentsByScannerId = new LinkedHashMap<>(16, 0.75F, true);
+  private long totalChars = 0;
+
+  public DecodedContentsCache(ScanProperties properties) {
+    this(properties.contentsCacheSizeInMb() * 1024L * 1024L / Character.BYTES);
+  }
+
+  DecodedContentsCache(long maxChars) {
+    this.maxChars = Math.max(0, maxChars);
+    this.maxEntryLength = (int) Math.min(Integer.MAX_VALUE, this.maxChars / MAX_ENTRY_FRACTION);
+  }
+
+  public FileMetadata.ContentsConsumer consumerFor(DefaultInputFile inputFile) {
+    return new FileMetadata.ContentsConsumer() {
+      @Override
+      public int maxLength() {
+        return maxEntryLength;
+      }
+
+      @Override
+      public void consume(String contents) {
+        put(inputFile.scannerId(), contents);
+      }
+    };
+  }
+
+  public synchronized Optional<String> get(DefaultInputFile inputFile) {
+    return Optional.ofNullable(contentsByScannerId.get(inputFile.scannerId()));
+  }
+
+  synchronized void put(int scannerId, String contents) {
+    if (contents.length() > maxEntryLength) {
+      return;
+    }
+    String previous = contentsByScannerId.put(scannerId, contents);
+    if (previous != null) {
+      totalChars -= previous.length();
+    }
+    totalChars += contents.length();
+    Iterator<String> it = contentsByScannerId.values().iterator();
+    while (totalChars > maxChars && it.hasNext()) {
+      totalChars -= it.next().length();
+      it.remove();
+    }
+  }
+
+  synchronized long size() {
+    return totalChars;
+  }
+}
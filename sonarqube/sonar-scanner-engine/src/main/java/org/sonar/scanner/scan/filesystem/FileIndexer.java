@@ -24,6 +24,7 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.function.BooleanSupplier;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FilenameUtils;
 import org.sonar.api.CoreProperties;
@@ -96,59 +97,122 @@ public class FileIndexer {
   void indexFile(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters, ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions,
     Path sourceFile, Type type, ProgressReport progressReport, ProjectFileIndexer.ExclusionCounter exclusionCounter, @Nullable IgnoreCommand ignoreCommand)
     throws IOException {
+    IndexCandidate candidate = prepare(module, moduleExclusionFilters, sourceFile, type, exclusionCounter);
+    if (candidate == null) {
+      return;
+    }
+    DefaultInputFile inputFile = register(candidate, moduleCoverageAndDuplicationExclusions, progressReport, exclusionCounter, ignoreCommand);
+    if (inputFile != null && properties.preloadFileMetadata()) {
+      inputFile.checkMetadata();
+    }
+  }
+
+  /**
+   * First step of the indexation of a file: resolution of its paths, inclusion/exclusion patterns and detection of its language.
+   * It doesn't change the state of the index, so it can be called concurrently for several files.
+   *
+   * @return null if the file must not be indexed
+   */
+  @CheckForNull
+  IndexCandidate prepare(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters, Path sourceFile, Type type,
+    ProjectFileIndexer.ExclusionCounter exclusionCounter) throws IOException {
     // get case of real file without resolving link
     Path realAbsoluteFile = sourceFile.toRealPath(LinkOption.NOFOLLOW_LINKS).toAbsolutePath().normalize();
     if (!realAbsoluteFile.startsWith(project.getBaseDir())) {
       LOG.warn("File '{}' is ignored. It is not located in project basedir '{}'.", realAbsoluteFile.toAbsolutePath(), project.getBaseDir());
-      return;
+      return null;
     }
     if (!realAbsoluteFile.startsWith(module.getBaseDir())) {
       LOG.warn("File '{}' is ignored. It is not located in module basedir '{}'.", realAbsoluteFile.toAbsolutePath(), module.getBaseDir());
-      return;
+      return null;
     }
     Path projectRelativePath = project.getBaseDir().relativize(realAbsoluteFile);
     Path moduleRelativePath = module.getBaseDir().relativize(realAbsoluteFile);
     boolean included = evaluateInclusionsFilters(moduleExclusionFilters, realAbsoluteFile, projectRelativePath, moduleRelativePath, type);
     if (!included) {
       exclusionCounter.increaseByPatternsCount();
-      return;
+      return null;
     }
     boolean excluded = evaluateExclusionsFilters(moduleExclusionFilters, realAbsoluteFile, projectRelativePath, moduleRelativePath, type);
     if (excluded) {
       exclusionCounter.increaseByPatternsCount();
-      return;
+      return null;
     }
 
     String language = langDetection.language(realAbsoluteFile, projectRelativePath);
+    return new IndexCandidate(module, realAbsoluteFile, projectRelativePath, moduleRelativePath, type, language);
+  }
 
+  /**
+   * Second step of the indexation of a file: creation of the {@link DefaultInputFile} and registration in the index.
+   * Files must be registered one at a time and always in the same order, so that their ids don't change from one analysis to another.
+   *
+   * @return null if the file is not indexed
+   */
+  @CheckForNull
+  DefaultInputFile register(IndexCandidate candidate, ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions, ProgressReport progressReport,
+    ProjectFileIndexer.ExclusionCounter exclusionCounter, @Nullable IgnoreCommand ignoreCommand) {
+    Path realAbsoluteFile = candidate.realAbsoluteFile;
     if (ignoreCommand != null && ignoreCommand.isIgnored(realAbsoluteFile)) {
       LOG.debug("File '{}' is excluded by the scm ignore settings.", realAbsoluteFile);
       exclusionCounter.increaseByScmCount();
-      return;
+      return null;
     }
 
+    DefaultInputModule module = candidate.module;
     DefaultIndexedFile indexedFile = new DefaultIndexedFile(realAbsoluteFile, project.key(),
-      projectRelativePath.toString(),
-      moduleRelativePath.toString(),
-      type, language, scannerComponentIdGenerator.getAsInt(), sensorStrategy);
-    DefaultInputFile inputFile = new DefaultInputFile(indexedFile, f -> metadataGenerator.setMetadata(module.key(), f, module.getEncoding()));
-    if (language != null) {
+      candidate.projectRelativePath.toString(),
+      candidate.moduleRelativePath.toString(),
+      candidate.type, candidate.language, scannerComponentIdGenerator.getAsInt(), sensorStrategy);
+    DefaultInputFile inputFile = new DefaultInputFile(indexedFile, f -> metadataGenerator.setMetadata(module.key(), f, module.getEncoding()),
+      metadataGenerator::cachedContents);
+    if (candidate.language != null) {
       inputFile.setPublished(true);
     }
     if (!accept(inputFile)) {
-      return;
+      return null;
     }
     checkIfAlreadyIndexed(inputFile);
     componentStore.put(module.key(), inputFile);
     issueExclusionsLoader.addMulticriteriaPatterns(inputFile);
-    LOG.debug("'{}' indexed {}with language '{}'", projectRelativePath, type == Type.TEST ? "as test " : "", inputFile.language());
+    LOG.debug("'{}' indexed {}with language '{}'", candidate.projectRelativePath, candidate.type == Type.TEST ? "as test " : "", inputFile.language());
     evaluateCoverageExclusions(moduleCoverageAndDuplicationExclusions, inputFile);
     evaluateDuplicationExclusions(moduleCoverageAndDuplicationExclusions, inputFile);
-    if (properties.preloadFileMetadata()) {
-      inputFile.checkMetadata();
-    }
     int count = componentStore.inputFiles().size();
     progressReport.message(count + " " + pluralizeFiles(count) + " indexed...  (last one was " + inputFile.getProjectRelativePath() + ")");
+    return inputFile;
+  }
+
+  /**
+   * Whether all the files of the given directory and of its sub-directories are rejected by the inclusion/exclusion patterns,
+   * so that the directory doesn't need to be walked. Returns false when in doubt.
+   */
+  boolean isExcludedDirectory(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters, Path directory, Type type) throws IOException {
+    Path realAbsoluteDirectory = directory.toRealPath(LinkOption.NOFOLLOW_LINKS).toAbsolutePath().normalize();
+    if (!realAbsoluteDirectory.startsWith(project.getBaseDir()) || !realAbsoluteDirectory.startsWith(module.getBaseDir())) {
+      return false;
+    }
+    Path projectRelativePath = project.getBaseDir().relativize(realAbsoluteDirectory);
+    Path moduleRelativePath = module.getBaseDir().relativize(realAbsoluteDirectory);
+    return !mayIncludeFilesBelow(moduleExclusionFilters, projectRelativePath, moduleRelativePath, type)
+      || isExcludingFilesBelow(moduleExclusionFilters, projectRelativePath, moduleRelativePath, type);
+  }
+
+  private boolean mayIncludeFilesBelow(ModuleExclusionFilters moduleExclusionFilters, Path projectRelativePath, Path moduleRelativePath, InputFile.Type type) {
+    if (!Arrays.equals(moduleExclusionFilters.getInclusionsConfig(type), projectExclusionFilters.getInclusionsConfig(type))) {
+      // Module specific configuration
+      return moduleExclusionFilters.mayIncludeBelow(moduleRelativePath, type);
+    }
+    return projectExclusionFilters.mayIncludeBelow(projectRelativePath, type) || moduleExclusionFilters.mayIncludeBelow(moduleRelativePath, type);
+  }
+
+  private boolean isExcludingFilesBelow(ModuleExclusionFilters moduleExclusionFilters, Path projectRelativePath, Path moduleRelativePath, InputFile.Type type) {
+    if (!Arrays.equals(moduleExclusionFilters.getExclusionsConfig(type), projectExclusionFilters.getExclusionsConfig(type))) {
+      // Module specific configuration
+      return moduleExclusionFilters.isExcludedBelow(moduleRelativePath, type);
+    }
+    // files excluded only by patterns relative to the module must still be visited, to log the warning about such patterns
+    return projectExclusionFilters.isExcludedBelow(projectRelativePath, type);
   }
 
   private boolean evaluateInclusionsFilters(ModuleExclusionFilters moduleExclusionFilters, Path realAbsoluteFile, Path projectRelativePath, Path moduleRelativePath,
@@ -242,7 +306,7 @@ public class FileIndexer {
     return false;
   }
 
-  private void warnOnce(String propKey, String filePath, BooleanSupplier alreadyLoggedGetter, Runnable markAsLogged) {
+  private synchronized void warnOnce(String propKey, String filePath, BooleanSupplier alreadyLoggedGetter, Runnable markAsLogged) {
     if (!alreadyLoggedGetter.getAsBoolean()) {
       String msg = "Specifying module-relative paths at project level in the property '" + propKey + "' is deprecated. " +
         "To continue matching files like '" + filePath + "', update this property so that patterns refer to project-relative paths.";
@@ -267,4 +331,23 @@ public class FileIndexer {
     return count == 1 ? "file" : "files";
   }
 
+  static class IndexCandidate {
+    private final DefaultInputModule module;
+    private final Path realAbsoluteFile;
+    private final Path projectRelativePath;
+    private final Path moduleRelativePath;
+    private final Type type;
+    @Nullable
+    private final String language;
+
+    private IndexCandidate(DefaultInputModule module, Path realAbsoluteFile, Path projectRelativePath, Path moduleRelativePath, Type type, @Nullable String language) {
+      this.module = module;
+      this.realAbsoluteFile = realAbsoluteFile;
+      this.projectRelativePath = projectRelativePath;
+      this.moduleRelativePath = moduleRelativePath;
+      this.type = type;
+      this.language = language;
+    }
+  }
+
 }
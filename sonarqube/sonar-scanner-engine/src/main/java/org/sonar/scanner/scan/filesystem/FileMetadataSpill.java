@@ -0,0 +1,209 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.scan.ScanProperties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes to disk the line offsets of files while no sensor is running, and releases them from memory, so that the memory used
+ * by the metadata of files doesn't grow with the number of lines of the project. Line offsets are read again when a sensor needs them.
+ * Line offsets never change, so they are written only once per file.
+ */
+@ThreadSafe
+public class FileMetadataSpill implements Startable {
+  private static final Logger LOG = Loggers.get(FileMetadataSpill.class);
+
+  private final boolean enabled;
+  private final TempFolder tempFolder;
+  private final Map<Integer, Long> positionByScannerId = new ConcurrentHashMap<>();
+  private final Set<DefaultInputFile> loadedFiles = ConcurrentHashMap.newKeySet();
+  private FileChannel channel;
+  private long size = 0;
+
+  public FileMetadataSpill(ScanProperties properties, TempFolder tempFolder) {
+    this(properties.spillFileMetadata(), tempFolder);
+  }
+
+  FileMetadataSpill(boolean enabled, @Nullable TempFolder tempFolder) {
+    this.enabled = enabled;
+    this.tempFolder = tempFolder;
+  }
+
+  static FileMetadataSpill disabled() {
+    return new FileMetadataSpill(false, null);
+  }
+
+  /**
+   * Registers a file whose line offsets have just been loaded, so that they are released by the next {@link #spillAll()}.
+   */
+  public void markLoaded(DefaultInputFile inputFile) {
+    if (enabled) {
+      loadedFiles.add(inputFile);
+    }
+  }
+
+  /**
+   * Releases the line offsets of the files loaded since the previous call, writing the ones that were never spilled.
+   * Must not be called while sensors are running.
+   */
+  public void spillAll() {
+    if (!enabled) {
+      return;
+    }
+    int written = 0;
+    int released = 0;
+    Iterator<DefaultInputFile> loaded = loadedFiles.iterator();
+    while (loaded.hasNext()) {
+      DefaultInputFile inputFile = loaded.next();
+      loaded.remove();
+      Metadata metadata = inputFile.releaseLineOffsets();
+      if (metadata == null) {
+        continue;
+      }
+      released++;
+      if (!positionByScannerId.containsKey(inputFile.scannerId())) {
+        try {
+          positionByScannerId.put(inputFile.scannerId(), write(metadata));
+          written++;
+        } catch (IOException e) {
+          inputFile.setMetadata(metadata);
+          throw new IllegalStateException("Fail to spill metadata of " + inputFile, e);
+        }
+      }
+    }
+    LOG.debug("Released line offsets of {} files, {} written to disk", released, written);
+  }
+
+  /**
+   * Gives back to the file its line offsets, if they were released by {@link #spillAll()}.
+   *
+   * @return false if the line offsets of the file were never spilled
+   */
+  public boolean restore(DefaultInputFile inputFile) {
+    Long position = positionByScannerId.get(inputFile.scannerId());
+    if (position == null) {
+      return false;
+    }
+    try {
+      inputFile.setMetadata(read(position));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read spilled metadata of " + inputFile, e);
+    }
+    markLoaded(inputFile);
+    return true;
+  }
+
+  private synchronized long write(Metadata metadata) throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(tempFolder.newFile("file-metadata", ".bin").toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    int[] startOffsets = metadata.originalLineStartOffsets();
+    int[] endOffsets = metadata.originalLineEndOffsets();
+    byte[] hash = metadata.hash().getBytes(UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(7 * Integer.BYTES + hash.length + (startOffsets.length + endOffsets.length) * Integer.BYTES);
+    buffer.putInt(buffer.capacity() - Integer.BYTES)
+      .putInt(metadata.lines())
+      .putInt(metadata.nonBlankLines())
+      .putInt(metadata.lastValidOffset())
+      .putInt(hash.length)
+      .put(hash)
+      .putInt(startOffsets.length);
+    buffer.asIntBuffer().put(startOffsets);
+    buffer.position(buffer.position() + startOffsets.length * Integer.BYTES);
+    buffer.putInt(endOffsets.length);
+    buffer.asIntBuffer().put(endOffsets);
+    buffer.rewind();
+
+    long position = size;
+    while (buffer.hasRemaining()) {
+      size += channel.write(buffer, size);
+    }
+    return position;
+  }
+
+  private Metadata read(long position) throws IOException {
+    ByteBuffer length = readFully(position, Integer.BYTES);
+    ByteBuffer buffer = readFully(position + Integer.BYTES, length.getInt());
+    int lines = buffer.getInt();
+    int nonBlankLines = buffer.getInt();
+    int lastValidOffset = buffer.getInt();
+    byte[] hash = new byte[buffer.getInt()];
+    buffer.get(hash);
+    int[] startOffsets = new int[buffer.getInt()];
+    buffer.asIntBuffer().get(startOffsets);
+    buffer.position(buffer.position() + startOffsets.length * Integer.BYTES);
+    int[] endOffsets = new int[buffer.getInt()];
+    buffer.asIntBuffer().get(endOffsets);
+    return new Metadata(lines, nonBlankLines, new String(hash, UTF_8), startOffsets, endOffsets, lastValidOffset);
+  }
+
+  private ByteBuffer readFully(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    FileChannel fileChannel;
+    synchronized (this) {
+      fileChannel = channel;
+    }
+    if (fileChannel == null) {
+      throw new IllegalStateException("Spilled metadata can't be read once the analysis is done");
+    }
+    while (buffer.hasRemaining()) {
+      if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.debug("Fail to close spilled metadata", e);
+      }
+      channel = null;
+    }
+  }
+}
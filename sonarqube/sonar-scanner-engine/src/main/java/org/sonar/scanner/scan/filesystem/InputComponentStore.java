@@ -19,16 +19,19 @@
  */
 package org.sonar.scanner.scan.filesystem;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputComponent;
@@ -45,26 +48,32 @@ import static org.sonar.api.utils.Preconditions.checkState;
 /**
  * Store of all files and dirs. Inclusion and
  * exclusion patterns are already applied.
+ * Components can be registered concurrently.
+ * Files are only indexed by paths and names that they already hold, so that the store doesn't keep more strings per file.
  */
 public class InputComponentStore extends DefaultFileSystem.Cache {
 
   private final SortedSet<String> globalLanguagesCache = new TreeSet<>();
   private final Map<String, SortedSet<String>> languagesCache = new HashMap<>();
-  private final Map<String, InputFile> globalInputFileCache = new HashMap<>();
+  private final Map<String, InputFile> globalInputFileCache = new ConcurrentHashMap<>();
   private final Map<String, Map<String, InputFile>> inputFileByModuleCache = new LinkedHashMap<>();
-  private final Map<InputFile, String> inputModuleKeyByFileCache = new HashMap<>();
-  private final Map<String, DefaultInputModule> inputModuleCache = new HashMap<>();
-  private final Map<String, InputComponent> inputComponents = new HashMap<>();
+  private final Map<InputFile, String> inputModuleKeyByFileCache = new ConcurrentHashMap<>();
+  private final Map<String, DefaultInputModule> inputModuleCache = new ConcurrentHashMap<>();
   private final Map<String, Set<InputFile>> filesByNameCache = new HashMap<>();
   private final Map<String, Set<InputFile>> filesByExtensionCache = new HashMap<>();
   private final BranchConfiguration branchConfiguration;
+  // Keys of files are built at each call, so files are found by their project relative path following this prefix
+  private volatile String fileKeyPrefix;
 
   public InputComponentStore(BranchConfiguration branchConfiguration) {
     this.branchConfiguration = branchConfiguration;
   }
 
   public Collection<InputComponent> all() {
-    return inputComponents.values();
+    List<InputComponent> all = new ArrayList<>(inputModuleCache.size() + globalInputFileCache.size());
+    all.addAll(inputModuleCache.values());
+    all.addAll(globalInputFileCache.values());
+    return all;
   }
 
   private Stream<DefaultInputFile> allFilesToPublishStream() {
@@ -87,21 +96,33 @@ public class InputComponentStore extends DefaultFileSystem.Cache {
     return globalInputFileCache.values();
   }
 
+  @CheckForNull
   public InputComponent getByKey(String key) {
-    return inputComponents.get(key);
+    InputComponent module = inputModuleCache.get(key);
+    if (module != null) {
+      return module;
+    }
+    String prefix = fileKeyPrefix;
+    if (prefix != null && key.startsWith(prefix)) {
+      return globalInputFileCache.get(key.substring(prefix.length()));
+    }
+    return null;
   }
 
-  public Iterable<InputFile> filesByModule(String moduleKey) {
+  public synchronized Iterable<InputFile> filesByModule(String moduleKey) {
     return inputFileByModuleCache.getOrDefault(moduleKey, Collections.emptyMap()).values();
   }
 
-  public InputComponentStore put(String moduleKey, InputFile inputFile) {
+  public synchronized InputComponentStore put(String moduleKey, InputFile inputFile) {
     DefaultInputFile file = (DefaultInputFile) inputFile;
     addToLanguageCache(moduleKey, file);
     inputFileByModuleCache.computeIfAbsent(moduleKey, x -> new HashMap<>()).put(file.getModuleRelativePath(), inputFile);
     inputModuleKeyByFileCache.put(inputFile, moduleKey);
     globalInputFileCache.put(file.getProjectRelativePath(), inputFile);
-    inputComponents.put(inputFile.key(), inputFile);
+    if (fileKeyPrefix == null) {
+      String key = file.key();
+      fileKeyPrefix = key.substring(0, key.length() - file.getProjectRelativePath().length());
+    }
     filesByNameCache.computeIfAbsent(inputFile.filename(), x -> new LinkedHashSet<>()).add(inputFile);
     filesByExtensionCache.computeIfAbsent(FileExtensionPredicate.getExtension(inputFile), x -> new LinkedHashSet<>()).add(inputFile);
     return this;
@@ -116,7 +137,7 @@ public class InputComponentStore extends DefaultFileSystem.Cache {
   }
 
   @CheckForNull
-  public InputFile getFile(String moduleKey, String relativePath) {
+  public synchronized InputFile getFile(String moduleKey, String relativePath) {
     return inputFileByModuleCache.getOrDefault(moduleKey, Collections.emptyMap())
       .get(relativePath);
   }
@@ -132,31 +153,29 @@ public class InputComponentStore extends DefaultFileSystem.Cache {
       .orElseThrow(() -> new IllegalStateException("No modules for file '" + file.toString() + "'"));
   }
 
-  public void put(DefaultInputModule inputModule) {
+  public synchronized void put(DefaultInputModule inputModule) {
     String key = inputModule.key();
     checkNotNull(inputModule);
-    checkState(!inputComponents.containsKey(key), "Module '%s' already indexed", key);
-    checkState(!inputModuleCache.containsKey(key), "Module '%s' already indexed", key);
-    inputComponents.put(key, inputModule);
+    checkState(getByKey(key) == null, "Module '%s' already indexed", key);
     inputModuleCache.put(key, inputModule);
   }
 
   @Override
-  public Iterable<InputFile> getFilesByName(String filename) {
+  public synchronized Iterable<InputFile> getFilesByName(String filename) {
     return filesByNameCache.getOrDefault(filename, Collections.emptySet());
   }
 
   @Override
-  public Iterable<InputFile> getFilesByExtension(String extension) {
+  public synchronized Iterable<InputFile> getFilesByExtension(String extension) {
     return filesByExtensionCache.getOrDefault(extension, Collections.emptySet());
   }
 
   @Override
-  public SortedSet<String> languages() {
+  public synchronized SortedSet<String> languages() {
     return globalLanguagesCache;
   }
 
-  public SortedSet<String> languages(String moduleKey) {
+  public synchronized SortedSet<String> languages(String moduleKey) {
     return languagesCache.getOrDefault(moduleKey, Collections.emptySortedSet());
   }
 
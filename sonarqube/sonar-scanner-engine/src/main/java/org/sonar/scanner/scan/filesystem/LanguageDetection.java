@@ -23,6 +23,7 @@ import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -52,6 +53,14 @@ public class LanguageDetection {
    */
   private final Map<String, PathPattern[]> patternsByLanguage;
   private final List<String> languagesToConsider;
+  /**
+   * Patterns of all the languages, matched at once
+   */
+  private final CompiledPathPatterns allPatterns;
+  /**
+   * Index in {@link #languagesToConsider} of the language of each pattern of {@link #allPatterns}
+   */
+  private final int[] languageOfPatterns;
 
   public LanguageDetection(Configuration settings, LanguagesRepository languages) {
     Map<String, PathPattern[]> patternsByLanguageBuilder = new LinkedHashMap<>();
@@ -76,38 +85,38 @@ public class LanguageDetection {
 
     languagesToConsider = Collections.unmodifiableList(new ArrayList<>(patternsByLanguageBuilder.keySet()));
     patternsByLanguage = Collections.unmodifiableMap(patternsByLanguageBuilder);
+
+    List<PathPattern> patterns = new ArrayList<>();
+    List<Integer> languageIndexes = new ArrayList<>();
+    for (int i = 0; i < languagesToConsider.size(); i++) {
+      for (PathPattern pathPattern : patternsByLanguage.get(languagesToConsider.get(i))) {
+        patterns.add(pathPattern);
+        languageIndexes.add(i);
+      }
+    }
+    allPatterns = new CompiledPathPatterns(patterns.toArray(new PathPattern[0]));
+    languageOfPatterns = languageIndexes.stream().mapToInt(Integer::intValue).toArray();
   }
 
   @CheckForNull
   String language(Path absolutePath, Path relativePath) {
     String detectedLanguage = null;
-    for (String languageKey : languagesToConsider) {
-      if (isCandidateForLanguage(absolutePath, relativePath, languageKey)) {
-        if (detectedLanguage == null) {
-          detectedLanguage = languageKey;
-        } else {
-          // Language was already forced by another pattern
-          throw MessageException.of(MessageFormat.format("Language of file ''{0}'' can not be decided as the file matches patterns of both {1} and {2}",
-            relativePath, getDetails(detectedLanguage), getDetails(languageKey)));
-        }
+    // patterns are sorted by language
+    BitSet matchingPatterns = allPatterns.match(absolutePath, relativePath, false);
+    for (int i = matchingPatterns.nextSetBit(0); i >= 0; i = matchingPatterns.nextSetBit(i + 1)) {
+      String languageKey = languagesToConsider.get(languageOfPatterns[i]);
+      if (detectedLanguage == null) {
+        detectedLanguage = languageKey;
+      } else if (!detectedLanguage.equals(languageKey)) {
+        // Language was already forced by another pattern
+        throw MessageException.of(MessageFormat.format("Language of file ''{0}'' can not be decided as the file matches patterns of both {1} and {2}",
+          relativePath, getDetails(detectedLanguage), getDetails(languageKey)));
       }
     }
 
     return detectedLanguage;
   }
 
-  private boolean isCandidateForLanguage(Path absolutePath, Path relativePath, String languageKey) {
-    PathPattern[] patterns = patternsByLanguage.get(languageKey);
-    if (patterns != null) {
-      for (PathPattern pathPattern : patterns) {
-        if (pathPattern.match(absolutePath, relativePath, false)) {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
   private static String getFileLangPatternPropKey(String languageKey) {
     return "sonar.lang.patterns." + languageKey;
   }
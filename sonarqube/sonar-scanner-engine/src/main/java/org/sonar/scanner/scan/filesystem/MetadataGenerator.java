@@ -21,6 +21,7 @@ package org.sonar.scanner.scan.filesystem;
 
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Optional;
 import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.FileMetadata;
@@ -38,18 +39,27 @@ public class MetadataGenerator {
   private final StatusDetection statusDetection;
   private final FileMetadata fileMetadata;
   private final IssueExclusionsLoader exclusionsScanner;
+  private final DecodedContentsCache contentsCache;
+  private final FileMetadataSpill metadataSpill;
 
-  public MetadataGenerator(StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner) {
+  public MetadataGenerator(StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner,
+    DecodedContentsCache contentsCache, FileMetadataSpill metadataSpill) {
     this.statusDetection = statusDetection;
     this.fileMetadata = fileMetadata;
     this.exclusionsScanner = exclusionsScanner;
+    this.contentsCache = contentsCache;
+    this.metadataSpill = metadataSpill;
   }
 
   /**
    * Sets all metadata in the file, including charset and status.
-   * It is an expensive computation, reading the entire file.
+   * It is an expensive computation, reading the entire file, unless the metadata was already set and only its line offsets
+   * were spilled to disk.
    */
   public void setMetadata(String moduleKeyWithBranch, final DefaultInputFile inputFile, Charset defaultEncoding) {
+    if (metadataSpill.restore(inputFile)) {
+      return;
+    }
     CharsetDetector charsetDetector = new CharsetDetector(inputFile.path(), defaultEncoding);
     try {
       Charset charset;
@@ -61,8 +71,10 @@ public class MetadataGenerator {
       }
       InputStream is = charsetDetector.inputStream();
       inputFile.setCharset(charset);
-      Metadata metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile));
+      Metadata metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile),
+        contentsCache.consumerFor(inputFile));
       inputFile.setMetadata(metadata);
+      metadataSpill.markLoaded(inputFile);
       inputFile.setStatus(statusDetection.status(moduleKeyWithBranch, inputFile, metadata.hash()));
       LOG.debug("'{}' generated metadata{} with charset '{}'", inputFile, inputFile.type() == Type.TEST ? " as test " : "", charset);
     } catch (Exception e) {
@@ -70,4 +82,11 @@ public class MetadataGenerator {
     }
   }
 
+  /**
+   * Contents of the file decoded while its metadata was generated, if they are still in memory.
+   */
+  public Optional<String> cachedContents(DefaultInputFile inputFile) {
+    return contentsCache.get(inputFile);
+  }
+
 }
@@ -29,16 +29,26 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.scm.IgnoreCommand;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.utils.log.Logger;
@@ -50,6 +60,7 @@ import org.sonar.scanner.fs.InputModuleHierarchy;
 import org.sonar.scanner.scan.ModuleConfiguration;
 import org.sonar.scanner.scan.ModuleConfigurationProvider;
 import org.sonar.scanner.scan.ProjectServerSettings;
+import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.scm.ScmConfiguration;
 import org.sonar.scanner.util.ProgressReport;
 
@@ -73,12 +84,15 @@ public class ProjectFileIndexer {
   private final FileIndexer fileIndexer;
   private final IgnoreCommand ignoreCommand;
   private final boolean useScmExclusion;
+  private final ScanProperties properties;
 
   private ProgressReport progressReport;
+  @Nullable
+  private ConcurrentIndexation concurrentIndexation;
 
   public ProjectFileIndexer(InputComponentStore componentStore, ProjectExclusionFilters exclusionFilters,
     InputModuleHierarchy inputModuleHierarchy, GlobalConfiguration globalConfig, GlobalServerSettings globalServerSettings, ProjectServerSettings projectServerSettings,
-    FileIndexer fileIndexer, ProjectCoverageAndDuplicationExclusions projectCoverageAndDuplicationExclusions, ScmConfiguration scmConfiguration) {
+    FileIndexer fileIndexer, ProjectCoverageAndDuplicationExclusions projectCoverageAndDuplicationExclusions, ScmConfiguration scmConfiguration, ScanProperties properties) {
     this.componentStore = componentStore;
     this.inputModuleHierarchy = inputModuleHierarchy;
     this.globalConfig = globalConfig;
@@ -90,6 +104,7 @@ public class ProjectFileIndexer {
     this.scmConfiguration = scmConfiguration;
     this.ignoreCommand = loadIgnoreCommand();
     this.useScmExclusion = ignoreCommand != null;
+    this.properties = properties;
   }
 
   public void index() {
@@ -100,19 +115,39 @@ public class ProjectFileIndexer {
     projectCoverageAndDuplicationExclusions.log("  ");
     ExclusionCounter exclusionCounter = new ExclusionCounter();
 
-    if (useScmExclusion) {
-      ignoreCommand.init(inputModuleHierarchy.root().getBaseDir().toAbsolutePath());
-      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
-      ignoreCommand.clean();
-    } else {
-      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+    int indexingThreads = properties.indexingThreads();
+    if (indexingThreads > 1) {
+      LOG.debug("Index files with {} threads", indexingThreads);
+      concurrentIndexation = new ConcurrentIndexation(indexingThreads, properties.preloadFileMetadata());
+    }
+    try {
+      if (useScmExclusion) {
+        ignoreCommand.init(inputModuleHierarchy.root().getBaseDir().toAbsolutePath());
+        indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+        ignoreCommand.clean();
+      } else {
+        indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+      }
+      if (concurrentIndexation != null) {
+        concurrentIndexation.awaitMetadata();
+      }
+    } finally {
+      if (concurrentIndexation != null) {
+        concurrentIndexation.close();
+        concurrentIndexation = null;
+      }
     }
 
     int totalIndexed = componentStore.inputFiles().size();
     progressReport.stop(totalIndexed + " " + pluralizeFiles(totalIndexed) + " indexed");
 
     int excludedFileByPatternCount = exclusionCounter.getByPatternsCount();
-    if (projectExclusionFilters.hasPattern() || excludedFileByPatternCount > 0) {
+    int excludedDirectoryCount = exclusionCounter.getExcludedDirectoriesCount();
+    if (excludedDirectoryCount > 0) {
+      // files of excluded directories are not walked, so they can't be counted
+      LOG.info("{} {} ignored because of inclusion/exclusion patterns, not counting the files of {} excluded {}", excludedFileByPatternCount,
+        pluralizeFiles(excludedFileByPatternCount), excludedDirectoryCount, excludedDirectoryCount == 1 ? "directory" : "directories");
+    } else if (projectExclusionFilters.hasPattern() || excludedFileByPatternCount > 0) {
       LOG.info("{} {} ignored because of inclusion/exclusion patterns", excludedFileByPatternCount, pluralizeFiles(excludedFileByPatternCount));
     }
     int excludedFileByScmCount = exclusionCounter.getByScmCount();
@@ -158,6 +193,9 @@ public class ProjectFileIndexer {
       .orElseGet(() -> hasChildModules || hasTests ? emptyList() : singletonList(module.getBaseDir().toAbsolutePath()));
     indexFiles(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, mainSourceDirsOrFiles, Type.MAIN, exclusionCounter);
     module.getTestDirsOrFiles().ifPresent(tests -> indexFiles(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, tests, Type.TEST, exclusionCounter));
+    if (concurrentIndexation != null) {
+      concurrentIndexation.registerPendingFiles(exclusionCounter);
+    }
   }
 
   private static void logPaths(String label, Path baseDir, List<Path> paths) {
@@ -196,7 +234,7 @@ public class ProjectFileIndexer {
         if (dirOrFile.toFile().isDirectory()) {
           indexDirectory(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, exclusionCounter);
         } else {
-          fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, progressReport, exclusionCounter, ignoreCommand);
+          indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, exclusionCounter);
         }
       }
     } catch (IOException e) {
@@ -211,6 +249,104 @@ public class ProjectFileIndexer {
       new IndexFileVisitor(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, type, exclusionCounter));
   }
 
+  private void indexFile(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters,
+    ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions, Path file, Type type, ExclusionCounter exclusionCounter) throws IOException {
+    if (concurrentIndexation != null) {
+      concurrentIndexation.submit(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, exclusionCounter);
+    } else {
+      fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, progressReport, exclusionCounter, ignoreCommand);
+    }
+  }
+
+  /**
+   * Files found while walking the file system are prepared (exclusion patterns, language detection) by a pool of threads, then registered
+   * one by one in the order in which they were found, so that files get the same ids as with a sequential indexation. The metadata of
+   * files, when preloaded, are also computed by the pool.
+   */
+  private class ConcurrentIndexation implements AutoCloseable {
+    private final ExecutorService executorService;
+    private final int maxPendingFiles;
+    private final boolean preloadFileMetadata;
+    private final Deque<PendingFile> pendingFiles = new ArrayDeque<>();
+    private final List<Future<?>> metadataComputations = new ArrayList<>();
+
+    ConcurrentIndexation(int threads, boolean preloadFileMetadata) {
+      AtomicInteger threadCount = new AtomicInteger();
+      this.executorService = Executors.newFixedThreadPool(threads, r -> {
+        Thread thread = new Thread(r, "File indexer " + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.maxPendingFiles = threads * 64;
+      this.preloadFileMetadata = preloadFileMetadata;
+    }
+
+    void submit(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters,
+      ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions, Path file, Type type, ExclusionCounter exclusionCounter) {
+      Future<FileIndexer.IndexCandidate> candidate = executorService.submit(() -> fileIndexer.prepare(module, moduleExclusionFilters, file, type, exclusionCounter));
+      pendingFiles.add(new PendingFile(candidate, moduleCoverageAndDuplicationExclusions));
+      while (pendingFiles.size() > maxPendingFiles) {
+        registerNext(exclusionCounter);
+      }
+    }
+
+    void registerPendingFiles(ExclusionCounter exclusionCounter) {
+      while (!pendingFiles.isEmpty()) {
+        registerNext(exclusionCounter);
+      }
+    }
+
+    private void registerNext(ExclusionCounter exclusionCounter) {
+      PendingFile pendingFile = pendingFiles.poll();
+      FileIndexer.IndexCandidate candidate = await(pendingFile.candidate);
+      if (candidate == null) {
+        return;
+      }
+      DefaultInputFile inputFile = fileIndexer.register(candidate, pendingFile.moduleCoverageAndDuplicationExclusions, progressReport, exclusionCounter, ignoreCommand);
+      if (inputFile != null && preloadFileMetadata) {
+        metadataComputations.add(executorService.submit(inputFile::checkMetadata));
+      }
+    }
+
+    void awaitMetadata() {
+      for (Future<?> metadataComputation : metadataComputations) {
+        await(metadataComputation);
+      }
+      metadataComputations.clear();
+    }
+
+    @Override
+    public void close() {
+      executorService.shutdownNow();
+    }
+
+    @CheckForNull
+    private <T> T await(Future<T> future) {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while indexing files", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException("Failed to index files", cause);
+      }
+    }
+  }
+
+  private static class PendingFile {
+    private final Future<FileIndexer.IndexCandidate> candidate;
+    private final ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions;
+
+    private PendingFile(Future<FileIndexer.IndexCandidate> candidate, ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions) {
+      this.candidate = candidate;
+      this.moduleCoverageAndDuplicationExclusions = moduleCoverageAndDuplicationExclusions;
+    }
+  }
+
   private class IndexFileVisitor implements FileVisitor<Path> {
     private final DefaultInputModule module;
     private final ModuleExclusionFilters moduleExclusionFilters;
@@ -233,13 +369,18 @@ public class ProjectFileIndexer {
       if (isHidden(dir)) {
         return FileVisitResult.SKIP_SUBTREE;
       }
+      if (fileIndexer.isExcludedDirectory(module, moduleExclusionFilters, dir, type)) {
+        LOG.debug("Directory '{}' is excluded by the inclusion/exclusion patterns", dir);
+        exclusionCounter.increaseExcludedDirectoriesCount();
+        return FileVisitResult.SKIP_SUBTREE;
+      }
       return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
       if (!Files.isHidden(file)) {
-        fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, progressReport, exclusionCounter, ignoreCommand);
+        indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, exclusionCounter);
       }
       return FileVisitResult.CONTINUE;
     }
@@ -276,21 +417,30 @@ public class ProjectFileIndexer {
   static class ExclusionCounter {
     private final AtomicInteger excludedByPatternsCount = new AtomicInteger(0);
     private final AtomicInteger excludedByScmCount = new AtomicInteger(0);
+    private final AtomicInteger excludedDirectoriesCount = new AtomicInteger(0);
 
     public void increaseByPatternsCount() {
       excludedByPatternsCount.incrementAndGet();
     }
 
     public int getByPatternsCount() {
-      return excludedByScmCount.get();
+      return excludedByPatternsCount.get();
     }
 
     public void increaseByScmCount() {
-      excludedByPatternsCount.incrementAndGet();
+      excludedByScmCount.incrementAndGet();
     }
 
     public int getByScmCount() {
       return excludedByScmCount.get();
     }
+
+    public void increaseExcludedDirectoriesCount() {
+      excludedDirectoriesCount.incrementAndGet();
+    }
+
+    public int getExcludedDirectoriesCount() {
+      return excludedDirectoriesCount.get();
+    }
   }
 }
@@ -0,0 +1,95 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.cache.CacheFile;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+/**
+ * Changesets of the files blamed by the previous analysis of the project. They are reused for the files having the same
+ * content when the revision checked out didn't change, and the cache only keeps the files of the last analysis.
+ */
+class BlameCache {
+
+  private static final Logger LOG = Loggers.get(BlameCache.class);
+
+  private final CacheFile cacheFile;
+  private final Map<String, ScannerReport.Changesets> previous;
+  private final Map<String, ScannerReport.Changesets> current = new ConcurrentHashMap<>();
+
+  private BlameCache(CacheFile cacheFile, Map<String, ScannerReport.Changesets> previous) {
+    this.cacheFile = cacheFile;
+    this.previous = previous;
+  }
+
+  static BlameCache load(Path path, String revision) {
+    CacheFile cacheFile = new CacheFile(path, revision);
+    Map<String, ScannerReport.Changesets> previous = new HashMap<>();
+    try {
+      for (Map.Entry<String, byte[]> entry : cacheFile.read().entrySet()) {
+        previous.put(entry.getKey(), ScannerReport.Changesets.parseFrom(entry.getValue()));
+      }
+    } catch (InvalidProtocolBufferException e) {
+      LOG.debug("Ignoring blame cache " + path + " that can't be read", e);
+      previous.clear();
+    }
+    return new BlameCache(cacheFile, previous);
+  }
+
+  /**
+   * Changesets of the file computed by the previous analysis, ready to be written in the report.
+   */
+  @CheckForNull
+  ScannerReport.Changesets get(DefaultInputFile file) {
+    String key = key(file);
+    ScannerReport.Changesets changesets = previous.get(key);
+    if (changesets == null) {
+      return null;
+    }
+    current.put(key, changesets);
+    return changesets.toBuilder().setComponentRef(file.scannerId()).build();
+  }
+
+  void put(DefaultInputFile file, ScannerReport.Changesets changesets) {
+    current.put(key(file), changesets.toBuilder().clearComponentRef().build());
+  }
+
+  /**
+   * Replaces the content of the cache file by the changesets of this analysis.
+   */
+  void save() {
+    Map<String, byte[]> entries = new HashMap<>();
+    current.forEach((key, changesets) -> entries.put(key, changesets.toByteArray()));
+    cacheFile.write(entries);
+  }
+
+  private static String key(DefaultInputFile file) {
+    return file.getProjectRelativePath() + ':' + file.md5Hash();
+  }
+}
@@ -48,14 +48,21 @@ class DefaultBlameOutput implements BlameOutput {
 
   private final ScannerReportWriter writer;
   private AnalysisWarnings analysisWarnings;
+  @Nullable
+  private final BlameCache blameCache;
   private final Set<InputFile> allFilesToBlame = new LinkedHashSet<>();
   private ProgressReport progressReport;
   private int count;
   private int total;
 
   DefaultBlameOutput(ScannerReportWriter writer, AnalysisWarnings analysisWarnings, List<InputFile> filesToBlame) {
+    this(writer, analysisWarnings, filesToBlame, null);
+  }
+
+  DefaultBlameOutput(ScannerReportWriter writer, AnalysisWarnings analysisWarnings, List<InputFile> filesToBlame, @Nullable BlameCache blameCache) {
     this.writer = writer;
     this.analysisWarnings = analysisWarnings;
+    this.blameCache = blameCache;
     this.allFilesToBlame.addAll(filesToBlame);
     count = 0;
     total = filesToBlame.size();
@@ -91,7 +98,11 @@ class DefaultBlameOutput implements BlameOutput {
       scmBuilder.addChangesetIndexByLine(changesetId);
       lineId++;
     }
-    writer.writeComponentChangesets(scmBuilder.build());
+    ScannerReport.Changesets changesets = scmBuilder.build();
+    writer.writeComponentChangesets(changesets);
+    if (blameCache != null) {
+      blameCache.put(inputFile, changesets);
+    }
     allFilesToBlame.remove(file);
     count++;
     progressReport.message(count + "/" + total + " " + pluralize(count) + " have been analyzed");
@@ -126,7 +137,7 @@ class DefaultBlameOutput implements BlameOutput {
     }
   }
 
-  public void finish(boolean success) {
+  public synchronized void finish(boolean success) {
     progressReport.stopAndLogTotalTime("SCM Publisher " + count + "/" + total + " " + pluralize(count) + " have been analyzed");
     if (success && !allFilesToBlame.isEmpty()) {
       LOG.warn("Missing blame information for the following files:");
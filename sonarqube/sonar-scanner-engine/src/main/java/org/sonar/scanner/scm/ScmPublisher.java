@@ -19,24 +19,37 @@
  */
 package org.sonar.scanner.scm;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputProject;
 import org.sonar.api.batch.scm.ScmProvider;
 import org.sonar.api.notifications.AnalysisWarnings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.bootstrap.RawScannerProperties;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Changesets.Builder;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.repository.FileData;
 import org.sonar.scanner.repository.ProjectRepositoriesSupplier;
+import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
@@ -51,9 +64,13 @@ public final class ScmPublisher {
   private final ScannerReportWriter writer;
   private AnalysisWarnings analysisWarnings;
   private final BranchConfiguration branchConfiguration;
+  private final ScanProperties scanProperties;
+  private final RawScannerProperties rawScannerProperties;
+  private final DefaultInputProject project;
 
   public ScmPublisher(ScmConfiguration configuration, ProjectRepositoriesSupplier projectRepositoriesSupplier,
-    InputComponentStore componentStore, FileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration, AnalysisWarnings analysisWarnings) {
+    InputComponentStore componentStore, FileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration, AnalysisWarnings analysisWarnings,
+    ScanProperties scanProperties, RawScannerProperties rawScannerProperties, DefaultInputProject project) {
     this.configuration = configuration;
     this.projectRepositoriesSupplier = projectRepositoriesSupplier;
     this.componentStore = componentStore;
@@ -61,6 +78,9 @@ public final class ScmPublisher {
     this.branchConfiguration = branchConfiguration;
     this.writer = reportPublisher.getWriter();
     this.analysisWarnings = analysisWarnings;
+    this.scanProperties = scanProperties;
+    this.rawScannerProperties = rawScannerProperties;
+    this.project = project;
   }
 
   public void publish() {
@@ -79,14 +99,121 @@ public final class ScmPublisher {
     if (!filesToBlame.isEmpty()) {
       String key = provider.key();
       LOG.info("SCM Publisher SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(writer, analysisWarnings, filesToBlame);
-      try {
-        provider.blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
-      } catch (Exception e) {
-        output.finish(false);
-        throw e;
+      BlameCache blameCache = loadBlameCache(provider);
+      if (blameCache != null) {
+        filesToBlame = copyDataFromBlameCache(filesToBlame, blameCache);
       }
-      output.finish(true);
+      if (!filesToBlame.isEmpty()) {
+        DefaultBlameOutput output = new DefaultBlameOutput(writer, analysisWarnings, filesToBlame, blameCache);
+        try {
+          blame(provider, filesToBlame, output);
+        } catch (Exception e) {
+          output.finish(false);
+          throw e;
+        }
+        output.finish(true);
+      }
+      if (blameCache != null) {
+        blameCache.save();
+      }
+    }
+  }
+
+  /**
+   * Cache of the changesets computed by the previous analysis of the same revision. Not used when reloading of SCM data is forced,
+   * or when the revision checked out is unknown.
+   */
+  @CheckForNull
+  private BlameCache loadBlameCache(ScmProvider provider) {
+    if (!scanProperties.isBlameCacheEnabled() || configuration.forceReloadAll()) {
+      return null;
+    }
+    String revision;
+    try {
+      revision = provider.revisionId(project.getBaseDir());
+    } catch (UnsupportedOperationException e) {
+      LOG.debug(e.getMessage());
+      return null;
+    }
+    if (StringUtils.isBlank(revision)) {
+      return null;
+    }
+    return BlameCache.load(blameCacheFile(), revision);
+  }
+
+  private Path blameCacheFile() {
+    return rawScannerProperties.userHome().resolve("blame-cache").resolve(DigestUtils.md5Hex(project.key() + ":" + project.getBaseDir()));
+  }
+
+  private List<InputFile> copyDataFromBlameCache(List<InputFile> filesToBlame, BlameCache blameCache) {
+    List<InputFile> remainingFiles = new ArrayList<>(filesToBlame.size());
+    for (InputFile f : filesToBlame) {
+      ScannerReport.Changesets changesets = blameCache.get((DefaultInputFile) f);
+      if (changesets == null) {
+        remainingFiles.add(f);
+      } else {
+        writer.writeComponentChangesets(changesets);
+      }
+    }
+    int reused = filesToBlame.size() - remainingFiles.size();
+    if (reused > 0) {
+      LOG.info("SCM Publisher {} {} reused from the blame cache", reused, reused == 1 ? "source file" : "source files");
+    }
+    return remainingFiles;
+  }
+
+  /**
+   * Files are split across the configured number of threads, each of them blaming its own files with the SCM provider.
+   * Files are sorted by decreasing number of lines and dealt in turn, so that threads get similar amounts of lines to blame.
+   */
+  private void blame(ScmProvider provider, List<InputFile> filesToBlame, DefaultBlameOutput output) {
+    int threads = Math.min(scanProperties.blameThreads(), filesToBlame.size());
+    if (threads <= 1) {
+      provider.blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
+      return;
+    }
+    List<List<InputFile>> partitions = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    List<InputFile> sortedFiles = new ArrayList<>(filesToBlame);
+    sortedFiles.sort(Comparator.comparingInt(InputFile::lines).reversed());
+    for (int i = 0; i < sortedFiles.size(); i++) {
+      partitions.get(i % threads).add(sortedFiles.get(i));
+    }
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "SCM blame " + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<CompletableFuture<Void>> executions = new ArrayList<>(threads);
+      for (List<InputFile> partition : partitions) {
+        executions.add(CompletableFuture.runAsync(() -> provider.blameCommand().blame(new DefaultBlameInput(fs, partition), output), executorService));
+      }
+      await(executions);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Waits for all the blame commands, then rethrows the first failure.
+   */
+  private static void await(List<CompletableFuture<Void>> executions) {
+    try {
+      CompletableFuture.allOf(executions.toArray(new CompletableFuture[0])).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to blame files", cause);
     }
   }
 
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.sensor;
 
+import java.util.Collection;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.scanner.sensor.ProjectSensor;
@@ -52,6 +53,13 @@ public abstract class AbstractSensorWrapper<G extends ProjectSensor> {
     return wrappedSensor;
   }
 
+  /**
+   * Languages the sensor is restricted to. Empty if the sensor is not restricted to some languages.
+   */
+  public Collection<String> languages() {
+    return descriptor.languages();
+  }
+
   @Override
   public String toString() {
     return descriptor.name();
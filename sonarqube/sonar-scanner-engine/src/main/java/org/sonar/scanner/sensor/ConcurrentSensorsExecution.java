@@ -0,0 +1,174 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.sensor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.logs.Profiler;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
+
+/**
+ * Executes sensors on a pool of threads. A sensor is started once the sensors it may depend upon are done:
+ * <ul>
+ *   <li>the ones it depends upon because of phases and {@link DependsUpon}/{@link DependedUpon} annotations</li>
+ *   <li>the ones restricted to one of its languages</li>
+ *   <li>all the ones before it if it's provided by a plugin which opted out of the concurrent execution (and the other way around)</li>
+ * </ul>
+ * When several sensors must be executed one after another, they are executed in the order of the sequential execution.
+ * Other sensors, for instance sensors of different languages or sensors not restricted to languages, are executed side by side.
+ */
+class ConcurrentSensorsExecution<W extends AbstractSensorWrapper<?>> {
+  private static final Logger LOG = Loggers.get(ConcurrentSensorsExecution.class);
+
+  private final List<W> sensors;
+  private final Map<Object, Set<Object>> dependencies;
+  private final Function<W, String> sensorNames;
+  private final Function<W, String> pluginKeys;
+  private final Set<String> sequentialPlugins;
+  private final ScannerTelemetry telemetry;
+
+  /**
+   * @param sensors      sensors, in the order of the sequential execution
+   * @param dependencies for each wrapped sensor, the wrapped sensors it depends upon
+   * @param pluginKeys   key of the plugin of a sensor, or null for sensors which are not provided by a plugin
+   * @param sequentialPlugins keys of the plugins whose sensors must not be executed concurrently with any other sensor
+   */
+  ConcurrentSensorsExecution(List<W> sensors, Map<Object, Set<Object>> dependencies, Function<W, String> sensorNames, Function<W, String> pluginKeys,
+    Set<String> sequentialPlugins, ScannerTelemetry telemetry) {
+    this.sensors = sensors;
+    this.dependencies = dependencies;
+    this.sensorNames = sensorNames;
+    this.pluginKeys = pluginKeys;
+    this.sequentialPlugins = sequentialPlugins;
+    this.telemetry = telemetry;
+  }
+
+  void execute(int threads) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "Sensor executor " + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      Map<W, CompletableFuture<Void>> executions = new LinkedHashMap<>();
+      for (W sensor : sensors) {
+        CompletableFuture<?>[] previousExecutions = previousSensors(sensor).stream().map(executions::get).toArray(CompletableFuture[]::new);
+        executions.put(sensor, CompletableFuture.allOf(previousExecutions).thenRunAsync(() -> analyse(sensor), executorService));
+      }
+      await(new ArrayList<>(executions.values()));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Sensors, among the ones executed before the given sensor in the sequential order, that must be done before starting it.
+   */
+  List<W> previousSensors(W sensor) {
+    List<W> result = new ArrayList<>();
+    for (W previous : sensors) {
+      if (previous == sensor) {
+        return result;
+      }
+      if (mustBeExecutedBefore(previous, sensor)) {
+        result.add(previous);
+      }
+    }
+    throw new IllegalArgumentException("Unknown sensor: " + sensor);
+  }
+
+  private boolean mustBeExecutedBefore(W previous, W sensor) {
+    Object previousSensor = previous.wrappedSensor();
+    Object wrappedSensor = sensor.wrappedSensor();
+    return dependencies.getOrDefault(wrappedSensor, Collections.emptySet()).contains(previousSensor)
+      || dependencies.getOrDefault(previousSensor, Collections.emptySet()).contains(wrappedSensor)
+      || isSequential(previous)
+      || isSequential(sensor)
+      || !Collections.disjoint(previous.languages(), sensor.languages());
+  }
+
+  private boolean isSequential(W sensor) {
+    String pluginKey = pluginKeys.apply(sensor);
+    return pluginKey != null && sequentialPlugins.contains(pluginKey);
+  }
+
+  private void analyse(W sensor) {
+    String sensorName = sensorNames.apply(sensor);
+    // the profiler of the sequential execution is shared, each concurrent execution has its own
+    Profiler profiler = Profiler.create(LOG).startInfo("Sensor " + sensorName);
+    try (ScannerTelemetry.Measure measure = telemetry.start("Sensor " + sensorName)) {
+      sensor.analyse();
+      long cpuTime = measure.stop().cpuTimeNanos();
+      if (cpuTime >= 0) {
+        profiler.addContext("cpu", TimeUnit.NANOSECONDS.toMillis(cpuTime) + "ms");
+      }
+    }
+    profiler.stopInfo();
+  }
+
+  /**
+   * Waits for all the sensors, then rethrows the failure of the first sensor that failed, in the sequential order.
+   * Sensors depending upon a sensor that failed are not executed.
+   */
+  private static void await(List<CompletableFuture<Void>> executions) {
+    try {
+      CompletableFuture.allOf(executions.toArray(new CompletableFuture[0])).join();
+    } catch (CompletionException e) {
+      // failure of the first sensor
+      Throwable cause = executions.stream()
+        .filter(CompletableFuture::isCompletedExceptionally)
+        .findFirst()
+        .map(ConcurrentSensorsExecution::failureOf)
+        .orElse(e.getCause());
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to execute sensors", cause);
+    }
+  }
+
+  private static Throwable failureOf(CompletableFuture<Void> execution) {
+    try {
+      execution.join();
+      throw new IllegalStateException("Execution is expected to have failed");
+    } catch (CompletionException e) {
+      return e.getCause();
+    }
+  }
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputComponent;
@@ -87,6 +88,7 @@ public class DefaultSensorStorage implements SensorStorage {
 
   private static final Logger LOG = Loggers.get(DefaultSensorStorage.class);
   private static final int DEFAULT_CPD_MIN_LINES = 1;
+  private static final int COMPONENT_LOCKS = 64;
 
   /**
    * The metrics that can be computed by analyzers but that are
@@ -117,7 +119,13 @@ public class DefaultSensorStorage implements SensorStorage {
   private final Configuration settings;
   private final ScannerMetrics scannerMetrics;
   private final BranchConfiguration branchConfiguration;
-  private final Set<String> alreadyLogged = new HashSet<>();
+  private final Set<String> alreadyLogged = ConcurrentHashMap.newKeySet();
+  /**
+   * Sensors can be executed concurrently (see {@link ModuleSensorsExecutor}). Data of a component are checked and written while
+   * holding the lock of the component, so that a sensor can't see the partial data written by another one.
+   */
+  private final Object[] componentLocks = new Object[COMPONENT_LOCKS];
+  private final Object adHocRulesLock = new Object();
 
   public DefaultSensorStorage(MetricFinder metricFinder, IssuePublisher moduleIssues, Configuration settings,
     ReportPublisher reportPublisher, SonarCpdBlockIndex index,
@@ -130,6 +138,13 @@ public class DefaultSensorStorage implements SensorStorage {
     this.contextPropertiesCache = contextPropertiesCache;
     this.scannerMetrics = scannerMetrics;
     this.branchConfiguration = branchConfiguration;
+    for (int i = 0; i < componentLocks.length; i++) {
+      componentLocks[i] = new Object();
+    }
+  }
+
+  private Object lockFor(InputComponent component) {
+    return componentLocks[Math.floorMod(((DefaultInputComponent) component).scannerId(), componentLocks.length)];
   }
 
   @Override
@@ -173,6 +188,12 @@ public class DefaultSensorStorage implements SensorStorage {
       throw new UnsupportedOperationException("Metric '" + metric.key() + "' should not be computed by a Sensor");
     }
 
+    synchronized (lockFor(component)) {
+      appendMeasure(component, metric, measure);
+    }
+  }
+
+  private void appendMeasure(InputComponent component, Metric metric, DefaultMeasure<?> measure) {
     if (((DefaultInputComponent) component).hasMeasureFor(metric)) {
       throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
     }
@@ -222,6 +243,12 @@ public class DefaultSensorStorage implements SensorStorage {
    */
   @Override
   public void store(Issue issue) {
+    synchronized (lockFor(issue.primaryLocation().inputComponent())) {
+      storeIssue(issue);
+    }
+  }
+
+  private void storeIssue(Issue issue) {
     if (issue.primaryLocation().inputComponent() instanceof DefaultInputFile) {
       DefaultInputFile defaultInputFile = (DefaultInputFile) issue.primaryLocation().inputComponent();
       if (shouldSkipStorage(defaultInputFile)) {
@@ -237,6 +264,12 @@ public class DefaultSensorStorage implements SensorStorage {
    */
   @Override
   public void store(ExternalIssue externalIssue) {
+    synchronized (lockFor(externalIssue.primaryLocation().inputComponent())) {
+      storeExternalIssue(externalIssue);
+    }
+  }
+
+  private void storeExternalIssue(ExternalIssue externalIssue) {
     if (externalIssue.primaryLocation().inputComponent() instanceof DefaultInputFile) {
       DefaultInputFile defaultInputFile = (DefaultInputFile) externalIssue.primaryLocation().inputComponent();
       defaultInputFile.setPublished(true);
@@ -246,6 +279,12 @@ public class DefaultSensorStorage implements SensorStorage {
 
   @Override
   public void store(AdHocRule adHocRule) {
+    synchronized (adHocRulesLock) {
+      storeAdHocRule(adHocRule);
+    }
+  }
+
+  private void storeAdHocRule(AdHocRule adHocRule) {
     ScannerReportWriter writer = reportPublisher.getWriter();
     final ScannerReport.AdHocRule.Builder builder = ScannerReport.AdHocRule.newBuilder();
     builder.setEngineId(adHocRule.engineId());
@@ -262,6 +301,12 @@ public class DefaultSensorStorage implements SensorStorage {
 
   @Override
   public void store(NewHighlighting newHighlighting) {
+    synchronized (lockFor(((DefaultHighlighting) newHighlighting).inputFile())) {
+      storeHighlighting(newHighlighting);
+    }
+  }
+
+  private void storeHighlighting(NewHighlighting newHighlighting) {
     DefaultHighlighting highlighting = (DefaultHighlighting) newHighlighting;
     ScannerReportWriter writer = reportPublisher.getWriter();
     DefaultInputFile inputFile = (DefaultInputFile) highlighting.inputFile();
@@ -291,6 +336,12 @@ public class DefaultSensorStorage implements SensorStorage {
 
   @Override
   public void store(NewSymbolTable newSymbolTable) {
+    synchronized (lockFor(((DefaultSymbolTable) newSymbolTable).inputFile())) {
+      storeSymbolTable(newSymbolTable);
+    }
+  }
+
+  private void storeSymbolTable(NewSymbolTable newSymbolTable) {
     DefaultSymbolTable symbolTable = (DefaultSymbolTable) newSymbolTable;
     ScannerReportWriter writer = reportPublisher.getWriter();
     DefaultInputFile inputFile = (DefaultInputFile) symbolTable.inputFile();
@@ -328,6 +379,12 @@ public class DefaultSensorStorage implements SensorStorage {
 
   @Override
   public void store(NewCoverage coverage) {
+    synchronized (lockFor(((DefaultCoverage) coverage).inputFile())) {
+      storeCoverage(coverage);
+    }
+  }
+
+  private void storeCoverage(NewCoverage coverage) {
     DefaultCoverage defaultCoverage = (DefaultCoverage) coverage;
     DefaultInputFile inputFile = (DefaultInputFile) defaultCoverage.inputFile();
     inputFile.setPublished(true);
@@ -373,6 +430,12 @@ public class DefaultSensorStorage implements SensorStorage {
 
   @Override
   public void store(NewCpdTokens cpdTokens) {
+    synchronized (index) {
+      storeCpdTokens(cpdTokens);
+    }
+  }
+
+  private void storeCpdTokens(NewCpdTokens cpdTokens) {
     DefaultCpdTokens defaultCpdTokens = (DefaultCpdTokens) cpdTokens;
     DefaultInputFile inputFile = (DefaultInputFile) defaultCpdTokens.inputFile();
     inputFile.setPublished(true);
@@ -401,6 +464,12 @@ public class DefaultSensorStorage implements SensorStorage {
 
   @Override
   public void store(NewSignificantCode newSignificantCode) {
+    synchronized (lockFor(((DefaultSignificantCode) newSignificantCode).inputFile())) {
+      storeSignificantCode(newSignificantCode);
+    }
+  }
+
+  private void storeSignificantCode(NewSignificantCode newSignificantCode) {
     DefaultSignificantCode significantCode = (DefaultSignificantCode) newSignificantCode;
     ScannerReportWriter writer = reportPublisher.getWriter();
     DefaultInputFile inputFile = (DefaultInputFile) significantCode.inputFile();
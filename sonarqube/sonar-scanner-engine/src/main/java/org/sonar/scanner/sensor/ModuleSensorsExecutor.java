@@ -21,8 +21,12 @@ package org.sonar.scanner.sensor;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -30,6 +34,9 @@ import org.sonar.core.util.logs.Profiler;
 import org.sonar.scanner.bootstrap.ScannerPluginRepository;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.scanner.fs.InputModuleHierarchy;
+import org.sonar.scanner.scan.ScanProperties;
+import org.sonar.scanner.scan.filesystem.FileMetadataSpill;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
 
 public class ModuleSensorsExecutor {
   private static final Logger LOG = Loggers.get(ModuleSensorsExecutor.class);
@@ -37,13 +44,19 @@ public class ModuleSensorsExecutor {
   private final ModuleSensorExtensionDictionnary selector;
   private final SensorStrategy strategy;
   private final ScannerPluginRepository pluginRepo;
+  private final ScanProperties properties;
+  private final FileMetadataSpill metadataSpill;
+  private final ScannerTelemetry telemetry;
   private final boolean isRoot;
 
   public ModuleSensorsExecutor(ModuleSensorExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy,
-    SensorStrategy strategy, ScannerPluginRepository pluginRepo) {
+    SensorStrategy strategy, ScannerPluginRepository pluginRepo, ScanProperties properties, FileMetadataSpill metadataSpill, ScannerTelemetry telemetry) {
     this.selector = selector;
     this.strategy = strategy;
     this.pluginRepo = pluginRepo;
+    this.properties = properties;
+    this.metadataSpill = metadataSpill;
+    this.telemetry = telemetry;
     this.isRoot = hierarchy.isRoot(module);
   }
 
@@ -79,23 +92,39 @@ public class ModuleSensorsExecutor {
   }
 
   private void execute(Collection<ModuleSensorWrapper> sensors) {
+    int threads = properties.sensorThreads();
+    if (threads > 1 && sensors.size() > 1) {
+      List<ModuleSensorWrapper> sortedSensors = new ArrayList<>(sensors);
+      Map<Object, Set<Object>> dependencies = selector.dependencies(sortedSensors.stream().map(ModuleSensorWrapper::wrappedSensor).collect(Collectors.<Object>toList()));
+      new ConcurrentSensorsExecution<>(sortedSensors, dependencies, this::getSensorName, this::getPluginKey,
+        properties.sequentialSensorPlugins(), telemetry).execute(threads);
+      metadataSpill.spillAll();
+      return;
+    }
     for (ModuleSensorWrapper sensor : sensors) {
       String sensorName = getSensorName(sensor);
       profiler.startInfo("Sensor " + sensorName);
-      sensor.analyse();
+      try (ScannerTelemetry.Measure measure = telemetry.start("Sensor " + sensorName)) {
+        sensor.analyse();
+      }
       profiler.stopInfo();
+      metadataSpill.spillAll();
     }
   }
 
   private String getSensorName(ModuleSensorWrapper sensor) {
-    ClassLoader cl = getSensorClassLoader(sensor);
-    String pluginKey = pluginRepo.getPluginKey(cl);
+    String pluginKey = getPluginKey(sensor);
     if (pluginKey != null) {
       return sensor.toString() + " [" + pluginKey + "]";
     }
     return sensor.toString();
   }
 
+  @CheckForNull
+  private String getPluginKey(ModuleSensorWrapper sensor) {
+    return pluginRepo.getPluginKey(getSensorClassLoader(sensor));
+  }
+
   private static ClassLoader getSensorClassLoader(ModuleSensorWrapper sensor) {
     return sensor.wrappedSensor().getClass().getClassLoader();
   }
@@ -20,21 +20,34 @@
 package org.sonar.scanner.sensor;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.scan.ScanProperties;
+import org.sonar.scanner.scan.filesystem.FileMetadataSpill;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
 
 public class ProjectSensorsExecutor {
   private static final Logger LOG = Loggers.get(ProjectSensorsExecutor.class);
   private static final Profiler profiler = Profiler.create(LOG);
   private final ProjectSensorExtensionDictionnary selector;
   private final ScannerPluginRepository pluginRepo;
+  private final ScanProperties properties;
+  private final FileMetadataSpill metadataSpill;
+  private final ScannerTelemetry telemetry;
 
-  public ProjectSensorsExecutor(ProjectSensorExtensionDictionnary selector, ScannerPluginRepository pluginRepo) {
+  public ProjectSensorsExecutor(ProjectSensorExtensionDictionnary selector, ScannerPluginRepository pluginRepo, ScanProperties properties,
+    FileMetadataSpill metadataSpill, ScannerTelemetry telemetry) {
     this.selector = selector;
     this.pluginRepo = pluginRepo;
+    this.properties = properties;
+    this.metadataSpill = metadataSpill;
+    this.telemetry = telemetry;
   }
 
   public void execute() {
@@ -43,23 +56,38 @@ public class ProjectSensorsExecutor {
     LOG.debug("Sensors : {}", sensors.stream()
       .map(Object::toString)
       .collect(Collectors.joining(" -> ")));
+    int threads = properties.sensorThreads();
+    if (threads > 1 && sensors.size() > 1) {
+      Map<Object, Set<Object>> dependencies = selector.dependencies(sensors.stream().map(ProjectSensorWrapper::wrappedSensor).collect(Collectors.<Object>toList()));
+      new ConcurrentSensorsExecution<>(sensors, dependencies, this::getSensorName, this::getPluginKey, properties.sequentialSensorPlugins(), telemetry)
+        .execute(threads);
+      metadataSpill.spillAll();
+      return;
+    }
     for (ProjectSensorWrapper sensor : sensors) {
       String sensorName = getSensorName(sensor);
       profiler.startInfo("Sensor " + sensorName);
-      sensor.analyse();
+      try (ScannerTelemetry.Measure measure = telemetry.start("Sensor " + sensorName)) {
+        sensor.analyse();
+      }
       profiler.stopInfo();
+      metadataSpill.spillAll();
     }
   }
 
   private String getSensorName(ProjectSensorWrapper sensor) {
-    ClassLoader cl = getSensorClassLoader(sensor);
-    String pluginKey = pluginRepo.getPluginKey(cl);
+    String pluginKey = getPluginKey(sensor);
     if (pluginKey != null) {
       return sensor.toString() + " [" + pluginKey + "]";
     }
     return sensor.toString();
   }
 
+  @CheckForNull
+  private String getPluginKey(ProjectSensorWrapper sensor) {
+    return pluginRepo.getPluginKey(getSensorClassLoader(sensor));
+  }
+
   private static ClassLoader getSensorClassLoader(ProjectSensorWrapper sensor) {
     return sensor.wrappedSensor().getClass().getClassLoader();
   }
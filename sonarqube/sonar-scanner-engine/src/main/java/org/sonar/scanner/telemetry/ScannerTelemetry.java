@@ -0,0 +1,230 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.telemetry;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the phases of the analysis and of each sensor: wall time, CPU time and memory allocated by the thread
+ * executing them, and the number of files and bytes they processed. A phase executed several times, for instance a
+ * sensor executed on each module, accumulates the metrics of all its executions.
+ * <p>
+ * CPU time and allocated memory are the ones of the thread that started the measure, so that work done on other threads
+ * must be measured on these threads. They are not reported when the JVM doesn't support measuring them.
+ */
+public class ScannerTelemetry {
+
+  private static final long UNSUPPORTED = -1L;
+
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+  private final Map<String, PhaseMetrics> phases = new LinkedHashMap<>();
+
+  /**
+   * Starts measuring the given phase on the current thread. The measure must be closed by the same thread.
+   */
+  public Measure start(String phase) {
+    return new Measure(phase);
+  }
+
+  public synchronized List<PhaseMetrics> phases() {
+    return new ArrayList<>(phases.values());
+  }
+
+  private synchronized void add(PhaseMetrics metrics) {
+    phases.merge(metrics.name(), metrics, PhaseMetrics::plus);
+  }
+
+  public void writeJson(Path file) {
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writeJson(writer);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write scanner telemetry to " + file, e);
+    }
+  }
+
+  void writeJson(Writer writer) throws IOException {
+    JsonWriter json = new JsonWriter(writer);
+    json.setIndent("  ");
+    json.beginObject();
+    json.name("phases").beginArray();
+    for (PhaseMetrics phase : phases()) {
+      json.beginObject();
+      json.name("name").value(phase.name());
+      json.name("executions").value(phase.executions());
+      json.name("wallTimeMs").value(TimeUnit.NANOSECONDS.toMillis(phase.wallTimeNanos()));
+      if (phase.cpuTimeNanos() != UNSUPPORTED) {
+        json.name("cpuTimeMs").value(TimeUnit.NANOSECONDS.toMillis(phase.cpuTimeNanos()));
+      }
+      if (phase.allocatedBytes() != UNSUPPORTED) {
+        json.name("allocatedBytes").value(phase.allocatedBytes());
+      }
+      json.name("files").value(phase.files());
+      json.name("bytes").value(phase.bytes());
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  private long currentThreadCpuTime() {
+    if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+      return threadMXBean.getCurrentThreadCpuTime();
+    }
+    return UNSUPPORTED;
+  }
+
+  private long currentThreadAllocatedBytes() {
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+      if (allocationMXBean.isThreadAllocatedMemorySupported() && allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return UNSUPPORTED;
+  }
+
+  public class Measure implements AutoCloseable {
+    private final String phase;
+    private final long startTime;
+    private final long startCpuTime;
+    private final long startAllocatedBytes;
+    private long files = 0;
+    private long bytes = 0;
+    private PhaseMetrics metrics = null;
+
+    private Measure(String phase) {
+      this.phase = phase;
+      this.startTime = System.nanoTime();
+      this.startCpuTime = currentThreadCpuTime();
+      this.startAllocatedBytes = currentThreadAllocatedBytes();
+    }
+
+    public Measure addFiles(long count) {
+      this.files += count;
+      return this;
+    }
+
+    public Measure addBytes(long count) {
+      this.bytes += count;
+      return this;
+    }
+
+    /**
+     * Stops the measure and adds it to the metrics of the phase. Does nothing if the measure is already stopped.
+     *
+     * @return the metrics of this execution of the phase
+     */
+    public PhaseMetrics stop() {
+      if (metrics == null) {
+        long wallTime = System.nanoTime() - startTime;
+        long cpuTime = delta(startCpuTime, currentThreadCpuTime());
+        long allocatedBytes = delta(startAllocatedBytes, currentThreadAllocatedBytes());
+        metrics = new PhaseMetrics(phase, 1, wallTime, cpuTime, allocatedBytes, files, bytes);
+        add(metrics);
+      }
+      return metrics;
+    }
+
+    @Override
+    public void close() {
+      stop();
+    }
+
+    private static long delta(long start, long end) {
+      return start == UNSUPPORTED || end == UNSUPPORTED ? UNSUPPORTED : (end - start);
+    }
+  }
+
+  public static class PhaseMetrics {
+    private final String name;
+    private final int executions;
+    private final long wallTimeNanos;
+    private final long cpuTimeNanos;
+    private final long allocatedBytes;
+    private final long files;
+    private final long bytes;
+
+    private PhaseMetrics(String name, int executions, long wallTimeNanos, long cpuTimeNanos, long allocatedBytes, long files, long bytes) {
+      this.name = name;
+      this.executions = executions;
+      this.wallTimeNanos = wallTimeNanos;
+      this.cpuTimeNanos = cpuTimeNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.files = files;
+      this.bytes = bytes;
+    }
+
+    private PhaseMetrics plus(PhaseMetrics other) {
+      return new PhaseMetrics(name, executions + other.executions, wallTimeNanos + other.wallTimeNanos, sum(cpuTimeNanos, other.cpuTimeNanos),
+        sum(allocatedBytes, other.allocatedBytes), files + other.files, bytes + other.bytes);
+    }
+
+    private static long sum(long value, long otherValue) {
+      return value == UNSUPPORTED || otherValue == UNSUPPORTED ? UNSUPPORTED : (value + otherValue);
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public int executions() {
+      return executions;
+    }
+
+    public long wallTimeNanos() {
+      return wallTimeNanos;
+    }
+
+    /**
+     * CPU time of the thread(s) executing the phase, or -1 if not supported by the JVM
+     */
+    public long cpuTimeNanos() {
+      return cpuTimeNanos;
+    }
+
+    /**
+     * Memory allocated by the thread(s) executing the phase, or -1 if not supported by the JVM
+     */
+    public long allocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public long files() {
+      return files;
+    }
+
+    public long bytes() {
+      return bytes;
+    }
+  }
+}
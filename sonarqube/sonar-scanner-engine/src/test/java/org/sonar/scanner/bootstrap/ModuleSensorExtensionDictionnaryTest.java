@@ -23,6 +23,8 @@ import com.google.common.collect.Lists;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
 import org.picocontainer.behaviors.FieldDecorated;
@@ -281,6 +283,27 @@ public class ModuleSensorExtensionDictionnaryTest {
     assertThat(extensions).containsExactly(pre, normal, post);
   }
 
+  @Test
+  public void dependencies_include_phases_and_transitive_dependencies() {
+    PreSensor pre = new PreSensor();
+    NormalSensor normal1 = new NormalSensor();
+    NormalSensor normal2 = new NormalSensor();
+    PostSensor post = new PostSensor();
+    Object a = new GeneratesSomething("foo");
+    Object b = new MethodDependentOf("foo");
+    Object c = new MethodDependentOf(b);
+
+    ModuleSensorExtensionDictionnary selector = newSelector();
+    Map<Object, Set<Object>> dependencies = selector.dependencies(Arrays.asList(pre, normal1, normal2, post, a, b, c));
+
+    assertThat(dependencies.get(pre)).isEmpty();
+    assertThat(dependencies.get(normal1)).containsOnly(pre);
+    assertThat(dependencies.get(normal2)).containsOnly(pre);
+    assertThat(dependencies.get(post)).containsOnly(pre, normal1, normal2, a, b, c);
+    assertThat(dependencies.get(b)).containsOnly(pre, a);
+    assertThat(dependencies.get(c)).containsOnly(pre, a, b);
+  }
+
   @Test
   public void selectSensors() {
     FakeSensor nonGlobalSensor = new FakeSensor();
@@ -0,0 +1,140 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private DefaultInputFile file = newFile("src/Foo.java", "hash1");
+
+  @Test
+  public void reuse_entries_of_previous_analysis() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("cache").resolve("project");
+
+    AnalysisCache cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    assertThat(cache.get("kind", file)).isEmpty();
+    cache.put("kind", file, new byte[] {1, 2, 3});
+    cache.stop();
+    assertThat(cacheFile).exists();
+
+    cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    assertThat(cache.get("kind", file)).hasValueSatisfying(data -> assertThat(data).containsExactly(1, 2, 3));
+    assertThat(cache.get("other", file)).isEmpty();
+    cache.stop();
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Analysis cache: 1 hits, 1 misses");
+  }
+
+  @Test
+  public void entries_are_addressed_by_content_of_file() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("project");
+    AnalysisCache cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    cache.put("kind", file, new byte[] {1});
+    cache.stop();
+
+    cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    assertThat(cache.get("kind", newFile("src/Moved.java", "hash1"))).isPresent();
+    assertThat(cache.get("kind", newFile("src/Foo.java", "hash2"))).isEmpty();
+  }
+
+  @Test
+  public void only_keep_entries_used_by_last_analysis() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("project");
+    DefaultInputFile otherFile = newFile("src/Bar.java", "hash2");
+    AnalysisCache cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    cache.put("kind", file, new byte[] {1});
+    cache.put("kind", otherFile, new byte[] {2});
+    cache.stop();
+
+    cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    assertThat(cache.get("kind", file)).isPresent();
+    cache.stop();
+
+    cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    assertThat(cache.get("kind", file)).isPresent();
+    assertThat(cache.get("kind", otherFile)).isEmpty();
+  }
+
+  @Test
+  public void drop_cache_when_fingerprint_changes() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("project");
+    AnalysisCache cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    cache.put("kind", file, new byte[] {1});
+    cache.stop();
+
+    cache = new AnalysisCache(cacheFile, "other fingerprint");
+    cache.start();
+    assertThat(cache.get("kind", file)).isEmpty();
+  }
+
+  @Test
+  public void ignore_corrupted_cache_file() throws IOException {
+    Path cacheFile = temp.newFile().toPath();
+    Files.write(cacheFile, "corrupted".getBytes(StandardCharsets.UTF_8));
+
+    AnalysisCache cache = new AnalysisCache(cacheFile, "fingerprint");
+    cache.start();
+    assertThat(cache.get("kind", file)).isEmpty();
+  }
+
+  @Test
+  public void disabled_cache_keeps_nothing() {
+    AnalysisCache cache = AnalysisCache.disabled();
+    cache.start();
+    cache.put("kind", file, new byte[] {1});
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.get("kind", file)).isEmpty();
+    cache.stop();
+  }
+
+  private static DefaultInputFile newFile(String path, String hash) {
+    return new TestInputFileBuilder("foo", path)
+      .setCharset(StandardCharsets.UTF_8)
+      .setHash(hash)
+      .build();
+  }
+}
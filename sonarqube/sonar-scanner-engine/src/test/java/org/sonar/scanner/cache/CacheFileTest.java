@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheFileTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void read_entries_written_with_same_fingerprint() {
+    Path path = temp.getRoot().toPath().resolve("cache").resolve("project");
+    Map<String, byte[]> entries = new HashMap<>();
+    entries.put("a", new byte[] {1, 2});
+    entries.put("b", new byte[0]);
+
+    new CacheFile(path, "fingerprint").write(entries);
+
+    Map<String, byte[]> read = new CacheFile(path, "fingerprint").read();
+    assertThat(read).containsOnlyKeys("a", "b");
+    assertThat(read.get("a")).containsExactly(1, 2);
+    assertThat(read.get("b")).isEmpty();
+    assertThat(new CacheFile(path, "other fingerprint").read()).isEmpty();
+  }
+
+  @Test
+  public void write_replaces_previous_content() {
+    Path path = temp.getRoot().toPath().resolve("project");
+    CacheFile cacheFile = new CacheFile(path, "fingerprint");
+    cacheFile.write(singleton("a"));
+    cacheFile.write(singleton("b"));
+
+    assertThat(cacheFile.read()).containsOnlyKeys("b");
+    assertThat(path.getParent().toFile().list()).containsExactly("project");
+  }
+
+  @Test
+  public void read_nothing_if_file_does_not_exist() {
+    assertThat(new CacheFile(temp.getRoot().toPath().resolve("missing"), "fingerprint").read()).isEmpty();
+  }
+
+  @Test
+  public void ignore_corrupted_file() throws IOException {
+    Path path = temp.newFile().toPath();
+    Files.write(path, "corrupted".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(new CacheFile(path, "fingerprint").read()).isEmpty();
+  }
+
+  @Test
+  public void ignore_failure_to_write() throws IOException {
+    Path parent = temp.newFile().toPath();
+
+    new CacheFile(parent.resolve("project"), "fingerprint").write(singleton("a"));
+
+    assertThat(parent).isRegularFile();
+  }
+
+  private static Map<String, byte[]> singleton(String key) {
+    Map<String, byte[]> entries = new HashMap<>();
+    entries.put(key, new byte[] {1});
+    return entries;
+  }
+}
@@ -23,7 +23,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,14 +35,20 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonar.duplications.block.Block;
+import org.sonar.scanner.cache.AnalysisCache;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class JavaCpdBlockIndexerSensorTest {
@@ -75,13 +83,13 @@ public class JavaCpdBlockIndexerSensorTest {
   @Test
   public void testExclusions() {
     file.setExcludedForDuplication(true);
-    new JavaCpdBlockIndexerSensor(index).execute(context);
+    new JavaCpdBlockIndexerSensor(index, AnalysisCache.disabled()).execute(context);
     verifyZeroInteractions(index);
   }
 
   @Test
   public void testJavaIndexing() {
-    new JavaCpdBlockIndexerSensor(index).execute(context);
+    new JavaCpdBlockIndexerSensor(index, AnalysisCache.disabled()).execute(context);
 
     verify(index).insert(eq(file), blockCaptor.capture());
     List<Block> blockList = blockCaptor.getValue();
@@ -89,4 +97,55 @@ public class JavaCpdBlockIndexerSensorTest {
     assertThat(blockList).hasSize(26);
   }
 
+  @Test
+  public void tokenize_contents_decoded_while_generating_metadata() throws IOException {
+    String contents = IOUtils.toString(this.getClass().getResource("ManyStatements.java"), StandardCharsets.UTF_8);
+    DefaultInputFile cachedFile = spy(new TestInputFileBuilder("foo", "src/NotOnDisk.java")
+      .setModuleBaseDir(context.fileSystem().baseDirPath())
+      .setCharset(StandardCharsets.UTF_8)
+      .setLanguage("java").build());
+    when(cachedFile.cachedContents()).thenReturn(Optional.of(contents));
+    SensorContextTester otherContext = SensorContextTester.create(context.fileSystem().baseDir());
+    otherContext.fileSystem().add(cachedFile);
+
+    new JavaCpdBlockIndexerSensor(index, AnalysisCache.disabled()).execute(otherContext);
+
+    verify(index).insert(eq(cachedFile), blockCaptor.capture());
+    assertThat(blockCaptor.getValue()).hasSize(26);
+    verify(cachedFile, never()).inputStream();
+  }
+
+  @Test
+  public void replay_blocks_from_analysis_cache() {
+    AnalysisCache cache = mock(AnalysisCache.class);
+    when(cache.isEnabled()).thenReturn(true);
+    when(cache.get(any(), any())).thenReturn(Optional.empty());
+    new JavaCpdBlockIndexerSensor(index, cache).execute(context);
+
+    ArgumentCaptor<byte[]> dataCaptor = ArgumentCaptor.forClass(byte[].class);
+    verify(cache).put(eq("java-cpd-blocks"), eq(file), dataCaptor.capture());
+    verify(index).insert(eq(file), blockCaptor.capture());
+    List<Block> computedBlocks = blockCaptor.getValue();
+
+    SonarCpdBlockIndex otherIndex = mock(SonarCpdBlockIndex.class);
+    AnalysisCache otherCache = mock(AnalysisCache.class);
+    when(otherCache.get("java-cpd-blocks", file)).thenReturn(Optional.of(dataCaptor.getValue()));
+    new JavaCpdBlockIndexerSensor(otherIndex, otherCache).execute(context);
+
+    verify(otherIndex).insert(eq(file), blockCaptor.capture());
+    verify(otherCache, never()).put(any(), any(), any());
+    List<Block> replayedBlocks = blockCaptor.getValue();
+    assertThat(replayedBlocks).hasSize(26);
+    for (int i = 0; i < replayedBlocks.size(); i++) {
+      Block computed = computedBlocks.get(i);
+      Block replayed = replayedBlocks.get(i);
+      assertThat(replayed).isEqualTo(computed);
+      assertThat(replayed.getResourceId()).isEqualTo(file.key());
+      assertThat(replayed.getStartLine()).isEqualTo(computed.getStartLine());
+      assertThat(replayed.getEndLine()).isEqualTo(computed.getEndLine());
+      assertThat(replayed.getStartUnit()).isEqualTo(computed.getStartUnit());
+      assertThat(replayed.getEndUnit()).isEqualTo(computed.getEndUnit());
+    }
+  }
+
 }
@@ -384,6 +384,39 @@ public class FileSystemMediumTest {
     assertThat(result.inputFiles()).hasSize(100);
   }
 
+  @Test
+  public void index_files_concurrently_with_same_ids_as_sequential_indexation() throws IOException {
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+    for (int nb = 1; nb <= 200; nb++) {
+      File dir = new File(srcDir, "dir" + (nb % 7));
+      dir.mkdir();
+      FileUtils.write(new File(dir, "sample" + nb + (nb % 3 == 0 ? ".txt" : ".xoo")), "Sample xoo\ncontent" + nb, StandardCharsets.UTF_8);
+    }
+
+    AnalysisResult sequential = tester.newAnalysis()
+      .properties(builder
+        .put("sonar.sources", "src")
+        .build())
+      .execute();
+    AnalysisResult concurrent = tester.newAnalysis()
+      .properties(ImmutableMap.<String, String>builder()
+        .putAll(builder.build())
+        .put("sonar.scanner.indexingThreads", "4")
+        .put("sonar.preloadFileMetadata", "true")
+        .build())
+      .execute();
+
+    assertThat(concurrent.inputFiles()).hasSize(200);
+    assertThat(logTester.logs()).contains("200 files indexed");
+    for (InputFile inputFile : sequential.inputFiles()) {
+      DefaultInputFile concurrentFile = (DefaultInputFile) concurrent.inputFile(inputFile.relativePath());
+      assertThat(concurrentFile.scannerId()).isEqualTo(((DefaultInputFile) inputFile).scannerId());
+      assertThat(concurrentFile.language()).isEqualTo(inputFile.language());
+      assertThat(concurrentFile.md5Hash()).isEqualTo(inputFile.md5Hash());
+    }
+  }
+
   @Test
   public void scanProjectWithTestDir() throws IOException {
     File test = new File(baseDir, "test");
@@ -470,6 +503,26 @@ public class FileSystemMediumTest {
     assertThat(result.inputFiles()).hasSize(2);
   }
 
+  @Test
+  public void skip_walking_excluded_directories() throws IOException {
+    File srcDir = new File(baseDir, "src");
+    File dependencyDir = new File(srcDir, "node_modules/lib");
+    dependencyDir.mkdirs();
+    FileUtils.write(new File(srcDir, "sample.xoo"), "Sample xoo\ncontent", StandardCharsets.UTF_8);
+    FileUtils.write(new File(srcDir, "excluded.xoo"), "Sample xoo\ncontent", StandardCharsets.UTF_8);
+    FileUtils.write(new File(dependencyDir, "dependency.xoo"), "Sample xoo\ncontent", StandardCharsets.UTF_8);
+
+    AnalysisResult result = tester.newAnalysis()
+      .properties(builder
+        .put("sonar.sources", "src")
+        .put("sonar.exclusions", "**/node_modules/**,**/excluded.xoo")
+        .build())
+      .execute();
+
+    assertThat(result.inputFiles()).extracting(InputFile::relativePath).containsOnly("src/sample.xoo");
+    assertThat(logTester.logs()).contains("1 file ignored because of inclusion/exclusion patterns, not counting the files of 1 excluded directory");
+  }
+
   @Test
   public void test_inclusions_on_multi_modules() throws IOException {
     File baseDir = temp.getRoot();
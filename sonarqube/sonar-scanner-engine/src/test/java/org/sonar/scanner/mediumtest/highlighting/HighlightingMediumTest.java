@@ -22,6 +22,8 @@ package org.sonar.scanner.mediumtest.highlighting;
 import com.google.common.collect.ImmutableMap;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
@@ -30,12 +32,16 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputComponent;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.mediumtest.ScannerMediumTester;
 import org.sonar.scanner.mediumtest.AnalysisResult;
+import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.xoo.XooPlugin;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class HighlightingMediumTest {
 
@@ -80,6 +86,36 @@ public class HighlightingMediumTest {
     assertThat(result.highlightingTypeFor(file, 2, 8)).isEmpty();
   }
 
+  @Test
+  public void computeSyntaxHighlightingOnTempProjectWithSpilledFileMetadata() throws IOException {
+    File baseDir = temp.newFolder();
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+
+    File xooFile = new File(srcDir, "sample.xoo");
+    File xoohighlightingFile = new File(srcDir, "sample.xoo.highlighting");
+    FileUtils.write(xooFile, "Sample xoo\r\ncontent plop");
+    FileUtils.write(xoohighlightingFile, "0:10:s\n12:19:k");
+
+    AnalysisResult result = tester.newAnalysis()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.sources", "src")
+        .put("sonar.scanner.spillFileMetadata", "true")
+        .build())
+      .execute();
+
+    // line offsets are not available anymore once the analysis is done, so the ranges are read from the report
+    int ref = ((DefaultInputComponent) result.inputFile("src/sample.xoo")).scannerId();
+    List<ScannerReport.SyntaxHighlightingRule> rules = new ArrayList<>();
+    try (CloseableIterator<ScannerReport.SyntaxHighlightingRule> it = result.getReportReader().readComponentSyntaxHighlighting(ref)) {
+      it.forEachRemaining(rules::add);
+    }
+    assertThat(rules).extracting(r -> r.getRange().getStartLine(), r -> r.getRange().getStartOffset(), r -> r.getRange().getEndLine(), r -> r.getRange().getEndOffset())
+      .containsExactly(tuple(1, 0, 1, 10), tuple(2, 0, 2, 7));
+  }
+
   @Test
   public void saveTwice() throws IOException {
     File baseDir = temp.newFolder();
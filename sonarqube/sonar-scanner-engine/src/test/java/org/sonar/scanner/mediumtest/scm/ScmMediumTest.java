@@ -276,6 +276,41 @@ public class ScmMediumTest {
     assertThat(file2Scm).isNotNull();
   }
 
+  @Test
+  public void blame_files_concurrently_and_reuse_blame_of_previous_analysis() throws IOException, URISyntaxException {
+    File baseDir = prepareProject();
+    File xooFile2 = new File(baseDir, "src/sample2.xoo");
+    FileUtils.write(xooFile2, SAMPLE_XOO_CONTENT, StandardCharsets.UTF_8);
+    FileUtils.write(new File(baseDir, "src/sample2.xoo.scm"),
+      // revision,author,dateTime
+      "1,foo,2013-01-04\n" +
+        "2,bar,2013-01-04\n",
+      StandardCharsets.UTF_8);
+
+    AnalysisBuilder analysisBuilder = tester.newAnalysis()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.sources", "src")
+        .put("sonar.scm.provider", "xoo")
+        .put("sonar.scm.blameThreads", "2")
+        .build());
+
+    analysisBuilder.execute();
+
+    assertThat(getChangesets(baseDir, "src/sample.xoo").getChangesetIndexByLineList()).hasSize(5);
+    assertThat(getChangesets(baseDir, "src/sample2.xoo").getChangesetIndexByLineList()).hasSize(2);
+    assertThat(logTester.logs()).doesNotContain("SCM Publisher 2 source files reused from the blame cache");
+
+    logTester.clear();
+    analysisBuilder.execute();
+
+    assertThat(logTester.logs()).contains("SCM Publisher 2 source files reused from the blame cache");
+    ScannerReport.Changesets reused = getChangesets(baseDir, "src/sample2.xoo");
+    assertThat(reused.getChangesetIndexByLineList()).hasSize(2);
+    assertThat(reused.getChangeset(reused.getChangesetIndexByLine(1)).getAuthor()).isEqualTo("bar");
+  }
+
   @Test
   public void configureUsingScmURL() throws IOException, URISyntaxException {
 
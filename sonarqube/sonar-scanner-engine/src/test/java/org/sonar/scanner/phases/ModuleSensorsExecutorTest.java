@@ -31,11 +31,16 @@ import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.scanner.bootstrap.ScannerPluginRepository;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.scanner.fs.InputModuleHierarchy;
+import org.sonar.scanner.scan.ScanProperties;
+import org.sonar.scanner.scan.filesystem.FileMetadataSpill;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.scanner.sensor.ModuleSensorExtensionDictionnary;
 import org.sonar.scanner.sensor.ModuleSensorWrapper;
 import org.sonar.scanner.sensor.ModuleSensorsExecutor;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -54,6 +59,8 @@ public class ModuleSensorsExecutorTest {
   private ModuleSensorWrapper perModuleSensor = mock(ModuleSensorWrapper.class);
   private ModuleSensorWrapper globalSensor = mock(ModuleSensorWrapper.class);
   private ScannerPluginRepository pluginRepository = mock(ScannerPluginRepository.class);
+  private ScanProperties properties = mock(ScanProperties.class);
+  private ScannerTelemetry telemetry = new ScannerTelemetry();
 
   @Before
   public void setUp() throws IOException {
@@ -64,6 +71,7 @@ public class ModuleSensorsExecutorTest {
     when(globalSensor.isGlobal()).thenReturn(true);
     when(globalSensor.shouldExecute()).thenReturn(true);
     when(globalSensor.wrappedSensor()).thenReturn(mock(Sensor.class));
+    when(properties.sensorThreads()).thenReturn(1);
 
     ModuleSensorExtensionDictionnary selector = mock(ModuleSensorExtensionDictionnary.class);
     when(selector.selectSensors(false)).thenReturn(Collections.singleton(perModuleSensor));
@@ -78,8 +86,17 @@ public class ModuleSensorsExecutorTest {
     InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new ModuleSensorsExecutor(selector, rootModule, hierarchy, strategy, pluginRepository);
-    subModuleExecutor = new ModuleSensorsExecutor(selector, subModule, hierarchy, strategy, pluginRepository);
+    rootModuleExecutor = new ModuleSensorsExecutor(selector, rootModule, hierarchy, strategy, pluginRepository, properties, mock(FileMetadataSpill.class), telemetry);
+    subModuleExecutor = new ModuleSensorsExecutor(selector, subModule, hierarchy, strategy, pluginRepository, properties, mock(FileMetadataSpill.class), telemetry);
+  }
+
+  @Test
+  public void should_measure_sensors() {
+    rootModuleExecutor.execute();
+
+    assertThat(telemetry.phases())
+      .extracting(ScannerTelemetry.PhaseMetrics::name, ScannerTelemetry.PhaseMetrics::executions)
+      .containsExactly(tuple("Sensor " + perModuleSensor, 1), tuple("Sensor " + globalSensor, 1));
   }
 
   @Test
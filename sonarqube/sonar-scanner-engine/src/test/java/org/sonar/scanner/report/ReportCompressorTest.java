@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.scanner.scan.ScanProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReportCompressorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ScanProperties properties = mock(ScanProperties.class);
+  private ReportCompressor underTest = new ReportCompressor(properties);
+  private Path reportDir;
+  private File zip;
+
+  @Before
+  public void setUp() throws IOException {
+    when(properties.reportCompressionThreads()).thenReturn(2);
+    reportDir = temp.newFolder().toPath();
+    zip = temp.newFile("report.zip");
+  }
+
+  @Test
+  public void compress_all_files_of_report() throws IOException {
+    File source = writeFile("source-1.txt", "class Foo {}");
+    writeFile("component-1.pb", "component");
+    writeFile("sub/measures-1.pb", "measures");
+
+    underTest.open(reportDir, zip);
+    underTest.compress(source);
+    underTest.finish();
+
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      List<String> names = Collections.list(zipFile.entries()).stream().map(ZipEntry::getName).collect(Collectors.toList());
+      assertThat(names).containsOnly("source-1.txt", "component-1.pb", "sub/measures-1.pb");
+    }
+    File unzipDir = ZipUtils.unzip(zip, temp.newFolder());
+    assertThat(FileUtils.readFileToString(new File(unzipDir, "source-1.txt"), StandardCharsets.UTF_8)).isEqualTo("class Foo {}");
+    assertThat(FileUtils.readFileToString(new File(unzipDir, "component-1.pb"), StandardCharsets.UTF_8)).isEqualTo("component");
+    assertThat(FileUtils.readFileToString(new File(unzipDir, "sub/measures-1.pb"), StandardCharsets.UTF_8)).isEqualTo("measures");
+  }
+
+  @Test
+  public void compress_empty_report() throws IOException {
+    underTest.open(reportDir, zip);
+    underTest.finish();
+
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      assertThat(zipFile.size()).isZero();
+    }
+  }
+
+  @Test
+  public void compress_large_number_of_files() throws IOException {
+    for (int i = 0; i < 70_000; i++) {
+      writeFile("source-" + i + ".txt", "line " + i);
+    }
+
+    underTest.open(reportDir, zip);
+    underTest.finish();
+
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      assertThat(zipFile.size()).isEqualTo(70_000);
+    }
+    File unzipDir = ZipUtils.unzip(zip, temp.newFolder());
+    assertThat(FileUtils.readFileToString(new File(unzipDir, "source-69999.txt"), StandardCharsets.UTF_8)).isEqualTo("line 69999");
+  }
+
+  @Test
+  public void ignore_files_when_compression_is_not_started() throws IOException {
+    File source = writeFile("source-1.txt", "class Foo {}");
+
+    underTest.compress(source);
+    underTest.stop();
+
+    assertThat(zip).hasContent("");
+  }
+
+  private File writeFile(String name, String content) throws IOException {
+    File file = reportDir.resolve(name).toFile();
+    FileUtils.write(file, content, StandardCharsets.UTF_8);
+    return file;
+  }
+}
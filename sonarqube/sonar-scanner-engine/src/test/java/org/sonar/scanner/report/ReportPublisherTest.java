@@ -45,6 +45,7 @@ import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.fs.InputModuleHierarchy;
 import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
 import org.sonarqube.ws.Ce;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.MockWsResponse;
@@ -80,8 +81,9 @@ public class ReportPublisherTest {
   AnalysisContextReportPublisher contextPublisher = mock(AnalysisContextReportPublisher.class);
   BranchConfiguration branchConfiguration = mock(BranchConfiguration.class);
   CeTaskReportDataHolder reportMetadataHolder = mock(CeTaskReportDataHolder.class);
+  ScannerTelemetry telemetry = new ScannerTelemetry();
   ReportPublisher underTest = new ReportPublisher(properties, wsClient, server, contextPublisher, moduleHierarchy, mode, reportTempFolder,
-    new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder);
+    new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder, new ReportCompressor(properties), telemetry);
 
   @Before
   public void setUp() {
@@ -143,7 +145,7 @@ public class ReportPublisherTest {
     when(branchConfiguration.branchType()).thenReturn(BRANCH);
     when(branchConfiguration.branchName()).thenReturn("branch-6.7");
     ReportPublisher underTest = new ReportPublisher(properties, wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
-      new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder);
+      new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder, new ReportCompressor(properties), new ScannerTelemetry());
 
     underTest.prepareAndDumpMetadata("TASK-123");
 
@@ -164,7 +166,7 @@ public class ReportPublisherTest {
     when(branchConfiguration.pullRequestKey()).thenReturn("105");
 
     ReportPublisher underTest = new ReportPublisher(properties, wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
-      new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder);
+      new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder, new ReportCompressor(properties), new ScannerTelemetry());
 
     underTest.prepareAndDumpMetadata("TASK-123");
 
@@ -218,6 +220,21 @@ public class ReportPublisherTest {
       .contains("More about the report processing at https://publicserver/sonarqube/api/ce/task?id=TASK-123");
   }
 
+  @Test
+  public void should_write_telemetry_in_report_and_work_dir() throws IOException {
+    MockWsResponse submitMockResponse = new MockWsResponse();
+    submitMockResponse.setContent(Ce.SubmitResponse.newBuilder().setTaskId("task-1234").build().toByteArray());
+    when(wsClient.call(any())).thenReturn(submitMockResponse);
+    underTest.start();
+    underTest.execute();
+
+    String reportTelemetry = readFileToString(underTest.getWriter().getFileStructure().telemetry(), StandardCharsets.UTF_8);
+    assertThat(reportTelemetry).contains("\"name\": \"Report generation\"").doesNotContain("Report upload");
+    String workDirTelemetry = readFileToString(root.getWorkDir().resolve("scanner-telemetry.json").toFile(), StandardCharsets.UTF_8);
+    assertThat(workDirTelemetry).contains("\"name\": \"Report generation\"", "\"name\": \"Report compression\"", "\"name\": \"Report upload\"");
+    assertThat(telemetry.phases()).extracting(ScannerTelemetry.PhaseMetrics::name).containsExactly("Report generation", "Report compression", "Report upload");
+  }
+
   @Test
   public void dump_information_to_custom_path() {
     underTest.prepareAndDumpMetadata("TASK-123");
@@ -36,6 +36,7 @@ import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class SourcePublisherTest {
 
@@ -45,6 +46,7 @@ public class SourcePublisherTest {
   private File sourceFile;
   private ScannerReportWriter writer;
   private DefaultInputFile inputFile;
+  private ReportCompressor reportCompressor = mock(ReportCompressor.class);
 
   @Before
   public void prepare() throws IOException {
@@ -61,7 +63,7 @@ public class SourcePublisherTest {
     InputComponentStore componentStore = new InputComponentStore(mock(BranchConfiguration.class));
     componentStore.put(moduleKey, inputFile);
 
-    publisher = new SourcePublisher(componentStore);
+    publisher = new SourcePublisher(componentStore, reportCompressor);
     File outputDir = temp.newFolder();
     writer = new ScannerReportWriter(outputDir);
   }
@@ -76,6 +78,15 @@ public class SourcePublisherTest {
     assertThat(FileUtils.readFileToString(out, StandardCharsets.UTF_8)).isEqualTo("");
   }
 
+  @Test
+  public void compress_published_source() throws Exception {
+    FileUtils.write(sourceFile, "1\n2\n3\n4\n", StandardCharsets.ISO_8859_1);
+
+    publisher.publish(writer);
+
+    verify(reportCompressor).compress(writer.getSourceFile(inputFile.scannerId()));
+  }
+
   @Test
   public void publishSourceWithLastEmptyLine() throws Exception {
     FileUtils.write(sourceFile, "1\n2\n3\n4\n", StandardCharsets.ISO_8859_1);
@@ -58,6 +58,7 @@ public class ScanPropertiesTest {
     assertThat(underTest.organizationKey()).isEmpty();
     assertThat(underTest.preloadFileMetadata()).isFalse();
     assertThat(underTest.shouldKeepReport()).isFalse();
+    assertThat(underTest.sequentialSensorPlugins()).isEmpty();
     assertThat(underTest.metadataFilePath()).isEqualTo(project.getWorkDir().resolve("report-task.txt"));
     underTest.validate();
   }
@@ -80,6 +81,12 @@ public class ScanPropertiesTest {
     assertThat(underTest.preloadFileMetadata()).isTrue();
   }
 
+  @Test
+  public void should_define_sequential_sensor_plugins() {
+    settings.setProperty("sonar.scanner.sequentialSensorPlugins", "java,scm");
+    assertThat(underTest.sequentialSensorPlugins()).containsOnly("java", "scm");
+  }
+
   @Test
   public void should_define_keep_report() {
     settings.setProperty("sonar.scanner.keepReport", "true");
@@ -0,0 +1,157 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import org.junit.Test;
+import org.sonar.api.batch.fs.internal.PathPattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompiledPathPatternsTest {
+
+  private static final String[] PATTERNS = {
+    "**/node_modules/**",
+    "src/main/**/*.java",
+    "**/*Test.java",
+    "src/?oo/*.js",
+    "**/*.d.ts",
+    "build/**/generated/**/*",
+    "foo**bar/*.js",
+    "/docs/**",
+    "file:**/absolute/*.txt",
+    "**"
+  };
+
+  private static final String[] PATHS = {
+    "node_modules/lib/index.js",
+    "web/node_modules/lib/index.js",
+    "node_modules",
+    "src/main/java/Foo.java",
+    "src/main/Foo.java",
+    "src/main/java/FooTest.java",
+    "src/test/java/FooTest.java",
+    "src/foo/index.js",
+    "src/fooo/index.js",
+    "src/boo/a/index.js",
+    "types/index.d.ts",
+    "types/index.ts",
+    "build/generated/Foo.java",
+    "build/x/generated/y/Foo.java",
+    "build/generated",
+    "fooXbar/a.js",
+    "foo/x/bar/a.js",
+    "docs/index.md",
+    "x/absolute/file.txt",
+    "src/Foo.JAVA",
+    "src/main/java/Foo.Java"
+  };
+
+  private final Path baseDir = Paths.get("/base").toAbsolutePath();
+
+  @Test
+  public void match_same_patterns_than_path_patterns() {
+    for (int i = 0; i < PATTERNS.length; i++) {
+      PathPattern[] pathPatterns = PathPattern.create(Arrays.copyOf(PATTERNS, i + 1));
+      CompiledPathPatterns underTest = new CompiledPathPatterns(pathPatterns);
+      for (String path : PATHS) {
+        Path relativePath = Paths.get(path);
+        Path absolutePath = baseDir.resolve(relativePath);
+        for (boolean caseSensitiveFileExtension : new boolean[] {true, false}) {
+          BitSet expected = new BitSet();
+          for (int j = 0; j < pathPatterns.length; j++) {
+            if (pathPatterns[j].match(absolutePath, relativePath, caseSensitiveFileExtension)) {
+              expected.set(j);
+            }
+          }
+          assertThat(underTest.match(absolutePath, relativePath, caseSensitiveFileExtension)).as(path).isEqualTo(expected);
+        }
+        assertThat(underTest.matchAny(absolutePath, relativePath)).as(path).isEqualTo(underTest.match(absolutePath, relativePath, true).cardinality() > 0);
+      }
+    }
+  }
+
+  @Test
+  public void return_indexes_of_matching_patterns() {
+    CompiledPathPatterns underTest = new CompiledPathPatterns(PathPattern.create(new String[] {"**/*.java", "**/*.JS", "src/**", "src/*.java"}));
+
+    assertThat(underTest.match(baseDir.resolve("src/Foo.java"), Paths.get("src/Foo.java"), true).toString()).isEqualTo("{0, 2, 3}");
+    assertThat(underTest.match(baseDir.resolve("src/foo/Foo.java"), Paths.get("src/foo/Foo.java"), true).toString()).isEqualTo("{0, 2}");
+    assertThat(underTest.match(baseDir.resolve("lib/Foo.JAVA"), Paths.get("lib/Foo.JAVA"), true)).isEmpty();
+    assertThat(underTest.match(baseDir.resolve("lib/Foo.JAVA"), Paths.get("lib/Foo.JAVA"), false).toString()).isEqualTo("{0}");
+    assertThat(underTest.match(baseDir.resolve("lib/foo.js"), Paths.get("lib/foo.js"), false)).isEmpty();
+  }
+
+  @Test
+  public void match_all_files_below_directory() {
+    CompiledPathPatterns underTest = new CompiledPathPatterns(PathPattern.create(new String[] {"**/node_modules/**", "build/**", "**/*.js"}));
+
+    assertThat(underTest.matchAllBelow(Paths.get("node_modules"))).isTrue();
+    assertThat(underTest.matchAllBelow(Paths.get("web/node_modules"))).isTrue();
+    assertThat(underTest.matchAllBelow(Paths.get("web/node_modules/lib"))).isTrue();
+    assertThat(underTest.matchAllBelow(Paths.get("build"))).isTrue();
+    assertThat(underTest.matchAllBelow(Paths.get("src/build"))).isFalse();
+    assertThat(underTest.matchAllBelow(Paths.get("src"))).isFalse();
+    assertThat(underTest.matchAllBelow(Paths.get(""))).isFalse();
+  }
+
+  @Test
+  public void may_match_files_below_directory() {
+    CompiledPathPatterns underTest = new CompiledPathPatterns(PathPattern.create(new String[] {"src/main/**", "lib/*.js", "web/**/*.ts"}));
+
+    assertThat(underTest.mayMatchBelow(Paths.get("src"))).isTrue();
+    assertThat(underTest.mayMatchBelow(Paths.get("src/main/java"))).isTrue();
+    assertThat(underTest.mayMatchBelow(Paths.get("lib"))).isTrue();
+    assertThat(underTest.mayMatchBelow(Paths.get("web/a/b"))).isTrue();
+    assertThat(underTest.mayMatchBelow(Paths.get("src/test"))).isFalse();
+    assertThat(underTest.mayMatchBelow(Paths.get("lib/sub"))).isFalse();
+    assertThat(underTest.mayMatchBelow(Paths.get("docs"))).isFalse();
+    assertThat(underTest.mayMatchBelow(Paths.get(""))).isTrue();
+  }
+
+  @Test
+  public void may_match_files_below_any_directory_with_absolute_patterns() {
+    CompiledPathPatterns underTest = new CompiledPathPatterns(PathPattern.create(new String[] {"src/**", "file:**/*.js"}));
+
+    assertThat(underTest.mayMatchBelow(Paths.get("docs"))).isTrue();
+  }
+
+  @Test
+  public void no_patterns() {
+    CompiledPathPatterns underTest = new CompiledPathPatterns(new PathPattern[0]);
+
+    assertThat(underTest.isEmpty()).isTrue();
+    assertThat(underTest.matchAny(baseDir.resolve("src/Foo.java"), Paths.get("src/Foo.java"))).isFalse();
+  }
+
+  @Test
+  public void match_segment() {
+    assertThat(CompiledPathPatterns.matchSegment("*", "")).isTrue();
+    assertThat(CompiledPathPatterns.matchSegment("*", "Foo.java")).isTrue();
+    assertThat(CompiledPathPatterns.matchSegment("F?o*.java", "Foo.java")).isTrue();
+    assertThat(CompiledPathPatterns.matchSegment("F?o*.java", "Fooo.java.java")).isTrue();
+    assertThat(CompiledPathPatterns.matchSegment("F?o*.java", "Fo.java")).isFalse();
+    assertThat(CompiledPathPatterns.matchSegment("*a*b", "xaxbxb")).isTrue();
+    assertThat(CompiledPathPatterns.matchSegment("*a*b", "xaxbx")).isFalse();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import org.junit.Test;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DecodedContentsCacheTest {
+
+  private DecodedContentsCache underTest = new DecodedContentsCache(160);
+
+  @Test
+  public void keep_contents_given_to_consumer() {
+    DefaultInputFile file = file(1);
+    underTest.consumerFor(file).consume("foo");
+
+    assertThat(underTest.get(file)).contains("foo");
+    assertThat(underTest.get(file(2))).isEmpty();
+    assertThat(underTest.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void max_length_of_an_entry_is_a_fraction_of_the_budget() {
+    assertThat(underTest.consumerFor(file(1)).maxLength()).isEqualTo(10);
+
+    underTest.put(1, "01234567890");
+
+    assertThat(underTest.get(file(1))).isEmpty();
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void evict_least_recently_used_contents_when_budget_is_exceeded() {
+    for (int i = 1; i <= 16; i++) {
+      underTest.put(i, "0123456789");
+    }
+    // access to file 1 makes file 2 the least recently used
+    assertThat(underTest.get(file(1))).isPresent();
+
+    underTest.put(17, "0123456789");
+
+    assertThat(underTest.size()).isEqualTo(160);
+    assertThat(underTest.get(file(1))).isPresent();
+    assertThat(underTest.get(file(2))).isEmpty();
+    assertThat(underTest.get(file(17))).isPresent();
+  }
+
+  @Test
+  public void replace_contents_of_same_file() {
+    underTest.put(1, "foo");
+    underTest.put(1, "foobar");
+
+    assertThat(underTest.get(file(1))).contains("foobar");
+    assertThat(underTest.size()).isEqualTo(6);
+  }
+
+  @Test
+  public void keep_nothing_when_budget_is_zero() {
+    DecodedContentsCache cache = new DecodedContentsCache(0);
+    cache.put(1, "");
+    cache.put(2, "a");
+
+    assertThat(cache.consumerFor(file(1)).maxLength()).isZero();
+    assertThat(cache.get(file(2))).isEmpty();
+  }
+
+  private static DefaultInputFile file(int scannerId) {
+    return new TestInputFileBuilder("module", "src/Foo" + scannerId + ".java", scannerId).build();
+  }
+}
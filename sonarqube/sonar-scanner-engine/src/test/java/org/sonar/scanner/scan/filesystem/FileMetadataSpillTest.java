@@ -0,0 +1,130 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultIndexedFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.impl.utils.DefaultTempFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileMetadataSpillTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File spillDir;
+  private FileMetadataSpill underTest;
+  private AtomicInteger generations = new AtomicInteger();
+
+  @Before
+  public void setUp() throws IOException {
+    spillDir = temp.newFolder();
+    underTest = new FileMetadataSpill(true, new DefaultTempFolder(spillDir));
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void release_line_offsets_and_restore_them_from_disk() {
+    DefaultInputFile file = addFile("src/Foo.java", new Metadata(3, 2, "hash", new int[] {0, 4, 10}, new int[] {3, 8, 10}, 10));
+    DefaultInputFile notLoaded = addFile("src/Bar.java", new Metadata(1, 1, "hash", new int[] {0}, new int[] {1}, 1));
+    assertThat(file.lines()).isEqualTo(3);
+    assertThat(generations.get()).isEqualTo(1);
+
+    underTest.spillAll();
+
+    assertThat(file.lines()).isEqualTo(3);
+    assertThat(file.hash()).isEqualTo("hash");
+    assertThat(generations.get()).isEqualTo(1);
+    assertThat(underTest.restore(notLoaded)).isFalse();
+
+    assertThat(file.originalLineStartOffsets()).containsExactly(0, 4, 10);
+    assertThat(file.originalLineEndOffsets()).containsExactly(3, 8, 10);
+    assertThat(file.nonBlankLines()).isEqualTo(2);
+    assertThat(file.lastValidOffset()).isEqualTo(10);
+    assertThat(generations.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void write_line_offsets_of_a_file_once() {
+    DefaultInputFile file = addFile("src/Foo.java", new Metadata(2, 2, "hash", new int[] {0, 4}, new int[] {3, 1000}, 1000));
+    file.checkMetadata();
+
+    underTest.spillAll();
+    assertThat(file.lineLength(2)).isEqualTo(996);
+    underTest.spillAll();
+
+    assertThat(file.releaseLineOffsets()).isNull();
+    assertThat(file.originalLineEndOffsets()).containsExactly(3, 1000);
+    assertThat(spillDir.listFiles()).extracting(File::length)
+      .containsExactly((long) 7 * Integer.BYTES + "hash".length() + 4 * Integer.BYTES);
+  }
+
+  @Test
+  public void release_only_files_loaded_by_the_metadata_generator() {
+    DefaultInputFile loaded = addFile("src/Foo.java", new Metadata(1, 1, "hash", new int[] {0}, new int[] {1}, 1));
+    loaded.checkMetadata();
+    DefaultInputFile notLoaded = new DefaultInputFile(new DefaultIndexedFile("foo", temp.getRoot().toPath(), "src/Bar.java", null),
+      f -> f.setMetadata(new Metadata(1, 1, "hash", new int[] {0}, new int[] {1}, 1)));
+    notLoaded.checkMetadata();
+
+    underTest.spillAll();
+
+    assertThat(loaded.releaseLineOffsets()).isNull();
+    assertThat(notLoaded.releaseLineOffsets()).isNotNull();
+  }
+
+  @Test
+  public void do_nothing_when_disabled() {
+    FileMetadataSpill disabled = new FileMetadataSpill(false, null);
+    DefaultInputFile file = addFile("src/Foo.java", new Metadata(1, 1, "hash", new int[] {0}, new int[] {1}, 1));
+    file.checkMetadata();
+
+    disabled.spillAll();
+
+    assertThat(file.releaseLineOffsets()).isNotNull();
+    assertThat(disabled.restore(file)).isFalse();
+  }
+
+  private DefaultInputFile addFile(String path, Metadata metadata) {
+    DefaultIndexedFile indexedFile = new DefaultIndexedFile("foo", temp.getRoot().toPath(), path, null);
+    DefaultInputFile file = new DefaultInputFile(indexedFile, f -> {
+      if (!underTest.restore(f)) {
+        generations.incrementAndGet();
+        f.setMetadata(metadata);
+        underTest.markLoaded(f);
+      }
+    });
+    return file;
+  }
+}
@@ -89,6 +89,11 @@ public class InputComponentStoreTest {
       assertThat(inputPath.relativePath()).startsWith("src/main/java/");
     }
 
+    assertThat(store.getByKey("struts:src/main/java/Foo.java")).isSameAs(fooFile);
+    assertThat(store.getByKey("struts:src/main/java/Unknown.java")).isNull();
+    assertThat(store.getByKey(subModuleKey)).isSameAs(subModule);
+    assertThat(store.all()).containsExactlyInAnyOrder(subModule, fooFile, loadedFile);
+
     List<InputFile> toPublish = new LinkedList<>();
     store.allFilesToPublish().forEach(toPublish::add);
     assertThat(toPublish).containsExactly(fooFile);
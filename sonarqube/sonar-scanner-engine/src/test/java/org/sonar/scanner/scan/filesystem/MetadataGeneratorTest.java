@@ -57,7 +57,8 @@ public class MetadataGeneratorTest {
     FileMetadata metadata = new FileMetadata();
     IssueExclusionsLoader issueExclusionsLoader = new IssueExclusionsLoader(mock(IssueExclusionPatternInitializer.class), mock(IgnoreIssuesFilter.class),
       mock(AnalysisWarnings.class));
-    generator = new MetadataGenerator(statusDetection, metadata, issueExclusionsLoader);
+    generator = new MetadataGenerator(statusDetection, metadata, issueExclusionsLoader, new DecodedContentsCache(1024 * 1024),
+      FileMetadataSpill.disabled());
   }
 
   @Test
@@ -103,6 +104,15 @@ public class MetadataGeneratorTest {
     assertThat(inputFile.originalLineEndOffsets()).containsOnly(3, 7, 12);
   }
 
+  @Test
+  public void keep_decoded_contents_without_bom() throws Exception {
+    Path tempFile = temp.newFile().toPath();
+    FileUtils.write(tempFile.toFile(), "\uFEFFfoo\nbar\r\nbaz", StandardCharsets.UTF_8, true);
+
+    DefaultInputFile inputFile = createInputFileWithMetadata(tempFile);
+    assertThat(generator.cachedContents(inputFile)).contains("foo\nbar\r\nbaz");
+  }
+
   @Test
   public void use_default_charset_if_detection_fails() throws IOException {
     Path tempFile = temp.newFile().toPath();
@@ -0,0 +1,121 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void reuse_changesets_of_files_with_same_content_and_revision() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("cache/project");
+    DefaultInputFile file = newFile("src/Foo.java", "hash1", 1);
+
+    BlameCache cache = BlameCache.load(cacheFile, "rev1");
+    assertThat(cache.get(file)).isNull();
+    cache.put(file, changesets(1, "1"));
+    cache.save();
+
+    DefaultInputFile sameFile = newFile("src/Foo.java", "hash1", 2);
+    ScannerReport.Changesets reused = BlameCache.load(cacheFile, "rev1").get(sameFile);
+    assertThat(reused).isNotNull();
+    assertThat(reused.getComponentRef()).isEqualTo(2);
+    assertThat(reused.getChangeset(0).getRevision()).isEqualTo("1");
+    assertThat(reused.getChangesetIndexByLineList()).containsExactly(0);
+  }
+
+  @Test
+  public void ignore_changesets_of_files_with_different_content() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("project");
+    BlameCache cache = BlameCache.load(cacheFile, "rev1");
+    cache.put(newFile("src/Foo.java", "hash1", 1), changesets(1, "1"));
+    cache.save();
+
+    BlameCache reloaded = BlameCache.load(cacheFile, "rev1");
+    assertThat(reloaded.get(newFile("src/Foo.java", "hash2", 1))).isNull();
+    assertThat(reloaded.get(newFile("src/Bar.java", "hash1", 1))).isNull();
+  }
+
+  @Test
+  public void ignore_cache_of_other_revision() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("project");
+    DefaultInputFile file = newFile("src/Foo.java", "hash1", 1);
+    BlameCache cache = BlameCache.load(cacheFile, "rev1");
+    cache.put(file, changesets(1, "1"));
+    cache.save();
+
+    assertThat(BlameCache.load(cacheFile, "rev2").get(file)).isNull();
+  }
+
+  @Test
+  public void keep_only_files_of_last_analysis() throws IOException {
+    Path cacheFile = temp.getRoot().toPath().resolve("project");
+    DefaultInputFile foo = newFile("src/Foo.java", "hash1", 1);
+    DefaultInputFile bar = newFile("src/Bar.java", "hash1", 2);
+    BlameCache cache = BlameCache.load(cacheFile, "rev1");
+    cache.put(foo, changesets(1, "1"));
+    cache.put(bar, changesets(2, "1"));
+    cache.save();
+
+    cache = BlameCache.load(cacheFile, "rev1");
+    assertThat(cache.get(foo)).isNotNull();
+    cache.save();
+
+    cache = BlameCache.load(cacheFile, "rev1");
+    assertThat(cache.get(foo)).isNotNull();
+    assertThat(cache.get(bar)).isNull();
+  }
+
+  @Test
+  public void ignore_corrupted_cache() throws IOException {
+    Path cacheFile = temp.newFile().toPath();
+    Files.write(cacheFile, "corrupted".getBytes(StandardCharsets.UTF_8));
+
+    BlameCache cache = BlameCache.load(cacheFile, "rev1");
+
+    assertThat(cache.get(newFile("src/Foo.java", "hash1", 1))).isNull();
+  }
+
+  private static DefaultInputFile newFile(String path, String hash, int id) {
+    return new TestInputFileBuilder("foo", path, id).setHash(hash).setLines(1).build();
+  }
+
+  private static ScannerReport.Changesets changesets(int ref, String revision) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(ref)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision(revision).setAuthor("john").setDate(1_000L))
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
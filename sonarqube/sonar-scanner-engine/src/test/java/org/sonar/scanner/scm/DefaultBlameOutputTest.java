@@ -19,15 +19,21 @@
  */
 package org.sonar.scanner.scm;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Date;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.scm.BlameLine;
 import org.sonar.api.utils.System2;
 import org.sonar.scanner.notifications.DefaultAnalysisWarnings;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -37,6 +43,8 @@ public class DefaultBlameOutputTest {
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
   private System2 system2 = mock(System2.class);
   private DefaultAnalysisWarnings analysisWarnings = new DefaultAnalysisWarnings(system2);
 
@@ -89,4 +97,21 @@ public class DefaultBlameOutputTest {
       .blameResult(file, singletonList(new BlameLine().date(new Date()).author("guy")));
   }
 
+
+  @Test
+  public void addChangesetsToBlameCache() throws IOException {
+    DefaultInputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(1).setHash("hash").build();
+    Path cacheFile = temp.getRoot().toPath().resolve("cache");
+    BlameCache blameCache = BlameCache.load(cacheFile, "rev");
+
+    DefaultBlameOutput output = new DefaultBlameOutput(new ScannerReportWriter(temp.newFolder()), analysisWarnings, singletonList(file), blameCache);
+    output.blameResult(file, singletonList(new BlameLine().revision("1").author("Guy").date(new Date(1_000L))));
+    output.finish(true);
+    blameCache.save();
+
+    ScannerReport.Changesets changesets = BlameCache.load(cacheFile, "rev").get(file);
+    assertThat(changesets.getComponentRef()).isEqualTo(file.scannerId());
+    assertThat(changesets.getChangeset(0).getRevision()).isEqualTo("1");
+    assertThat(changesets.getChangeset(0).getAuthor()).isEqualTo("guy");
+  }
 }
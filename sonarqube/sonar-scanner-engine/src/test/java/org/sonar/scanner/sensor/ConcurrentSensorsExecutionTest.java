@@ -0,0 +1,238 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.sensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.scanner.telemetry.ScannerTelemetry;
+
+import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+
+public class ConcurrentSensorsExecutionTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private final Map<ModuleSensorWrapper, String> pluginKeys = new HashMap<>();
+  private final Set<String> sequentialPlugins = new HashSet<>();
+
+  @Test
+  public void sensors_of_different_plugins_and_languages_are_independent() {
+    ModuleSensorWrapper java = sensor("java", "java");
+    ModuleSensorWrapper js = sensor("js", "js");
+
+    ConcurrentSensorsExecution<ModuleSensorWrapper> underTest = newExecution(Arrays.asList(java, js), emptyMap());
+
+    assertThat(underTest.previousSensors(java)).isEmpty();
+    assertThat(underTest.previousSensors(js)).isEmpty();
+  }
+
+  @Test
+  public void sensors_not_restricted_to_languages_are_independent() {
+    ModuleSensorWrapper java = sensor("java", "java");
+    ModuleSensorWrapper coverage = sensor("coverage");
+    ModuleSensorWrapper js = sensor("js", "js");
+    ModuleSensorWrapper scm = sensor("scm");
+
+    ConcurrentSensorsExecution<ModuleSensorWrapper> underTest = newExecution(Arrays.asList(java, coverage, js, scm), emptyMap());
+
+    assertThat(underTest.previousSensors(coverage)).isEmpty();
+    assertThat(underTest.previousSensors(js)).isEmpty();
+    assertThat(underTest.previousSensors(scm)).isEmpty();
+  }
+
+  @Test
+  public void sensors_of_same_language_or_declaring_dependency_are_executed_in_order() {
+    ModuleSensorWrapper java1 = sensor("java", "java");
+    ModuleSensorWrapper java2 = sensor("other", "java", "kotlin");
+    ModuleSensorWrapper java3 = sensor("java");
+    ModuleSensorWrapper js = sensor("js", "js");
+    ModuleSensorWrapper coverage = sensor("coverage");
+    Map<Object, Set<Object>> dependencies = new HashMap<>();
+    dependencies.put(coverage.wrappedSensor(), new HashSet<>(Arrays.asList(js.wrappedSensor())));
+
+    ConcurrentSensorsExecution<ModuleSensorWrapper> underTest = newExecution(Arrays.asList(java1, java2, java3, js, coverage), dependencies);
+
+    assertThat(underTest.previousSensors(java1)).isEmpty();
+    assertThat(underTest.previousSensors(java2)).containsExactly(java1);
+    assertThat(underTest.previousSensors(java3)).isEmpty();
+    assertThat(underTest.previousSensors(js)).isEmpty();
+    assertThat(underTest.previousSensors(coverage)).containsExactly(js);
+  }
+
+  @Test
+  public void sensors_of_sequential_plugins_are_executed_in_order_with_all_sensors() {
+    ModuleSensorWrapper java = sensor("java", "java");
+    ModuleSensorWrapper scm = sensor("scm");
+    ModuleSensorWrapper js = sensor("js", "js");
+    ModuleSensorWrapper coverage = sensor("coverage");
+    sequentialPlugins.add("scm");
+
+    ConcurrentSensorsExecution<ModuleSensorWrapper> underTest = newExecution(Arrays.asList(java, scm, js, coverage), emptyMap());
+
+    assertThat(underTest.previousSensors(scm)).containsExactly(java);
+    assertThat(underTest.previousSensors(js)).containsExactly(scm);
+    assertThat(underTest.previousSensors(coverage)).containsExactly(scm);
+  }
+
+  @Test
+  public void execute_independent_sensors_concurrently_and_log_timings() {
+    // each sensor waits for the other one to be started
+    CountDownLatch started = new CountDownLatch(2);
+    ModuleSensorWrapper java = sensor("java", new WaitingSensor(started), "java");
+    ModuleSensorWrapper js = sensor("js", new WaitingSensor(started), "js");
+
+    newExecution(Arrays.asList(java, js), emptyMap()).execute(2);
+
+    assertThat(started.getCount()).isZero();
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Sensor java", "Sensor js");
+    assertThat(logTester.logs(LoggerLevel.INFO)).anyMatch(log -> log.matches("Sensor java \\(done\\) \\| time=\\d+ms( \\| cpu=\\d+ms)?"));
+  }
+
+  @Test
+  public void execute_sensor_not_restricted_to_languages_concurrently_with_sensor_of_language() {
+    CountDownLatch started = new CountDownLatch(2);
+    ModuleSensorWrapper java = sensor("java", new WaitingSensor(started), "java");
+    ModuleSensorWrapper cpd = sensor("cpd", new WaitingSensor(started));
+
+    newExecution(Arrays.asList(java, cpd), emptyMap()).execute(2);
+
+    assertThat(started.getCount()).isZero();
+  }
+
+  @Test
+  public void dont_execute_sensors_depending_upon_failing_sensor() {
+    FailingSensor failing = new FailingSensor();
+    ModuleSensorWrapper failingWrapper = sensor("java", failing, "java");
+    RecordingSensor dependent = new RecordingSensor();
+    ModuleSensorWrapper dependentWrapper = sensor("other", dependent, "java");
+    RecordingSensor independent = new RecordingSensor();
+    ModuleSensorWrapper independentWrapper = sensor("js", independent, "js");
+
+    try {
+      newExecution(Arrays.asList(failingWrapper, dependentWrapper, independentWrapper), emptyMap()).execute(2);
+      fail("Expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("failure");
+    }
+
+    assertThat(dependent.executed).isFalse();
+    assertThat(independent.executed).isTrue();
+  }
+
+  private ConcurrentSensorsExecution<ModuleSensorWrapper> newExecution(List<ModuleSensorWrapper> sensors, Map<Object, Set<Object>> dependencies) {
+    return new ConcurrentSensorsExecution<>(sensors, dependencies, Object::toString, pluginKeys::get, sequentialPlugins, new ScannerTelemetry());
+  }
+
+  private ModuleSensorWrapper sensor(String pluginKey, String... languages) {
+    return sensor(pluginKey, new RecordingSensor(), languages);
+  }
+
+  private ModuleSensorWrapper sensor(String pluginKey, Sensor sensor, String... languages) {
+    ModuleSensorWrapper wrapper = new ModuleSensorWrapper(new DescribedSensor(sensor, pluginKey, languages), mock(ModuleSensorContext.class), mock(ModuleSensorOptimizer.class));
+    pluginKeys.put(wrapper, pluginKey);
+    return wrapper;
+  }
+
+  private static class DescribedSensor implements Sensor {
+    private final Sensor delegate;
+    private final String name;
+    private final String[] languages;
+
+    DescribedSensor(Sensor delegate, String name, String... languages) {
+      this.delegate = delegate;
+      this.name = name;
+      this.languages = languages;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name(name).onlyOnLanguages(languages);
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      delegate.execute(context);
+    }
+  }
+
+  private static class RecordingSensor implements Sensor {
+    private volatile boolean executed = false;
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      executed = true;
+    }
+  }
+
+  private static class FailingSensor implements Sensor {
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      throw new IllegalStateException("failure");
+    }
+  }
+
+  private static class WaitingSensor implements Sensor {
+    private final CountDownLatch started;
+
+    WaitingSensor(CountDownLatch started) {
+      this.started = started;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      started.countDown();
+      try {
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
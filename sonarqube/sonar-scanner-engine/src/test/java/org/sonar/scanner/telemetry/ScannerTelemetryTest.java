@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.telemetry;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScannerTelemetryTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ScannerTelemetry underTest = new ScannerTelemetry();
+
+  @Test
+  public void accumulate_measures_of_same_phase() {
+    try (ScannerTelemetry.Measure measure = underTest.start("Indexing")) {
+      measure.addFiles(2).addBytes(100);
+    }
+    try (ScannerTelemetry.Measure measure = underTest.start("Sensor Foo")) {
+      measure.addFiles(1);
+    }
+    try (ScannerTelemetry.Measure measure = underTest.start("Indexing")) {
+      measure.addFiles(3).addBytes(50);
+    }
+
+    assertThat(underTest.phases()).hasSize(2);
+    ScannerTelemetry.PhaseMetrics indexing = underTest.phases().get(0);
+    assertThat(indexing.name()).isEqualTo("Indexing");
+    assertThat(indexing.executions()).isEqualTo(2);
+    assertThat(indexing.files()).isEqualTo(5);
+    assertThat(indexing.bytes()).isEqualTo(150);
+    assertThat(indexing.wallTimeNanos()).isGreaterThanOrEqualTo(0);
+    assertThat(indexing.cpuTimeNanos()).isGreaterThanOrEqualTo(-1);
+    assertThat(indexing.allocatedBytes()).isGreaterThanOrEqualTo(-1);
+    assertThat(underTest.phases().get(1).name()).isEqualTo("Sensor Foo");
+  }
+
+  @Test
+  public void closing_measure_twice_counts_once() {
+    ScannerTelemetry.Measure measure = underTest.start("SCM");
+    measure.close();
+    measure.close();
+
+    assertThat(underTest.phases()).extracting(ScannerTelemetry.PhaseMetrics::executions).containsExactly(1);
+  }
+
+  @Test
+  public void stop_returns_metrics_of_the_execution() {
+    underTest.start("SCM").addFiles(3).close();
+    ScannerTelemetry.Measure measure = underTest.start("SCM").addFiles(2);
+
+    ScannerTelemetry.PhaseMetrics metrics = measure.stop();
+    measure.close();
+
+    assertThat(metrics.executions()).isEqualTo(1);
+    assertThat(metrics.files()).isEqualTo(2);
+    assertThat(measure.stop()).isSameAs(metrics);
+    assertThat(underTest.phases()).extracting(ScannerTelemetry.PhaseMetrics::files).containsExactly(5L);
+  }
+
+  @Test
+  public void measure_allocations_of_current_thread() {
+    byte[][] allocated;
+    try (ScannerTelemetry.Measure measure = underTest.start("Allocation")) {
+      allocated = new byte[10][];
+      for (int i = 0; i < allocated.length; i++) {
+        allocated[i] = new byte[1024 * 1024];
+      }
+    }
+
+    assertThat(allocated).hasSize(10);
+    long allocatedBytes = underTest.phases().get(0).allocatedBytes();
+    if (allocatedBytes != -1) {
+      assertThat(allocatedBytes).isGreaterThanOrEqualTo(10 * 1024 * 1024);
+    }
+  }
+
+  @Test
+  public void write_json() throws IOException {
+    try (ScannerTelemetry.Measure measure = underTest.start("Indexing")) {
+      measure.addFiles(2).addBytes(100);
+    }
+
+    StringWriter writer = new StringWriter();
+    underTest.writeJson(writer);
+
+    assertThat(writer.toString())
+      .startsWith("{\n  \"phases\": [\n    {\n      \"name\": \"Indexing\",\n      \"executions\": 1,\n      \"wallTimeMs\": ")
+      .contains("\"files\": 2,\n      \"bytes\": 100\n    }\n  ]\n}");
+  }
+
+  @Test
+  public void write_json_file() throws IOException {
+    underTest.start("Indexing").close();
+    Path file = temp.getRoot().toPath().resolve("telemetry.json");
+
+    underTest.writeJson(file);
+
+    assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).contains("\"name\": \"Indexing\"");
+  }
+}
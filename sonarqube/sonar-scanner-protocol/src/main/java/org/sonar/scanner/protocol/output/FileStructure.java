@@ -90,6 +90,10 @@ public class FileStructure {
     return new File(dir, "analysis-warnings.pb");
   }
 
+  public File telemetry() {
+    return new File(dir, "scanner-telemetry.json");
+  }
+
   public File root() {
     return dir;
   }
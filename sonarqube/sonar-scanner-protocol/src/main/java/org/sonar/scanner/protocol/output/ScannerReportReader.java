@@ -19,8 +19,13 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
 
@@ -31,7 +36,11 @@ public class ScannerReportReader {
   private final FileStructure fileStructure;
 
   public ScannerReportReader(File dir) {
-    this.fileStructure = new FileStructure(dir);
+    this(new FileStructure(dir));
+  }
+
+  protected ScannerReportReader(FileStructure fileStructure) {
+    this.fileStructure = fileStructure;
   }
 
   public ScannerReport.Metadata readMetadata() {
@@ -39,7 +48,7 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       throw new IllegalStateException("Metadata file is missing in analysis report: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Metadata.parser());
+    return read(file, ScannerReport.Metadata.parser());
   }
 
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
@@ -47,7 +56,7 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ActiveRule.parser());
+    return readStream(file, ScannerReport.ActiveRule.parser());
   }
 
   public CloseableIterator<ScannerReport.AdHocRule> readAdHocRules() {
@@ -55,13 +64,13 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.AdHocRule.parser());
+    return readStream(file, ScannerReport.AdHocRule.parser());
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
+      return readStream(file, ScannerReport.Measure.parser());
     }
     return emptyCloseableIterator();
   }
@@ -70,7 +79,7 @@ public class ScannerReportReader {
   public ScannerReport.Changesets readChangesets(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
+      return read(file, ScannerReport.Changesets.parser());
     }
     return null;
   }
@@ -80,13 +89,13 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return read(file, ScannerReport.Component.parser());
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
+      return readStream(file, ScannerReport.Issue.parser());
     }
     return emptyCloseableIterator();
   }
@@ -94,7 +103,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.ExternalIssue> readComponentExternalIssues(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.EXTERNAL_ISSUES, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.ExternalIssue.parser());
+      return readStream(file, ScannerReport.ExternalIssue.parser());
     }
     return emptyCloseableIterator();
   }
@@ -102,7 +111,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
+      return readStream(file, ScannerReport.Duplication.parser());
     }
     return emptyCloseableIterator();
   }
@@ -110,7 +119,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
+      return readStream(file, ScannerReport.CpdTextBlock.parser());
     }
     return emptyCloseableIterator();
   }
@@ -118,21 +127,21 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
+      return readStream(file, ScannerReport.Symbol.parser());
     }
     return emptyCloseableIterator();
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return fileExists(file);
   }
 
   @CheckForNull
   public CloseableIterator<ScannerReport.LineSgnificantCode> readComponentSignificantCode(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SGNIFICANT_CODE, fileRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineSgnificantCode.parser());
+      return readStream(file, ScannerReport.LineSgnificantCode.parser());
     }
     return null;
   }
@@ -141,7 +150,7 @@ public class ScannerReportReader {
   public ScannerReport.ChangedLines readComponentChangedLines(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CHANGED_LINES, fileRef);
     if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.ChangedLines.parser());
+      return read(file, ScannerReport.ChangedLines.parser());
     }
     return null;
   }
@@ -154,20 +163,20 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
+      return readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
     }
     return emptyCloseableIterator();
   }
 
   public boolean hasCoverage(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return fileExists(file);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
+      return readStream(file, ScannerReport.LineCoverage.parser());
     }
     return emptyCloseableIterator();
   }
@@ -181,12 +190,50 @@ public class ScannerReportReader {
     return null;
   }
 
+  /**
+   * Same as {@link #readFileSource(int)} but returns the content of the file rather than its location,
+   * which does not require the report to be extracted on disk. The stream must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openFileSource(int fileRef) {
+    File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
+    if (fileExists(file)) {
+      return openInputStream(file);
+    }
+    return null;
+  }
+
+  /**
+   * Content of the analysis log, or {@code null} if the report does not contain it. The stream must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openAnalysisLog() {
+    File file = fileStructure.analysisLog();
+    if (fileExists(file)) {
+      return openInputStream(file);
+    }
+    return null;
+  }
+
+  /**
+   * Metrics of the phases of the analysis, as JSON, or {@code null} if the report does not contain them. The stream
+   * must be closed by caller.
+   */
+  @CheckForNull
+  public InputStream openTelemetry() {
+    File file = fileStructure.telemetry();
+    if (fileExists(file)) {
+      return openInputStream(file);
+    }
+    return null;
+  }
+
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
     File file = fileStructure.contextProperties();
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
+    return readStream(file, ScannerReport.ContextProperty.parser());
   }
 
   public CloseableIterator<ScannerReport.AnalysisWarning> readAnalysisWarnings() {
@@ -194,13 +241,29 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.AnalysisWarning.parser());
+    return readStream(file, ScannerReport.AnalysisWarning.parser());
   }
 
-  private static boolean fileExists(File file) {
+  protected boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
 
+  protected InputStream openInputStream(File file) {
+    try {
+      return FileUtils.openInputStream(file);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open file " + file, e);
+    }
+  }
+
+  protected <MSG extends Message> MSG read(File file, Parser<MSG> parser) {
+    return Protobuf.read(file, parser);
+  }
+
+  protected <MSG extends Message> CloseableIterator<MSG> readStream(File file, Parser<MSG> parser) {
+    return Protobuf.readStream(file, parser);
+  }
+
   public FileStructure getFileStructure() {
     return fileStructure;
   }
@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.CheckForNull;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.ContextException;
+import org.sonar.core.util.Protobuf;
+
+/**
+ * Reads the entries of an analysis report directly from its zip file, without extracting it.
+ * Entries are located by their name in {@link FileStructure} and decompressed on demand. The
+ * underlying {@link ZipFile} supports random access, so several entries can be read concurrently.
+ */
+public class ZipScannerReportReader extends ScannerReportReader implements Closeable {
+
+  private final File zip;
+  private final ZipFile zipFile;
+
+  public ZipScannerReportReader(File zip) {
+    // files of the structure are never accessed on disk, only their names are used to find zip entries
+    super(new FileStructure(zip.getAbsoluteFile().getParentFile()));
+    this.zip = zip;
+    try {
+      this.zipFile = new ZipFile(zip);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open analysis report " + zip, e);
+    }
+  }
+
+  @Override
+  protected boolean fileExists(File file) {
+    ZipEntry entry = entryOf(file);
+    return entry != null && !entry.isDirectory();
+  }
+
+  @Override
+  protected InputStream openInputStream(File file) {
+    ZipEntry entry = entryOf(file);
+    if (entry == null) {
+      throw new IllegalStateException("Entry " + file.getName() + " does not exist in analysis report " + zip);
+    }
+    try {
+      return new BufferedInputStream(zipFile.getInputStream(entry));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read entry " + entry.getName() + " of analysis report " + zip, e);
+    }
+  }
+
+  @Override
+  protected <MSG extends Message> MSG read(File file, Parser<MSG> parser) {
+    try {
+      return Protobuf.read(openInputStream(file), parser);
+    } catch (RuntimeException e) {
+      throw ContextException.of("Unable to read message", e).addContext("entry", file.getName());
+    }
+  }
+
+  @Override
+  protected <MSG extends Message> CloseableIterator<MSG> readStream(File file, Parser<MSG> parser) {
+    // the input stream is closed by the CloseableIterator
+    return Protobuf.readStream(openInputStream(file), parser);
+  }
+
+  @CheckForNull
+  private ZipEntry entryOf(File file) {
+    return zipFile.getEntry(file.getName());
+  }
+
+  @Override
+  public void close() throws IOException {
+    zipFile.close();
+  }
+}
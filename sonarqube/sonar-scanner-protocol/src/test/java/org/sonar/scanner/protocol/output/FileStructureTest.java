@@ -83,4 +83,14 @@ public class FileStructureTest {
     FileStructure structure = new FileStructure(dir);
     assertThat(structure.contextProperties()).exists().isFile().isEqualTo(file);
   }
+
+  @Test
+  public void telemetry_file() throws Exception {
+    File dir = temp.newFolder();
+    File file = new File(dir, "scanner-telemetry.json");
+    FileUtils.write(file, "content");
+
+    FileStructure structure = new FileStructure(dir);
+    assertThat(structure.telemetry()).exists().isFile().isEqualTo(file);
+  }
 }
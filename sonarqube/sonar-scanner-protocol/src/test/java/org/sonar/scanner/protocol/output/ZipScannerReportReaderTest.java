@@ -0,0 +1,129 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.util.CloseableIterator;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipScannerReportReaderTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File reportDir;
+  private ScannerReportWriter writer;
+  private ZipScannerReportReader underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    reportDir = temp.newFolder();
+    writer = new ScannerReportWriter(reportDir);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (underTest != null) {
+      underTest.close();
+    }
+  }
+
+  @Test
+  public void read_metadata_from_zip() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("PROJECT_A").build());
+
+    underTest = new ZipScannerReportReader(zipReport());
+
+    assertThat(underTest.readMetadata().getProjectKey()).isEqualTo("PROJECT_A");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void fail_if_missing_metadata_entry() throws IOException {
+    underTest = new ZipScannerReportReader(zipReport());
+
+    underTest.readMetadata();
+  }
+
+  @Test
+  public void read_streamed_messages_from_zip() throws IOException {
+    writer.writeComponentIssues(1, singletonList(ScannerReport.Issue.newBuilder().setMsg("the message").build()));
+
+    underTest = new ZipScannerReportReader(zipReport());
+
+    try (CloseableIterator<ScannerReport.Issue> issues = underTest.readComponentIssues(1)) {
+      assertThat(issues.next().getMsg()).isEqualTo("the message");
+      assertThat(issues.hasNext()).isFalse();
+    }
+    assertThat(underTest.readComponentIssues(2).hasNext()).isFalse();
+  }
+
+  @Test
+  public void open_file_source_and_analysis_log() throws IOException {
+    FileUtils.write(writer.getSourceFile(1), "line1\nline2", UTF_8);
+    FileUtils.write(writer.getFileStructure().analysisLog(), "log1", UTF_8);
+
+    underTest = new ZipScannerReportReader(zipReport());
+
+    try (InputStream source = underTest.openFileSource(1); InputStream log = underTest.openAnalysisLog()) {
+      assertThat(IOUtils.toString(source, UTF_8)).isEqualTo("line1\nline2");
+      assertThat(IOUtils.toString(log, UTF_8)).isEqualTo("log1");
+    }
+    assertThat(underTest.openFileSource(2)).isNull();
+  }
+
+  @Test
+  public void entries_are_not_extracted_to_disk() throws IOException {
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("PROJECT_A").build());
+    File zip = zipReport();
+
+    underTest = new ZipScannerReportReader(zip);
+    underTest.readMetadata();
+
+    assertThat(zip.getParentFile().list()).containsOnly(zip.getName());
+  }
+
+  private File zipReport() throws IOException {
+    File zip = new File(temp.newFolder(), "report.zip");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip.toPath()))) {
+      File[] files = reportDir.listFiles();
+      for (File file : files) {
+        out.putNextEntry(new ZipEntry(file.getName()));
+        Files.copy(file.toPath(), out);
+        out.closeEntry();
+      }
+    }
+    return zip;
+  }
+}
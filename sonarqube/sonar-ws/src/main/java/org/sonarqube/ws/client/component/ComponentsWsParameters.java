@@ -26,6 +26,7 @@ public class ComponentsWsParameters {
   // actions
   public static final String ACTION_SEARCH = "search";
   public static final String ACTION_TREE = "tree";
+  public static final String ACTION_STREAM_TREE = "stream_tree";
   public static final String ACTION_SHOW = "show";
   public static final String ACTION_SEARCH_PROJECTS = "search_projects";
   public static final String ACTION_SUGGESTIONS = "suggestions";
@@ -39,6 +40,7 @@ public class ComponentsWsParameters {
   public static final String PARAM_COMPONENT = "component";
   public static final String PARAM_BRANCH = "branch";
   public static final String PARAM_PULL_REQUEST = "pullRequest";
+  public static final String PARAM_CURSOR = "cursor";
 
   private ComponentsWsParameters() {
     // static utility class